@@ -3,14 +3,22 @@ package com.rdmbs.rdbms.controller;
 import com.rdmbs.rdbms.dto.SQLRequest;
 import com.rdmbs.rdbms.dto.SQLResponse;
 import com.rdmbs.rdbms.dto.TableInfo;
+import com.rdmbs.rdbms.service.ColumnarResultWriter;
 import com.rdmbs.rdbms.service.DatabaseService;
+import com.rdmbs.rdbms.service.NdjsonResultWriter;
+import com.rdmbs.rdbms.service.ResultWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api")
@@ -27,10 +35,31 @@ public class DatabaseController {
                     .body(SQLResponse.error("SQL query cannot be empty"));
         }
         
-        SQLResponse response = databaseService.executeSQL(request.getSql());
+        List<Object> params = request.getParams() != null ? request.getParams() : Collections.emptyList();
+        SQLResponse response = databaseService.executeSQL(request.getSql(), params);
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * The same statement run for a client that sends
+     * {@code Accept: application/x-ndjson}: rows are written as they are read
+     * instead of being collected into one response first.
+     */
+    @PostMapping(value = "/execute", produces = NdjsonResultWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSQL(@RequestBody SQLRequest request) {
+        return stream(request, NdjsonResultWriter.MEDIA_TYPE, NdjsonResultWriter::new);
+    }
+
+    /**
+     * The same statement run for a client that sends
+     * {@code Accept: application/vnd.rdbms.columnar}: rows are streamed in the
+     * binary column-by-column format described in {@link ColumnarResultWriter}.
+     */
+    @PostMapping(value = "/execute", produces = ColumnarResultWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSQLColumnar(@RequestBody SQLRequest request) {
+        return stream(request, ColumnarResultWriter.MEDIA_TYPE, ColumnarResultWriter::new);
+    }
+
     @GetMapping("/tables")
     public ResponseEntity<List<String>> getAllTables() {
         List<String> tables = databaseService.getAllTableNames();
@@ -56,4 +85,18 @@ public class DatabaseController {
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "UP", "database", "Duka RDBMS"));
     }
+
+    private ResponseEntity<StreamingResponseBody> stream(SQLRequest request, String mediaType,
+                                                         Function<OutputStream, ResultWriter> writers) {
+        if (request.getSql() == null || request.getSql().trim().isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.parseMediaType(mediaType))
+                    .body(out -> writers.apply(out).end(false, "SQL query cannot be empty", 0, 0));
+        }
+        
+        List<Object> params = request.getParams() != null ? request.getParams() : Collections.emptyList();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(mediaType))
+                .body(out -> databaseService.streamSQL(request.getSql(), params, writers.apply(out)));
+    }
 }
@@ -2,7 +2,11 @@ package com.rdmbs.rdbms.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class SQLRequest {
     private String sql;
+    /** Values for the {@code ?} placeholders in {@link #sql}, in order. */
+    private List<Object> params;
 }
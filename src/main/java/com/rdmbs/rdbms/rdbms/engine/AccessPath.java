@@ -0,0 +1,49 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.index.Index;
+import lombok.Data;
+
+/**
+ * How the rows of a single table are fetched: a full scan, a point lookup on
+ * an index, or a range scan over an index.
+ */
+@Data
+public class AccessPath {
+    private final Type type;
+    private Index index;
+    private Object key;
+    private Object lowerBound;
+    private boolean lowerInclusive;
+    private Object upperBound;
+    private boolean upperInclusive;
+    /** True when the path yields exactly the rows the WHERE clause matches, so no filter is needed. */
+    private boolean exact;
+    /** Read the index from its highest key down, for ORDER BY ... DESC. */
+    private boolean descending;
+
+    public enum Type {
+        FULL_SCAN, INDEX_SEEK, INDEX_RANGE
+    }
+
+    public static AccessPath fullScan() {
+        return new AccessPath(Type.FULL_SCAN);
+    }
+
+    public static AccessPath indexSeek(Index index, Object key) {
+        AccessPath path = new AccessPath(Type.INDEX_SEEK);
+        path.setIndex(index);
+        path.setKey(key);
+        return path;
+    }
+
+    public static AccessPath indexRange(Index index, Object lowerBound, boolean lowerInclusive,
+                                        Object upperBound, boolean upperInclusive) {
+        AccessPath path = new AccessPath(Type.INDEX_RANGE);
+        path.setIndex(index);
+        path.setLowerBound(lowerBound);
+        path.setLowerInclusive(lowerInclusive);
+        path.setUpperBound(upperBound);
+        path.setUpperInclusive(upperInclusive);
+        return path;
+    }
+}
@@ -0,0 +1,319 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.engine.operator.BatchFilter;
+import com.rdmbs.rdbms.rdbms.parser.ConditionNormalizer;
+import com.rdmbs.rdbms.rdbms.parser.ast.*;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.ColumnVector;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Compiles WHERE clauses into predicates over column batches. Each condition
+ * is evaluated for a whole batch in a loop specialized to its column type;
+ * a VARCHAR condition is evaluated once per distinct value of the batch.
+ * Conditions mean exactly what they mean to {@link RowPredicates}, so the
+ * batch and row paths give the same answers.
+ */
+final class BatchPredicates {
+
+    private BatchPredicates() {
+    }
+
+    static BatchFilter.BatchPredicate compile(Table table, WhereClause condition) {
+        switch (condition.getType()) {
+            case LOGICAL: {
+                LogicalCondition logical = (LogicalCondition) condition;
+                List<BatchFilter.BatchPredicate> operands = new ArrayList<>();
+                for (WhereClause operand : logical.getOperands()) {
+                    operands.add(compile(table, operand));
+                }
+                return new Junction(logical.getOperator() == WhereClause.LogicalOperator.AND, operands);
+            }
+            case NOT:
+                // Negating the result would turn unknown into true; fold the NOT into the leaves instead
+                return compile(table, ConditionNormalizer.normalize(condition));
+            case COMPARISON:
+                return new ComparisonCondition(table, (Comparison) condition);
+            case IS_NULL: {
+                IsNullCondition isNull = (IsNullCondition) condition;
+                int index = table.getColumnIndex(isNull.getColumn());
+                if (index < 0) {
+                    return BatchPredicates::none;
+                }
+                boolean negated = isNull.isNegated();
+                return (batch, matches) -> {
+                    ColumnVector vector = batch.column(index);
+                    for (int p = 0; p < batch.size(); p++) {
+                        matches[p] = vector.isNull(p) != negated;
+                    }
+                };
+            }
+            default: {
+                int index = table.getColumnIndex(RowPredicates.leafColumn(condition));
+                if (index < 0) {
+                    return BatchPredicates::none;
+                }
+                return new ValueCondition(index, RowPredicates.valueTest(
+                        table.getColumns().get(index).getDataType(), condition), RowPredicates.isNegated(condition));
+            }
+        }
+    }
+
+    /** Marks the columns a WHERE clause reads. */
+    static void markColumns(Table table, WhereClause where, boolean[] columns) {
+        if (where == null) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        where.collectColumns(names);
+        for (String name : names) {
+            mark(table, name, columns);
+        }
+    }
+
+    static void mark(Table table, String column, boolean[] columns) {
+        int index = table.getColumnIndex(column);
+        if (index >= 0) {
+            columns[index] = true;
+        }
+    }
+
+    /**
+     * Compares two values under a WHERE operator. A comparison with a null on
+     * either side is unknown, which no row satisfies, so it is false.
+     */
+    static boolean compareValues(Object left, Object right, WhereClause.Operator op) {
+        if (left == null || right == null) {
+            return false;
+        }
+
+        if (left instanceof Comparable && right instanceof Comparable) {
+            return test(compareComparable(left, right), op);
+        }
+
+        return false;
+    }
+
+    /**
+     * Compares two values, promoting mixed numeric types (an INT literal
+     * against a LONG or DOUBLE column, say) instead of failing on them.
+     */
+    @SuppressWarnings("unchecked")
+    static int compareComparable(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number && left.getClass() != right.getClass()) {
+            if (left instanceof Double || right instanceof Double) {
+                return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            }
+            return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    static boolean test(int comparison, WhereClause.Operator op) {
+        switch (op) {
+            case EQUALS: return comparison == 0;
+            case NOT_EQUALS: return comparison != 0;
+            case LESS_THAN: return comparison < 0;
+            case GREATER_THAN: return comparison > 0;
+            case LESS_EQUAL: return comparison <= 0;
+            default: return comparison >= 0;
+        }
+    }
+
+    private static void none(RowBatch batch, boolean[] matches) {
+        Arrays.fill(matches, 0, batch.size(), false);
+    }
+
+    /** The operands of an AND or an OR, evaluated one after another and merged. */
+    private static class Junction implements BatchFilter.BatchPredicate {
+        private final boolean and;
+        private final BatchFilter.BatchPredicate[] operands;
+        private boolean[] scratch = new boolean[0];
+
+        Junction(boolean and, List<BatchFilter.BatchPredicate> operands) {
+            this.and = and;
+            this.operands = operands.toArray(new BatchFilter.BatchPredicate[0]);
+        }
+
+        @Override
+        public void evaluate(RowBatch batch, boolean[] matches) {
+            int size = batch.size();
+            if (scratch.length < size) {
+                scratch = new boolean[size];
+            }
+
+            operands[0].evaluate(batch, matches);
+            for (int k = 1; k < operands.length; k++) {
+                operands[k].evaluate(batch, scratch);
+                if (and) {
+                    for (int p = 0; p < size; p++) {
+                        matches[p] = matches[p] && scratch[p];
+                    }
+                } else {
+                    for (int p = 0; p < size; p++) {
+                        matches[p] = matches[p] || scratch[p];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * An IN, BETWEEN or LIKE condition. A VARCHAR column is tested once per
+     * distinct value of the batch; other columns are tested row by row.
+     */
+    private static class ValueCondition implements BatchFilter.BatchPredicate {
+        private final int index;
+        private final Predicate<Object> test;
+        private final boolean negated;
+        private boolean[] dictionaryMatches = new boolean[0];
+
+        ValueCondition(int index, Predicate<Object> test, boolean negated) {
+            this.index = index;
+            this.test = test;
+            this.negated = negated;
+        }
+
+        @Override
+        public void evaluate(RowBatch batch, boolean[] matches) {
+            ColumnVector vector = batch.column(index);
+            int size = batch.size();
+            if (vector.getType() == DataType.VARCHAR) {
+                List<String> dictionary = vector.getDictionary();
+                if (dictionaryMatches.length < dictionary.size()) {
+                    dictionaryMatches = new boolean[Math.max(dictionary.size(), dictionaryMatches.length * 2)];
+                }
+                for (int code = 0; code < dictionary.size(); code++) {
+                    dictionaryMatches[code] = test.test(dictionary.get(code)) != negated;
+                }
+                for (int p = 0; p < size; p++) {
+                    matches[p] = !vector.isNull(p) && dictionaryMatches[vector.getCode(p)];
+                }
+                return;
+            }
+            for (int p = 0; p < size; p++) {
+                matches[p] = !vector.isNull(p) && test.test(vector.get(p)) != negated;
+            }
+        }
+    }
+
+    /** One comparison, with its columns resolved and its literal unpacked once. */
+    private static class ComparisonCondition implements BatchFilter.BatchPredicate {
+        private final WhereClause.Operator op;
+        private final int leftIndex;
+        private final int rightIndex;
+        private final Object literal;
+        private final boolean unknown;
+        private boolean[] dictionaryMatches = new boolean[0];
+
+        ComparisonCondition(Table table, Comparison condition) {
+            this.op = condition.getOperator();
+            this.leftIndex = table.getColumnIndex(condition.getLeftColumn());
+            this.rightIndex = condition.isColumnComparison() ? table.getColumnIndex(condition.getRightColumn()) : -1;
+            this.literal = condition.isColumnComparison() ? null : condition.getRightValue();
+            this.unknown = leftIndex < 0 || (condition.isColumnComparison() && rightIndex < 0);
+        }
+
+        @Override
+        public void evaluate(RowBatch batch, boolean[] out) {
+            int size = batch.size();
+            if (unknown) {
+                Arrays.fill(out, 0, size, false);
+                return;
+            }
+
+            ColumnVector left = batch.column(leftIndex);
+            if (rightIndex >= 0) {
+                ColumnVector right = batch.column(rightIndex);
+                for (int p = 0; p < size; p++) {
+                    out[p] = compareValues(left.get(p), right.get(p), op);
+                }
+                return;
+            }
+
+            if (literal == null) {
+                Arrays.fill(out, 0, size, false);
+                return;
+            }
+
+            switch (left.getType()) {
+                case INT:
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIMESTAMP:
+                    if (literal instanceof Number && !(literal instanceof Double)) {
+                        evaluateIntegral(left, ((Number) literal).longValue(), out, size);
+                        return;
+                    }
+                    if (literal instanceof Double) {
+                        evaluateFloating(left, (Double) literal, out, size);
+                        return;
+                    }
+                    break;
+                case DOUBLE:
+                    if (literal instanceof Number) {
+                        evaluateFloating(left, ((Number) literal).doubleValue(), out, size);
+                        return;
+                    }
+                    break;
+                case VARCHAR:
+                    if (literal instanceof String) {
+                        evaluateString(left, (String) literal, out, size);
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            for (int p = 0; p < size; p++) {
+                out[p] = compareValues(left.get(p), literal, op);
+            }
+        }
+
+        private void evaluateIntegral(ColumnVector left, long value, boolean[] out, int size) {
+            boolean ints = left.getType() == DataType.INT;
+            for (int p = 0; p < size; p++) {
+                if (left.isNull(p)) {
+                    out[p] = false;
+                } else {
+                    out[p] = test(Long.compare(ints ? left.getInt(p) : left.getLong(p), value), op);
+                }
+            }
+        }
+
+        private void evaluateFloating(ColumnVector left, double value, boolean[] out, int size) {
+            DataType type = left.getType();
+            for (int p = 0; p < size; p++) {
+                if (left.isNull(p)) {
+                    out[p] = false;
+                    continue;
+                }
+                double current = type == DataType.DOUBLE ? left.getDouble(p)
+                        : type == DataType.INT ? left.getInt(p) : left.getLong(p);
+                out[p] = test(Double.compare(current, value), op);
+            }
+        }
+
+        /** Compares each distinct string of the batch once, then maps rows through their codes. */
+        private void evaluateString(ColumnVector left, String value, boolean[] out, int size) {
+            List<String> dictionary = left.getDictionary();
+            if (dictionaryMatches.length < dictionary.size()) {
+                dictionaryMatches = new boolean[Math.max(dictionary.size(), dictionaryMatches.length * 2)];
+            }
+            for (int code = 0; code < dictionary.size(); code++) {
+                dictionaryMatches[code] = test(dictionary.get(code).compareTo(value), op);
+            }
+            for (int p = 0; p < size; p++) {
+                out[p] = !left.isNull(p) && dictionaryMatches[left.getCode(p)];
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import lombok.Data;
+
+/**
+ * The WHERE clause of a join, split by where it can be evaluated: conditions
+ * on the left table alone, on the right table alone, and the residual that
+ * needs the joined row. Any part may be null.
+ */
+@Data
+public class JoinConditions {
+    private final WhereClause left;
+    private final WhereClause right;
+    private final WhereClause residual;
+}
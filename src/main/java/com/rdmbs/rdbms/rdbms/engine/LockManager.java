@@ -0,0 +1,120 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.schema.Schema;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Statement-level locking for the query engine.
+ *
+ * DDL takes the schema lock exclusively. Every other statement shares the
+ * schema lock and then locks the tables it touches: shared for reading,
+ * exclusive for writing. Any number of queries can read a table at once, and
+ * queries on one table never wait for writes to another. A statement locks
+ * its tables in name order, so two statements cannot deadlock on each other.
+ * Transactions keep their locks from one statement to the next, so they can
+ * deadlock; a lock wait that outlasts {@code rdbms.lockTimeoutMillis} fails
+ * instead of waiting forever.
+ *
+ * Locks belong to the thread that took them and must be released by it.
+ */
+public class LockManager {
+    private static final long DEFAULT_LOCK_TIMEOUT_MILLIS = 60_000;
+    private static final long LOCK_TIMEOUT_MILLIS =
+            Long.getLong("rdbms.lockTimeoutMillis", DEFAULT_LOCK_TIMEOUT_MILLIS);
+
+    private final Schema schema;
+    private final ReentrantReadWriteLock schemaLock = new ReentrantReadWriteLock();
+    private final Map<String, ReentrantReadWriteLock> tableLocks = new ConcurrentHashMap<>();
+
+    public LockManager(Schema schema) {
+        this.schema = schema;
+    }
+
+    /** A set of held locks, released together by {@link #close()}. */
+    public static class Held implements AutoCloseable {
+        private final List<Lock> locks = new ArrayList<>();
+
+        private void acquire(Lock lock) {
+            try {
+                if (!lock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    close();
+                    throw new RuntimeException("Lock wait timed out");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new RuntimeException("Interrupted while waiting for a lock");
+            }
+            locks.add(lock);
+        }
+
+        @Override
+        public void close() {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+            locks.clear();
+        }
+    }
+
+    /** Locks out every other statement, for creating or dropping tables and indexes. */
+    public Held lockSchema() {
+        Held held = new Held();
+        held.acquire(schemaLock.writeLock());
+        return held;
+    }
+
+    /** Locks one table for a statement that modifies it. */
+    public Held lockForWrite(String tableName) {
+        Held held = new Held();
+        held.acquire(schemaLock.readLock());
+        held.acquire(tableLock(tableName).writeLock());
+        return held;
+    }
+
+    /**
+     * Locks the tables a query reads. The query was planned against these
+     * table definitions before the locks were taken, so this fails if any of
+     * them has since been dropped or replaced.
+     */
+    public Held lockForRead(Collection<Table> tables) throws IOException {
+        Held held = new Held();
+        held.acquire(schemaLock.readLock());
+
+        TreeSet<String> names = new TreeSet<>();
+        for (Table table : tables) {
+            names.add(table.getName().toLowerCase());
+        }
+        for (String name : names) {
+            held.acquire(tableLock(name).readLock());
+        }
+
+        for (Table table : tables) {
+            if (schema.getTable(table.getName()).orElse(null) != table) {
+                held.close();
+                throw new IOException("Table was dropped while the query was running: " + table.getName());
+            }
+        }
+        return held;
+    }
+
+    /** Forgets a dropped table's lock. Called while the schema lock is held exclusively. */
+    public void removeTable(String tableName) {
+        tableLocks.remove(tableName.toLowerCase());
+    }
+
+    private ReentrantReadWriteLock tableLock(String tableName) {
+        return tableLocks.computeIfAbsent(tableName.toLowerCase(), name -> new ReentrantReadWriteLock());
+    }
+}
@@ -0,0 +1,22 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.Statement;
+import lombok.Getter;
+
+/**
+ * A parsed statement ready to run with {@link QueryEngine#execute(PreparedQuery, java.util.List)}.
+ * It is immutable once built, so one instance can be shared between callers
+ * and run concurrently with different parameters.
+ */
+@Getter
+public class PreparedQuery {
+    private final String sql;
+    private final Statement statement;
+    private final int parameterCount;
+
+    public PreparedQuery(String sql, Statement statement, int parameterCount) {
+        this.sql = sql;
+        this.statement = statement;
+        this.parameterCount = parameterCount;
+    }
+}
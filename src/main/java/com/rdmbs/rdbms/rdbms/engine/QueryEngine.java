@@ -1,70 +1,394 @@
 package com.rdmbs.rdbms.rdbms.engine;
 
+import com.rdmbs.rdbms.rdbms.engine.operator.*;
+import com.rdmbs.rdbms.rdbms.parser.ParameterBinder;
 import com.rdmbs.rdbms.rdbms.parser.SQLLexer;
 import com.rdmbs.rdbms.rdbms.parser.SQLParser;
 import com.rdmbs.rdbms.rdbms.parser.Token;
 import com.rdmbs.rdbms.rdbms.parser.ast.*;
 import com.rdmbs.rdbms.rdbms.schema.*;
 import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
 import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+import com.rdmbs.rdbms.rdbms.index.Index;
 import com.rdmbs.rdbms.rdbms.index.IndexManager;
+import com.rdmbs.rdbms.rdbms.index.UniqueConstraintViolationException;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
+@Slf4j
 public class QueryEngine {
+    private static final int BULK_INSERT_CHUNK_SIZE = 10000;
+    private static final long DEFAULT_SORT_MEMORY_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 256;
+    /** Fewest pages worth handing to a parallel scan worker of their own. */
+    private static final int MIN_PAGES_PER_WORKER = 32;
+
     private final Schema schema;
     private final TableStorage storage;
     private final IndexManager indexManager;
     private final SchemaManager schemaManager;
+    private final QueryPlanner planner;
+    private final LockManager lockManager;
+    private final StatementCache statementCache =
+            new StatementCache(Integer.getInteger("rdbms.statementCache.size", DEFAULT_STATEMENT_CACHE_SIZE));
+    private long sortMemoryBytes = Long.getLong("rdbms.sort.memoryBytes", DEFAULT_SORT_MEMORY_BYTES);
+    private long aggregateMemoryBytes = Long.getLong("rdbms.aggregate.memoryBytes", DEFAULT_SORT_MEMORY_BYTES);
+    private int parallelism = Integer.getInteger("rdbms.parallelism", Runtime.getRuntime().availableProcessors());
 
     public QueryEngine(Schema schema, TableStorage storage, IndexManager indexManager) {
         this.schema = schema;
         this.storage = storage;
         this.indexManager = indexManager;
-        this.schemaManager = new SchemaManager();
+        this.schemaManager = new SchemaManager(storage.getDataDirectory());
+        this.planner = new QueryPlanner(indexManager);
+        this.lockManager = new LockManager(schema);
+        if (!storage.wasShutDownCleanly()) {
+            rebuildIndexes();
+        }
+        createMissingConstraintIndexes();
+        storage.start();
+    }
+
+    /** Checkpoints the log and closes table and index files, so the next start needs no index rebuild. */
+    public void close() throws IOException {
+        storage.close();
+        indexManager.close();
+    }
+
+    /** Memory an ORDER BY may use before it spills sorted runs to disk. */
+    public void setSortMemoryBytes(long sortMemoryBytes) {
+        this.sortMemoryBytes = sortMemoryBytes;
+    }
+
+    /**
+     * The most workers a query scans a table with, unless its session sets
+     * its own. 1 turns parallel scans off.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** Memory a GROUP BY may use for its hash table before it spills groups to disk. */
+    public void setAggregateMemoryBytes(long aggregateMemoryBytes) {
+        this.aggregateMemoryBytes = aggregateMemoryBytes;
+    }
+
+    /** Opens a session, which can run BEGIN ... COMMIT transactions. */
+    public Session openSession() {
+        return new Session(this);
     }
 
     public QueryResult execute(String sql) {
+        return execute(sql, Collections.emptyList());
+    }
+
+    /** Runs SQL whose {@code ?} placeholders take the given values, in order. */
+    public QueryResult execute(String sql, List<Object> parameters) {
+        return execute(null, sql, parameters);
+    }
+
+    QueryResult execute(Session session, String sql, List<Object> parameters) {
+        PreparedQuery query;
         try {
-            SQLLexer lexer = new SQLLexer(sql);
+            query = prepare(sql);
+        } catch (Exception e) {
+            return QueryResult.error("Error: " + e.getMessage());
+        }
+        return execute(session, query, parameters);
+    }
+
+    /**
+     * Parses SQL into a statement that can be run repeatedly. Statements are
+     * cached by their normalized text, so preparing the same SQL again skips
+     * lexing and parsing. Throws if the SQL does not parse.
+     */
+    public PreparedQuery prepare(String sql) {
+        String normalized = StatementCache.normalize(sql);
+        PreparedQuery query = statementCache.get(normalized);
+        if (query == null) {
+            SQLLexer lexer = new SQLLexer(normalized);
             List<Token> tokens = lexer.tokenize();
             
             SQLParser parser = new SQLParser(tokens);
             Statement statement = parser.parse();
             
-            return executeStatement(statement);
-        } catch (Exception e) {
-            return QueryResult.error("Error: " + e.getMessage());
+            query = new PreparedQuery(normalized, statement, parser.getParameterCount());
+            statementCache.put(normalized, query);
+        }
+        return query;
+    }
+
+    public QueryResult execute(PreparedQuery query, List<Object> parameters) {
+        return execute(null, query, parameters);
+    }
+
+    private QueryResult execute(Session session, PreparedQuery query, List<Object> parameters) {
+        if (parameters.size() != query.getParameterCount()) {
+            return QueryResult.error("Error: Expected " + query.getParameterCount()
+                    + " parameters but got " + parameters.size());
         }
+        Statement statement = parameters.isEmpty()
+                ? query.getStatement()
+                : ParameterBinder.bind(query.getStatement(), parameters);
+        return executeStatement(session, statement);
     }
 
-    private QueryResult executeStatement(Statement statement) {
+    /**
+     * Runs a statement in the session's open transaction, or else in one of
+     * its own that commits when the statement succeeds and rolls back when it
+     * throws.
+     */
+    private QueryResult executeStatement(Session session, Statement statement) {
+        switch (statement.getType()) {
+            case BEGIN:
+                return begin(session);
+            case COMMIT:
+                return commit(session);
+            case ROLLBACK:
+                return rollback(session);
+            default:
+                break;
+        }
+        if (session != null && session.getTransaction() != null) {
+            return executeInTransaction(session, statement);
+        }
+
+        Transaction transaction = new Transaction(false);
         try {
-            switch (statement.getType()) {
-                case CREATE_TABLE:
-                    return executeCreateTable((CreateTableStatement) statement);
-                case DROP_TABLE:
-                    return executeDropTable((DropTableStatement) statement);
-                case INSERT:
-                    return executeInsert((InsertStatement) statement);
-                case SELECT:
-                    return executeSelect((SelectStatement) statement);
-                case UPDATE:
-                    return executeUpdate((UpdateStatement) statement);
-                case DELETE:
-                    return executeDelete((DeleteStatement) statement);
-                case CREATE_INDEX:
-                    return executeCreateIndex((CreateIndexStatement) statement);
-                default:
-                    return QueryResult.error("Unsupported statement type");
+            LockManager.Held held = lockFor(statement);
+            try {
+                String tableName = writtenTable(statement);
+                if (tableName != null) {
+                    transaction.addWrittenTable(tableName);
+                }
+                QueryResult result = dispatch(session, statement, transaction);
+                commitTransaction(transaction);
+                return result;
+            } catch (Exception e) {
+                rollbackTransaction(transaction);
+                throw e;
+            } finally {
+                if (held != null) {
+                    held.close();
+                }
             }
         } catch (Exception e) {
             return QueryResult.error("Execution error: " + e.getMessage());
         }
     }
 
+    /**
+     * Runs a statement inside an explicit transaction. Its write lock is kept
+     * until the transaction ends. A statement that fails rolls back the whole
+     * transaction, so a transaction never commits half of a statement.
+     */
+    private QueryResult executeInTransaction(Session session, Statement statement) {
+        Transaction transaction = session.getTransaction();
+        switch (statement.getType()) {
+            case CREATE_TABLE:
+            case DROP_TABLE:
+            case CREATE_INDEX:
+                return QueryResult.error(statement.getType() + " cannot run inside a transaction");
+            default:
+                break;
+        }
+
+        try {
+            String tableName = writtenTable(statement);
+            if (tableName != null) {
+                transaction.addLocks(lockManager.lockForWrite(tableName));
+                transaction.addWrittenTable(tableName);
+            }
+            if (statement.getType() != Statement.StatementType.INSERT) {
+                indexDeferredRows(transaction);
+            }
+            QueryResult result = dispatch(session, statement, transaction);
+            if (!result.isSuccess()) {
+                rollbackTransaction(transaction);
+                session.setTransaction(null);
+                result.setMessage(result.getMessage() + " (transaction rolled back)");
+            }
+            return result;
+        } catch (Exception e) {
+            rollbackTransaction(transaction);
+            session.setTransaction(null);
+            return QueryResult.error("Execution error: " + e.getMessage() + " (transaction rolled back)");
+        }
+    }
+
+    private QueryResult begin(Session session) {
+        if (session == null) {
+            return QueryResult.error("Transactions need a session; use QueryEngine.openSession()");
+        }
+        if (session.getTransaction() != null) {
+            return QueryResult.error("A transaction is already in progress");
+        }
+        session.setTransaction(new Transaction(true));
+        return QueryResult.success("Transaction started");
+    }
+
+    private QueryResult commit(Session session) {
+        Transaction transaction = session == null ? null : session.getTransaction();
+        if (transaction == null) {
+            return QueryResult.error("No transaction in progress");
+        }
+        session.setTransaction(null);
+        try {
+            commitTransaction(transaction);
+            return QueryResult.success("Transaction committed");
+        } catch (Exception e) {
+            rollbackTransaction(transaction);
+            return QueryResult.error("Commit failed: " + e.getMessage() + " (transaction rolled back)");
+        }
+    }
+
+    /** Also called when a session closes, to roll back a transaction left open. */
+    QueryResult rollback(Session session) {
+        Transaction transaction = session == null ? null : session.getTransaction();
+        if (transaction == null) {
+            return QueryResult.error("No transaction in progress");
+        }
+        session.setTransaction(null);
+        rollbackTransaction(transaction);
+        return QueryResult.success("Transaction rolled back");
+    }
+
+    /**
+     * Writes the deferred index entries, then commits every table the
+     * transaction wrote in one log batch, and releases its locks. Index files
+     * are not logged, so writing them before the commit point is safe: after
+     * a crash they are rebuilt from the tables.
+     */
+    private void commitTransaction(Transaction transaction) throws IOException {
+        indexDeferredRows(transaction);
+        storage.commit(transaction.getWrittenTables());
+        transaction.releaseLocks();
+    }
+
+    /** Throws away the transaction's page writes, reverses its index changes and releases its locks. */
+    private void rollbackTransaction(Transaction transaction) {
+        try {
+            storage.rollback(transaction.getWrittenTables());
+            transaction.undo();
+        } finally {
+            transaction.releaseLocks();
+        }
+    }
+
+    /** Adds the rows inserted so far to their indexes, one sorted pass per index. */
+    private void indexDeferredRows(Transaction transaction) {
+        for (Transaction.UnindexedRows pending : transaction.takeUnindexedRows()) {
+            Table table = pending.getTable();
+            List<Row> rows = pending.getRows();
+            transaction.onRollback(() -> {
+                for (Row row : rows) {
+                    indexManager.deleteFromIndexes(table, row);
+                }
+            });
+            indexManager.insertIntoIndexes(table, rows);
+        }
+    }
+
+    private QueryResult dispatch(Session session, Statement statement, Transaction transaction) throws IOException {
+        switch (statement.getType()) {
+            case CREATE_TABLE:
+                return executeCreateTable((CreateTableStatement) statement);
+            case DROP_TABLE:
+                return executeDropTable((DropTableStatement) statement);
+            case INSERT:
+                return executeInsert((InsertStatement) statement, transaction);
+            case SELECT:
+                return executeSelect((SelectStatement) statement, session);
+            case UPDATE:
+                return executeUpdate((UpdateStatement) statement, transaction);
+            case DELETE:
+                return executeDelete((DeleteStatement) statement, transaction);
+            case CREATE_INDEX:
+                return executeCreateIndex((CreateIndexStatement) statement);
+            case PREPARE:
+                return executePrepare(session, (PrepareStatement) statement);
+            case EXECUTE:
+                return executeExecute(session, (ExecuteStatement) statement);
+            case DEALLOCATE:
+                return executeDeallocate(session, (DeallocateStatement) statement);
+            default:
+                return QueryResult.error("Unsupported statement type");
+        }
+    }
+
+    /**
+     * Takes the locks a statement needs for its whole run. SELECT takes none
+     * here: its pipeline locks the tables it reads when it is opened, since
+     * its rows are produced after this method returns.
+     */
+    private LockManager.Held lockFor(Statement statement) {
+        switch (statement.getType()) {
+            case CREATE_TABLE:
+            case DROP_TABLE:
+            case CREATE_INDEX:
+                return lockManager.lockSchema();
+            default:
+                String tableName = writtenTable(statement);
+                return tableName == null ? null : lockManager.lockForWrite(tableName);
+        }
+    }
+
+    /** The table whose rows a DML statement changes, or null for other statements. */
+    private String writtenTable(Statement statement) {
+        switch (statement.getType()) {
+            case INSERT:
+                return ((InsertStatement) statement).getTableName();
+            case UPDATE:
+                return ((UpdateStatement) statement).getTableName();
+            case DELETE:
+                return ((DeleteStatement) statement).getTableName();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Rebuilds every index from its table after a crash. Index files are not
+     * logged, so they may hold changes to rows whose commit never happened.
+     */
+    private void rebuildIndexes() {
+        for (Table table : schema.getAllTables()) {
+            try {
+                indexManager.rebuildTableIndexes(table, storage.readAllRows(table));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to rebuild indexes of " + table.getName(), e);
+            }
+        }
+    }
+
+    private QueryResult executePrepare(Session session, PrepareStatement stmt) {
+        if (session == null) {
+            return QueryResult.error("Prepared statements need a session; use QueryEngine.openSession()");
+        }
+        session.getPreparedQueries().put(stmt.getName().toLowerCase(),
+                new PreparedQuery(stmt.getName(), stmt.getStatement(), stmt.getParameterCount()));
+        return QueryResult.success("Statement prepared: " + stmt.getName());
+    }
+
+    private QueryResult executeExecute(Session session, ExecuteStatement stmt) {
+        PreparedQuery query = session == null ? null : session.getPreparedQueries().get(stmt.getName().toLowerCase());
+        if (query == null) {
+            return QueryResult.error("Prepared statement does not exist: " + stmt.getName());
+        }
+        return execute(session, query, stmt.getParameters());
+    }
+
+    private QueryResult executeDeallocate(Session session, DeallocateStatement stmt) {
+        if (session == null || session.getPreparedQueries().remove(stmt.getName().toLowerCase()) == null) {
+            return QueryResult.error("Prepared statement does not exist: " + stmt.getName());
+        }
+        return QueryResult.success("Statement deallocated: " + stmt.getName());
+    }
+
     private QueryResult executeCreateTable(CreateTableStatement stmt) throws IOException {
         if (schema.tableExists(stmt.getTableName())) {
             return QueryResult.error("Table already exists: " + stmt.getTableName());
@@ -89,8 +413,9 @@ public class QueryEngine {
             table.addColumn(column);
         }
         
-        schema.addTable(table);
         storage.createTableFile(table);
+        schema.addTable(table);
+        createConstraintIndexes(table);
         
         // Persist schema
         try {
@@ -110,6 +435,7 @@ public class QueryEngine {
         schema.dropTable(stmt.getTableName());
         storage.deleteTable(stmt.getTableName());
         indexManager.dropTableIndexes(stmt.getTableName());
+        lockManager.removeTable(stmt.getTableName());
         
         // Persist schema
         try {
@@ -120,102 +446,434 @@ public class QueryEngine {
         return QueryResult.success("Table dropped: " + stmt.getTableName());
     }
 
-    private QueryResult executeInsert(InsertStatement stmt) throws IOException {
+    private QueryResult executeInsert(InsertStatement stmt, Transaction transaction) throws IOException {
         Optional<Table> tableOpt = schema.getTable(stmt.getTableName());
         if (!tableOpt.isPresent()) {
             return QueryResult.error("Table does not exist: " + stmt.getTableName());
         }
         
         Table table = tableOpt.get();
+        List<Row> rows = new ArrayList<>();
+        for (List<Object> values : stmt.getRows()) {
+            rows.add(buildRow(table, stmt.getColumns(), values));
+        }
+        
+        // All tuples are checked before any is written, so a violation inserts nothing
+        if (!validateConstraints(table, rows, transaction)) {
+            return QueryResult.error("Constraint violation");
+        }
+        
+        storage.insertRows(table, rows.iterator());
+        transaction.deferIndexing(table, rows);
+        
+        QueryResult result = QueryResult.success(rows.size() == 1 ? "1 row inserted" : rows.size() + " rows inserted");
+        result.setRowsAffected(rows.size());
+        return result;
+    }
+
+    /**
+     * Loads rows straight into a table, bypassing the parser. Rows are taken
+     * from the iterator in chunks of {@link #BULK_INSERT_CHUNK_SIZE}; each chunk
+     * is validated, appended with batched page writes, committed and added to
+     * the indexes in one sorted pass. A constraint violation stops the load, leaving the
+     * chunks before it in place.
+     */
+    public QueryResult bulkInsert(String tableName, Iterator<Row> rows) {
+        LockManager.Held held = lockManager.lockForWrite(tableName);
+        try {
+            return bulkInsertLocked(tableName, rows);
+        } finally {
+            held.close();
+        }
+    }
+
+    private QueryResult bulkInsertLocked(String tableName, Iterator<Row> rows) {
+        Optional<Table> tableOpt = schema.getTable(tableName);
+        if (!tableOpt.isPresent()) {
+            return QueryResult.error("Table does not exist: " + tableName);
+        }
+        
+        Table table = tableOpt.get();
+        int inserted = 0;
+        try {
+            while (rows.hasNext()) {
+                List<Row> chunk = new ArrayList<>();
+                while (rows.hasNext() && chunk.size() < BULK_INSERT_CHUNK_SIZE) {
+                    chunk.add(buildRow(table, null, rows.next().getValues()));
+                }
+                
+                if (!validateConstraints(table, chunk, null)) {
+                    QueryResult result = QueryResult.error("Constraint violation after " + inserted + " rows inserted");
+                    result.setRowsAffected(inserted);
+                    return result;
+                }
+                
+                storage.insertRows(table, chunk.iterator());
+                storage.commit(tableName);
+                indexManager.insertIntoIndexes(table, chunk);
+                inserted += chunk.size();
+            }
+        } catch (Exception e) {
+            QueryResult result = QueryResult.error("Execution error: " + e.getMessage());
+            result.setRowsAffected(inserted);
+            return result;
+        }
+        
+        QueryResult result = QueryResult.success(inserted + " rows inserted");
+        result.setRowsAffected(inserted);
+        return result;
+    }
+
+    /** Builds a row in table column order from the given values, converting each to its column type. */
+    private Row buildRow(Table table, List<String> columns, List<Object> values) {
         Row row = new Row();
         
-        if (stmt.getColumns() != null && !stmt.getColumns().isEmpty()) {
+        if (columns != null && !columns.isEmpty()) {
             for (Column column : table.getColumns()) {
-                int valueIndex = stmt.getColumns().indexOf(column.getName());
+                int valueIndex = columns.indexOf(column.getName());
                 if (valueIndex >= 0) {
-                    Object value = convertValue(stmt.getValues().get(valueIndex), column.getDataType());
-                    row.addValue(value);
+                    row.addValue(column.getDataType().convert(values.get(valueIndex)));
                 } else {
                     row.addValue(null);
                 }
             }
         } else {
-            for (int i = 0; i < stmt.getValues().size(); i++) {
-                Object value = convertValue(stmt.getValues().get(i), table.getColumns().get(i).getDataType());
-                row.addValue(value);
+            for (int i = 0; i < values.size(); i++) {
+                row.addValue(table.getColumns().get(i).getDataType().convert(values.get(i)));
             }
         }
-        
-        if (!validateConstraints(table, row)) {
-            return QueryResult.error("Constraint violation");
-        }
-        
-        storage.insertRow(table, row);
-        indexManager.insertIntoIndexes(table, row);
-        
-        QueryResult result = QueryResult.success("1 row inserted");
-        result.setRowsAffected(1);
-        return result;
+        return row;
     }
 
-    private QueryResult executeSelect(SelectStatement stmt) throws IOException {
+    /**
+     * Builds the operator pipeline for a SELECT. Nothing is read here; rows are
+     * pulled through the pipeline as the caller consumes the result.
+     */
+    private QueryResult executeSelect(SelectStatement stmt, Session session) throws IOException {
         Optional<Table> tableOpt = schema.getTable(stmt.getTableName());
         if (!tableOpt.isPresent()) {
             return QueryResult.error("Table does not exist: " + stmt.getTableName());
         }
         
         Table table = tableOpt.get();
-        List<Row> rows = storage.readAllRows(table);
+        JoinClause join = stmt.getJoinClause();
+        Table rightTable = null;
+        if (join != null) {
+            Optional<Table> rightTableOpt = schema.getTable(join.getRightTable());
+            if (!rightTableOpt.isPresent()) {
+                return QueryResult.error("Table does not exist: " + join.getRightTable());
+            }
+            rightTable = rightTableOpt.get();
+        }
         
-        if (stmt.getWhereClause() != null) {
-            rows = filterRows(table, rows, stmt.getWhereClause());
+        String unknownColumn = unknownColumn(join != null ? joinedTable(table, rightTable) : table, stmt.getWhereClause());
+        if (unknownColumn != null) {
+            return QueryResult.error("Column does not exist: " + unknownColumn);
         }
         
-        if (stmt.getJoinClause() != null) {
-            rows = performJoin(table, rows, stmt.getJoinClause());
+        // Each table of a join is filtered by its own conditions before the join
+        JoinConditions joinConditions = join != null
+                ? planner.splitJoinConditions(table, rightTable, join.getJoinType(), stmt.getWhereClause())
+                : null;
+        WhereClause where = join != null ? joinConditions.getLeft() : stmt.getWhereClause();
+        
+        List<OrderByItem> orderBy = stmt.getOrderBy();
+        AccessPath path = planner.planAccess(table, where);
+        boolean aggregating = !stmt.getAggregates().isEmpty() || stmt.getGroupBy() != null;
+        
+        // Reading an index on the sort column makes the sort, or the TopN of a
+        // LIMIT, unnecessary: the index scan streams, so it stops with the LIMIT
+        boolean ordered = false;
+        if (orderBy != null && orderBy.size() == 1 && join == null && !aggregating) {
+            AccessPath orderedPath = planner.planOrderedAccess(table, where,
+                    orderBy.get(0).getColumn(), orderBy.get(0).isDescending());
+            if (orderedPath != null) {
+                path = orderedPath;
+                ordered = true;
+            }
+        }
+        
+        // A full scan that feeds a filter or an aggregate runs on column
+        // batches; the rest of the pipeline works on rows. A large table is
+        // split into page ranges, each scanned by a worker of its own; the
+        // last range runs to whatever page is last when its scan opens
+        List<BatchOperator> batchPlans = null;
+        Operator plan = null;
+        boolean projected = false;
+        if (path.getType() == AccessPath.Type.FULL_SCAN && !ordered && join == null
+                && (aggregating || where != null)) {
+            int pageCount = storage.getPageCount(table);
+            int workers = Math.max(1, Math.min(parallelism(session), pageCount / MIN_PAGES_PER_WORKER));
+            batchPlans = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                int firstPageId = (int) ((long) pageCount * worker / workers) + 1;
+                int lastPageId = worker == workers - 1 ? -1 : (int) ((long) pageCount * (worker + 1) / workers);
+                batchPlans.add(batchScan(table, stmt, where, firstPageId, lastPageId));
+            }
+            if (!aggregating) {
+                // Without a sort in between, rows can be built from the selected columns alone
+                projected = orderBy == null && !stmt.getColumns().contains("*");
+                List<Integer> columnIndexes = projected
+                        ? selectedIndexes(table, stmt.getColumns())
+                        : selectedIndexes(table, table.getColumns().stream().map(Column::getName).collect(Collectors.toList()));
+                plan = batchPlans.size() == 1
+                        ? new BatchProject(batchPlans.get(0), columnIndexes)
+                        : new Gather(batchPlans, columnIndexes);
+            }
+        } else {
+            plan = scan(table, where, path);
+        }
+        List<Table> readTables = new ArrayList<>(List.of(table));
+        
+        Table resultTable = table;
+        if (join != null) {
+            int leftColIndex = table.getColumnIndex(join.getLeftColumn());
+            int rightColIndex = rightTable.getColumnIndex(join.getRightColumn());
+            if (leftColIndex < 0) {
+                return QueryResult.error("Column does not exist: " + join.getLeftColumn());
+            }
+            if (rightColIndex < 0) {
+                return QueryResult.error("Column does not exist: " + join.getRightColumn());
+            }
+            
+            Index rightIndex = indexManager.findIndex(rightTable.getName(), join.getRightColumn()).orElse(null);
+            WhereClause rightWhere = joinConditions.getRight();
+            plan = new Join(plan, leftColIndex, table.getColumns().size(), storage.getPageCount(table),
+                    storage, rightTable, scan(rightTable, rightWhere),
+                    rightWhere != null ? RowPredicates.compile(rightTable, rightWhere) : null,
+                    rightColIndex, rightIndex, join.getJoinType());
+            resultTable = joinedTable(table, rightTable);
+            readTables.add(rightTable);
+            
+            if (joinConditions.getResidual() != null) {
+                plan = new Filter(plan, RowPredicates.compile(resultTable, joinConditions.getResidual()));
+            }
+        }
+        
+        if (aggregating) {
+            if (stmt.getColumns().contains("*")) {
+                return QueryResult.error("SELECT * cannot be used with GROUP BY or aggregate functions");
+            }
+            
+            List<String> groupBy = stmt.getGroupBy() != null ? stmt.getGroupBy() : Collections.emptyList();
+            Table groupedTable = new Table(resultTable.getName());
+            List<Integer> groupIndexes = new ArrayList<>();
+            for (String column : groupBy) {
+                int index = resultTable.getColumnIndex(column);
+                if (index < 0) {
+                    return QueryResult.error("Column does not exist: " + column);
+                }
+                groupIndexes.add(index);
+                Column groupColumn = resultTable.getColumns().get(index);
+                groupedTable.addColumn(new Column(groupColumn.getName(), groupColumn.getDataType()));
+            }
+            
+            List<HashAggregate.Aggregate> aggregates = new ArrayList<>();
+            for (AggregateCall call : stmt.getAggregates()) {
+                int index = -1;
+                DataType inputType = null;
+                if (!call.isCountStar()) {
+                    index = resultTable.getColumnIndex(call.getColumn());
+                    if (index < 0) {
+                        return QueryResult.error("Column does not exist: " + call.getColumn());
+                    }
+                    inputType = resultTable.getColumns().get(index).getDataType();
+                    if ((call.getFunction() == AggregateCall.Function.SUM || call.getFunction() == AggregateCall.Function.AVG)
+                            && !isNumeric(inputType)) {
+                        return QueryResult.error(call.getFunction() + " requires a numeric column: " + call.getColumn());
+                    }
+                }
+                aggregates.add(new HashAggregate.Aggregate(call.getFunction(), index, inputType));
+                groupedTable.addColumn(new Column(call.getName(), aggregateType(call.getFunction(), inputType)));
+            }
+            
+            for (String column : stmt.getColumns()) {
+                if (groupedTable.getColumnIndex(column) < 0) {
+                    return QueryResult.error("Column must appear in GROUP BY or be used in an aggregate: " + column);
+                }
+            }
+            
+            plan = batchPlans != null
+                    ? new HashAggregate(batchPlans, groupIndexes, aggregates, resultTable, aggregateMemoryBytes)
+                    : new HashAggregate(plan, groupIndexes, aggregates, resultTable, aggregateMemoryBytes);
+            resultTable = groupedTable;
+            
+            if (stmt.getHaving() != null) {
+                WhereClause having = stmt.getHaving();
+                String unknown = unknownColumn(groupedTable, having);
+                if (unknown != null) {
+                    return QueryResult.error("Column must appear in GROUP BY or be used in an aggregate: " + unknown);
+                }
+                plan = new Filter(plan, RowPredicates.compile(groupedTable, having));
+            }
+        }
+        
+        if (orderBy != null && !ordered) {
+            List<Integer> sortIndexes = new ArrayList<>();
+            List<Boolean> descending = new ArrayList<>();
+            for (OrderByItem item : orderBy) {
+                int index = resultTable.getColumnIndex(item.getColumn());
+                if (index < 0) {
+                    return QueryResult.error("Column does not exist: " + item.getColumn());
+                }
+                sortIndexes.add(index);
+                descending.add(item.isDescending());
+            }
+            
+            RowComparator comparator = new RowComparator(sortIndexes, descending);
+            if (stmt.getLimit() != null) {
+                long keep = (long) stmt.getLimit() + (stmt.getOffset() != null ? stmt.getOffset() : 0);
+                plan = new TopN(plan, comparator, (int) Math.min(keep, Integer.MAX_VALUE));
+            } else {
+                plan = new Sort(plan, comparator, resultTable, sortMemoryBytes);
+            }
         }
         
         List<String> selectedColumns = stmt.getColumns();
+        List<DataType> selectedTypes;
         if (selectedColumns.contains("*")) {
-            selectedColumns = table.getColumns().stream()
+            // Rows are already in column order; projecting by name would lose
+            // the right-hand copy of a column name both join tables share
+            selectedColumns = resultTable.getColumns().stream()
                     .map(Column::getName)
                     .collect(Collectors.toList());
+            selectedTypes = resultTable.getColumns().stream()
+                    .map(Column::getDataType)
+                    .collect(Collectors.toList());
+        } else {
+            List<Integer> indexes = selectedIndexes(resultTable, selectedColumns);
+            selectedTypes = new ArrayList<>();
+            for (int index : indexes) {
+                selectedTypes.add(resultTable.getColumns().get(index).getDataType());
+            }
+            if (!projected) {
+                plan = new Project(plan, indexes);
+            }
         }
         
-        rows = projectColumns(table, rows, selectedColumns);
+        if (stmt.getLimit() != null) {
+            int offset = stmt.getOffset() != null ? stmt.getOffset() : 0;
+            plan = new Limit(plan, stmt.getLimit(), offset);
+        }
         
-        return QueryResult.withRows(selectedColumns, rows);
+        plan = new Locked(plan, lockManager, readTables);
+        return QueryResult.streaming(selectedColumns, selectedTypes, plan);
     }
 
-    private QueryResult executeUpdate(UpdateStatement stmt) throws IOException {
+    /** A batch scan of a range of pages, filtered on the WHERE clause if there is one. */
+    private BatchScan batchScan(Table table, SelectStatement stmt, WhereClause where, int firstPageId, int lastPageId) {
+        if (where == null) {
+            return new BatchScan(storage, table, readColumns(table, stmt), null, null, firstPageId, lastPageId);
+        }
+        boolean[] filterColumns = new boolean[table.getColumns().size()];
+        BatchPredicates.markColumns(table, where, filterColumns);
+        return new BatchScan(storage, table, readColumns(table, stmt),
+                BatchPredicates.compile(table, where), filterColumns, firstPageId, lastPageId);
+    }
+
+    private int parallelism(Session session) {
+        return session != null && session.getParallelism() > 0 ? session.getParallelism() : parallelism;
+    }
+
+    /** The first column a condition names that the table does not have, or null. */
+    private String unknownColumn(Table table, WhereClause condition) {
+        if (condition == null) {
+            return null;
+        }
+        List<String> columns = new ArrayList<>();
+        condition.collectColumns(columns);
+        for (String column : columns) {
+            if (table.getColumnIndex(column) < 0) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /** The positions of the named columns that exist in the table, in order. */
+    private List<Integer> selectedIndexes(Table table, List<String> columns) {
+        List<Integer> columnIndexes = new ArrayList<>();
+        for (String column : columns) {
+            int index = table.getColumnIndex(column);
+            if (index >= 0) {
+                columnIndexes.add(index);
+            }
+        }
+        return columnIndexes;
+    }
+
+    /** The columns a single-table SELECT reads anywhere, or null when it reads them all. */
+    private boolean[] readColumns(Table table, SelectStatement stmt) {
+        if (stmt.getColumns().contains("*")) {
+            return null;
+        }
+        boolean[] columns = new boolean[table.getColumns().size()];
+        for (String column : stmt.getColumns()) {
+            BatchPredicates.mark(table, column, columns);
+        }
+        BatchPredicates.markColumns(table, stmt.getWhereClause(), columns);
+        if (stmt.getOrderBy() != null) {
+            for (OrderByItem item : stmt.getOrderBy()) {
+                BatchPredicates.mark(table, item.getColumn(), columns);
+            }
+        }
+        if (stmt.getGroupBy() != null) {
+            for (String column : stmt.getGroupBy()) {
+                BatchPredicates.mark(table, column, columns);
+            }
+        }
+        for (AggregateCall call : stmt.getAggregates()) {
+            if (!call.isCountStar()) {
+                BatchPredicates.mark(table, call.getColumn(), columns);
+            }
+        }
+        return columns;
+    }
+
+    private QueryResult executeUpdate(UpdateStatement stmt, Transaction transaction) throws IOException {
         Optional<Table> tableOpt = schema.getTable(stmt.getTableName());
         if (!tableOpt.isPresent()) {
             return QueryResult.error("Table does not exist: " + stmt.getTableName());
         }
         
         Table table = tableOpt.get();
-        List<Row> rows = storage.readAllRows(table);
-        List<Row> filteredRows = rows;
-        
-        if (stmt.getWhereClause() != null) {
-            filteredRows = filterRows(table, rows, stmt.getWhereClause());
+        String unknownColumn = unknownColumn(table, stmt.getWhereClause());
+        if (unknownColumn != null) {
+            return QueryResult.error("Column does not exist: " + unknownColumn);
         }
+        List<Row> rows = collect(scan(table, stmt.getWhereClause()));
         
-        int updateCount = 0;
-        for (Row row : filteredRows) {
+        boolean[] assigned = new boolean[table.getColumns().size()];
+        List<Row> updatedRows = new ArrayList<>(rows.size());
+        Set<RowId> replaced = new HashSet<>();
+        for (Row row : rows) {
+            Row updated = new Row(row.getValues());
+            updated.setRowId(row.getRowId());
             for (Map.Entry<String, Object> entry : stmt.getUpdates().entrySet()) {
                 int columnIndex = table.getColumnIndex(entry.getKey());
                 if (columnIndex >= 0) {
-                    Object value = convertValue(entry.getValue(), table.getColumns().get(columnIndex).getDataType());
-                    row.setValue(columnIndex, value);
-                    updateCount++;
+                    Object value = table.getColumns().get(columnIndex).getDataType().convert(entry.getValue());
+                    updated.setValue(columnIndex, value);
+                    assigned[columnIndex] = true;
                 }
             }
+            updatedRows.add(updated);
+            replaced.add(row.getRowId());
         }
         
-        storage.truncateTable(stmt.getTableName());
-        for (Row row : rows) {
-            storage.insertRow(table, row);
+        // Every new row is checked before any is written, as for INSERT
+        if (!validateConstraints(table, updatedRows, replaced, assigned, transaction)) {
+            return QueryResult.error("Constraint violation");
+        }
+        
+        int updateCount = 0;
+        for (int r = 0; r < rows.size(); r++) {
+            Row row = rows.get(r);
+            Row updated = updatedRows.get(r);
+            indexManager.updateIndexes(table, row, updated);
+            transaction.onRollback(() -> indexManager.updateIndexes(table, updated, row));
+            storage.updateRow(table, row.getRowId(), updated);
+            updateCount++;
         }
         
         QueryResult result = QueryResult.success(updateCount + " row(s) updated");
@@ -223,28 +881,36 @@ public class QueryEngine {
         return result;
     }
 
-    private QueryResult executeDelete(DeleteStatement stmt) throws IOException {
+    private QueryResult executeDelete(DeleteStatement stmt, Transaction transaction) throws IOException {
         Optional<Table> tableOpt = schema.getTable(stmt.getTableName());
         if (!tableOpt.isPresent()) {
             return QueryResult.error("Table does not exist: " + stmt.getTableName());
         }
         
         Table table = tableOpt.get();
-        List<Row> rows = storage.readAllRows(table);
-        int originalSize = rows.size();
-        
-        if (stmt.getWhereClause() != null) {
-            List<Row> toDelete = filterRows(table, rows, stmt.getWhereClause());
-            rows.removeAll(toDelete);
-        } else {
-            rows.clear();
+        String unknownColumn = unknownColumn(table, stmt.getWhereClause());
+        if (unknownColumn != null) {
+            return QueryResult.error("Column does not exist: " + unknownColumn);
         }
+        int deletedCount = 0;
         
-        int deletedCount = originalSize - rows.size();
-        
-        storage.truncateTable(stmt.getTableName());
-        for (Row row : rows) {
-            storage.insertRow(table, row);
+        // Truncating is logged at once and cannot be rolled back, so a transaction deletes row by row
+        if (stmt.getWhereClause() == null && !transaction.isExplicit()) {
+            Operator scan = new TableScan(storage, table);
+            scan.open();
+            while (scan.next() != null) {
+                deletedCount++;
+            }
+            scan.close();
+            storage.truncateTable(stmt.getTableName());
+            indexManager.truncateTableIndexes(stmt.getTableName());
+        } else {
+            for (Row row : collect(scan(table, stmt.getWhereClause()))) {
+                storage.deleteRow(table, row.getRowId());
+                indexManager.deleteFromIndexes(table, row);
+                transaction.onRollback(() -> indexManager.insertIntoIndexes(table, row));
+                deletedCount++;
+            }
         }
         
         QueryResult result = QueryResult.success(deletedCount + " row(s) deleted");
@@ -259,176 +925,200 @@ public class QueryEngine {
         }
         
         Table table = tableOpt.get();
-        indexManager.createIndex(stmt.getIndexName(), table, stmt.getColumnName(), stmt.isUnique());
+        indexManager.createIndex(stmt.getIndexName(), table, stmt.getColumnName(), stmt.isUnique(),
+                storage.readAllRows(table));
+        schema.addIndex(new IndexDefinition(stmt.getIndexName(), table.getName(),
+                stmt.getColumnName(), stmt.isUnique()));
+        
+        // Persist schema
+        try {
+            schemaManager.saveSchema(schema);
+        } catch (IOException e) {
+        }
         
         return QueryResult.success("Index created: " + stmt.getIndexName());
     }
 
-    private List<Row> filterRows(Table table, List<Row> rows, WhereClause where) {
-        return rows.stream()
-                .filter(row -> evaluateCondition(table, row, where))
-                .collect(Collectors.toList());
+    /**
+     * The rows of a table that satisfy a WHERE clause, read through the access
+     * path the planner picks. The full clause is applied on top of the path
+     * unless the path already enforces all of it.
+     */
+    private Operator scan(Table table, WhereClause where) {
+        return scan(table, where, planner.planAccess(table, where));
     }
 
-    private boolean evaluateCondition(Table table, Row row, WhereClause condition) {
-        int leftIndex = table.getColumnIndex(condition.getLeftColumn());
-        if (leftIndex < 0) return false;
-        
-        Object leftValue = row.getValue(leftIndex);
-        Object rightValue;
+    private Operator scan(Table table, WhereClause where, AccessPath path) {
+        Operator operator = path.getType() == AccessPath.Type.FULL_SCAN
+                ? new TableScan(storage, table)
+                : new IndexScan(storage, table, path);
         
-        if (condition.isColumnComparison()) {
-            int rightIndex = table.getColumnIndex(condition.getRightColumn());
-            if (rightIndex < 0) return false;
-            rightValue = row.getValue(rightIndex);
-        } else {
-            rightValue = condition.getRightValue();
+        if (where != null && !path.isExact()) {
+            operator = new Filter(operator, RowPredicates.compile(table, where));
         }
-        
-        boolean result = compareValues(leftValue, rightValue, condition.getOperator());
-        
-        if (condition.getNextCondition() != null) {
-            boolean nextResult = evaluateCondition(table, row, condition.getNextCondition());
-            if (condition.getLogicalOperator() == WhereClause.LogicalOperator.AND) {
-                result = result && nextResult;
-            } else {
-                result = result || nextResult;
+        return operator;
+    }
+
+    /**
+     * Runs a pipeline to completion. UPDATE and DELETE collect their targets
+     * this way before modifying anything, so a row moved by an update is never
+     * visited twice by the scan that found it.
+     */
+    private List<Row> collect(Operator operator) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        operator.open();
+        try {
+            Row row;
+            while ((row = operator.next()) != null) {
+                rows.add(row);
             }
+        } finally {
+            operator.close();
         }
-        
-        return result;
+        return rows;
     }
 
-    @SuppressWarnings("unchecked")
-    private boolean compareValues(Object left, Object right, WhereClause.Operator op) {
-        if (left == null || right == null) {
-            return op == WhereClause.Operator.EQUALS ? (left == right) : (left != right);
+    private boolean isNumeric(DataType type) {
+        return type == DataType.INT || type == DataType.LONG || type == DataType.DOUBLE;
+    }
+
+    /** The type of an aggregate's result: counts and integer sums widen to LONG, averages are DOUBLE. */
+    private DataType aggregateType(AggregateCall.Function function, DataType inputType) {
+        switch (function) {
+            case COUNT:
+                return DataType.LONG;
+            case AVG:
+                return DataType.DOUBLE;
+            case SUM:
+                return inputType == DataType.DOUBLE ? DataType.DOUBLE : DataType.LONG;
+            default:
+                return inputType;
         }
-        
-        if (left instanceof Comparable && right instanceof Comparable) {
-            int comparison = ((Comparable) left).compareTo(right);
-            
-            switch (op) {
-                case EQUALS: return comparison == 0;
-                case NOT_EQUALS: return comparison != 0;
-                case LESS_THAN: return comparison < 0;
-                case GREATER_THAN: return comparison > 0;
-                case LESS_EQUAL: return comparison <= 0;
-                case GREATER_EQUAL: return comparison >= 0;
-            }
+    }
+
+    /**
+     * Describes the rows a join produces: the left table's columns followed by
+     * the right table's. A name present in both resolves to the left column.
+     */
+    private Table joinedTable(Table leftTable, Table rightTable) {
+        Table joined = new Table(leftTable.getName() + "_" + rightTable.getName());
+        for (Column column : leftTable.getColumns()) {
+            joined.addColumn(column);
         }
-        
-        return false;
+        for (Column column : rightTable.getColumns()) {
+            joined.addColumn(column);
+        }
+        return joined;
     }
 
-    private List<Row> projectColumns(Table table, List<Row> rows, List<String> columns) {
-        List<Integer> columnIndexes = columns.stream()
-                .map(table::getColumnIndex)
-                .collect(Collectors.toList());
-        
-        return rows.stream()
-                .map(row -> {
-                    Row projected = new Row();
-                    for (int index : columnIndexes) {
-                        if (index >= 0) {
-                            projected.addValue(row.getValue(index));
-                        }
-                    }
-                    return projected;
-                })
-                .collect(Collectors.toList());
+    /**
+     * Checks a batch of rows about to be inserted against NOT NULL, PRIMARY KEY
+     * and UNIQUE: against the rows already stored, rows the transaction has
+     * inserted but not indexed yet, and duplicates within the batch itself.
+     */
+    private boolean validateConstraints(Table table, List<Row> rows, Transaction transaction) throws IOException {
+        return validateConstraints(table, rows, Set.of(), null, transaction);
     }
 
-    private List<Row> performJoin(Table leftTable, List<Row> leftRows, JoinClause join) throws IOException {
-        Optional<Table> rightTableOpt = schema.getTable(join.getRightTable());
-        if (!rightTableOpt.isPresent()) {
-            throw new RuntimeException("Table does not exist: " + join.getRightTable());
-        }
-        
-        Table rightTable = rightTableOpt.get();
-        List<Row> rightRows = storage.readAllRows(rightTable);
-        
-        int leftColIndex = leftTable.getColumnIndex(join.getLeftColumn());
-        int rightColIndex = rightTable.getColumnIndex(join.getRightColumn());
-        
-        List<Row> result = new ArrayList<>();
-        
-        for (Row leftRow : leftRows) {
-            Object leftValue = leftRow.getValue(leftColIndex);
-            boolean matched = false;
+    /**
+     * Checks rows about to replace the stored rows with the given RowIds, as
+     * an UPDATE writes them. The rows they replace do not count as holding
+     * their old keys, and only the given columns are checked, null meaning all.
+     */
+    private boolean validateConstraints(Table table, List<Row> rows, Set<RowId> replaced, boolean[] columns,
+                                        Transaction transaction) throws IOException {
+        for (int i = 0; i < table.getColumns().size(); i++) {
+            if (columns != null && !columns[i]) {
+                continue;
+            }
+            Column column = table.getColumns().get(i);
+            boolean unique = column.isPrimaryKey() || column.isUnique();
+            Set<Object> batchValues = new HashSet<>();
             
-            for (Row rightRow : rightRows) {
-                Object rightValue = rightRow.getValue(rightColIndex);
-                
-                if (Objects.equals(leftValue, rightValue)) {
-                    Row joined = new Row();
-                    for (Object val : leftRow.getValues()) {
-                        joined.addValue(val);
-                    }
-                    for (Object val : rightRow.getValues()) {
-                        joined.addValue(val);
-                    }
-                    result.add(joined);
-                    matched = true;
+            for (Row row : rows) {
+                Object value = row.getValue(i);
+                if ((!column.isNullable() || column.isPrimaryKey()) && value == null) {
+                    return false;
                 }
+                if (unique && value != null && !batchValues.add(value)) {
+                    return false;
+                }
+            }
+            
+            if (!unique || batchValues.isEmpty()) {
+                continue;
             }
             
-            if (!matched && join.getJoinType() == JoinClause.JoinType.LEFT) {
-                Row joined = new Row();
-                for (Object val : leftRow.getValues()) {
-                    joined.addValue(val);
+            Optional<Index> index = indexManager.findUniqueIndex(table.getName(), column.getName());
+            if (index.isPresent()) {
+                for (Object value : batchValues) {
+                    if (!replaced.containsAll(index.get().search(value))
+                            || (transaction != null && transaction.hasUnindexedKey(table, i, value))) {
+                        return false;
+                    }
                 }
-                for (int i = 0; i < rightTable.getColumns().size(); i++) {
-                    joined.addValue(null);
+            } else {
+                for (Row existing : storage.readAllRows(table)) {
+                    if (batchValues.contains(existing.getValue(i)) && !replaced.contains(existing.getRowId())) {
+                        return false;
+                    }
                 }
-                result.add(joined);
             }
         }
-        
-        return result;
+        return true;
     }
 
-    private Object convertValue(Object value, DataType targetType) {
-        if (value == null) return null;
-        
-        switch (targetType) {
-            case INT:
-                if (value instanceof Integer) return value;
-                return Integer.parseInt(value.toString());
-            case LONG:
-            case DATE:
-            case DATETIME:
-            case TIMESTAMP:
-                if (value instanceof Long) return value;
-                return Long.parseLong(value.toString());
-            case BOOLEAN:
-                if (value instanceof Boolean) return value;
-                return Boolean.parseBoolean(value.toString());
-            case VARCHAR:
-                return value.toString();
-            default:
-                return value;
+    /**
+     * Creates the unique indexes that back PRIMARY KEY and UNIQUE columns, so
+     * that constraint checks are a single index probe.
+     */
+    private void createConstraintIndexes(Table table) throws IOException {
+        for (Column column : table.getColumns()) {
+            createConstraintIndex(table, column);
         }
     }
 
-    private boolean validateConstraints(Table table, Row row) throws IOException {
-        for (int i = 0; i < table.getColumns().size(); i++) {
-            Column column = table.getColumns().get(i);
-            Object value = row.getValue(i);
-            
-            if (!column.isNullable() && value == null) {
-                return false;
-            }
-            
-            if (column.isPrimaryKey() || column.isUnique()) {
-                List<Row> existingRows = storage.readAllRows(table);
-                for (Row existing : existingRows) {
-                    if (Objects.equals(existing.getValue(i), value)) {
-                        return false;
-                    }
+    private void createConstraintIndex(Table table, Column column) throws IOException {
+        if (!column.isPrimaryKey() && !column.isUnique()) {
+            return;
+        }
+        if (indexManager.findUniqueIndex(table.getName(), column.getName()).isPresent()) {
+            return;
+        }
+        
+        String indexName = (column.isPrimaryKey() ? "pk_" : "uq_")
+                + table.getName().toLowerCase() + "_" + column.getName().toLowerCase();
+        indexManager.createIndex(indexName, table, column.getName(), true, storage.readAllRows(table));
+        schema.addIndex(new IndexDefinition(indexName, table.getName(), column.getName(), true));
+    }
+
+    /**
+     * Tables created before constraint indexes existed get them on startup.
+     * A column whose existing rows already violate its constraint is left
+     * without one and keeps being checked by scanning.
+     */
+    private void createMissingConstraintIndexes() {
+        int before = schema.getAllIndexes().size();
+        
+        for (Table table : schema.getAllTables()) {
+            for (Column column : table.getColumns()) {
+                try {
+                    createConstraintIndex(table, column);
+                } catch (UniqueConstraintViolationException e) {
+                    log.warn("Rows of {} hold duplicate values of {}, which is left without a constraint index",
+                            table.getName(), column.getName());
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to create constraint indexes of " + table.getName(), e);
                 }
             }
         }
-        return true;
+        
+        if (schema.getAllIndexes().size() != before) {
+            try {
+                schemaManager.saveSchema(schema);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save the schema", e);
+            }
+        }
     }
 }
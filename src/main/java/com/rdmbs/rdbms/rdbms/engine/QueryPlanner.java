@@ -0,0 +1,252 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.index.Index;
+import com.rdmbs.rdbms.rdbms.index.IndexManager;
+import com.rdmbs.rdbms.rdbms.parser.ast.BetweenCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.Comparison;
+import com.rdmbs.rdbms.rdbms.parser.ast.JoinClause;
+import com.rdmbs.rdbms.rdbms.parser.ast.LogicalCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+
+import java.util.*;
+
+/**
+ * Chooses an {@link AccessPath} for a table given its WHERE clause. An index
+ * seek is preferred over an index range scan, which is preferred over a full
+ * scan. The chosen path usually only narrows the candidate rows and the full
+ * WHERE clause is still evaluated against every row it returns; a path that
+ * enforces every condition itself is marked exact and needs no filter.
+ */
+public class QueryPlanner {
+    private final IndexManager indexManager;
+
+    public QueryPlanner(IndexManager indexManager) {
+        this.indexManager = indexManager;
+    }
+
+    public AccessPath planAccess(Table table, WhereClause where) {
+        if (where == null) {
+            return AccessPath.fullScan();
+        }
+
+        AccessPath path = choosePath(table, where);
+        path.setExact(path.getType() != AccessPath.Type.FULL_SCAN && coversWhere(table, where, path));
+        return path;
+    }
+
+    /**
+     * Returns an access path that produces rows already ordered on the given
+     * column, or null if the rows will need sorting. That is the case when the
+     * planned path scans an index on that column, or when the plan is a full
+     * scan and the column has an index and cannot be NULL (indexes do not hold
+     * NULLs, so walking one would drop those rows). The index is walked as rows
+     * are pulled, so with a LIMIT this beats sorting: only the leaves holding
+     * the first rows are read.
+     */
+    public AccessPath planOrderedAccess(Table table, WhereClause where, String column, boolean descending) {
+        AccessPath path = planAccess(table, where);
+        if (path.getType() == AccessPath.Type.FULL_SCAN) {
+            Optional<Column> sortColumn = table.getColumn(column);
+            Optional<Index> index = indexManager.findIndex(table.getName(), column);
+            if (!sortColumn.isPresent() || !index.isPresent()
+                    || (sortColumn.get().isNullable() && !sortColumn.get().isPrimaryKey())) {
+                return null;
+            }
+            path = AccessPath.indexRange(index.get(), null, false, null, false);
+            path.setExact(where == null);
+        } else if (!path.getIndex().getColumnName().equalsIgnoreCase(column)) {
+            return null;
+        }
+        path.setDescending(descending);
+        return path;
+    }
+
+    /**
+     * Splits a join's WHERE clause into its top-level conjuncts and assigns
+     * each to the table whose columns it reads, so it can filter that table's
+     * rows before the join. An outer join keeps the conditions on its
+     * null-padded side above the join, since filtering that side first would
+     * pad the rows it removes instead of dropping them. Unqualified names
+     * shared by both tables refer to the left table, as they do in the joined
+     * row.
+     */
+    public JoinConditions splitJoinConditions(Table left, Table right, JoinClause.JoinType joinType, WhereClause where) {
+        List<WhereClause> leftConditions = new ArrayList<>();
+        List<WhereClause> rightConditions = new ArrayList<>();
+        List<WhereClause> residual = new ArrayList<>();
+        if (where != null) {
+            for (WhereClause condition : where.conjuncts()) {
+                List<String> columns = new ArrayList<>();
+                condition.collectColumns(columns);
+                boolean leftOnly = columns.stream().allMatch(column -> left.getColumnIndex(column) >= 0);
+                boolean rightOnly = columns.stream().allMatch(column -> left.getColumnIndex(column) < 0);
+                if (leftOnly && joinType != JoinClause.JoinType.RIGHT) {
+                    leftConditions.add(condition);
+                } else if (rightOnly && joinType != JoinClause.JoinType.LEFT) {
+                    rightConditions.add(condition);
+                } else {
+                    residual.add(condition);
+                }
+            }
+        }
+        return new JoinConditions(conjunction(leftConditions), conjunction(rightConditions), conjunction(residual));
+    }
+
+    private WhereClause conjunction(List<WhereClause> conditions) {
+        if (conditions.isEmpty()) {
+            return null;
+        }
+        if (conditions.size() == 1) {
+            return conditions.get(0);
+        }
+        LogicalCondition and = new LogicalCondition();
+        and.setOperator(WhereClause.LogicalOperator.AND);
+        and.setOperands(conditions);
+        return and;
+    }
+
+    private AccessPath choosePath(Table table, WhereClause where) {
+        List<WhereClause> required = where.conjuncts();
+
+        for (WhereClause condition : required) {
+            if (condition instanceof Comparison
+                    && ((Comparison) condition).getOperator() == WhereClause.Operator.EQUALS) {
+                Comparison comparison = (Comparison) condition;
+                Optional<Index> index = indexFor(table, comparison);
+                Object key = literalFor(table, comparison.getLeftColumn(), comparison.getRightValue());
+                if (index.isPresent() && key != null) {
+                    return AccessPath.indexSeek(index.get(), key);
+                }
+            }
+        }
+
+        Map<String, AccessPath> ranges = new LinkedHashMap<>();
+        for (WhereClause condition : required) {
+            if (condition instanceof Comparison) {
+                Comparison comparison = (Comparison) condition;
+                Optional<Index> index = indexFor(table, comparison);
+                Object bound = literalFor(table, comparison.getLeftColumn(), comparison.getRightValue());
+                if (index.isPresent() && bound != null) {
+                    tightenRange(rangeOn(ranges, index.get()), comparison.getOperator(), bound);
+                }
+            } else if (condition instanceof BetweenCondition && !((BetweenCondition) condition).isNegated()) {
+                BetweenCondition between = (BetweenCondition) condition;
+                Optional<Index> index = indexManager.findIndex(table.getName(), between.getColumn());
+                Object lower = literalFor(table, between.getColumn(), between.getLower());
+                Object upper = literalFor(table, between.getColumn(), between.getUpper());
+                if (index.isPresent() && lower != null && upper != null) {
+                    AccessPath range = rangeOn(ranges, index.get());
+                    tightenRange(range, WhereClause.Operator.GREATER_EQUAL, lower);
+                    tightenRange(range, WhereClause.Operator.LESS_EQUAL, upper);
+                }
+            }
+        }
+
+        for (AccessPath range : ranges.values()) {
+            if (range.getLowerBound() != null || range.getUpperBound() != null) {
+                return range;
+            }
+        }
+        return AccessPath.fullScan();
+    }
+
+    private AccessPath rangeOn(Map<String, AccessPath> ranges, Index index) {
+        return ranges.computeIfAbsent(index.getIndexName(),
+                name -> AccessPath.indexRange(index, null, false, null, false));
+    }
+
+    /**
+     * Whether every top-level conjunct of the WHERE clause is already enforced
+     * by the path: the seek key itself, or a bound on the range's column that
+     * the range is at least as tight as.
+     */
+    private boolean coversWhere(Table table, WhereClause where, AccessPath path) {
+        String indexColumn = path.getIndex().getColumnName();
+        for (WhereClause condition : where.conjuncts()) {
+            if (condition instanceof BetweenCondition) {
+                BetweenCondition between = (BetweenCondition) condition;
+                if (between.isNegated() || path.getType() != AccessPath.Type.INDEX_RANGE
+                        || !between.getColumn().equalsIgnoreCase(indexColumn)
+                        || literalFor(table, between.getColumn(), between.getLower()) == null
+                        || literalFor(table, between.getColumn(), between.getUpper()) == null) {
+                    return false;
+                }
+                continue;
+            }
+            if (!(condition instanceof Comparison)) {
+                return false;
+            }
+            
+            Comparison comparison = (Comparison) condition;
+            if (comparison.isColumnComparison() || !comparison.getLeftColumn().equalsIgnoreCase(indexColumn)) {
+                return false;
+            }
+            Object literal = literalFor(table, comparison.getLeftColumn(), comparison.getRightValue());
+            if (literal == null) {
+                return false;
+            }
+
+            WhereClause.Operator operator = comparison.getOperator();
+            if (path.getType() == AccessPath.Type.INDEX_SEEK) {
+                if (operator != WhereClause.Operator.EQUALS || !literal.equals(path.getKey())) {
+                    return false;
+                }
+            } else if (operator == WhereClause.Operator.EQUALS || operator == WhereClause.Operator.NOT_EQUALS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Optional<Index> indexFor(Table table, Comparison condition) {
+        if (condition.isColumnComparison()) {
+            return Optional.empty();
+        }
+        return indexManager.findIndex(table.getName(), condition.getLeftColumn());
+    }
+
+    /** A literal converted to the column's type, or null if it cannot drive an index. */
+    private Object literalFor(Table table, String columnName, Object value) {
+        Optional<Column> column = table.getColumn(columnName);
+        if (!column.isPresent() || value == null) {
+            return null;
+        }
+        try {
+            return column.get().getDataType().convert(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void tightenRange(AccessPath range, WhereClause.Operator operator, Object bound) {
+        switch (operator) {
+            case GREATER_THAN:
+            case GREATER_EQUAL: {
+                boolean inclusive = operator == WhereClause.Operator.GREATER_EQUAL;
+                Object current = range.getLowerBound();
+                int cmp = current == null ? 1 : ((Comparable<Object>) bound).compareTo(current);
+                if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                    range.setLowerBound(bound);
+                    range.setLowerInclusive(inclusive);
+                }
+                break;
+            }
+            case LESS_THAN:
+            case LESS_EQUAL: {
+                boolean inclusive = operator == WhereClause.Operator.LESS_EQUAL;
+                Object current = range.getUpperBound();
+                int cmp = current == null ? -1 : ((Comparable<Object>) bound).compareTo(current);
+                if (cmp < 0 || (cmp == 0 && !inclusive)) {
+                    range.setUpperBound(bound);
+                    range.setUpperInclusive(inclusive);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
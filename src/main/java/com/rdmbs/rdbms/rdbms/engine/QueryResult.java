@@ -1,22 +1,43 @@
 package com.rdmbs.rdbms.rdbms.engine;
 
+import com.rdmbs.rdbms.rdbms.engine.operator.Operator;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
 import com.rdmbs.rdbms.rdbms.storage.Row;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Data
-public class QueryResult {
+public class QueryResult implements AutoCloseable {
     private boolean success;
     private String message;
     private List<String> columnNames;
+    /** The type of each column, where the engine knows it; empty otherwise. */
+    private List<DataType> columnTypes;
     private List<Row> rows;
     private int rowsAffected;
 
+    /** Pipeline still to be drained for a streaming result, null once consumed. */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Operator source;
+
+    /** Pipeline being read through {@link #rowIterator()}, null once it has run out. */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Operator open;
+
     public QueryResult() {
         this.rows = new ArrayList<>();
         this.columnNames = new ArrayList<>();
+        this.columnTypes = new ArrayList<>();
     }
 
     public static QueryResult success(String message) {
@@ -41,4 +62,112 @@ public class QueryResult {
         result.setRowsAffected(rows.size());
         return result;
     }
+
+    /**
+     * A result whose rows are produced by an operator pipeline as they are
+     * read. Consume it once, either with {@link #rowIterator()} or by calling
+     * {@link #getRows()}, which drains the pipeline into memory.
+     */
+    public static QueryResult streaming(List<String> columnNames, Operator source) {
+        QueryResult result = new QueryResult();
+        result.setSuccess(true);
+        result.setColumnNames(columnNames);
+        result.setSource(source);
+        return result;
+    }
+
+    /** A streaming result whose columns have the given types. */
+    public static QueryResult streaming(List<String> columnNames, List<DataType> columnTypes, Operator source) {
+        QueryResult result = streaming(columnNames, source);
+        result.setColumnTypes(columnTypes);
+        return result;
+    }
+
+    public List<Row> getRows() {
+        if (source != null) {
+            List<Row> drained = new ArrayList<>();
+            rowIterator().forEachRemaining(drained::add);
+            rows = drained;
+        }
+        return rows;
+    }
+
+    /**
+     * Iterates the rows, pulling each one through the pipeline only when asked
+     * for. Storage errors raised while reading surface as
+     * {@link UncheckedIOException}. The pipeline is closed once it runs out;
+     * a caller that stops reading earlier calls {@link #close()}.
+     */
+    public Iterator<Row> rowIterator() {
+        if (source == null) {
+            return rows.iterator();
+        }
+
+        Operator operator = source;
+        source = null;
+        try {
+            operator.open();
+        } catch (IOException e) {
+            closeQuietly(operator);
+            throw new UncheckedIOException(e);
+        }
+        open = operator;
+
+        return new Iterator<Row>() {
+            private Row next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = operator.next();
+                    } catch (IOException e) {
+                        done = true;
+                        open = null;
+                        closeQuietly(operator);
+                        throw new UncheckedIOException(e);
+                    }
+                    if (next == null) {
+                        done = true;
+                        open = null;
+                        closeQuietly(operator);
+                    } else {
+                        rowsAffected++;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Row row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Closes a pipeline that was not read to the end, releasing the locks it
+     * holds. Call it on the thread that read the rows.
+     */
+    @Override
+    public void close() {
+        source = null;
+        if (open != null) {
+            closeQuietly(open);
+            open = null;
+        }
+    }
+
+    private static void closeQuietly(Operator operator) {
+        try {
+            operator.close();
+        } catch (IOException e) {
+        }
+    }
 }
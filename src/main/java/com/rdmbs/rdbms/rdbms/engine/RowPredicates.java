@@ -0,0 +1,227 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.parser.ConditionNormalizer;
+import com.rdmbs.rdbms.rdbms.parser.ast.*;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles WHERE clauses into trees of predicates over rows. Column names are
+ * resolved to positions and literals unpacked once per query, and each
+ * comparison is specialized to its column type and literal, so testing a row
+ * does no name lookups and walks no AST. AND and OR stop at the first operand
+ * that decides them.
+ *
+ * Nulls follow SQL: a comparison, IN, BETWEEN or LIKE with a null on
+ * either side is unknown, and no row satisfies an unknown condition, in its
+ * NOT form or not. Only IS [NOT] NULL tests for nulls. Rows with a null key
+ * are not in any index, so a scan through an index returns the same rows.
+ */
+final class RowPredicates {
+
+    private RowPredicates() {
+    }
+
+    static Predicate<Row> compile(Table table, WhereClause condition) {
+        switch (condition.getType()) {
+            case LOGICAL: {
+                LogicalCondition logical = (LogicalCondition) condition;
+                List<WhereClause> operands = logical.getOperands();
+                List<Predicate<Row>> compiled = new ArrayList<>(operands.size());
+                for (WhereClause operand : operands) {
+                    compiled.add(compile(table, operand));
+                }
+                if (logical.getOperator() == WhereClause.LogicalOperator.AND) {
+                    return row -> {
+                        for (Predicate<Row> operand : compiled) {
+                            if (!operand.test(row)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    };
+                }
+                return row -> {
+                    for (Predicate<Row> operand : compiled) {
+                        if (operand.test(row)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case NOT:
+                // Negating the result would turn unknown into true; fold the NOT into the leaves instead
+                return compile(table, ConditionNormalizer.normalize(condition));
+            case COMPARISON:
+                return compileComparison(table, (Comparison) condition);
+            case IS_NULL: {
+                IsNullCondition isNull = (IsNullCondition) condition;
+                int index = table.getColumnIndex(isNull.getColumn());
+                if (index < 0) {
+                    return row -> false;
+                }
+                boolean negated = isNull.isNegated();
+                return row -> (row.getValue(index) == null) != negated;
+            }
+            default: {
+                int index = table.getColumnIndex(leafColumn(condition));
+                if (index < 0) {
+                    return row -> false;
+                }
+                Predicate<Object> test = valueTest(table.getColumns().get(index).getDataType(), condition);
+                boolean negated = isNegated(condition);
+                return row -> {
+                    Object value = row.getValue(index);
+                    return value != null && test.test(value) != negated;
+                };
+            }
+        }
+    }
+
+    private static Predicate<Row> compileComparison(Table table, Comparison condition) {
+        WhereClause.Operator op = condition.getOperator();
+        int leftIndex = table.getColumnIndex(condition.getLeftColumn());
+        if (leftIndex < 0) {
+            return row -> false;
+        }
+
+        if (condition.isColumnComparison()) {
+            int rightIndex = table.getColumnIndex(condition.getRightColumn());
+            if (rightIndex < 0) {
+                return row -> false;
+            }
+            return row -> BatchPredicates.compareValues(row.getValue(leftIndex), row.getValue(rightIndex), op);
+        }
+
+        Object literal = condition.getRightValue();
+        if (literal == null) {
+            return row -> false;
+        }
+
+        DataType type = table.getColumns().get(leftIndex).getDataType();
+        if (type == DataType.VARCHAR && literal instanceof String) {
+            String value = (String) literal;
+            return row -> {
+                Object current = row.getValue(leftIndex);
+                return current instanceof String
+                        ? BatchPredicates.test(((String) current).compareTo(value), op)
+                        : BatchPredicates.compareValues(current, value, op);
+            };
+        }
+        if (literal instanceof Double || (type == DataType.DOUBLE && literal instanceof Number)) {
+            double value = ((Number) literal).doubleValue();
+            return row -> {
+                Object current = row.getValue(leftIndex);
+                return current instanceof Number
+                        ? BatchPredicates.test(Double.compare(((Number) current).doubleValue(), value), op)
+                        : BatchPredicates.compareValues(current, literal, op);
+            };
+        }
+        if (literal instanceof Integer || literal instanceof Long) {
+            long value = ((Number) literal).longValue();
+            return row -> {
+                Object current = row.getValue(leftIndex);
+                return current instanceof Integer || current instanceof Long
+                        ? BatchPredicates.test(Long.compare(((Number) current).longValue(), value), op)
+                        : BatchPredicates.compareValues(current, literal, op);
+            };
+        }
+        return row -> BatchPredicates.compareValues(row.getValue(leftIndex), literal, op);
+    }
+
+    /** The column an IN, BETWEEN or LIKE condition tests. */
+    static String leafColumn(WhereClause condition) {
+        switch (condition.getType()) {
+            case IN:
+                return ((InCondition) condition).getColumn();
+            case BETWEEN:
+                return ((BetweenCondition) condition).getColumn();
+            default:
+                return ((LikeCondition) condition).getColumn();
+        }
+    }
+
+    static boolean isNegated(WhereClause condition) {
+        switch (condition.getType()) {
+            case IN:
+                return ((InCondition) condition).isNegated();
+            case BETWEEN:
+                return ((BetweenCondition) condition).isNegated();
+            default:
+                return ((LikeCondition) condition).isNegated();
+        }
+    }
+
+    /**
+     * Tests a non-null value of a column of the given type against an IN,
+     * BETWEEN or LIKE condition, ignoring NOT.
+     */
+    static Predicate<Object> valueTest(DataType type, WhereClause condition) {
+        switch (condition.getType()) {
+            case IN: {
+                List<Object> values = ((InCondition) condition).getValues();
+                try {
+                    // Converted to the column's type, the list becomes a hash lookup
+                    Set<Object> set = new HashSet<>();
+                    for (Object value : values) {
+                        if (value != null) {
+                            set.add(type.convert(value));
+                        }
+                    }
+                    return set::contains;
+                } catch (NumberFormatException e) {
+                    return current -> values.stream()
+                            .anyMatch(value -> value != null && BatchPredicates.compareComparable(current, value) == 0);
+                }
+            }
+            case BETWEEN: {
+                BetweenCondition between = (BetweenCondition) condition;
+                Object lower = between.getLower();
+                Object upper = between.getUpper();
+                if (lower == null || upper == null) {
+                    return current -> false;
+                }
+                return current -> BatchPredicates.compareComparable(current, lower) >= 0
+                        && BatchPredicates.compareComparable(current, upper) <= 0;
+            }
+            default: {
+                Object pattern = ((LikeCondition) condition).getPattern();
+                if (pattern == null) {
+                    return current -> false;
+                }
+                Pattern regex = likePattern(pattern.toString());
+                return current -> regex.matcher(current.toString()).matches();
+            }
+        }
+    }
+
+    /** Translates a LIKE pattern into a regular expression: % is any run of characters, _ any one character. */
+    private static Pattern likePattern(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
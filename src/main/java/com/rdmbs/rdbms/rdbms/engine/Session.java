@@ -0,0 +1,70 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One client's connection to a {@link QueryEngine}. Each statement commits
+ * on its own until BEGIN opens a transaction, which lasts until COMMIT or
+ * ROLLBACK. A transaction keeps its table locks between statements and locks
+ * belong to threads, so a session must be used from one thread at a time.
+ * Statements named with PREPARE belong to the session that prepared them.
+ * Closing a session rolls back any transaction left open.
+ */
+public class Session implements AutoCloseable {
+    private final QueryEngine engine;
+    private Transaction transaction;
+    private int parallelism;
+    /** Named prepared statements, by lower-cased name. */
+    private final Map<String, PreparedQuery> preparedQueries = new HashMap<>();
+
+    Session(QueryEngine engine) {
+        this.engine = engine;
+    }
+
+    public QueryResult execute(String sql) {
+        return execute(sql, Collections.emptyList());
+    }
+
+    /** Runs SQL whose {@code ?} placeholders take the given values, in order. */
+    public QueryResult execute(String sql, List<Object> parameters) {
+        return engine.execute(this, sql, parameters);
+    }
+
+    public boolean inTransaction() {
+        return transaction != null;
+    }
+
+    /** The most workers this session's queries scan a table with; 0 for the engine's default. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the most workers the session's next queries scan a table with,
+     * overriding the engine's default until set back to 0. 1 turns parallel
+     * scans off.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(0, parallelism);
+    }
+
+    @Override
+    public void close() {
+        engine.rollback(this);
+    }
+
+    Transaction getTransaction() {
+        return transaction;
+    }
+
+    void setTransaction(Transaction transaction) {
+        this.transaction = transaction;
+    }
+
+    Map<String, PreparedQuery> getPreparedQueries() {
+        return preparedQueries;
+    }
+}
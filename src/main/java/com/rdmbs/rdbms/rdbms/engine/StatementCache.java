@@ -0,0 +1,70 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of parsed statements keyed by normalized SQL text, evicting
+ * the least recently used entry when full. Parsed statements do not depend on
+ * the schema, so entries never need invalidating; a statement naming a table
+ * that has since been dropped fails when it runs, as it would if reparsed.
+ */
+public class StatementCache {
+    private final Map<String, PreparedQuery> entries;
+
+    public StatementCache(int capacity) {
+        this.entries = new LinkedHashMap<String, PreparedQuery>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedQuery> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized PreparedQuery get(String normalizedSql) {
+        return entries.get(normalizedSql);
+    }
+
+    public synchronized void put(String normalizedSql, PreparedQuery query) {
+        entries.put(normalizedSql, query);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Normalizes SQL text for use as a cache key: surrounding whitespace and
+     * trailing semicolons are dropped and every whitespace run outside a
+     * string literal becomes a single space. This is one pass over the text,
+     * much cheaper than tokenizing it.
+     */
+    public static String normalize(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) {
+            end--;
+        }
+
+        StringBuilder normalized = new StringBuilder(end);
+        boolean inString = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < end; i++) {
+            char c = sql.charAt(i);
+            if (!inString && Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+            if (inString && c == '\\' && i + 1 < end) {
+                normalized.append(sql.charAt(++i));
+            } else if (c == '\'') {
+                inString = !inString;
+            }
+        }
+        return normalized.toString();
+    }
+}
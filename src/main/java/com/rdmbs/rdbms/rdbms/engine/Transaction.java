@@ -0,0 +1,123 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.util.*;
+
+/**
+ * The state of one transaction: the tables it writes, the locks it holds
+ * until it ends, the index changes to undo if it rolls back, and inserted rows
+ * whose index entries have not been written yet.
+ *
+ * Index maintenance for INSERTs is deferred, so a run of inserts reaches each
+ * index in one sorted pass when the rows are next needed: before any other
+ * statement of the transaction, or at commit. Until then unique keys among
+ * the deferred rows are checked here.
+ *
+ * A statement run outside BEGIN ... COMMIT gets a transaction of its own.
+ */
+class Transaction {
+    private final boolean explicit;
+    private final Set<String> writtenTables = new LinkedHashSet<>();
+    private final List<LockManager.Held> locks = new ArrayList<>();
+    private final List<Runnable> undoActions = new ArrayList<>();
+    private final Map<String, UnindexedRows> unindexed = new LinkedHashMap<>();
+
+    /** Rows of one table waiting for their index entries, with their unique keys for constraint checks. */
+    static class UnindexedRows {
+        private final Table table;
+        private final List<Row> rows = new ArrayList<>();
+        private final Map<Integer, Set<Object>> uniqueKeys = new HashMap<>();
+
+        private UnindexedRows(Table table) {
+            this.table = table;
+        }
+
+        Table getTable() {
+            return table;
+        }
+
+        List<Row> getRows() {
+            return rows;
+        }
+    }
+
+    Transaction(boolean explicit) {
+        this.explicit = explicit;
+    }
+
+    /** True for a transaction opened with BEGIN, false for a single statement's own. */
+    boolean isExplicit() {
+        return explicit;
+    }
+
+    void addWrittenTable(String tableName) {
+        writtenTables.add(tableName.toLowerCase());
+    }
+
+    Set<String> getWrittenTables() {
+        return writtenTables;
+    }
+
+    /** Keeps locks until the transaction ends. */
+    void addLocks(LockManager.Held held) {
+        locks.add(held);
+    }
+
+    void releaseLocks() {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).close();
+        }
+        locks.clear();
+    }
+
+    /** Registers an action that reverses an index change, run if the transaction rolls back. */
+    void onRollback(Runnable action) {
+        undoActions.add(action);
+    }
+
+    /** Reverses the recorded index changes, latest first. */
+    void undo() {
+        for (int i = undoActions.size() - 1; i >= 0; i--) {
+            undoActions.get(i).run();
+        }
+        undoActions.clear();
+        unindexed.clear();
+    }
+
+    void deferIndexing(Table table, List<Row> rows) {
+        UnindexedRows pending = unindexed.computeIfAbsent(table.getName().toLowerCase(), key -> new UnindexedRows(table));
+        pending.rows.addAll(rows);
+        for (int i = 0; i < table.getColumns().size(); i++) {
+            Column column = table.getColumns().get(i);
+            if (!column.isPrimaryKey() && !column.isUnique()) {
+                continue;
+            }
+            Set<Object> keys = pending.uniqueKeys.computeIfAbsent(i, key -> new HashSet<>());
+            for (Row row : rows) {
+                if (row.getValue(i) != null) {
+                    keys.add(row.getValue(i));
+                }
+            }
+        }
+    }
+
+    /** True if a deferred row of the table already holds the key in the given unique column. */
+    boolean hasUnindexedKey(Table table, int columnIndex, Object key) {
+        UnindexedRows pending = unindexed.get(table.getName().toLowerCase());
+        if (pending == null) {
+            return false;
+        }
+        Set<Object> keys = pending.uniqueKeys.get(columnIndex);
+        return keys != null && keys.contains(key);
+    }
+
+    /** Hands over the deferred rows, table by table, for their index entries to be written. */
+    Collection<UnindexedRows> takeUnindexedRows() {
+        List<UnindexedRows> rows = new ArrayList<>(unindexed.values());
+        unindexed.clear();
+        return rows;
+    }
+}
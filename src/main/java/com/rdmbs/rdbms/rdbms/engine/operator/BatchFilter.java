@@ -0,0 +1,50 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+
+import java.io.IOException;
+
+/**
+ * Narrows each batch's selection to the rows that satisfy a vectorized
+ * predicate. Column data is never copied.
+ */
+public class BatchFilter implements BatchOperator {
+    private final BatchOperator child;
+    private final BatchPredicate predicate;
+    private boolean[] matches = new boolean[0];
+
+    /** Evaluates a condition over a whole batch at once. */
+    public interface BatchPredicate {
+        /** Sets {@code matches[p]} for every position {@code p} in the batch, selected or not. */
+        void evaluate(RowBatch batch, boolean[] matches);
+    }
+
+    public BatchFilter(BatchOperator child, BatchPredicate predicate) {
+        this.child = child;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public RowBatch nextBatch() throws IOException {
+        RowBatch batch = child.nextBatch();
+        if (batch == null) {
+            return null;
+        }
+        if (matches.length < batch.size()) {
+            matches = new boolean[batch.size()];
+        }
+        predicate.evaluate(batch, matches);
+        batch.retain(matches);
+        return batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
@@ -0,0 +1,19 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+
+import java.io.IOException;
+
+/**
+ * A node in a vectorized pipeline: like {@link Operator}, but each pull
+ * returns a {@link RowBatch} of many rows in columnar form. A returned batch
+ * may be reused by the next call, so consumers finish with it first.
+ */
+public interface BatchOperator {
+    void open() throws IOException;
+
+    /** Returns the next batch, or null once the operator is exhausted. Batches may have no rows selected. */
+    RowBatch nextBatch() throws IOException;
+
+    void close() throws IOException;
+}
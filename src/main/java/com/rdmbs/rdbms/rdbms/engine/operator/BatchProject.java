@@ -0,0 +1,49 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The end of a vectorized pipeline: turns the selected rows of each batch
+ * back into {@link Row}s, materializing only the given columns, in the given
+ * order. Rows filtered out or columns projected away are never boxed.
+ */
+public class BatchProject implements Operator {
+    private final BatchOperator child;
+    private final int[] columnIndexes;
+    private RowBatch batch;
+    private int next;
+
+    public BatchProject(BatchOperator child, List<Integer> columnIndexes) {
+        this.child = child;
+        this.columnIndexes = columnIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        batch = null;
+        next = 0;
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (batch == null || next >= batch.selectedCount()) {
+            batch = child.nextBatch();
+            next = 0;
+            if (batch == null) {
+                return null;
+            }
+        }
+        return batch.toRow(batch.selected(next++), columnIndexes);
+    }
+
+    @Override
+    public void close() throws IOException {
+        batch = null;
+        child.close();
+    }
+}
@@ -0,0 +1,167 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads every row of a table, or of a range of its pages, into column
+ * batches of about {@link #BATCH_SIZE} rows, decoding only the columns the
+ * query uses. One batch is reused for the whole scan, so a scan allocates no
+ * per-row objects. Pages added after the scan opens are not visited.
+ *
+ * Given a filter, the scan decodes the columns the filter reads first,
+ * narrows the batch's selection, and only then decodes the other columns,
+ * for the selected rows alone. Rows the filter drops never have their other
+ * columns read, strings included. Pages are decoded in place in the buffer
+ * pool, and read from the file in runs of {@link #READ_AHEAD_PAGES} when the
+ * scan gets ahead of it.
+ */
+public class BatchScan implements BatchOperator {
+    public static final int BATCH_SIZE = 1024;
+    public static final int READ_AHEAD_PAGES = 16;
+
+    private final TableStorage storage;
+    private final Table table;
+    private final boolean[] readColumns;
+    private final BatchFilter.BatchPredicate filter;
+    private final boolean[] filterColumns;
+    private final int firstPageId;
+    private final int lastPageId;
+    /** Columns decoded after filtering, or null when the filter reads every column the scan does. */
+    private boolean[] lateColumns;
+    private RowBatch batch;
+    private boolean[] matches = new boolean[0];
+    /** The pages read into the current batch and how many rows each one added. */
+    private int[] batchPages = new int[16];
+    private int[] batchPageRows = new int[16];
+    private int batchPageCount;
+    private int endPageId;
+    private int pageId;
+
+    /**
+     * @param readColumns which columns to decode; null for all of them
+     */
+    public BatchScan(TableStorage storage, Table table, boolean[] readColumns) {
+        this(storage, table, readColumns, null, null);
+    }
+
+    /**
+     * @param readColumns which columns to decode; null for all of them
+     * @param filter keeps only the rows it matches, or null to keep them all
+     * @param filterColumns the columns the filter reads
+     */
+    public BatchScan(TableStorage storage, Table table, boolean[] readColumns,
+                     BatchFilter.BatchPredicate filter, boolean[] filterColumns) {
+        this(storage, table, readColumns, filter, filterColumns, 1, -1);
+    }
+
+    /**
+     * Scans pages {@code firstPageId} to {@code lastPageId} only, for one
+     * worker of a parallel scan.
+     *
+     * @param lastPageId the last page to read, or -1 for the last page of the table when the scan opens
+     */
+    public BatchScan(TableStorage storage, Table table, boolean[] readColumns,
+                     BatchFilter.BatchPredicate filter, boolean[] filterColumns, int firstPageId, int lastPageId) {
+        this.storage = storage;
+        this.table = table;
+        this.readColumns = readColumns;
+        this.filter = filter;
+        this.filterColumns = filterColumns;
+        this.firstPageId = firstPageId;
+        this.lastPageId = lastPageId;
+    }
+
+    @Override
+    public void open() throws IOException {
+        endPageId = lastPageId < 0 ? storage.getPageCount(table) : lastPageId;
+        pageId = firstPageId - 1;
+        // Pages rarely hold more than a few hundred rows, so a batch spans several
+        batch = new RowBatch(table, readColumns, BATCH_SIZE + 256);
+
+        lateColumns = null;
+        if (filter != null) {
+            boolean[] late = new boolean[table.getColumns().size()];
+            boolean any = false;
+            for (int i = 0; i < late.length; i++) {
+                late[i] = (readColumns == null || readColumns[i]) && !filterColumns[i];
+                any |= late[i];
+            }
+            lateColumns = any ? late : null;
+        }
+    }
+
+    @Override
+    public RowBatch nextBatch() throws IOException {
+        if (pageId >= endPageId) {
+            return null;
+        }
+        batch.clear();
+        batchPageCount = 0;
+        while (batch.size() < BATCH_SIZE && pageId < endPageId) {
+            if ((pageId - firstPageId + 1) % READ_AHEAD_PAGES == 0) {
+                storage.prefetchPages(table, pageId + 1, READ_AHEAD_PAGES);
+            }
+            int rows = storage.readPageBatch(table, ++pageId, batch, filter == null ? null : filterColumns);
+            if (rows > 0) {
+                addBatchPage(pageId, rows);
+            }
+        }
+        if (filter == null) {
+            return batch;
+        }
+
+        if (matches.length < batch.size()) {
+            matches = new boolean[batch.size()];
+        }
+        filter.evaluate(batch, matches);
+        batch.retain(matches);
+        if (lateColumns != null) {
+            decodeLateColumns();
+        }
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        batch = null;
+    }
+
+    /** Decodes the columns the filter did not read, page by page, skipping pages none of whose rows were selected. */
+    private void decodeLateColumns() throws IOException {
+        int from = 0;
+        for (int i = 0; i < batchPageCount; i++) {
+            int rows = batchPageRows[i];
+            boolean anySelected = false;
+            for (int p = from; p < from + rows && !anySelected; p++) {
+                anySelected = matches[p];
+            }
+            if (anySelected) {
+                storage.fillPageBatch(table, batchPages[i], batch, lateColumns, matches, from);
+            } else {
+                for (int c = 0; c < lateColumns.length; c++) {
+                    if (lateColumns[c]) {
+                        for (int r = 0; r < rows; r++) {
+                            batch.column(c).appendNull();
+                        }
+                    }
+                }
+            }
+            from += rows;
+        }
+    }
+
+    private void addBatchPage(int pageId, int rows) {
+        if (batchPageCount == batchPages.length) {
+            batchPages = Arrays.copyOf(batchPages, batchPageCount * 2);
+            batchPageRows = Arrays.copyOf(batchPageRows, batchPageCount * 2);
+        }
+        batchPages[batchPageCount] = pageId;
+        batchPageRows[batchPageCount] = rows;
+        batchPageCount++;
+    }
+}
@@ -0,0 +1,38 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/** Passes through only the rows that satisfy a predicate. */
+public class Filter implements Operator {
+    private final Operator child;
+    private final Predicate<Row> predicate;
+
+    public Filter(Operator child, Predicate<Row> predicate) {
+        this.child = child;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public Row next() throws IOException {
+        Row row;
+        while ((row = child.next()) != null) {
+            if (predicate.test(row)) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
@@ -0,0 +1,146 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs several vectorized pipelines at once, one worker each, and returns
+ * their rows one pipeline after the other. Each pipeline is typically a
+ * filtered scan of its own range of a table's pages, so the rows come out in
+ * the order a single scan would give them. Like {@link BatchProject}, each
+ * worker turns the selected rows of its batches into {@link Row}s of the
+ * given columns.
+ *
+ * Workers hand each batch's rows over through small bounded queues, so a
+ * worker that gets ahead of the consumer waits rather than buffering its
+ * output. Closing stops the workers at their next batch and waits for them,
+ * so a LIMIT cuts the scan short and no worker is still reading once the
+ * query's locks are released.
+ */
+public class Gather implements Operator {
+    private static final int QUEUE_CHUNKS = 4;
+    /** Marks the end of a worker's rows. */
+    private static final List<Row> END = new ArrayList<>();
+
+    private final List<BatchOperator> children;
+    private final int[] columnIndexes;
+    private List<BlockingQueue<List<Row>>> queues;
+    private List<Future<Void>> workers;
+    private volatile boolean stopped;
+    private int current;
+    private Iterator<Row> chunk;
+
+    public Gather(List<BatchOperator> children, List<Integer> columnIndexes) {
+        this.children = children;
+        this.columnIndexes = columnIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void open() throws IOException {
+        stopped = false;
+        current = 0;
+        chunk = null;
+        queues = new ArrayList<>();
+        workers = new ArrayList<>();
+        for (BatchOperator child : children) {
+            BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+            queues.add(queue);
+            workers.add(Workers.submit(() -> {
+                produce(child, queue);
+                return null;
+            }));
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (true) {
+            if (chunk != null && chunk.hasNext()) {
+                return chunk.next();
+            }
+            if (current >= queues.size()) {
+                return null;
+            }
+            List<Row> rows = take(queues.get(current));
+            if (rows == END) {
+                Workers.await(workers.get(current));
+                current++;
+                chunk = null;
+            } else {
+                chunk = rows.iterator();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopped = true;
+        if (workers != null) {
+            for (Future<Void> worker : workers) {
+                try {
+                    Workers.await(worker);
+                } catch (IOException | RuntimeException e) {
+                    // Already reported by next(), or irrelevant once the query is done
+                }
+            }
+            workers = null;
+        }
+        queues = null;
+        chunk = null;
+    }
+
+    private void produce(BatchOperator child, BlockingQueue<List<Row>> queue) throws IOException {
+        try {
+            child.open();
+            RowBatch batch;
+            while (!stopped && (batch = child.nextBatch()) != null) {
+                if (batch.selectedCount() == 0) {
+                    continue;
+                }
+                List<Row> rows = new ArrayList<>(batch.selectedCount());
+                for (int i = 0; i < batch.selectedCount(); i++) {
+                    rows.add(batch.toRow(batch.selected(i), columnIndexes));
+                }
+                put(queue, rows);
+            }
+        } finally {
+            try {
+                child.close();
+            } finally {
+                put(queue, END);
+            }
+        }
+    }
+
+    /** Queues a chunk, waiting for room unless the consumer has stopped. */
+    private void put(BlockingQueue<List<Row>> queue, List<Row> rows) throws IOException {
+        try {
+            while (!stopped) {
+                if (queue.offer(rows, 10, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while handing rows over", e);
+        }
+    }
+
+    private List<Row> take(BlockingQueue<List<Row>> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for rows", e);
+        }
+    }
+}
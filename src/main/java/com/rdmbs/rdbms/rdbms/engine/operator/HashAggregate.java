@@ -0,0 +1,521 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.AggregateCall;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.ColumnVector;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+import com.rdmbs.rdbms.rdbms.storage.RowCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * Groups its input on a set of columns and computes aggregates per group.
+ * Each output row holds the group columns followed by one value per
+ * aggregate. Without group columns the whole input is one group, and a row
+ * is produced even for empty input.
+ *
+ * Groups live in a hash table whose accumulators are primitive counters and
+ * sums. When the table's estimated size passes the memory budget, its
+ * partial states are hash-partitioned into {@link #PARTITION_COUNT} temporary
+ * files and the table is cleared. At the end each partition is read back and
+ * merged on its own, so only one partition's groups are in memory at a time.
+ *
+ * The input is either rows or, from a vectorized pipeline, column batches;
+ * batch values are added to the accumulators straight from their primitive
+ * vectors. Several batch pipelines, each over its own part of a table, are
+ * aggregated in parallel: each worker keeps partial groups of its own and
+ * merges them into the shared table whenever they pass its share of the
+ * memory budget, and once more when its input ends.
+ */
+public class HashAggregate implements Operator {
+    private static final int PARTITION_COUNT = 16;
+    private static final int GROUP_OVERHEAD_BYTES = 96;
+    private static final int AGGREGATE_OVERHEAD_BYTES = 40;
+
+    private final Operator child;
+    private final List<BatchOperator> batchChildren;
+    private final int[] groupIndexes;
+    private final List<Aggregate> aggregates;
+    private final long memoryBudgetBytes;
+    private final Table stateTable;
+
+    private Map<List<Object>, GroupState> groups;
+    private long groupBytes;
+    private List<Path> partitionFiles;
+    private DataOutputStream[] partitionWriters;
+    private int nextPartition;
+    private Iterator<Row> output;
+
+    /** One aggregate to compute: the function and the input column it reads, -1 for COUNT(*). */
+    public static class Aggregate {
+        private final AggregateCall.Function function;
+        private final int inputIndex;
+        private final DataType inputType;
+
+        public Aggregate(AggregateCall.Function function, int inputIndex, DataType inputType) {
+            this.function = function;
+            this.inputIndex = inputIndex;
+            this.inputType = inputType;
+        }
+
+        private boolean isFloating() {
+            return inputType == DataType.DOUBLE;
+        }
+    }
+
+    /**
+     * @param inputTable describes the input rows' columns, used to encode spilled group keys
+     */
+    public HashAggregate(Operator child, List<Integer> groupIndexes, List<Aggregate> aggregates,
+                         Table inputTable, long memoryBudgetBytes) {
+        this(child, null, groupIndexes, aggregates, inputTable, memoryBudgetBytes);
+    }
+
+    /** Aggregates the selected rows of a vectorized pipeline's batches. */
+    public HashAggregate(BatchOperator batchChild, List<Integer> groupIndexes, List<Aggregate> aggregates,
+                         Table inputTable, long memoryBudgetBytes) {
+        this(null, List.of(batchChild), groupIndexes, aggregates, inputTable, memoryBudgetBytes);
+    }
+
+    /** Aggregates the batches of several vectorized pipelines, one worker each. */
+    public HashAggregate(List<BatchOperator> batchChildren, List<Integer> groupIndexes, List<Aggregate> aggregates,
+                         Table inputTable, long memoryBudgetBytes) {
+        this(null, batchChildren, groupIndexes, aggregates, inputTable, memoryBudgetBytes);
+    }
+
+    private HashAggregate(Operator child, List<BatchOperator> batchChildren, List<Integer> groupIndexes,
+                          List<Aggregate> aggregates, Table inputTable, long memoryBudgetBytes) {
+        this.child = child;
+        this.batchChildren = batchChildren;
+        this.groupIndexes = groupIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.aggregates = aggregates;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+
+        // A spilled group is a row of its key followed by each aggregate's
+        // count, integer sum, floating sum and current MIN or MAX
+        this.stateTable = new Table("aggregate_state");
+        for (int index : this.groupIndexes) {
+            Column column = inputTable.getColumns().get(index);
+            stateTable.addColumn(new Column(column.getName(), column.getDataType()));
+        }
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            stateTable.addColumn(new Column("count" + i, DataType.LONG));
+            stateTable.addColumn(new Column("sum" + i, DataType.LONG));
+            stateTable.addColumn(new Column("fsum" + i, DataType.DOUBLE));
+            stateTable.addColumn(new Column("extreme" + i,
+                    aggregate.inputIndex >= 0 ? aggregate.inputType : DataType.LONG));
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        groups = new HashMap<>();
+        groupBytes = 0;
+        partitionFiles = null;
+        nextPartition = 0;
+        if (batchChildren != null && batchChildren.size() > 1) {
+            consumeInParallel();
+        } else if (batchChildren != null) {
+            batchChildren.get(0).open();
+            consumeBatches(batchChildren.get(0));
+        } else {
+            child.open();
+            consumeRows();
+        }
+
+        if (partitionFiles == null) {
+            if (groups.isEmpty() && groupIndexes.length == 0) {
+                groups.put(Collections.emptyList(), new GroupState(aggregates.size()));
+            }
+            output = resultRows(groups);
+            return;
+        }
+
+        spill();
+        for (DataOutputStream writer : partitionWriters) {
+            writer.close();
+        }
+        partitionWriters = null;
+        output = Collections.emptyIterator();
+    }
+
+    private void consumeRows() throws IOException {
+        Row row;
+        while ((row = child.next()) != null) {
+            List<Object> key = new ArrayList<>(groupIndexes.length);
+            for (int index : groupIndexes) {
+                key.add(row.getValue(index));
+            }
+            GroupState state = groups.get(key);
+            if (state == null) {
+                state = new GroupState(aggregates.size());
+                groups.put(key, state);
+                groupBytes += estimateSize(key);
+                if (groupBytes > memoryBudgetBytes) {
+                    accumulate(state, row);
+                    spill();
+                    continue;
+                }
+            }
+            accumulate(state, row);
+        }
+    }
+
+    private void consumeBatches(BatchOperator batchChild) throws IOException {
+        List<Object> probe = new ArrayList<>(groupIndexes.length);
+        RowBatch batch;
+        while ((batch = batchChild.nextBatch()) != null) {
+            for (int i = 0; i < batch.selectedCount(); i++) {
+                long added = accumulate(groups, probe, batch, batch.selected(i));
+                groupBytes += added;
+                if (added > 0 && groupBytes > memoryBudgetBytes) {
+                    spill();
+                }
+            }
+        }
+    }
+
+    private void consumeInParallel() throws IOException {
+        long share = memoryBudgetBytes / batchChildren.size();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (BatchOperator batchChild : batchChildren) {
+            workers.add(() -> {
+                batchChild.open();
+                Map<List<Object>, GroupState> partial = new HashMap<>();
+                long partialBytes = 0;
+                List<Object> probe = new ArrayList<>(groupIndexes.length);
+                RowBatch batch;
+                while ((batch = batchChild.nextBatch()) != null) {
+                    for (int i = 0; i < batch.selectedCount(); i++) {
+                        partialBytes += accumulate(partial, probe, batch, batch.selected(i));
+                        if (partialBytes > share) {
+                            mergeShared(partial);
+                            partialBytes = 0;
+                        }
+                    }
+                }
+                mergeShared(partial);
+                return null;
+            });
+        }
+        Workers.runAll(workers);
+    }
+
+    /**
+     * Adds a batch row to its group, creating the group if needed. Looks up
+     * with a reused key, so only a new group gets a key of its own. Returns
+     * the estimated size of a new group, or 0.
+     */
+    private long accumulate(Map<List<Object>, GroupState> groupStates, List<Object> probe,
+                            RowBatch batch, int position) {
+        probe.clear();
+        for (int index : groupIndexes) {
+            probe.add(batch.column(index).get(position));
+        }
+        GroupState state = groupStates.get(probe);
+        long added = 0;
+        if (state == null) {
+            List<Object> key = new ArrayList<>(probe);
+            state = new GroupState(aggregates.size());
+            groupStates.put(key, state);
+            added = estimateSize(key);
+        }
+        accumulate(state, batch, position);
+        return added;
+    }
+
+    /** Merges a worker's partial groups into the shared table, spilling it if that takes it past the budget. */
+    private synchronized void mergeShared(Map<List<Object>, GroupState> partial) throws IOException {
+        for (Map.Entry<List<Object>, GroupState> entry : partial.entrySet()) {
+            GroupState existing = groups.get(entry.getKey());
+            if (existing == null) {
+                groups.put(entry.getKey(), entry.getValue());
+                groupBytes += estimateSize(entry.getKey());
+            } else {
+                merge(existing, entry.getValue());
+            }
+        }
+        partial.clear();
+        if (groupBytes > memoryBudgetBytes) {
+            spill();
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (!output.hasNext()) {
+            if (partitionFiles == null || nextPartition >= partitionFiles.size()) {
+                return null;
+            }
+            output = resultRows(readPartition(partitionFiles.get(nextPartition++)));
+        }
+        return output.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        groups = null;
+        output = Collections.emptyIterator();
+        if (partitionWriters != null) {
+            for (DataOutputStream writer : partitionWriters) {
+                writer.close();
+            }
+            partitionWriters = null;
+        }
+        if (partitionFiles != null) {
+            for (Path file : partitionFiles) {
+                Files.deleteIfExists(file);
+            }
+            partitionFiles = null;
+        }
+        if (batchChildren != null) {
+            for (BatchOperator batchChild : batchChildren) {
+                batchChild.close();
+            }
+        } else {
+            child.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void accumulate(GroupState state, Row row) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            if (aggregate.inputIndex < 0) {
+                state.counts[i]++;
+                continue;
+            }
+
+            Object value = row.getValue(aggregate.inputIndex);
+            if (value == null) {
+                continue;
+            }
+            state.counts[i]++;
+            switch (aggregate.function) {
+                case SUM:
+                case AVG:
+                    if (aggregate.isFloating()) {
+                        state.doubleSums[i] += ((Number) value).doubleValue();
+                    } else {
+                        state.longSums[i] += ((Number) value).longValue();
+                    }
+                    break;
+                case MIN:
+                    if (state.extremes[i] == null || ((Comparable<Object>) value).compareTo(state.extremes[i]) < 0) {
+                        state.extremes[i] = value;
+                    }
+                    break;
+                case MAX:
+                    if (state.extremes[i] == null || ((Comparable<Object>) value).compareTo(state.extremes[i]) > 0) {
+                        state.extremes[i] = value;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void accumulate(GroupState state, RowBatch batch, int position) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            Aggregate aggregate = aggregates.get(i);
+            if (aggregate.inputIndex < 0) {
+                state.counts[i]++;
+                continue;
+            }
+
+            ColumnVector vector = batch.column(aggregate.inputIndex);
+            if (vector.isNull(position)) {
+                continue;
+            }
+            state.counts[i]++;
+            switch (aggregate.function) {
+                case SUM:
+                case AVG:
+                    if (aggregate.isFloating()) {
+                        state.doubleSums[i] += vector.getDouble(position);
+                    } else if (vector.getType() == DataType.INT) {
+                        state.longSums[i] += vector.getInt(position);
+                    } else {
+                        state.longSums[i] += vector.getLong(position);
+                    }
+                    break;
+                case MIN:
+                    if (state.extremes[i] == null || compare(vector, position, state.extremes[i]) < 0) {
+                        state.extremes[i] = vector.get(position);
+                    }
+                    break;
+                case MAX:
+                    if (state.extremes[i] == null || compare(vector, position, state.extremes[i]) > 0) {
+                        state.extremes[i] = vector.get(position);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /** Compares a vector value with a boxed one of the same column, unboxing only the latter. */
+    private static int compare(ColumnVector vector, int position, Object value) {
+        switch (vector.getType()) {
+            case INT:
+                return Integer.compare(vector.getInt(position), (Integer) value);
+            case DOUBLE:
+                return Double.compare(vector.getDouble(position), (Double) value);
+            case BOOLEAN:
+                return Boolean.compare(vector.getBoolean(position), (Boolean) value);
+            case VARCHAR:
+                return vector.getString(position).compareTo((String) value);
+            default:
+                return Long.compare(vector.getLong(position), (Long) value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge(GroupState into, GroupState from) {
+        for (int i = 0; i < aggregates.size(); i++) {
+            into.counts[i] += from.counts[i];
+            into.longSums[i] += from.longSums[i];
+            into.doubleSums[i] += from.doubleSums[i];
+            Object extreme = from.extremes[i];
+            if (extreme != null && (into.extremes[i] == null
+                    || (aggregates.get(i).function == AggregateCall.Function.MIN
+                        ? ((Comparable<Object>) extreme).compareTo(into.extremes[i]) < 0
+                        : ((Comparable<Object>) extreme).compareTo(into.extremes[i]) > 0))) {
+                into.extremes[i] = extreme;
+            }
+        }
+    }
+
+    private Iterator<Row> resultRows(Map<List<Object>, GroupState> groupStates) {
+        List<Row> rows = new ArrayList<>(groupStates.size());
+        for (Map.Entry<List<Object>, GroupState> entry : groupStates.entrySet()) {
+            Row row = new Row(entry.getKey());
+            GroupState state = entry.getValue();
+            for (int i = 0; i < aggregates.size(); i++) {
+                row.addValue(result(aggregates.get(i), state, i));
+            }
+            rows.add(row);
+        }
+        groupStates.clear();
+        return rows.iterator();
+    }
+
+    private Object result(Aggregate aggregate, GroupState state, int i) {
+        switch (aggregate.function) {
+            case COUNT:
+                return state.counts[i];
+            case SUM:
+                if (state.counts[i] == 0) return null;
+                return aggregate.isFloating() ? (Object) state.doubleSums[i] : (Object) state.longSums[i];
+            case AVG:
+                if (state.counts[i] == 0) return null;
+                double sum = aggregate.isFloating() ? state.doubleSums[i] : state.longSums[i];
+                return sum / state.counts[i];
+            default:
+                return state.extremes[i];
+        }
+    }
+
+    /** Moves every group in the hash table to its partition file. */
+    private void spill() throws IOException {
+        if (partitionFiles == null) {
+            partitionFiles = new ArrayList<>();
+            partitionWriters = new DataOutputStream[PARTITION_COUNT];
+            for (int p = 0; p < PARTITION_COUNT; p++) {
+                Path file = Files.createTempFile("aggregate-", ".tmp");
+                partitionFiles.add(file);
+                partitionWriters[p] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            }
+        }
+
+        for (Map.Entry<List<Object>, GroupState> entry : groups.entrySet()) {
+            Row stateRow = new Row(entry.getKey());
+            GroupState state = entry.getValue();
+            for (int i = 0; i < aggregates.size(); i++) {
+                stateRow.addValue(state.counts[i]);
+                stateRow.addValue(state.longSums[i]);
+                stateRow.addValue(state.doubleSums[i]);
+                stateRow.addValue(state.extremes[i]);
+            }
+            byte[] encoded = RowCodec.encode(stateTable, stateRow);
+            DataOutputStream writer = partitionWriters[Math.floorMod(entry.getKey().hashCode(), PARTITION_COUNT)];
+            writer.writeInt(encoded.length);
+            writer.write(encoded);
+        }
+        groups.clear();
+        groupBytes = 0;
+    }
+
+    private Map<List<Object>, GroupState> readPartition(Path file) throws IOException {
+        Map<List<Object>, GroupState> merged = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] encoded = new byte[length];
+                in.readFully(encoded);
+                Row stateRow = RowCodec.decode(stateTable, ByteBuffer.wrap(encoded));
+
+                List<Object> key = new ArrayList<>(stateRow.getValues().subList(0, groupIndexes.length));
+                GroupState state = new GroupState(aggregates.size());
+                int column = groupIndexes.length;
+                for (int i = 0; i < aggregates.size(); i++) {
+                    state.counts[i] = (Long) stateRow.getValue(column++);
+                    state.longSums[i] = (Long) stateRow.getValue(column++);
+                    state.doubleSums[i] = (Double) stateRow.getValue(column++);
+                    state.extremes[i] = stateRow.getValue(column++);
+                }
+
+                GroupState existing = merged.get(key);
+                if (existing == null) {
+                    merged.put(key, state);
+                } else {
+                    merge(existing, state);
+                }
+            }
+        }
+        Files.deleteIfExists(file);
+        return merged;
+    }
+
+    /** A rough count of the heap a group occupies, for comparing against the budget. */
+    private long estimateSize(List<Object> key) {
+        long size = GROUP_OVERHEAD_BYTES + (long) AGGREGATE_OVERHEAD_BYTES * aggregates.size();
+        for (Object value : key) {
+            size += 16;
+            if (value instanceof String) {
+                size += 40 + 2L * ((String) value).length();
+            }
+        }
+        return size;
+    }
+
+    private static class GroupState {
+        private final long[] counts;
+        private final long[] longSums;
+        private final double[] doubleSums;
+        private final Object[] extremes;
+
+        GroupState(int aggregateCount) {
+            counts = new long[aggregateCount];
+            longSums = new long[aggregateCount];
+            doubleSums = new double[aggregateCount];
+            extremes = new Object[aggregateCount];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.engine.AccessPath;
+import com.rdmbs.rdbms.rdbms.index.IndexCursor;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+
+import java.io.IOException;
+
+/**
+ * Fetches the rows an index seek or range scan points at, in index order or
+ * in reverse. The index is walked through a cursor as rows are pulled, so a
+ * LIMIT reads only the leaves it needs and an OFFSET is skipped in the index
+ * without reading the rows it passes over.
+ */
+public class IndexScan implements Operator {
+    private final TableStorage storage;
+    private final Table table;
+    private final AccessPath path;
+    private IndexCursor cursor;
+
+    public IndexScan(TableStorage storage, Table table, AccessPath path) {
+        this.storage = storage;
+        this.table = table;
+        this.path = path;
+    }
+
+    @Override
+    public void open() {
+        if (path.getType() == AccessPath.Type.INDEX_SEEK) {
+            // A seek on NULL matches nothing; indexes do not hold NULLs
+            cursor = path.getKey() == null ? null : path.getIndex().cursor(
+                    path.getKey(), true, path.getKey(), true, path.isDescending());
+        } else {
+            cursor = path.getIndex().cursor(
+                    path.getLowerBound(), path.isLowerInclusive(),
+                    path.getUpperBound(), path.isUpperInclusive(), path.isDescending());
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        if (cursor == null) {
+            return null;
+        }
+        for (RowId rowId = cursor.next(); rowId != null; rowId = cursor.next()) {
+            Row row = storage.readRow(table, rowId);
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /** Skips entries of the index without reading the rows they point at. */
+    @Override
+    public long skip(long count) {
+        return cursor == null ? 0 : cursor.skip(count);
+    }
+
+    @Override
+    public void close() {
+        cursor = null;
+    }
+}
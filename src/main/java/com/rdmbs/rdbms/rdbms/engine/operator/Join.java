@@ -0,0 +1,254 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.index.Index;
+import com.rdmbs.rdbms.rdbms.parser.ast.JoinClause;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Equi-joins a stream of left rows with a table. Joined rows hold the left
+ * row's values followed by the right row's, with NULLs standing in for the
+ * missing side of an outer join. NULL join keys never match.
+ *
+ * On open, up to as many left rows as the right table has pages are buffered.
+ * If the left input ends within that and the right join column is indexed,
+ * each left row probes the index (index nested loop), which touches fewer
+ * pages than a scan of the right table. Otherwise the join is a hash join:
+ * the side whose table has fewer pages is loaded into a hash table and the
+ * other side is streamed past it.
+ *
+ * Conditions of the WHERE clause on the right table alone are applied to the
+ * right rows before they are joined: the right input arrives filtered, and
+ * rows found through the index are checked against the same conditions.
+ */
+public class Join implements Operator {
+    private enum Strategy {
+        INDEX_NESTED_LOOP, HASH_BUILD_RIGHT, HASH_BUILD_LEFT
+    }
+
+    private final Operator left;
+    private final int leftColIndex;
+    private final int leftWidth;
+    private final int leftPageCount;
+    private final TableStorage storage;
+    private final Table rightTable;
+    private final Operator rightInput;
+    private final Predicate<Row> rightFilter;
+    private final int rightColIndex;
+    private final Index rightIndex;
+    private final JoinClause.JoinType joinType;
+
+    private Strategy strategy;
+    private Deque<Row> bufferedLeft;
+    private Operator probeInput;
+    private List<Row> buildRows;
+    private Map<Object, List<Integer>> hashTable;
+    private boolean[] buildMatched;
+    private boolean probeDone;
+    private final Deque<Row> output = new ArrayDeque<>();
+
+    /**
+     * @param leftPageCount size of the left input's table, used to pick the
+     *                      hash join's build side
+     * @param rightInput    the right table's rows that pass the pushed-down conditions
+     * @param rightFilter   those conditions, for rows read through the index; null if there are none
+     * @param rightIndex    index on the right join column, or null
+     */
+    public Join(Operator left, int leftColIndex, int leftWidth, int leftPageCount,
+                TableStorage storage, Table rightTable, Operator rightInput, Predicate<Row> rightFilter,
+                int rightColIndex, Index rightIndex, JoinClause.JoinType joinType) {
+        this.left = left;
+        this.leftColIndex = leftColIndex;
+        this.leftWidth = leftWidth;
+        this.leftPageCount = leftPageCount;
+        this.storage = storage;
+        this.rightTable = rightTable;
+        this.rightInput = rightInput;
+        this.rightFilter = rightFilter;
+        this.rightColIndex = rightColIndex;
+        this.rightIndex = rightIndex;
+        this.joinType = joinType;
+    }
+
+    @Override
+    public void open() throws IOException {
+        left.open();
+        bufferedLeft = new ArrayDeque<>();
+        output.clear();
+        probeDone = false;
+        int rightPageCount = storage.getPageCount(rightTable);
+
+        // An index probe cannot find the right rows that nothing joins to
+        if (rightIndex != null && joinType != JoinClause.JoinType.RIGHT) {
+            boolean leftExhausted = false;
+            while (!leftExhausted && bufferedLeft.size() < rightPageCount) {
+                Row row = left.next();
+                if (row == null) {
+                    leftExhausted = true;
+                } else {
+                    bufferedLeft.add(row);
+                }
+            }
+            if (leftExhausted) {
+                strategy = Strategy.INDEX_NESTED_LOOP;
+                return;
+            }
+        }
+
+        if (rightPageCount <= leftPageCount) {
+            strategy = Strategy.HASH_BUILD_RIGHT;
+            rightInput.open();
+            build(rightInput, rightColIndex);
+            rightInput.close();
+        } else {
+            strategy = Strategy.HASH_BUILD_LEFT;
+            build(null, leftColIndex);
+            probeInput = rightInput;
+            probeInput.open();
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (output.isEmpty()) {
+            if (probeDone) {
+                return null;
+            }
+            switch (strategy) {
+                case INDEX_NESTED_LOOP:
+                    probeIndex();
+                    break;
+                case HASH_BUILD_RIGHT:
+                    probeHash(nextLeft(), true);
+                    break;
+                default:
+                    probeHash(probeInput.next(), false);
+                    break;
+            }
+        }
+        return output.poll();
+    }
+
+    @Override
+    public void close() throws IOException {
+        left.close();
+        if (probeInput != null) {
+            probeInput.close();
+            probeInput = null;
+        }
+        bufferedLeft = null;
+        buildRows = null;
+        hashTable = null;
+        buildMatched = null;
+        output.clear();
+    }
+
+    private Row nextLeft() throws IOException {
+        if (!bufferedLeft.isEmpty()) {
+            return bufferedLeft.poll();
+        }
+        return left.next();
+    }
+
+    /** Loads the hash table from the given input, or from the left side when it is null. */
+    private void build(Operator input, int keyIndex) throws IOException {
+        buildRows = new ArrayList<>();
+        hashTable = new HashMap<>();
+        Row row;
+        while ((row = input != null ? input.next() : nextLeft()) != null) {
+            Object key = row.getValue(keyIndex);
+            if (key != null) {
+                hashTable.computeIfAbsent(key, k -> new ArrayList<>(1)).add(buildRows.size());
+            }
+            buildRows.add(row);
+        }
+        buildMatched = new boolean[buildRows.size()];
+    }
+
+    private void probeIndex() throws IOException {
+        Row leftRow = nextLeft();
+        if (leftRow == null) {
+            probeDone = true;
+            return;
+        }
+
+        Object key = leftRow.getValue(leftColIndex);
+        boolean matched = false;
+        if (key != null) {
+            for (RowId rowId : rightIndex.search(key)) {
+                Row rightRow = storage.readRow(rightTable, rowId);
+                if (rightRow != null && (rightFilter == null || rightFilter.test(rightRow))) {
+                    output.add(joinRows(leftRow, rightRow));
+                    matched = true;
+                }
+            }
+        }
+        if (!matched && joinType == JoinClause.JoinType.LEFT) {
+            output.add(joinRows(leftRow, null));
+        }
+    }
+
+    /**
+     * Matches one probe row against the hash table. Once the probe side runs
+     * out, build rows that never matched are emitted if the join preserves
+     * the build side.
+     */
+    private void probeHash(Row probeRow, boolean probeIsLeft) {
+        JoinClause.JoinType preserveProbe = probeIsLeft ? JoinClause.JoinType.LEFT : JoinClause.JoinType.RIGHT;
+        JoinClause.JoinType preserveBuild = probeIsLeft ? JoinClause.JoinType.RIGHT : JoinClause.JoinType.LEFT;
+
+        if (probeRow == null) {
+            probeDone = true;
+            if (joinType == preserveBuild) {
+                for (int i = 0; i < buildRows.size(); i++) {
+                    if (!buildMatched[i]) {
+                        output.add(probeIsLeft ? joinRows(null, buildRows.get(i)) : joinRows(buildRows.get(i), null));
+                    }
+                }
+            }
+            return;
+        }
+
+        Object key = probeRow.getValue(probeIsLeft ? leftColIndex : rightColIndex);
+        List<Integer> matches = key != null ? hashTable.get(key) : null;
+        if (matches != null) {
+            for (int i : matches) {
+                Row buildRow = buildRows.get(i);
+                output.add(probeIsLeft ? joinRows(probeRow, buildRow) : joinRows(buildRow, probeRow));
+                buildMatched[i] = true;
+            }
+        } else if (joinType == preserveProbe) {
+            output.add(probeIsLeft ? joinRows(probeRow, null) : joinRows(null, probeRow));
+        }
+    }
+
+    /** Concatenates two rows, padding a missing side with NULLs. */
+    private Row joinRows(Row leftRow, Row rightRow) {
+        Row joined = new Row();
+        if (leftRow != null) {
+            for (Object val : leftRow.getValues()) {
+                joined.addValue(val);
+            }
+        } else {
+            for (int i = 0; i < leftWidth; i++) {
+                joined.addValue(null);
+            }
+        }
+        if (rightRow != null) {
+            for (Object val : rightRow.getValues()) {
+                joined.addValue(val);
+            }
+        } else {
+            for (int i = 0; i < rightTable.getColumns().size(); i++) {
+                joined.addValue(null);
+            }
+        }
+        return joined;
+    }
+}
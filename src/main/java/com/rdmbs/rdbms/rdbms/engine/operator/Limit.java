@@ -0,0 +1,50 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+
+/**
+ * Skips the first {@code offset} rows and stops after {@code limit} more.
+ * The offset is handed to the child's {@link Operator#skip}, and once the
+ * limit is reached the child is not pulled again, so the scan beneath ends
+ * early.
+ */
+public class Limit implements Operator {
+    private final Operator child;
+    private final long limit;
+    private final long offset;
+    private long returned;
+
+    public Limit(Operator child, long limit, long offset) {
+        this.child = child;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        returned = 0;
+        if (offset > 0 && limit > 0) {
+            child.skip(offset);
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        if (returned >= limit) {
+            return null;
+        }
+        Row row = child.next();
+        if (row != null) {
+            returned++;
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
@@ -0,0 +1,63 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.engine.LockManager;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Holds shared locks on the tables a query reads from the moment its pipeline
+ * is opened until it is closed, so writers cannot change those tables while
+ * rows are still being pulled. Open and close it on the same thread.
+ */
+public class Locked implements Operator {
+    private final Operator child;
+    private final LockManager lockManager;
+    private final List<Table> tables;
+    private LockManager.Held held;
+
+    public Locked(Operator child, LockManager lockManager, List<Table> tables) {
+        this.child = child;
+        this.lockManager = lockManager;
+        this.tables = tables;
+    }
+
+    @Override
+    public void open() throws IOException {
+        held = lockManager.lockForRead(tables);
+        try {
+            child.open();
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        return child.next();
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        return child.skip(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            child.close();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (held != null) {
+            held.close();
+            held = null;
+        }
+    }
+}
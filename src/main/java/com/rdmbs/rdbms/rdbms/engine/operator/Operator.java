@@ -0,0 +1,31 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+
+/**
+ * A node in a pull-based execution pipeline. The consumer opens the root, pulls
+ * rows with {@link #next()} until it returns null, and then closes it; each
+ * operator pulls from its children only as far as it needs to.
+ */
+public interface Operator {
+    void open() throws IOException;
+
+    /** Returns the next row, or null once the operator is exhausted. */
+    Row next() throws IOException;
+
+    /**
+     * Discards up to {@code count} rows and returns how many were discarded.
+     * Operators that can skip without producing the rows override this.
+     */
+    default long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && next() != null) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    void close() throws IOException;
+}
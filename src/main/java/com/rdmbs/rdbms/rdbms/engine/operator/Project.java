@@ -0,0 +1,46 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Narrows each row to the given column positions, in the given order. */
+public class Project implements Operator {
+    private final Operator child;
+    private final List<Integer> columnIndexes;
+
+    public Project(Operator child, List<Integer> columnIndexes) {
+        this.child = child;
+        this.columnIndexes = columnIndexes;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public Row next() throws IOException {
+        Row row = child.next();
+        if (row == null) {
+            return null;
+        }
+
+        Row projected = new Row();
+        for (int index : columnIndexes) {
+            projected.addValue(row.getValue(index));
+        }
+        return projected;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        return child.skip(count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        child.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders rows on a list of columns, each ascending or descending. NULLs sort
+ * before every other value when ascending and after them when descending.
+ */
+public class RowComparator implements Comparator<Row> {
+    private final int[] columnIndexes;
+    private final boolean[] descending;
+
+    public RowComparator(List<Integer> columnIndexes, List<Boolean> descending) {
+        this.columnIndexes = new int[columnIndexes.size()];
+        this.descending = new boolean[columnIndexes.size()];
+        for (int i = 0; i < columnIndexes.size(); i++) {
+            this.columnIndexes[i] = columnIndexes.get(i);
+            this.descending[i] = descending.get(i);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(Row a, Row b) {
+        for (int i = 0; i < columnIndexes.length; i++) {
+            Object x = a.getValue(columnIndexes[i]);
+            Object y = b.getValue(columnIndexes[i]);
+            int cmp;
+            if (x == null || y == null) {
+                cmp = x == null ? (y == null ? 0 : -1) : 1;
+            } else {
+                cmp = ((Comparable<Object>) x).compareTo(y);
+            }
+            if (cmp != 0) {
+                return descending[i] ? -cmp : cmp;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,162 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowCodec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts its input with an external merge sort. Rows are buffered until their
+ * estimated size exceeds the memory budget; each full buffer is sorted and
+ * written to a temporary run file with {@link RowCodec}. If anything was
+ * spilled, the runs are merged with a k-way merge that holds one row per run
+ * in memory. The sort is stable.
+ */
+public class Sort implements Operator {
+    private static final int ROW_OVERHEAD_BYTES = 48;
+    private static final int VALUE_OVERHEAD_BYTES = 16;
+
+    private final Operator child;
+    private final Comparator<Row> comparator;
+    private final Table rowTable;
+    private final long memoryBudgetBytes;
+
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<DataInputStream> runReaders = new ArrayList<>();
+    private Iterator<Row> inMemory;
+    private PriorityQueue<RunHead> merge;
+
+    /**
+     * @param rowTable describes the input rows' columns, used to encode spilled rows
+     */
+    public Sort(Operator child, Comparator<Row> comparator, Table rowTable, long memoryBudgetBytes) {
+        this.child = child;
+        this.comparator = comparator;
+        this.rowTable = rowTable;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+
+        List<Row> buffer = new ArrayList<>();
+        long bufferedBytes = 0;
+        Row row;
+        while ((row = child.next()) != null) {
+            buffer.add(row);
+            bufferedBytes += estimateSize(row);
+            if (bufferedBytes > memoryBudgetBytes) {
+                spill(buffer);
+                buffer.clear();
+                bufferedBytes = 0;
+            }
+        }
+
+        buffer.sort(comparator);
+        if (runFiles.isEmpty()) {
+            inMemory = buffer.iterator();
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            spill(buffer);
+        }
+
+        // Ties go to the earlier run, which holds the earlier input rows
+        merge = new PriorityQueue<>(Comparator
+                .comparing((RunHead head) -> head.row, comparator)
+                .thenComparingInt(head -> head.run));
+        for (Path runFile : runFiles) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFile)));
+            runReaders.add(in);
+            Row first = readRow(in);
+            if (first != null) {
+                merge.add(new RunHead(first, runReaders.size() - 1));
+            }
+        }
+    }
+
+    @Override
+    public Row next() throws IOException {
+        if (inMemory != null) {
+            return inMemory.hasNext() ? inMemory.next() : null;
+        }
+
+        RunHead head = merge.poll();
+        if (head == null) {
+            return null;
+        }
+        Row following = readRow(runReaders.get(head.run));
+        if (following != null) {
+            merge.add(new RunHead(following, head.run));
+        }
+        return head.row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inMemory = null;
+        merge = null;
+        for (DataInputStream in : runReaders) {
+            in.close();
+        }
+        runReaders.clear();
+        for (Path runFile : runFiles) {
+            Files.deleteIfExists(runFile);
+        }
+        runFiles.clear();
+        child.close();
+    }
+
+    private void spill(List<Row> buffer) throws IOException {
+        buffer.sort(comparator);
+        Path runFile = Files.createTempFile("sort-run-", ".tmp");
+        runFiles.add(runFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile)))) {
+            for (Row row : buffer) {
+                byte[] encoded = RowCodec.encode(rowTable, row);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        }
+    }
+
+    private Row readRow(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        in.readFully(encoded);
+        return RowCodec.decode(rowTable, ByteBuffer.wrap(encoded));
+    }
+
+    /** A rough count of the heap a row occupies, for comparing against the budget. */
+    private long estimateSize(Row row) {
+        long size = ROW_OVERHEAD_BYTES;
+        for (Object value : row.getValues()) {
+            size += VALUE_OVERHEAD_BYTES;
+            if (value instanceof String) {
+                size += 40 + 2L * ((String) value).length();
+            }
+        }
+        return size;
+    }
+
+    private static class RunHead {
+        private final Row row;
+        private final int run;
+
+        RunHead(Row row, int run) {
+            this.row = row;
+            this.run = run;
+        }
+    }
+}
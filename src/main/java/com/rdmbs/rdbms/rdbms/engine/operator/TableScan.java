@@ -0,0 +1,71 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Reads every row of a table, one page at a time, so only a single page of
+ * rows is held in memory. Pages added after the scan opens are not visited.
+ */
+public class TableScan implements Operator {
+    private final TableStorage storage;
+    private final Table table;
+    private int pageCount;
+    private int pageId;
+    private Iterator<Row> pageRows;
+
+    public TableScan(TableStorage storage, Table table) {
+        this.storage = storage;
+        this.table = table;
+    }
+
+    @Override
+    public void open() throws IOException {
+        pageCount = storage.getPageCount(table);
+        pageId = 0;
+        pageRows = Collections.emptyIterator();
+    }
+
+    @Override
+    public Row next() throws IOException {
+        while (!pageRows.hasNext()) {
+            if (pageId >= pageCount) {
+                return null;
+            }
+            pageRows = storage.readPageRows(table, ++pageId).iterator();
+        }
+        return pageRows.next();
+    }
+
+    /** Skips whole pages by counting their rows, decoding only the page the skip ends on. */
+    @Override
+    public long skip(long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count && pageRows.hasNext()) {
+            pageRows.next();
+            skipped++;
+        }
+        while (skipped < count && pageId < pageCount) {
+            int rowsOnPage = storage.countPageRows(table, pageId + 1);
+            if (skipped + rowsOnPage > count) {
+                break;
+            }
+            pageId++;
+            skipped += rowsOnPage;
+        }
+        while (skipped < count && next() != null) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() {
+        pageRows = Collections.emptyIterator();
+    }
+}
@@ -0,0 +1,76 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Sorts for ORDER BY ... LIMIT: keeps only the first {@code n} rows in a
+ * bounded max-heap while the input streams past, so memory is O(n) however
+ * large the input is. Rows that compare equal keep their input order.
+ */
+public class TopN implements Operator {
+    private final Operator child;
+    private final Comparator<Row> comparator;
+    private final int n;
+    private Iterator<Row> sorted;
+
+    public TopN(Operator child, Comparator<Row> comparator, int n) {
+        this.child = child;
+        this.comparator = comparator;
+        this.n = n;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+
+        // The heap's head is the entry to evict next: the largest so far
+        Comparator<Entry> order = Comparator
+                .comparing((Entry entry) -> entry.row, comparator)
+                .thenComparingLong(entry -> entry.arrival);
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.max(1, Math.min(n, 1024)), order.reversed());
+
+        long arrival = 0;
+        Row row;
+        while (n > 0 && (row = child.next()) != null) {
+            Entry entry = new Entry(row, arrival++);
+            if (heap.size() < n) {
+                heap.add(entry);
+            } else if (order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(order);
+        List<Row> rows = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            rows.add(entry.row);
+        }
+        sorted = rows.iterator();
+    }
+
+    @Override
+    public Row next() {
+        return sorted.hasNext() ? sorted.next() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sorted = Collections.emptyIterator();
+        child.close();
+    }
+
+    private static class Entry {
+        private final Row row;
+        private final long arrival;
+
+        Entry(Row row, long arrival) {
+            this.row = row;
+            this.arrival = arrival;
+        }
+    }
+}
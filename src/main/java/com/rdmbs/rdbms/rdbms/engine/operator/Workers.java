@@ -0,0 +1,74 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the workers of parallel operators, each on a virtual thread of its
+ * own. Virtual threads are carried by a fork/join pool with one thread per
+ * core, so a query's workers spread over the cores however many queries run
+ * at once, and a worker that blocks on a full queue holds no core.
+ */
+final class Workers {
+    private static final ExecutorService EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("query-worker-", 0).factory());
+
+    private Workers() {
+    }
+
+    static Future<Void> submit(Callable<Void> task) {
+        return EXECUTOR.submit(task);
+    }
+
+    /**
+     * Runs the tasks at the same time and waits for all of them, even after
+     * one has failed, then rethrows the first failure.
+     */
+    static void runAll(List<Callable<Void>> tasks) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            futures.add(submit(task));
+        }
+        Exception failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                await(future);
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /** Waits for a task to finish, rethrowing what it threw. */
+    static void await(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a query worker", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Query worker failed", cause);
+        }
+    }
+}
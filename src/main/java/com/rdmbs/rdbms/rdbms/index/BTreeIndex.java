@@ -1,75 +1,824 @@
 package com.rdmbs.rdbms.rdbms.index;
 
-import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Page;
+import com.rdmbs.rdbms.rdbms.storage.PageFile;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
 import lombok.Getter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-@Getter
+/**
+ * Disk-based B+Tree mapping column values to {@link RowId}s, one page per node.
+ *
+ * Entries are ordered by (key, RowId), which keeps duplicate keys in a stable
+ * order and lets a single entry be deleted without touching its neighbours.
+ * Leaves are linked left to right for range scans, which read one leaf at a
+ * time through an {@link IndexCursor}. Internal nodes hold the
+ * first entry of each child but their leftmost as separators. Inserts are
+ * applied in sorted batches, and a node that overflows is split into as many
+ * pages as it needs. Deletes simply remove the entry from its leaf; nodes are
+ * never merged.
+ *
+ * The file is opened on first use, and opening it only reads the header page,
+ * so the number of entries does not affect startup time.
+ */
 public class BTreeIndex implements Index {
+    private static final long INDEX_MAGIC = 0x44554B4149445831L; // "DUKAIDX1"
+    private static final int ROOT_FIELD = 0;
+
+    private static final byte LEAF = 0;
+    private static final byte INTERNAL = 1;
+    private static final int NODE_HEADER_SIZE = 7;
+    private static final int ROW_ID_SIZE = 6;
+    private static final int MAX_KEY_SIZE = Page.PAGE_SIZE / 4;
+    /** Bulk-built nodes are left partly empty so the first inserts after a build do not split every page. */
+    private static final int BULK_FILL_SIZE = Page.PAGE_SIZE * 9 / 10;
+
+    @Getter
     private final String indexName;
+    @Getter
     private final String tableName;
+    @Getter
     private final String columnName;
+    @Getter
     private final int columnIndex;
+    @Getter
+    private final DataType keyType;
+    @Getter
     private final boolean unique;
-    private final TreeMap<Comparable, List<Row>> index;
+    private final Path path;
+    /** Lookups and range scans share the tree; inserts, deletes and rebuilds hold it exclusively. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private PageFile file;
+    private int rootPageId;
+    /** Bumped by every change to the tree, so an open cursor knows to find its place again. */
+    private int modifications;
 
-    public BTreeIndex(String indexName, String tableName, String columnName, int columnIndex, boolean unique) {
+    public BTreeIndex(String indexName, String tableName, String columnName, int columnIndex,
+                      DataType keyType, boolean unique, Path path) {
         this.indexName = indexName;
         this.tableName = tableName;
         this.columnName = columnName;
         this.columnIndex = columnIndex;
+        this.keyType = keyType;
         this.unique = unique;
-        this.index = new TreeMap<>();
+        this.path = path;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public void insert(Row row) {
-        Object keyValue = row.getValue(columnIndex);
-        if (keyValue == null) return;
-        
-        if (!(keyValue instanceof Comparable)) {
-            throw new RuntimeException("Index key must be comparable");
+    public void insert(Object key, RowId rowId) {
+        if (key == null) return;
+
+        lock.writeLock().lock();
+        try {
+            if (encodedKeySize(key) > MAX_KEY_SIZE) {
+                throw new RuntimeException("Index key too long for index: " + indexName);
+            }
+            if (unique && !search(key).isEmpty()) {
+                throw new UniqueConstraintViolationException(indexName);
+            }
+
+            insertSorted(List.of(new IndexEntry(key, rowId)));
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
         }
-        
-        Comparable key = (Comparable) keyValue;
-        
-        if (unique && index.containsKey(key)) {
-            throw new RuntimeException("Unique constraint violation on index: " + indexName);
+    }
+
+    /**
+     * Inserts a batch of entries. The batch is sorted and pushed down the tree
+     * in one pass, so each page is read and written at most once per batch no
+     * matter how many entries land on it. Uniqueness is only checked within
+     * the batch; the caller is expected to have probed for existing keys.
+     */
+    @Override
+    public void insertAll(List<IndexEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            List<IndexEntry> sorted = sortedEntries(entries);
+            if (!sorted.isEmpty()) {
+                insertSorted(sorted);
+                modifications++;
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
-        
-        index.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public List<Row> search(Object keyValue) {
-        if (keyValue == null || !(keyValue instanceof Comparable)) {
+    public List<RowId> search(Object key) {
+        if (key == null) {
             return new ArrayList<>();
         }
-        
-        Comparable key = (Comparable) keyValue;
-        return index.getOrDefault(key, new ArrayList<>());
+        return range(key, true, key, true);
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public void delete(Object keyValue) {
-        if (keyValue instanceof Comparable) {
-            index.remove((Comparable) keyValue);
+    public List<RowId> range(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        List<RowId> result = new ArrayList<>();
+        IndexCursor cursor = cursor(from, fromInclusive, to, toInclusive, false);
+        for (RowId rowId = cursor.next(); rowId != null; rowId = cursor.next()) {
+            result.add(rowId);
         }
+        return result;
     }
 
-    public List<Row> range(Comparable from, Comparable to) {
-        List<Row> result = new ArrayList<>();
-        for (List<Row> rows : index.subMap(from, true, to, true).values()) {
-            result.addAll(rows);
+    @Override
+    public IndexCursor cursor(Object from, boolean fromInclusive, Object to, boolean toInclusive, boolean descending) {
+        return new LeafCursor(from, fromInclusive, to, toInclusive, descending);
+    }
+
+    @Override
+    public void delete(Object key, RowId rowId) {
+        if (key == null) return;
+
+        lock.writeLock().lock();
+        try {
+            Node leaf = findLeaf(key, rowId);
+            int position = lowerBound(leaf, key, rowId);
+            if (position < leaf.keys.size() && compare(leaf.keys.get(position), leaf.rowIds.get(position), key, rowId) == 0) {
+                leaf.keys.remove(position);
+                leaf.rowIds.remove(position);
+                writeNode(leaf);
+                modifications++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
-        return result;
     }
 
+    /**
+     * Replaces the contents of the index with the given entries. The entries
+     * are sorted once and the tree is built bottom-up: leaves are filled left
+     * to right, then each level of internal nodes is built over the level
+     * below. This writes every page exactly once.
+     */
+    public void bulkLoad(List<IndexEntry> entries) {
+        List<IndexEntry> sorted = sortedEntries(entries);
+
+        lock.writeLock().lock();
+        try {
+            close();
+            Files.deleteIfExists(path);
+            file = PageFile.open(path, INDEX_MAGIC);
+
+            // Pages are numbered in the order they are started and each is written once, when full
+            int nextPageId = 1;
+
+            // Leaf level; each leaf is written once the page id of its successor is known
+            List<Split> level = new ArrayList<>();
+            Node leaf = new Node(nextPageId++, true);
+            int leafSize = NODE_HEADER_SIZE;
+            for (IndexEntry entry : sorted) {
+                int size = entrySize(entry.getKey(), true);
+                if (!leaf.keys.isEmpty() && leafSize + size > BULK_FILL_SIZE) {
+                    Node next = new Node(nextPageId++, true);
+                    leaf.next = next.pageId;
+                    level.add(new Split(leaf.keys.get(0), leaf.rowIds.get(0), leaf.pageId));
+                    writeNode(leaf);
+                    leaf = next;
+                    leafSize = NODE_HEADER_SIZE;
+                }
+                leaf.keys.add(entry.getKey());
+                leaf.rowIds.add(entry.getRowId());
+                leafSize += size;
+            }
+            writeNode(leaf);
+            if (leaf.keys.isEmpty()) {
+                level.add(new Split(null, null, leaf.pageId));
+            } else {
+                level.add(new Split(leaf.keys.get(0), leaf.rowIds.get(0), leaf.pageId));
+            }
+
+            // Internal levels, until a single root remains
+            while (level.size() > 1) {
+                List<Split> parents = new ArrayList<>();
+                Node node = null;
+                int nodeSize = 0;
+                for (Split child : level) {
+                    int size = entrySize(child.key, false);
+                    if (node != null && nodeSize + size > BULK_FILL_SIZE) {
+                        writeNode(node);
+                        node = null;
+                    }
+                    if (node == null) {
+                        node = new Node(nextPageId++, false);
+                        node.children.add(child.pageId);
+                        parents.add(new Split(child.key, child.rowId, node.pageId));
+                        nodeSize = NODE_HEADER_SIZE;
+                    } else {
+                        node.keys.add(child.key);
+                        node.rowIds.add(child.rowId);
+                        node.children.add(child.pageId);
+                        nodeSize += size;
+                    }
+                }
+                writeNode(node);
+                level = parents;
+            }
+
+            setRoot(level.get(0).pageId);
+            modifications++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        bulkLoad(new ArrayList<>());
+    }
+
+    /** Number of entries, counted by walking the leaf level. */
     public int size() {
-        return index.values().stream().mapToInt(List::size).sum();
+        return range(null, false, null, false).size();
+    }
+
+    /** Closes the index file and deletes it. */
+    public void drop() throws IOException {
+        lock.writeLock().lock();
+        try {
+            close();
+            Files.deleteIfExists(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Flushes the index file to the storage device, if it is open. */
+    public void force() throws IOException {
+        lock.readLock().lock();
+        try {
+            if (file != null) {
+                file.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (file != null) {
+                file.close();
+                file = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Opens the file on first use. Synchronized because concurrent readers may race to open it. */
+    private synchronized int root() throws IOException {
+        if (file == null) {
+            file = PageFile.open(path, INDEX_MAGIC);
+            rootPageId = (int) file.readHeaderField(ROOT_FIELD);
+            if (rootPageId == 0) {
+                Node root = new Node(file.allocatePage().getPageId(), true);
+                writeNode(root);
+                setRoot(root.pageId);
+            }
+        }
+        return rootPageId;
+    }
+
+    private void setRoot(int pageId) throws IOException {
+        file.writeHeaderField(ROOT_FIELD, pageId);
+        rootPageId = pageId;
+    }
+
+    private void insertSorted(List<IndexEntry> sorted) {
+        try {
+            List<Split> splits = insertBatch(root(), sorted);
+            while (!splits.isEmpty()) {
+                Node newRoot = new Node(file.allocatePage().getPageId(), false);
+                newRoot.children.add(rootPageId);
+                for (Split split : splits) {
+                    newRoot.keys.add(split.key);
+                    newRoot.rowIds.add(split.rowId);
+                    newRoot.children.add(split.pageId);
+                }
+                splits = writeOrSplit(newRoot);
+                setRoot(newRoot.pageId);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Inserts sorted entries into the subtree rooted at the given page and
+     * returns the new right siblings, if the page had to split.
+     */
+    private List<Split> insertBatch(int pageId, List<IndexEntry> entries) throws IOException {
+        Node node = readNode(pageId);
+
+        if (node.leaf) {
+            mergeIntoLeaf(node, entries);
+        } else {
+            // Group the entries by child, then descend right to left so that
+            // separators added for one child do not shift the ones still to visit
+            List<int[]> groups = new ArrayList<>();
+            int start = 0;
+            while (start < entries.size()) {
+                IndexEntry first = entries.get(start);
+                int child = childIndex(node, first.getKey(), first.getRowId());
+                int end = start + 1;
+                while (end < entries.size()
+                        && childIndex(node, entries.get(end).getKey(), entries.get(end).getRowId()) == child) {
+                    end++;
+                }
+                groups.add(new int[]{child, start, end});
+                start = end;
+            }
+
+            for (int g = groups.size() - 1; g >= 0; g--) {
+                int[] group = groups.get(g);
+                int child = group[0];
+                List<Split> splits = insertBatch(node.children.get(child), entries.subList(group[1], group[2]));
+                for (int i = 0; i < splits.size(); i++) {
+                    node.keys.add(child + i, splits.get(i).key);
+                    node.rowIds.add(child + i, splits.get(i).rowId);
+                    node.children.add(child + i + 1, splits.get(i).pageId);
+                }
+            }
+        }
+
+        return writeOrSplit(node);
+    }
+
+    private void mergeIntoLeaf(Node leaf, List<IndexEntry> entries) {
+        List<Object> keys = new ArrayList<>(leaf.keys.size() + entries.size());
+        List<RowId> rowIds = new ArrayList<>(leaf.keys.size() + entries.size());
+        int i = 0;
+        int j = 0;
+        while (i < leaf.keys.size() || j < entries.size()) {
+            boolean takeExisting = j >= entries.size() || (i < leaf.keys.size()
+                    && compare(leaf.keys.get(i), leaf.rowIds.get(i), entries.get(j).getKey(), entries.get(j).getRowId()) <= 0);
+            if (takeExisting) {
+                keys.add(leaf.keys.get(i));
+                rowIds.add(leaf.rowIds.get(i));
+                i++;
+            } else {
+                keys.add(entries.get(j).getKey());
+                rowIds.add(entries.get(j).getRowId());
+                j++;
+            }
+        }
+        leaf.keys.clear();
+        leaf.keys.addAll(keys);
+        leaf.rowIds.clear();
+        leaf.rowIds.addAll(rowIds);
+    }
+
+    /**
+     * Writes a node, first splitting it into as many evenly filled pages as it
+     * needs. The node keeps its page; the other pieces are returned as splits
+     * for the parent.
+     */
+    private List<Split> writeOrSplit(Node node) throws IOException {
+        List<Split> splits = new ArrayList<>();
+        int size = nodeSize(node);
+        if (size <= Page.PAGE_SIZE) {
+            writeNode(node);
+            return splits;
+        }
+
+        int pieces = (size + BULK_FILL_SIZE - 1) / BULK_FILL_SIZE;
+        int target = size / pieces;
+        List<Node> nodes = new ArrayList<>();
+        Node current = new Node(node.pageId, node.leaf);
+        nodes.add(current);
+        int currentSize = NODE_HEADER_SIZE;
+
+        if (!node.leaf) {
+            current.children.add(node.children.get(0));
+        }
+        for (int i = 0; i < node.keys.size(); i++) {
+            int entrySize = entrySize(node.keys.get(i), node.leaf);
+            if (!current.keys.isEmpty() && currentSize + entrySize > target) {
+                current = new Node(file.allocatePage().getPageId(), node.leaf);
+                nodes.add(current);
+                currentSize = NODE_HEADER_SIZE;
+                splits.add(new Split(node.keys.get(i), node.rowIds.get(i), current.pageId));
+                if (!node.leaf) {
+                    // The separator moves up to the parent
+                    current.children.add(node.children.get(i + 1));
+                    continue;
+                }
+            }
+            current.keys.add(node.keys.get(i));
+            current.rowIds.add(node.rowIds.get(i));
+            if (!node.leaf) {
+                current.children.add(node.children.get(i + 1));
+            }
+            currentSize += entrySize;
+        }
+
+        if (node.leaf) {
+            for (int i = 0; i < nodes.size() - 1; i++) {
+                nodes.get(i).next = nodes.get(i + 1).pageId;
+            }
+            nodes.get(nodes.size() - 1).next = node.next;
+        }
+        for (Node piece : nodes) {
+            writeNode(piece);
+        }
+        return splits;
+    }
+
+    /** Drops null keys, rejects oversized keys and duplicates within a unique index, and sorts. */
+    private List<IndexEntry> sortedEntries(List<IndexEntry> entries) {
+        List<IndexEntry> sorted = new ArrayList<>();
+        for (IndexEntry entry : entries) {
+            if (entry.getKey() == null) continue;
+            if (encodedKeySize(entry.getKey()) > MAX_KEY_SIZE) {
+                throw new RuntimeException("Index key too long for index: " + indexName);
+            }
+            sorted.add(entry);
+        }
+        sorted.sort((a, b) -> compare(a.getKey(), a.getRowId(), b.getKey(), b.getRowId()));
+
+        if (unique) {
+            for (int i = 1; i < sorted.size(); i++) {
+                if (compare(sorted.get(i - 1).getKey(), null, sorted.get(i).getKey(), null) == 0) {
+                    throw new UniqueConstraintViolationException(indexName);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /** Descends to the leaf that holds, or would hold, the given entry. A null RowId sorts before all others. */
+    private Node findLeaf(Object key, RowId rowId) throws IOException {
+        Node node = readNode(root());
+        while (!node.leaf) {
+            int child = key == null ? 0 : childIndex(node, key, rowId);
+            node = readNode(node.children.get(child));
+        }
+        return node;
+    }
+
+    private int childIndex(Node node, Object key, RowId rowId) {
+        int low = 0;
+        int high = node.keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node.keys.get(mid), node.rowIds.get(mid), key, rowId) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBound(Node node, Object key, RowId rowId) {
+        int low = 0;
+        int high = node.keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node.keys.get(mid), node.rowIds.get(mid), key, rowId) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Number of leading keys less than the given key, or not greater than it if inclusive. */
+    @SuppressWarnings("unchecked")
+    private int countBelow(List<Object> keys, Object key, boolean inclusive) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = ((Comparable<Object>) keys.get(mid)).compareTo(key);
+            if (cmp < 0 || (cmp == 0 && inclusive)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object key1, RowId rowId1, Object key2, RowId rowId2) {
+        int cmp = ((Comparable<Object>) key1).compareTo(key2);
+        if (cmp != 0) {
+            return cmp;
+        }
+        if (rowId1 == null || rowId2 == null) {
+            return rowId1 == rowId2 ? 0 : (rowId1 == null ? -1 : 1);
+        }
+        return rowId1.compareTo(rowId2);
+    }
+
+    private Node readNode(int pageId) throws IOException {
+        ByteBuffer buffer = file.readPage(pageId).getBuffer();
+        Node node = new Node(pageId, buffer.get(0) == LEAF);
+        int count = Short.toUnsignedInt(buffer.getShort(1));
+        int link = buffer.getInt(3);
+        buffer.position(NODE_HEADER_SIZE);
+
+        if (node.leaf) {
+            node.next = link;
+        } else {
+            node.children.add(link);
+        }
+        for (int i = 0; i < count; i++) {
+            node.keys.add(readKey(buffer));
+            node.rowIds.add(new RowId(buffer.getInt(), Short.toUnsignedInt(buffer.getShort())));
+            if (!node.leaf) {
+                node.children.add(buffer.getInt());
+            }
+        }
+        return node;
+    }
+
+    private void writeNode(Node node) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Page.PAGE_SIZE);
+        buffer.put(node.leaf ? LEAF : INTERNAL);
+        buffer.putShort((short) node.keys.size());
+        buffer.putInt(node.leaf ? node.next : node.children.get(0));
+
+        for (int i = 0; i < node.keys.size(); i++) {
+            writeKey(buffer, node.keys.get(i));
+            buffer.putInt(node.rowIds.get(i).getPageId());
+            buffer.putShort((short) node.rowIds.get(i).getSlot());
+            if (!node.leaf) {
+                buffer.putInt(node.children.get(i + 1));
+            }
+        }
+        file.writePage(new Page(node.pageId, buffer));
+    }
+
+    private int nodeSize(Node node) {
+        int size = NODE_HEADER_SIZE;
+        for (Object key : node.keys) {
+            size += entrySize(key, node.leaf);
+        }
+        return size;
+    }
+
+    private int entrySize(Object key, boolean leaf) {
+        return encodedKeySize(key) + ROW_ID_SIZE + (leaf ? 0 : 4);
+    }
+
+    private int encodedKeySize(Object key) {
+        switch (keyType) {
+            case INT:
+                return 4;
+            case BOOLEAN:
+                return 1;
+            case VARCHAR:
+                return 2 + key.toString().getBytes(StandardCharsets.UTF_8).length;
+            default:
+                return 8;
+        }
+    }
+
+    private void writeKey(ByteBuffer buffer, Object key) {
+        switch (keyType) {
+            case INT:
+                buffer.putInt((Integer) key);
+                break;
+            case BOOLEAN:
+                buffer.put((byte) ((Boolean) key ? 1 : 0));
+                break;
+            case VARCHAR:
+                byte[] bytes = key.toString().getBytes(StandardCharsets.UTF_8);
+                buffer.putShort((short) bytes.length);
+                buffer.put(bytes);
+                break;
+            case DOUBLE:
+                buffer.putDouble((Double) key);
+                break;
+            default:
+                buffer.putLong((Long) key);
+        }
+    }
+
+    private Object readKey(ByteBuffer buffer) {
+        switch (keyType) {
+            case INT:
+                return buffer.getInt();
+            case BOOLEAN:
+                return buffer.get() != 0;
+            case VARCHAR:
+                byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            case DOUBLE:
+                return buffer.getDouble();
+            default:
+                return buffer.getLong();
+        }
+    }
+
+    /**
+     * Walks a range one leaf at a time, copying out a leaf only when the walk
+     * reaches it, and holding the read lock only while it does. Forward walks
+     * follow the leaf links; reverse walks step back through the path from
+     * the root, since leaves are not linked right to left. If the tree has
+     * changed since the last leaf was read, the walk descends again to the
+     * entry after the last one it passed; the rest of a leaf already read is
+     * walked as it was when it was read.
+     */
+    private class LeafCursor implements IndexCursor {
+        private final Object from;
+        private final boolean fromInclusive;
+        private final Object to;
+        private final boolean toInclusive;
+        private final boolean descending;
+        /** Internal nodes from the root down to the current leaf and the child taken at each; reverse walks only. */
+        private final List<Node> path = new ArrayList<>();
+        private final List<Integer> pathChildren = new ArrayList<>();
+        private Node leaf;
+        /** The entries of the current leaf still to visit are those from low up to high. */
+        private int low;
+        private int high;
+        /** The range ends within the current leaf. */
+        private boolean last;
+        private boolean done;
+        /** The last entry walked past, where the walk resumes if the tree changes. */
+        private Object boundaryKey;
+        private RowId boundaryRowId;
+        private int seenModifications;
+
+        private LeafCursor(Object from, boolean fromInclusive, Object to, boolean toInclusive, boolean descending) {
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+            this.descending = descending;
+        }
+
+        @Override
+        public RowId next() {
+            if (!hasEntries()) {
+                return null;
+            }
+            return descending ? leaf.rowIds.get(--high) : leaf.rowIds.get(low++);
+        }
+
+        /** Skips whole runs of a leaf at a time, so only the leaves the skip lands past are read. */
+        @Override
+        public long skip(long count) {
+            long skipped = 0;
+            while (skipped < count && hasEntries()) {
+                int step = (int) Math.min(count - skipped, high - low);
+                if (descending) {
+                    high -= step;
+                } else {
+                    low += step;
+                }
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        private boolean hasEntries() {
+            while (leaf == null || low == high) {
+                if (done || (leaf != null && last)) {
+                    done = true;
+                    return false;
+                }
+                nextLeaf();
+            }
+            return true;
+        }
+
+        private void nextLeaf() {
+            lock.readLock().lock();
+            try {
+                if (leaf != null && !leaf.keys.isEmpty()) {
+                    int passed = descending ? 0 : leaf.keys.size() - 1;
+                    boundaryKey = leaf.keys.get(passed);
+                    boundaryRowId = leaf.rowIds.get(passed);
+                }
+                if (leaf == null || seenModifications != modifications) {
+                    seek();
+                } else if (descending) {
+                    leaf = previousLeaf();
+                } else {
+                    leaf = leaf.next == 0 ? null : readNode(leaf.next);
+                }
+                seenModifications = modifications;
+                if (leaf == null) {
+                    done = true;
+                    return;
+                }
+                bound();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /** Descends to the leaf where the walk starts, or resumes after the boundary entry. */
+        private void seek() throws IOException {
+            path.clear();
+            pathChildren.clear();
+            Node node = readNode(root());
+            while (!node.leaf) {
+                int child;
+                if (boundaryKey != null) {
+                    child = childIndex(node, boundaryKey, boundaryRowId);
+                } else if (descending) {
+                    child = to == null ? node.keys.size() : countBelow(node.keys, to, toInclusive);
+                } else {
+                    child = from == null ? 0 : childIndex(node, from, null);
+                }
+                if (descending) {
+                    path.add(node);
+                    pathChildren.add(child);
+                }
+                node = readNode(node.children.get(child));
+            }
+            leaf = node;
+        }
+
+        private Node previousLeaf() throws IOException {
+            int depth = path.size() - 1;
+            while (depth >= 0 && pathChildren.get(depth) == 0) {
+                path.remove(depth);
+                pathChildren.remove(depth);
+                depth--;
+            }
+            if (depth < 0) {
+                return null;
+            }
+            int child = pathChildren.get(depth) - 1;
+            pathChildren.set(depth, child);
+            Node node = readNode(path.get(depth).children.get(child));
+            while (!node.leaf) {
+                path.add(node);
+                pathChildren.add(node.children.size() - 1);
+                node = readNode(node.children.get(node.children.size() - 1));
+            }
+            return node;
+        }
+
+        /** Narrows the current leaf to the entries in range that the walk has not passed yet. */
+        private void bound() {
+            int size = leaf.keys.size();
+            low = from == null ? 0 : countBelow(leaf.keys, from, !fromInclusive);
+            high = to == null ? size : countBelow(leaf.keys, to, toInclusive);
+            last = descending ? low > 0 : high < size;
+            if (boundaryKey != null) {
+                if (descending) {
+                    high = Math.min(high, lowerBound(leaf, boundaryKey, boundaryRowId));
+                } else {
+                    low = Math.max(low, childIndex(leaf, boundaryKey, boundaryRowId));
+                }
+            }
+            if (high < low) {
+                high = low;
+            }
+        }
+    }
+
+    private static class Node {
+        private final int pageId;
+        private final boolean leaf;
+        private final List<Object> keys = new ArrayList<>();
+        private final List<RowId> rowIds = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+        private int next;
+
+        private Node(int pageId, boolean leaf) {
+            this.pageId = pageId;
+            this.leaf = leaf;
+        }
+    }
+
+    private static class Split {
+        private final Object key;
+        private final RowId rowId;
+        private final int pageId;
+
+        private Split(Object key, RowId rowId, int pageId) {
+            this.key = key;
+            this.rowId = rowId;
+            this.pageId = pageId;
+        }
     }
 }
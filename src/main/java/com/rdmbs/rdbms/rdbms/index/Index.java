@@ -1,14 +1,22 @@
 package com.rdmbs.rdbms.rdbms.index;
 
-import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
 import java.util.List;
 
 public interface Index {
-    void insert(Row row);
-    List<Row> search(Object key);
-    void delete(Object key);
+    void insert(Object key, RowId rowId);
+    void insertAll(List<IndexEntry> entries);
+    List<RowId> search(Object key);
+    /** RowIds whose key lies between the bounds, in key order. A null bound leaves that side open. */
+    List<RowId> range(Object from, boolean fromInclusive, Object to, boolean toInclusive);
+    /** Walks the same entries as {@link #range}, in key order or in reverse, without collecting them. */
+    IndexCursor cursor(Object from, boolean fromInclusive, Object to, boolean toInclusive, boolean descending);
+    void delete(Object key, RowId rowId);
+    /** Removes every entry. */
+    void clear();
     String getIndexName();
     String getTableName();
     String getColumnName();
+    int getColumnIndex();
     boolean isUnique();
 }
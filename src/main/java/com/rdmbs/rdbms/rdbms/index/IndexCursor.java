@@ -0,0 +1,15 @@
+package com.rdmbs.rdbms.rdbms.index;
+
+import com.rdmbs.rdbms.rdbms.storage.RowId;
+
+/**
+ * Walks the entries of an index range one at a time, reading the index only
+ * as far as it has been advanced.
+ */
+public interface IndexCursor {
+    /** The RowId of the next entry, or null once the range is exhausted. */
+    RowId next();
+
+    /** Moves past up to {@code count} entries without returning them, and returns how many it passed. */
+    long skip(long count);
+}
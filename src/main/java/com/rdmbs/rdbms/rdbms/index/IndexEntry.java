@@ -0,0 +1,10 @@
+package com.rdmbs.rdbms.rdbms.index;
+
+import com.rdmbs.rdbms.rdbms.storage.RowId;
+import lombok.Data;
+
+@Data
+public class IndexEntry {
+    private final Object key;
+    private final RowId rowId;
+}
@@ -1,19 +1,55 @@
 package com.rdmbs.rdbms.rdbms.index;
 
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.IndexDefinition;
+import com.rdmbs.rdbms.rdbms.schema.Schema;
 import com.rdmbs.rdbms.rdbms.schema.Table;
 import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class IndexManager {
+    private static final String DATA_DIR = "data";
+    private static final String INDEX_EXT = ".idx";
+
+    private final String dataDirectory;
     private final Map<String, Index> indexes;
 
     public IndexManager() {
-        this.indexes = new HashMap<>();
+        this(DATA_DIR);
+    }
+
+    public IndexManager(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+        this.indexes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers the indexes recorded in the schema. Index files are only
+     * opened when an index is first used.
+     */
+    public void loadIndexes(Schema schema) {
+        for (IndexDefinition definition : schema.getAllIndexes()) {
+            Optional<Table> table = schema.getTable(definition.getTableName());
+            if (table.isPresent() && table.get().getColumnIndex(definition.getColumnName()) >= 0) {
+                indexes.put(definition.getIndexName(), openIndex(definition.getIndexName(), table.get(),
+                        definition.getColumnName(), definition.isUnique()));
+            }
+        }
     }
 
-    public void createIndex(String indexName, Table table, String columnName, boolean unique) throws IOException {
+    /**
+     * Creates an index and bulk-builds it from the table's existing rows. If
+     * the rows violate a unique index, nothing is created.
+     */
+    public void createIndex(String indexName, Table table, String columnName, boolean unique,
+                            List<Row> existingRows) throws IOException {
         if (indexes.containsKey(indexName)) {
             throw new RuntimeException("Index already exists: " + indexName);
         }
@@ -23,19 +59,80 @@ public class IndexManager {
             throw new RuntimeException("Column not found: " + columnName);
         }
 
-        BTreeIndex index = new BTreeIndex(indexName, table.getName(), columnName, columnIndex, unique);
+        Files.createDirectories(Paths.get(dataDirectory));
+        BTreeIndex index = openIndex(indexName, table, columnName, unique);
+        
+        List<IndexEntry> entries = new ArrayList<>(existingRows.size());
+        for (Row row : existingRows) {
+            entries.add(new IndexEntry(row.getValue(columnIndex), row.getRowId()));
+        }
+        try {
+            index.bulkLoad(entries);
+        } catch (RuntimeException e) {
+            index.drop();
+            throw e;
+        }
+        
         indexes.put(indexName, index);
     }
 
     public void insertIntoIndexes(Table table, Row row) {
         for (Index index : indexes.values()) {
-            if (index.getTableName().equals(table.getName())) {
-                index.insert(row);
+            if (index.getTableName().equalsIgnoreCase(table.getName())) {
+                index.insert(row.getValue(index.getColumnIndex()), row.getRowId());
             }
         }
     }
 
-    public List<Row> search(String indexName, Object key) {
+    /** Adds a batch of newly stored rows to every index on the table, one sorted pass per index. */
+    public void insertIntoIndexes(Table table, List<Row> rows) {
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(table.getName())) {
+                List<IndexEntry> entries = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    entries.add(new IndexEntry(row.getValue(index.getColumnIndex()), row.getRowId()));
+                }
+                index.insertAll(entries);
+            }
+        }
+    }
+
+    public void deleteFromIndexes(Table table, Row row) {
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(table.getName())) {
+                index.delete(row.getValue(index.getColumnIndex()), row.getRowId());
+            }
+        }
+    }
+
+    /**
+     * Moves a row's index entries from its old values to its new ones. Only
+     * indexes on changed columns are touched, and unique indexes are checked
+     * before anything is modified.
+     */
+    public void updateIndexes(Table table, Row oldRow, Row newRow) {
+        List<Index> changed = new ArrayList<>();
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(table.getName())
+                    && !Objects.equals(oldRow.getValue(index.getColumnIndex()), newRow.getValue(index.getColumnIndex()))) {
+                changed.add(index);
+            }
+        }
+        
+        for (Index index : changed) {
+            Object newKey = newRow.getValue(index.getColumnIndex());
+            if (index.isUnique() && newKey != null && !index.search(newKey).isEmpty()) {
+                throw new UniqueConstraintViolationException(index.getIndexName());
+            }
+        }
+        
+        for (Index index : changed) {
+            index.delete(oldRow.getValue(index.getColumnIndex()), oldRow.getRowId());
+            index.insert(newRow.getValue(index.getColumnIndex()), newRow.getRowId());
+        }
+    }
+
+    public List<RowId> search(String indexName, Object key) {
         Index index = indexes.get(indexName);
         if (index == null) {
             return new ArrayList<>();
@@ -43,20 +140,91 @@ public class IndexManager {
         return index.search(key);
     }
 
-    public void dropTableIndexes(String tableName) {
-        indexes.entrySet().removeIf(entry -> entry.getValue().getTableName().equals(tableName));
+    public void dropTableIndexes(String tableName) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(tableName)) {
+                names.add(index.getIndexName());
+            }
+        }
+        for (String name : names) {
+            dropIndex(name);
+        }
+    }
+
+    /** Empties every index on a table, e.g. after DELETE without WHERE. */
+    public void truncateTableIndexes(String tableName) {
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(tableName)) {
+                index.clear();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every index on a table from its rows. Used after a crash, when
+     * index files may hold changes the table's log never committed.
+     */
+    public void rebuildTableIndexes(Table table, List<Row> rows) {
+        for (Index index : indexes.values()) {
+            if (index.getTableName().equalsIgnoreCase(table.getName()) && index instanceof BTreeIndex) {
+                List<IndexEntry> entries = new ArrayList<>(rows.size());
+                for (Row row : rows) {
+                    entries.add(new IndexEntry(row.getValue(index.getColumnIndex()), row.getRowId()));
+                }
+                ((BTreeIndex) index).bulkLoad(entries);
+            }
+        }
+    }
+
+    /** Flushes and closes every open index file. */
+    public void close() throws IOException {
+        for (Index index : indexes.values()) {
+            if (index instanceof BTreeIndex) {
+                ((BTreeIndex) index).force();
+                ((BTreeIndex) index).close();
+            }
+        }
     }
 
-    public void dropIndex(String indexName) {
-        indexes.remove(indexName);
+    public void dropIndex(String indexName) throws IOException {
+        Index index = indexes.remove(indexName);
+        if (index instanceof BTreeIndex) {
+            ((BTreeIndex) index).drop();
+        }
     }
 
     public boolean hasIndex(String tableName, String columnName) {
+        return findIndex(tableName, columnName).isPresent();
+    }
+
+    public Optional<Index> findIndex(String tableName, String columnName) {
+        return indexes.values().stream()
+                .filter(idx -> idx.getTableName().equalsIgnoreCase(tableName)
+                        && idx.getColumnName().equalsIgnoreCase(columnName))
+                .findFirst();
+    }
+
+    public Optional<Index> findUniqueIndex(String tableName, String columnName) {
         return indexes.values().stream()
-                .anyMatch(idx -> idx.getTableName().equals(tableName) && idx.getColumnName().equals(columnName));
+                .filter(idx -> idx.isUnique()
+                        && idx.getTableName().equalsIgnoreCase(tableName)
+                        && idx.getColumnName().equalsIgnoreCase(columnName))
+                .findFirst();
     }
 
     public Collection<Index> getAllIndexes() {
         return indexes.values();
     }
+
+    private BTreeIndex openIndex(String indexName, Table table, String columnName, boolean unique) {
+        int columnIndex = table.getColumnIndex(columnName);
+        Column column = table.getColumns().get(columnIndex);
+        return new BTreeIndex(indexName, table.getName(), column.getName(), columnIndex,
+                column.getDataType(), unique, getIndexPath(indexName));
+    }
+
+    private Path getIndexPath(String indexName) {
+        return Paths.get(dataDirectory, indexName.toLowerCase() + INDEX_EXT);
+    }
 }
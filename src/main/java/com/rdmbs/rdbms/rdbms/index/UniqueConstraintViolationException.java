@@ -0,0 +1,10 @@
+package com.rdmbs.rdbms.rdbms.index;
+
+/** Thrown when a unique index would end up holding the same key twice. */
+public class UniqueConstraintViolationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UniqueConstraintViolationException(String indexName) {
+        super("Unique constraint violation on index: " + indexName);
+    }
+}
@@ -0,0 +1,189 @@
+package com.rdmbs.rdbms.rdbms.parser;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites a condition tree into conjunctive normal form: an AND of clauses,
+ * each a single condition or an OR of conditions. Every clause must hold for
+ * a row to match, so the planner can use any of them on its own to pick an
+ * index or to filter a join input early.
+ *
+ * NOT is pushed down to the leaves first and folded into them, so no NOT
+ * is left: = and != swap, as do < and >=, > and <=, and IS NULL and IS NOT
+ * NULL, and IN, BETWEEN and LIKE flip their own NOT. Each swap gives exactly
+ * the same answers, null values included: a comparison with a null is
+ * unknown either way, and an unknown condition stays unknown under NOT.
+ *
+ * Distributing OR over AND can multiply the number of clauses. An OR whose
+ * expansion would exceed {@link #MAX_CLAUSES} is kept whole as one clause.
+ */
+public final class ConditionNormalizer {
+    static final int MAX_CLAUSES = 64;
+
+    private ConditionNormalizer() {
+    }
+
+    public static WhereClause normalize(WhereClause condition) {
+        List<List<WhereClause>> clauses = toClauses(pushNot(condition, false));
+        List<WhereClause> conjuncts = new ArrayList<>(clauses.size());
+        for (List<WhereClause> clause : clauses) {
+            conjuncts.add(combine(WhereClause.LogicalOperator.OR, clause));
+        }
+        return combine(WhereClause.LogicalOperator.AND, conjuncts);
+    }
+
+    /** Applies De Morgan's laws so that NOT only appears directly above leaves; nested ANDs and ORs are flattened. */
+    private static WhereClause pushNot(WhereClause condition, boolean negate) {
+        switch (condition.getType()) {
+            case NOT:
+                return pushNot(((NotCondition) condition).getOperand(), !negate);
+            case LOGICAL: {
+                LogicalCondition logical = (LogicalCondition) condition;
+                WhereClause.LogicalOperator operator = logical.getOperator();
+                if (negate) {
+                    operator = operator == WhereClause.LogicalOperator.AND
+                            ? WhereClause.LogicalOperator.OR : WhereClause.LogicalOperator.AND;
+                }
+                List<WhereClause> operands = new ArrayList<>();
+                for (WhereClause operand : logical.getOperands()) {
+                    WhereClause pushed = pushNot(operand, negate);
+                    if (pushed instanceof LogicalCondition && ((LogicalCondition) pushed).getOperator() == operator) {
+                        operands.addAll(((LogicalCondition) pushed).getOperands());
+                    } else {
+                        operands.add(pushed);
+                    }
+                }
+                return combine(operator, operands);
+            }
+            case IS_NULL: {
+                if (!negate) {
+                    return condition;
+                }
+                IsNullCondition isNull = (IsNullCondition) condition;
+                IsNullCondition flipped = new IsNullCondition();
+                flipped.setColumn(isNull.getColumn());
+                flipped.setNegated(!isNull.isNegated());
+                return flipped;
+            }
+            case COMPARISON: {
+                if (!negate) {
+                    return condition;
+                }
+                Comparison comparison = (Comparison) condition;
+                Comparison flipped = new Comparison();
+                flipped.setLeftColumn(comparison.getLeftColumn());
+                flipped.setRightColumn(comparison.getRightColumn());
+                flipped.setRightValue(comparison.getRightValue());
+                flipped.setOperator(complement(comparison.getOperator()));
+                return flipped;
+            }
+            case IN: {
+                if (!negate) {
+                    return condition;
+                }
+                InCondition in = (InCondition) condition;
+                InCondition flipped = new InCondition();
+                flipped.setColumn(in.getColumn());
+                flipped.setValues(in.getValues());
+                flipped.setNegated(!in.isNegated());
+                return flipped;
+            }
+            case BETWEEN: {
+                if (!negate) {
+                    return condition;
+                }
+                BetweenCondition between = (BetweenCondition) condition;
+                BetweenCondition flipped = new BetweenCondition();
+                flipped.setColumn(between.getColumn());
+                flipped.setLower(between.getLower());
+                flipped.setUpper(between.getUpper());
+                flipped.setNegated(!between.isNegated());
+                return flipped;
+            }
+            case LIKE: {
+                if (!negate) {
+                    return condition;
+                }
+                LikeCondition like = (LikeCondition) condition;
+                LikeCondition flipped = new LikeCondition();
+                flipped.setColumn(like.getColumn());
+                flipped.setPattern(like.getPattern());
+                flipped.setNegated(!like.isNegated());
+                return flipped;
+            }
+            default:
+                return condition;
+        }
+    }
+
+    /** The operator that holds exactly when the given one is false, for non-null operands. */
+    private static WhereClause.Operator complement(WhereClause.Operator operator) {
+        switch (operator) {
+            case EQUALS:
+                return WhereClause.Operator.NOT_EQUALS;
+            case NOT_EQUALS:
+                return WhereClause.Operator.EQUALS;
+            case LESS_THAN:
+                return WhereClause.Operator.GREATER_EQUAL;
+            case GREATER_EQUAL:
+                return WhereClause.Operator.LESS_THAN;
+            case GREATER_THAN:
+                return WhereClause.Operator.LESS_EQUAL;
+            default:
+                return WhereClause.Operator.GREATER_THAN;
+        }
+    }
+
+    /** The clauses of a negation normal form tree, each a list of OR-ed conditions. */
+    private static List<List<WhereClause>> toClauses(WhereClause condition) {
+        if (!(condition instanceof LogicalCondition)) {
+            List<List<WhereClause>> clauses = new ArrayList<>();
+            clauses.add(List.of(condition));
+            return clauses;
+        }
+
+        LogicalCondition logical = (LogicalCondition) condition;
+        if (logical.getOperator() == WhereClause.LogicalOperator.AND) {
+            List<List<WhereClause>> clauses = new ArrayList<>();
+            for (WhereClause operand : logical.getOperands()) {
+                clauses.addAll(toClauses(operand));
+            }
+            return clauses;
+        }
+
+        // (a AND b) OR c becomes (a OR c) AND (b OR c)
+        List<List<WhereClause>> clauses = new ArrayList<>();
+        clauses.add(new ArrayList<>());
+        for (WhereClause operand : logical.getOperands()) {
+            List<List<WhereClause>> operandClauses = toClauses(operand);
+            if ((long) clauses.size() * operandClauses.size() > MAX_CLAUSES) {
+                List<List<WhereClause>> whole = new ArrayList<>();
+                whole.add(List.of(condition));
+                return whole;
+            }
+            List<List<WhereClause>> product = new ArrayList<>();
+            for (List<WhereClause> clause : clauses) {
+                for (List<WhereClause> operandClause : operandClauses) {
+                    List<WhereClause> merged = new ArrayList<>(clause);
+                    merged.addAll(operandClause);
+                    product.add(merged);
+                }
+            }
+            clauses = product;
+        }
+        return clauses;
+    }
+
+    private static WhereClause combine(WhereClause.LogicalOperator operator, List<WhereClause> operands) {
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+        LogicalCondition combined = new LogicalCondition();
+        combined.setOperator(operator);
+        combined.setOperands(new ArrayList<>(operands));
+        return combined;
+    }
+}
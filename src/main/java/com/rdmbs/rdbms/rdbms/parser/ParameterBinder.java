@@ -0,0 +1,166 @@
+package com.rdmbs.rdbms.rdbms.parser;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Substitutes bound values for the {@link Parameter} placeholders of a parsed
+ * statement. The statement itself is left untouched, since it may be shared
+ * through the statement cache; only the parts that hold values are copied.
+ */
+public class ParameterBinder {
+    private final List<Object> parameters;
+
+    private ParameterBinder(List<Object> parameters) {
+        this.parameters = parameters;
+    }
+
+    public static Statement bind(Statement statement, List<Object> parameters) {
+        return new ParameterBinder(parameters).bindStatement(statement);
+    }
+
+    private Statement bindStatement(Statement statement) {
+        switch (statement.getType()) {
+            case INSERT:
+                return bindInsert((InsertStatement) statement);
+            case SELECT:
+                return bindSelect((SelectStatement) statement);
+            case UPDATE:
+                return bindUpdate((UpdateStatement) statement);
+            case DELETE:
+                return bindDelete((DeleteStatement) statement);
+            case EXECUTE:
+                return bindExecute((ExecuteStatement) statement);
+            default:
+                return statement;
+        }
+    }
+
+    private InsertStatement bindInsert(InsertStatement stmt) {
+        InsertStatement bound = new InsertStatement();
+        bound.setTableName(stmt.getTableName());
+        bound.setColumns(stmt.getColumns());
+        List<List<Object>> rows = new ArrayList<>(stmt.getRows().size());
+        for (List<Object> row : stmt.getRows()) {
+            rows.add(bindValues(row));
+        }
+        bound.setRows(rows);
+        return bound;
+    }
+
+    private SelectStatement bindSelect(SelectStatement stmt) {
+        SelectStatement bound = new SelectStatement();
+        bound.setColumns(stmt.getColumns());
+        bound.setTableName(stmt.getTableName());
+        bound.setWhereClause(bindWhere(stmt.getWhereClause()));
+        bound.setJoinClause(stmt.getJoinClause());
+        bound.setAggregates(stmt.getAggregates());
+        bound.setGroupBy(stmt.getGroupBy());
+        bound.setHaving(bindWhere(stmt.getHaving()));
+        bound.setOrderBy(stmt.getOrderBy());
+        bound.setLimit(stmt.getLimit());
+        bound.setOffset(stmt.getOffset());
+        return bound;
+    }
+
+    private UpdateStatement bindUpdate(UpdateStatement stmt) {
+        UpdateStatement bound = new UpdateStatement();
+        bound.setTableName(stmt.getTableName());
+        Map<String, Object> updates = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : stmt.getUpdates().entrySet()) {
+            updates.put(entry.getKey(), bindValue(entry.getValue()));
+        }
+        bound.setUpdates(updates);
+        bound.setWhereClause(bindWhere(stmt.getWhereClause()));
+        return bound;
+    }
+
+    private DeleteStatement bindDelete(DeleteStatement stmt) {
+        DeleteStatement bound = new DeleteStatement();
+        bound.setTableName(stmt.getTableName());
+        bound.setWhereClause(bindWhere(stmt.getWhereClause()));
+        return bound;
+    }
+
+    private ExecuteStatement bindExecute(ExecuteStatement stmt) {
+        ExecuteStatement bound = new ExecuteStatement();
+        bound.setName(stmt.getName());
+        bound.setParameters(bindValues(stmt.getParameters()));
+        return bound;
+    }
+
+    private WhereClause bindWhere(WhereClause clause) {
+        if (clause == null) {
+            return null;
+        }
+        switch (clause.getType()) {
+            case COMPARISON: {
+                Comparison comparison = (Comparison) clause;
+                Comparison bound = new Comparison();
+                bound.setLeftColumn(comparison.getLeftColumn());
+                bound.setOperator(comparison.getOperator());
+                bound.setRightValue(bindValue(comparison.getRightValue()));
+                bound.setRightColumn(comparison.getRightColumn());
+                return bound;
+            }
+            case LOGICAL: {
+                LogicalCondition logical = (LogicalCondition) clause;
+                LogicalCondition bound = new LogicalCondition();
+                bound.setOperator(logical.getOperator());
+                for (WhereClause operand : logical.getOperands()) {
+                    bound.getOperands().add(bindWhere(operand));
+                }
+                return bound;
+            }
+            case NOT: {
+                NotCondition bound = new NotCondition();
+                bound.setOperand(bindWhere(((NotCondition) clause).getOperand()));
+                return bound;
+            }
+            case IN: {
+                InCondition in = (InCondition) clause;
+                InCondition bound = new InCondition();
+                bound.setColumn(in.getColumn());
+                bound.setValues(bindValues(in.getValues()));
+                bound.setNegated(in.isNegated());
+                return bound;
+            }
+            case BETWEEN: {
+                BetweenCondition between = (BetweenCondition) clause;
+                BetweenCondition bound = new BetweenCondition();
+                bound.setColumn(between.getColumn());
+                bound.setLower(bindValue(between.getLower()));
+                bound.setUpper(bindValue(between.getUpper()));
+                bound.setNegated(between.isNegated());
+                return bound;
+            }
+            case LIKE: {
+                LikeCondition like = (LikeCondition) clause;
+                LikeCondition bound = new LikeCondition();
+                bound.setColumn(like.getColumn());
+                bound.setPattern(bindValue(like.getPattern()));
+                bound.setNegated(like.isNegated());
+                return bound;
+            }
+            default:
+                // IS NULL holds no values
+                return clause;
+        }
+    }
+
+    private List<Object> bindValues(List<Object> values) {
+        List<Object> bound = new ArrayList<>(values.size());
+        for (Object value : values) {
+            bound.add(bindValue(value));
+        }
+        return bound;
+    }
+
+    private Object bindValue(Object value) {
+        return value instanceof Parameter ? parameters.get(((Parameter) value).getIndex()) : value;
+    }
+}
@@ -38,6 +38,26 @@ public class SQLLexer {
         KEYWORDS.put("INNER", TokenType.INNER);
         KEYWORDS.put("LEFT", TokenType.LEFT);
         KEYWORDS.put("RIGHT", TokenType.RIGHT);
+        KEYWORDS.put("LIMIT", TokenType.LIMIT);
+        KEYWORDS.put("OFFSET", TokenType.OFFSET);
+        KEYWORDS.put("ORDER", TokenType.ORDER);
+        KEYWORDS.put("BY", TokenType.BY);
+        KEYWORDS.put("ASC", TokenType.ASC);
+        KEYWORDS.put("DESC", TokenType.DESC);
+        KEYWORDS.put("GROUP", TokenType.GROUP);
+        KEYWORDS.put("HAVING", TokenType.HAVING);
+        KEYWORDS.put("PREPARE", TokenType.PREPARE);
+        KEYWORDS.put("EXECUTE", TokenType.EXECUTE);
+        KEYWORDS.put("DEALLOCATE", TokenType.DEALLOCATE);
+        KEYWORDS.put("AS", TokenType.AS);
+        KEYWORDS.put("BEGIN", TokenType.BEGIN);
+        KEYWORDS.put("COMMIT", TokenType.COMMIT);
+        KEYWORDS.put("ROLLBACK", TokenType.ROLLBACK);
+        KEYWORDS.put("TRANSACTION", TokenType.TRANSACTION);
+        KEYWORDS.put("IN", TokenType.IN);
+        KEYWORDS.put("BETWEEN", TokenType.BETWEEN);
+        KEYWORDS.put("LIKE", TokenType.LIKE);
+        KEYWORDS.put("IS", TokenType.IS);
     }
 
     public SQLLexer(String input) {
@@ -94,6 +114,12 @@ public class SQLLexer {
                 continue;
             }
 
+            if (currentChar == '?') {
+                tokens.add(new Token(TokenType.PARAMETER, "?", position));
+                advance();
+                continue;
+            }
+
             if (currentChar == '*') {
                 tokens.add(new Token(TokenType.ASTERISK, "*", position));
                 advance();
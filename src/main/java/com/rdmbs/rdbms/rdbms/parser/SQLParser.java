@@ -6,11 +6,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class SQLParser {
     private final List<Token> tokens;
     private int position;
     private Token currentToken;
+    private int parameterCount;
 
     public SQLParser(List<Token> tokens) {
         this.tokens = tokens;
@@ -36,11 +38,82 @@ public class SQLParser {
                 return parseUpdate();
             case DELETE:
                 return parseDelete();
+            case PREPARE:
+                return parsePrepare();
+            case EXECUTE:
+                return parseExecute();
+            case DEALLOCATE:
+                return parseDeallocate();
+            case BEGIN:
+                return parseTransactionControl(TokenType.BEGIN, new BeginStatement());
+            case COMMIT:
+                return parseTransactionControl(TokenType.COMMIT, new CommitStatement());
+            case ROLLBACK:
+                return parseTransactionControl(TokenType.ROLLBACK, new RollbackStatement());
             default:
                 throw new RuntimeException("Unexpected token: " + currentToken.getValue());
         }
     }
 
+    /** The number of {@code ?} placeholders in the statement parsed so far. */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    private PrepareStatement parsePrepare() {
+        consume(TokenType.PREPARE);
+        
+        PrepareStatement stmt = new PrepareStatement();
+        stmt.setName(consume(TokenType.IDENTIFIER).getValue());
+        consume(TokenType.AS);
+        
+        if (match(TokenType.PREPARE) || match(TokenType.EXECUTE) || match(TokenType.DEALLOCATE)) {
+            throw new RuntimeException("Cannot prepare a " + currentToken.getValue() + " statement");
+        }
+        stmt.setStatement(parse());
+        stmt.setParameterCount(parameterCount);
+        // The placeholders belong to the prepared statement, not to PREPARE itself
+        parameterCount = 0;
+        
+        return stmt;
+    }
+
+    private ExecuteStatement parseExecute() {
+        consume(TokenType.EXECUTE);
+        
+        ExecuteStatement stmt = new ExecuteStatement();
+        stmt.setName(consume(TokenType.IDENTIFIER).getValue());
+        
+        if (match(TokenType.LEFT_PAREN)) {
+            consume(TokenType.LEFT_PAREN);
+            stmt.setParameters(parseValueList());
+            consume(TokenType.RIGHT_PAREN);
+        }
+        
+        return stmt;
+    }
+
+    private DeallocateStatement parseDeallocate() {
+        consume(TokenType.DEALLOCATE);
+        if (match(TokenType.PREPARE)) {
+            consume(TokenType.PREPARE);
+        }
+        
+        DeallocateStatement stmt = new DeallocateStatement();
+        stmt.setName(consume(TokenType.IDENTIFIER).getValue());
+        
+        return stmt;
+    }
+
+    /** BEGIN, COMMIT or ROLLBACK, each optionally followed by TRANSACTION. */
+    private Statement parseTransactionControl(TokenType keyword, Statement statement) {
+        consume(keyword);
+        if (match(TokenType.TRANSACTION)) {
+            consume(TokenType.TRANSACTION);
+        }
+        return statement;
+    }
+
     private Statement parseCreate() {
         consume(TokenType.CREATE);
         
@@ -158,9 +231,17 @@ public class SQLParser {
         }
         
         consume(TokenType.VALUES);
-        consume(TokenType.LEFT_PAREN);
-        stmt.setValues(parseValueList());
-        consume(TokenType.RIGHT_PAREN);
+        
+        List<List<Object>> rows = new ArrayList<>();
+        do {
+            if (match(TokenType.COMMA)) {
+                consume(TokenType.COMMA);
+            }
+            consume(TokenType.LEFT_PAREN);
+            rows.add(parseValueList());
+            consume(TokenType.RIGHT_PAREN);
+        } while (match(TokenType.COMMA));
+        stmt.setRows(rows);
         
         return stmt;
     }
@@ -174,7 +255,14 @@ public class SQLParser {
             consume(TokenType.ASTERISK);
             stmt.setColumns(List.of("*"));
         } else {
-            stmt.setColumns(parseIdentifierList());
+            List<String> columns = new ArrayList<>();
+            do {
+                if (match(TokenType.COMMA)) {
+                    consume(TokenType.COMMA);
+                }
+                columns.add(parseColumnReference(stmt));
+            } while (match(TokenType.COMMA));
+            stmt.setColumns(columns);
         }
         
         consume(TokenType.FROM);
@@ -188,9 +276,99 @@ public class SQLParser {
             stmt.setWhereClause(parseWhere());
         }
         
+        if (match(TokenType.GROUP)) {
+            consume(TokenType.GROUP);
+            consume(TokenType.BY);
+            stmt.setGroupBy(parseIdentifierList());
+        }
+        
+        if (match(TokenType.HAVING)) {
+            consume(TokenType.HAVING);
+            stmt.setHaving(ConditionNormalizer.normalize(parseCondition(() -> parseColumnReference(stmt))));
+        }
+        
+        if (match(TokenType.ORDER)) {
+            stmt.setOrderBy(parseOrderBy(stmt));
+        }
+        
+        if (match(TokenType.LIMIT)) {
+            consume(TokenType.LIMIT);
+            stmt.setLimit(parseRowCount());
+            if (match(TokenType.OFFSET)) {
+                consume(TokenType.OFFSET);
+                stmt.setOffset(parseRowCount());
+            }
+        }
+        
         return stmt;
     }
 
+    private List<OrderByItem> parseOrderBy(SelectStatement stmt) {
+        consume(TokenType.ORDER);
+        consume(TokenType.BY);
+        
+        List<OrderByItem> items = new ArrayList<>();
+        do {
+            if (match(TokenType.COMMA)) {
+                consume(TokenType.COMMA);
+            }
+            OrderByItem item = new OrderByItem();
+            item.setColumn(parseColumnReference(stmt));
+            if (match(TokenType.DESC)) {
+                consume(TokenType.DESC);
+                item.setDescending(true);
+            } else if (match(TokenType.ASC)) {
+                consume(TokenType.ASC);
+            }
+            items.add(item);
+        } while (match(TokenType.COMMA));
+        
+        return items;
+    }
+
+    /**
+     * Parses a column name or an aggregate call such as COUNT(*) or SUM(price).
+     * Aggregates are registered on the statement and referred to by the name
+     * of their result column.
+     */
+    private String parseColumnReference(SelectStatement stmt) {
+        Token name = consume(TokenType.IDENTIFIER);
+        if (!match(TokenType.LEFT_PAREN)) {
+            return name.getValue();
+        }
+        
+        AggregateCall call = new AggregateCall();
+        try {
+            call.setFunction(AggregateCall.Function.valueOf(name.getValue().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown function: " + name.getValue());
+        }
+        
+        consume(TokenType.LEFT_PAREN);
+        if (match(TokenType.ASTERISK) && call.getFunction() == AggregateCall.Function.COUNT) {
+            consume(TokenType.ASTERISK);
+        } else {
+            call.setColumn(consume(TokenType.IDENTIFIER).getValue());
+        }
+        consume(TokenType.RIGHT_PAREN);
+        
+        boolean known = stmt.getAggregates().stream()
+                .anyMatch(existing -> existing.getName().equalsIgnoreCase(call.getName()));
+        if (!known) {
+            stmt.getAggregates().add(call);
+        }
+        return call.getName();
+    }
+
+    private int parseRowCount() {
+        String value = consume(TokenType.NUMBER).getValue();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Expected a row count but got " + value);
+        }
+    }
+
     private UpdateStatement parseUpdate() {
         consume(TokenType.UPDATE);
         
@@ -223,54 +401,125 @@ public class SQLParser {
 
     private WhereClause parseWhere() {
         consume(TokenType.WHERE);
-        
-        WhereClause clause = new WhereClause();
-        clause.setLeftColumn(consume(TokenType.IDENTIFIER).getValue());
-        clause.setOperator(parseOperator());
-        
-        if (match(TokenType.IDENTIFIER)) {
-            clause.setRightColumn(consume(TokenType.IDENTIFIER).getValue());
-        } else {
-            clause.setRightValue(parseValue());
+        return ConditionNormalizer.normalize(parseCondition(() -> consume(TokenType.IDENTIFIER).getValue()));
+    }
+
+    /**
+     * Parses a boolean condition. NOT binds tighter than AND, which binds
+     * tighter than OR; parentheses group. Column names are read with
+     * {@code column}, so HAVING can refer to aggregates.
+     */
+    private WhereClause parseCondition(Supplier<String> column) {
+        WhereClause first = parseConjunction(column);
+        if (!match(TokenType.OR)) {
+            return first;
         }
-        
-        if (match(TokenType.AND) || match(TokenType.OR)) {
-            if (match(TokenType.AND)) {
-                consume(TokenType.AND);
-                clause.setLogicalOperator(WhereClause.LogicalOperator.AND);
-            } else {
-                consume(TokenType.OR);
-                clause.setLogicalOperator(WhereClause.LogicalOperator.OR);
-            }
-            clause.setNextCondition(parseWhereCondition());
+        LogicalCondition or = new LogicalCondition();
+        or.setOperator(WhereClause.LogicalOperator.OR);
+        or.getOperands().add(first);
+        while (match(TokenType.OR)) {
+            consume(TokenType.OR);
+            or.getOperands().add(parseConjunction(column));
         }
-        
-        return clause;
+        return or;
+    }
+
+    private WhereClause parseConjunction(Supplier<String> column) {
+        WhereClause first = parseNegation(column);
+        if (!match(TokenType.AND)) {
+            return first;
+        }
+        LogicalCondition and = new LogicalCondition();
+        and.setOperator(WhereClause.LogicalOperator.AND);
+        and.getOperands().add(first);
+        while (match(TokenType.AND)) {
+            consume(TokenType.AND);
+            and.getOperands().add(parseNegation(column));
+        }
+        return and;
+    }
+
+    private WhereClause parseNegation(Supplier<String> column) {
+        if (match(TokenType.NOT)) {
+            consume(TokenType.NOT);
+            NotCondition not = new NotCondition();
+            not.setOperand(parseNegation(column));
+            return not;
+        }
+        if (match(TokenType.LEFT_PAREN)) {
+            consume(TokenType.LEFT_PAREN);
+            WhereClause condition = parseCondition(column);
+            consume(TokenType.RIGHT_PAREN);
+            return condition;
+        }
+        return parsePredicate(column);
     }
 
-    private WhereClause parseWhereCondition() {
-        WhereClause clause = new WhereClause();
-        clause.setLeftColumn(consume(TokenType.IDENTIFIER).getValue());
-        clause.setOperator(parseOperator());
+    private WhereClause parsePredicate(Supplier<String> column) {
+        String name = column.get();
+        
+        if (match(TokenType.IS)) {
+            consume(TokenType.IS);
+            IsNullCondition isNull = new IsNullCondition();
+            isNull.setColumn(name);
+            if (match(TokenType.NOT)) {
+                consume(TokenType.NOT);
+                isNull.setNegated(true);
+            }
+            consume(TokenType.NULL);
+            return isNull;
+        }
         
-        if (match(TokenType.IDENTIFIER)) {
-            clause.setRightColumn(consume(TokenType.IDENTIFIER).getValue());
-        } else {
-            clause.setRightValue(parseValue());
+        boolean negated = false;
+        if (match(TokenType.NOT)) {
+            consume(TokenType.NOT);
+            negated = true;
         }
         
-        if (match(TokenType.AND) || match(TokenType.OR)) {
-            if (match(TokenType.AND)) {
-                consume(TokenType.AND);
-                clause.setLogicalOperator(WhereClause.LogicalOperator.AND);
-            } else {
-                consume(TokenType.OR);
-                clause.setLogicalOperator(WhereClause.LogicalOperator.OR);
+        if (match(TokenType.IN)) {
+            consume(TokenType.IN);
+            InCondition in = new InCondition();
+            in.setColumn(name);
+            in.setNegated(negated);
+            consume(TokenType.LEFT_PAREN);
+            List<Object> values = new ArrayList<>();
+            values.add(parseValue());
+            while (match(TokenType.COMMA)) {
+                consume(TokenType.COMMA);
+                values.add(parseValue());
             }
-            clause.setNextCondition(parseWhereCondition());
+            consume(TokenType.RIGHT_PAREN);
+            in.setValues(values);
+            return in;
+        } else if (match(TokenType.BETWEEN)) {
+            consume(TokenType.BETWEEN);
+            BetweenCondition between = new BetweenCondition();
+            between.setColumn(name);
+            between.setNegated(negated);
+            between.setLower(parseValue());
+            consume(TokenType.AND);
+            between.setUpper(parseValue());
+            return between;
+        } else if (match(TokenType.LIKE)) {
+            consume(TokenType.LIKE);
+            LikeCondition like = new LikeCondition();
+            like.setColumn(name);
+            like.setNegated(negated);
+            like.setPattern(parseValue());
+            return like;
+        } else if (negated) {
+            throw new RuntimeException("Expected IN, BETWEEN or LIKE after NOT");
         }
         
-        return clause;
+        Comparison comparison = new Comparison();
+        comparison.setLeftColumn(name);
+        comparison.setOperator(parseOperator());
+        if (match(TokenType.IDENTIFIER)) {
+            comparison.setRightColumn(column.get());
+        } else {
+            comparison.setRightValue(parseValue());
+        }
+        return comparison;
     }
 
     private JoinClause parseJoin() {
@@ -380,6 +629,9 @@ public class SQLParser {
         } else if (match(TokenType.NULL)) {
             consume(TokenType.NULL);
             return null;
+        } else if (match(TokenType.PARAMETER)) {
+            consume(TokenType.PARAMETER);
+            return new Parameter(parameterCount++);
         }
         throw new RuntimeException("Expected value");
     }
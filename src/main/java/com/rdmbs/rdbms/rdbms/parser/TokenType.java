@@ -4,6 +4,8 @@ public enum TokenType {
     // Keywords
     SELECT, INSERT, UPDATE, DELETE, CREATE, DROP, TABLE, FROM, WHERE, INTO, VALUES,
     SET, AND, OR, PRIMARY, KEY, UNIQUE, NOT, NULL, INDEX, JOIN, ON, INNER, LEFT, RIGHT,
+    LIMIT, OFFSET, ORDER, BY, ASC, DESC, GROUP, HAVING, PREPARE, EXECUTE, DEALLOCATE, AS,
+    BEGIN, COMMIT, ROLLBACK, TRANSACTION, IN, BETWEEN, LIKE, IS,
     
     // Operators
     EQUALS, NOT_EQUALS, LESS_THAN, GREATER_THAN, LESS_EQUAL, GREATER_EQUAL,
@@ -12,7 +14,7 @@ public enum TokenType {
     IDENTIFIER, STRING_LITERAL, NUMBER,
     
     // Symbols
-    COMMA, SEMICOLON, LEFT_PAREN, RIGHT_PAREN, ASTERISK,
+    COMMA, SEMICOLON, LEFT_PAREN, RIGHT_PAREN, ASTERISK, PARAMETER,
     
     // Special
     EOF, UNKNOWN
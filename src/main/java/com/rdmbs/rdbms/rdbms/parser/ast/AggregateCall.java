@@ -0,0 +1,23 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+
+/** An aggregate function call such as COUNT(*) or SUM(price). */
+@Data
+public class AggregateCall {
+    private Function function;
+    private String column;
+
+    public enum Function {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    public boolean isCountStar() {
+        return column == null;
+    }
+
+    /** The name of the result column, e.g. COUNT(*) or SUM(price). */
+    public String getName() {
+        return function + "(" + (column == null ? "*" : column) + ")";
+    }
+}
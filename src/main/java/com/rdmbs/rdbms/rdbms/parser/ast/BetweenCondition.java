@@ -0,0 +1,26 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+
+/** {@code column [NOT] BETWEEN lower AND upper}, both bounds inclusive. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class BetweenCondition extends WhereClause {
+    private String column;
+    private Object lower;
+    private Object upper;
+    private boolean negated;
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.BETWEEN;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        columns.add(column);
+    }
+}
@@ -0,0 +1,8 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+public class CommitStatement extends Statement {
+    @Override
+    public StatementType getType() {
+        return StatementType.COMMIT;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+
+/** A column compared with a literal or with another column. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class Comparison extends WhereClause {
+    private String leftColumn;
+    private Operator operator;
+    private Object rightValue;
+    private String rightColumn;
+
+    public boolean isColumnComparison() {
+        return rightColumn != null;
+    }
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.COMPARISON;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        columns.add(leftColumn);
+        if (rightColumn != null) {
+            columns.add(rightColumn);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class DeallocateStatement extends Statement {
+    private String name;
+
+    @Override
+    public StatementType getType() {
+        return StatementType.DEALLOCATE;
+    }
+}
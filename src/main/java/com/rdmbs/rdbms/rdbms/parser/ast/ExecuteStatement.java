@@ -0,0 +1,19 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import java.util.ArrayList;
+import java.util.List;
+
+/** EXECUTE name (values): runs a prepared statement with its placeholders bound in order. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class ExecuteStatement extends Statement {
+    private String name;
+    private List<Object> parameters = new ArrayList<>();
+
+    @Override
+    public StatementType getType() {
+        return StatementType.EXECUTE;
+    }
+}
@@ -0,0 +1,26 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+import java.util.List;
+
+/** {@code column [NOT] IN (value, ...)}. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class InCondition extends WhereClause {
+    private String column;
+    private List<Object> values;
+    private boolean negated;
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.IN;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        columns.add(column);
+    }
+}
@@ -9,7 +9,8 @@ import java.util.List;
 public class InsertStatement extends Statement {
     private String tableName;
     private List<String> columns;
-    private List<Object> values;
+    /** One list of values per VALUES tuple. */
+    private List<List<Object>> rows;
 
     @Override
     public StatementType getType() {
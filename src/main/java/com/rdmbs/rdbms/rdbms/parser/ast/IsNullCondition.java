@@ -0,0 +1,24 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+
+/** {@code column IS [NOT] NULL}. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class IsNullCondition extends WhereClause {
+    private String column;
+    private boolean negated;
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.IS_NULL;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        columns.add(column);
+    }
+}
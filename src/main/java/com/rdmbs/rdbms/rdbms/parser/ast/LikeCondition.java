@@ -0,0 +1,25 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+
+/** {@code column [NOT] LIKE pattern}, where % matches any run of characters and _ any one character. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class LikeCondition extends WhereClause {
+    private String column;
+    private Object pattern;
+    private boolean negated;
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.LIKE;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        columns.add(column);
+    }
+}
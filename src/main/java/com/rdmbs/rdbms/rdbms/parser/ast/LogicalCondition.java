@@ -0,0 +1,33 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/** Two or more conditions joined by AND or by OR. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class LogicalCondition extends WhereClause {
+    private LogicalOperator operator;
+    private List<WhereClause> operands = new ArrayList<>();
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.LOGICAL;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        for (WhereClause operand : operands) {
+            operand.collectColumns(columns);
+        }
+    }
+
+    @Override
+    public List<WhereClause> conjuncts() {
+        return operator == LogicalOperator.AND ? operands : List.of(this);
+    }
+}
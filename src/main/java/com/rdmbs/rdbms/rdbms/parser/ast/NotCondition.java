@@ -0,0 +1,22 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.Collection;
+
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class NotCondition extends WhereClause {
+    private WhereClause operand;
+
+    @Override
+    public ConditionType getType() {
+        return ConditionType.NOT;
+    }
+
+    @Override
+    public void collectColumns(Collection<String> columns) {
+        operand.collectColumns(columns);
+    }
+}
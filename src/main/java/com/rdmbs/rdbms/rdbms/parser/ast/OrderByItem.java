@@ -0,0 +1,9 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+
+@Data
+public class OrderByItem {
+    private String column;
+    private boolean descending;
+}
@@ -0,0 +1,10 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+
+/** A {@code ?} placeholder in a statement, replaced by a bound value when the statement runs. */
+@Data
+public class Parameter {
+    /** Zero-based position among the statement's placeholders. */
+    private final int index;
+}
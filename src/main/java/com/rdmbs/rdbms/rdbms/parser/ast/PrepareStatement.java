@@ -0,0 +1,18 @@
+package com.rdmbs.rdbms.rdbms.parser.ast;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/** PREPARE name AS statement: parses a statement once so it can be run many times with EXECUTE. */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class PrepareStatement extends Statement {
+    private String name;
+    private Statement statement;
+    private int parameterCount;
+
+    @Override
+    public StatementType getType() {
+        return StatementType.PREPARE;
+    }
+}
@@ -2,6 +2,7 @@ package com.rdmbs.rdbms.rdbms.parser.ast;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -11,6 +12,12 @@ public class SelectStatement extends Statement {
     private String tableName;
     private WhereClause whereClause;
     private JoinClause joinClause;
+    private List<AggregateCall> aggregates = new ArrayList<>();
+    private List<String> groupBy;
+    private WhereClause having;
+    private List<OrderByItem> orderBy;
+    private Integer limit;
+    private Integer offset;
 
     @Override
     public StatementType getType() {
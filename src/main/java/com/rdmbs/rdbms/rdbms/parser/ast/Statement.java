@@ -10,6 +10,12 @@ public abstract class Statement {
         SELECT,
         UPDATE,
         DELETE,
-        CREATE_INDEX
+        CREATE_INDEX,
+        PREPARE,
+        EXECUTE,
+        DEALLOCATE,
+        BEGIN,
+        COMMIT,
+        ROLLBACK
     }
 }
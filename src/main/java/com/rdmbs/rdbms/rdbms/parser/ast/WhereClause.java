@@ -1,15 +1,33 @@
 package com.rdmbs.rdbms.rdbms.parser.ast;
 
-import lombok.Data;
+import java.util.Collection;
+import java.util.List;
 
-@Data
-public class WhereClause {
-    private String leftColumn;
-    private Operator operator;
-    private Object rightValue;
-    private String rightColumn;
-    private LogicalOperator logicalOperator;
-    private WhereClause nextCondition;
+/**
+ * A node of a boolean condition tree, as written in WHERE and HAVING. Leaves
+ * test columns: comparisons, IN, BETWEEN, LIKE and IS NULL. Inner nodes
+ * combine them with AND, OR and NOT.
+ */
+public abstract class WhereClause {
+    public abstract ConditionType getType();
+
+    /** Adds the names of the columns the condition reads. */
+    public abstract void collectColumns(Collection<String> columns);
+
+    /** The conditions AND-ed at the top of the tree, which each matching row satisfies. */
+    public List<WhereClause> conjuncts() {
+        return List.of(this);
+    }
+
+    public enum ConditionType {
+        COMPARISON,
+        LOGICAL,
+        NOT,
+        IN,
+        BETWEEN,
+        LIKE,
+        IS_NULL
+    }
 
     public enum Operator {
         EQUALS, NOT_EQUALS, LESS_THAN, GREATER_THAN, LESS_EQUAL, GREATER_EQUAL
@@ -18,8 +36,4 @@ public class WhereClause {
     public enum LogicalOperator {
         AND, OR
     }
-
-    public boolean isColumnComparison() {
-        return rightColumn != null;
-    }
 }
@@ -2,6 +2,7 @@ package com.rdmbs.rdbms.rdbms.repl;
 
 import com.rdmbs.rdbms.rdbms.engine.QueryEngine;
 import com.rdmbs.rdbms.rdbms.engine.QueryResult;
+import com.rdmbs.rdbms.rdbms.engine.Session;
 import com.rdmbs.rdbms.rdbms.index.IndexManager;
 import com.rdmbs.rdbms.rdbms.schema.Schema;
 import com.rdmbs.rdbms.rdbms.schema.SchemaManager;
@@ -10,10 +11,12 @@ import com.rdmbs.rdbms.rdbms.schema.Column;
 import com.rdmbs.rdbms.rdbms.storage.Row;
 import com.rdmbs.rdbms.rdbms.storage.TableStorage;
 
+import java.util.List;
 import java.util.Scanner;
 
 public class DatabaseREPL {
     private final QueryEngine queryEngine;
+    private final Session session;
     private final Scanner scanner;
     private final Schema schema;
     private final TableStorage storage;
@@ -32,7 +35,9 @@ public class DatabaseREPL {
         this.schema = loadedSchema;
         this.storage = new TableStorage();
         IndexManager indexManager = new IndexManager();
+        indexManager.loadIndexes(schema);
         this.queryEngine = new QueryEngine(schema, storage, indexManager);
+        this.session = queryEngine.openSession();
         this.scanner = new Scanner(System.in);
     }
 
@@ -40,7 +45,7 @@ public class DatabaseREPL {
         printWelcome();
         
         while (true) {
-            System.out.print("duka> ");
+            System.out.print(session.inTransaction() ? "duka*> " : "duka> ");
             String input = scanner.nextLine().trim();
             
             if (input.isEmpty()) {
@@ -80,23 +85,34 @@ public class DatabaseREPL {
         }
         
         scanner.close();
+        try {
+            session.close();
+            queryEngine.close();
+        } catch (Exception e) {
+            System.out.println("✗ Error closing database: " + e.getMessage());
+        }
     }
 
     private void executeQuery(String sql) {
         long startTime = System.currentTimeMillis();
         
-        QueryResult result = queryEngine.execute(sql);
-        
-        long endTime = System.currentTimeMillis();
-        long duration = endTime - startTime;
+        QueryResult result = session.execute(sql);
         
         if (result.isSuccess()) {
-            if (result.getRows() != null && !result.getRows().isEmpty()) {
-                printResultSet(result);
-            } else {
-                System.out.println("✓ " + result.getMessage());
+            try {
+                // Reading the rows runs the query, so it belongs inside the timing
+                List<Row> rows = result.getRows();
+                long duration = System.currentTimeMillis() - startTime;
+                
+                if (rows != null && !rows.isEmpty()) {
+                    printResultSet(result);
+                } else {
+                    System.out.println("✓ " + result.getMessage());
+                }
+                System.out.println("(" + duration + " ms)");
+            } catch (RuntimeException e) {
+                System.out.println("✗ Execution error: " + e.getMessage());
             }
-            System.out.println("(" + duration + " ms)");
         } else {
             System.out.println("✗ " + result.getMessage());
         }
@@ -194,6 +210,10 @@ public class DatabaseREPL {
         System.out.println("  UPDATE <table> SET ...           - Update data");
         System.out.println("  DELETE FROM <table>              - Delete data");
         System.out.println("  CREATE INDEX <name> ON <table>   - Create index");
+        System.out.println("  PREPARE <name> AS <statement>    - Prepare a statement with ? placeholders");
+        System.out.println("  EXECUTE <name> (<values>)        - Run a prepared statement");
+        System.out.println("  DEALLOCATE <name>                - Discard a prepared statement");
+        System.out.println("  BEGIN / COMMIT / ROLLBACK        - Group statements into a transaction");
         System.out.println();
         System.out.println("=== Meta Commands ===");
         System.out.println("  SHOW TABLES        - List all tables");
@@ -7,7 +7,8 @@ public enum DataType {
     BOOLEAN(1),
     DATE(8),        // milliseconds since epoch
     DATETIME(8),    // milliseconds since epoch
-    TIMESTAMP(8);   // milliseconds since epoch
+    TIMESTAMP(8),   // milliseconds since epoch
+    DOUBLE(8);
 
     private final int defaultSize;
 
@@ -30,4 +31,32 @@ public enum DataType {
     public boolean isDateType() {
         return this == DATE || this == DATETIME || this == TIMESTAMP;
     }
+
+    /** Converts a parsed literal to the Java type stored for this data type. */
+    public Object convert(Object value) {
+        if (value == null) return null;
+        
+        switch (this) {
+            case INT:
+                if (value instanceof Integer) return value;
+                return Integer.parseInt(value.toString());
+            case LONG:
+            case DATE:
+            case DATETIME:
+            case TIMESTAMP:
+                if (value instanceof Long) return value;
+                return Long.parseLong(value.toString());
+            case BOOLEAN:
+                if (value instanceof Boolean) return value;
+                return Boolean.parseBoolean(value.toString());
+            case DOUBLE:
+                if (value instanceof Double) return value;
+                if (value instanceof Number) return ((Number) value).doubleValue();
+                return Double.parseDouble(value.toString());
+            case VARCHAR:
+                return value.toString();
+            default:
+                return value;
+        }
+    }
 }
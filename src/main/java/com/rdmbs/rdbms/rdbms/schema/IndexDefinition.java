@@ -0,0 +1,11 @@
+package com.rdmbs.rdbms.rdbms.schema;
+
+import lombok.Data;
+
+@Data
+public class IndexDefinition {
+    private final String indexName;
+    private final String tableName;
+    private final String columnName;
+    private final boolean unique;
+}
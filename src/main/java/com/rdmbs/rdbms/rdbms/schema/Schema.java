@@ -1,15 +1,23 @@
 package com.rdmbs.rdbms.rdbms.schema;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The tables and index definitions of the database. Table lookups are safe
+ * from any thread; changes are made by DDL, which the query engine runs while
+ * holding its schema lock exclusively.
+ */
 public class Schema {
     private final Map<String, Table> tables;
+    private final Map<String, IndexDefinition> indexes;
 
     public Schema() {
-        this.tables = new HashMap<>();
+        this.tables = new ConcurrentHashMap<>();
+        this.indexes = new LinkedHashMap<>();
     }
 
     public void addTable(Table table) {
@@ -26,9 +34,22 @@ public class Schema {
 
     public void dropTable(String tableName) {
         tables.remove(tableName.toLowerCase());
+        indexes.values().removeIf(index -> index.getTableName().equalsIgnoreCase(tableName));
     }
 
     public Collection<Table> getAllTables() {
         return tables.values();
     }
+
+    public void addIndex(IndexDefinition index) {
+        indexes.put(index.getIndexName(), index);
+    }
+
+    public void dropIndex(String indexName) {
+        indexes.remove(indexName);
+    }
+
+    public Collection<IndexDefinition> getAllIndexes() {
+        return indexes.values();
+    }
 }
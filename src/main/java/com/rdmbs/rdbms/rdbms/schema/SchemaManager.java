@@ -6,10 +6,20 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class SchemaManager {
-    private static final String SCHEMA_FILE = "data/schema.meta";
+    private static final String SCHEMA_FILE = "schema.meta";
+
+    private final String dataDirectory;
+
+    public SchemaManager() {
+        this("data");
+    }
+
+    public SchemaManager(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
 
     public void saveSchema(Schema schema) throws IOException {
-        Path schemaPath = Paths.get(SCHEMA_FILE);
+        Path schemaPath = Paths.get(dataDirectory, SCHEMA_FILE);
         Files.createDirectories(schemaPath.getParent());
 
         try (ObjectOutputStream oos = new ObjectOutputStream(
@@ -19,12 +29,18 @@ public class SchemaManager {
             for (Table table : schema.getAllTables()) {
                 writeTable(oos, table);
             }
+            
+            oos.writeInt(schema.getAllIndexes().size());
+            
+            for (IndexDefinition index : schema.getAllIndexes()) {
+                writeIndex(oos, index);
+            }
         }
     }
 
     public Schema loadSchema() throws IOException {
         Schema schema = new Schema();
-        Path schemaPath = Paths.get(SCHEMA_FILE);
+        Path schemaPath = Paths.get(dataDirectory, SCHEMA_FILE);
         
         if (!Files.exists(schemaPath)) {
             return schema; // Return empty schema if file doesn't exist
@@ -38,6 +54,18 @@ public class SchemaManager {
                 Table table = readTable(ois);
                 schema.addTable(table);
             }
+            
+            // Schema files written before indexes were persisted end here
+            int indexCount;
+            try {
+                indexCount = ois.readInt();
+            } catch (EOFException e) {
+                indexCount = 0;
+            }
+            
+            for (int i = 0; i < indexCount; i++) {
+                schema.addIndex(readIndex(ois));
+            }
         }
         
         return schema;
@@ -57,6 +85,21 @@ public class SchemaManager {
         }
     }
 
+    private void writeIndex(ObjectOutputStream oos, IndexDefinition index) throws IOException {
+        oos.writeUTF(index.getIndexName());
+        oos.writeUTF(index.getTableName());
+        oos.writeUTF(index.getColumnName());
+        oos.writeBoolean(index.isUnique());
+    }
+
+    private IndexDefinition readIndex(ObjectInputStream ois) throws IOException {
+        String indexName = ois.readUTF();
+        String tableName = ois.readUTF();
+        String columnName = ois.readUTF();
+        boolean unique = ois.readBoolean();
+        return new IndexDefinition(indexName, tableName, columnName, unique);
+    }
+
     private Table readTable(ObjectInputStream ois) throws IOException {
         String tableName = ois.readUTF();
         Table table = new Table(tableName);
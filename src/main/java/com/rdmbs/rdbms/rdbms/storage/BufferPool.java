@@ -0,0 +1,353 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A fixed number of page-sized frames shared by every open {@link PageFile},
+ * so pages of hot tables and indexes are served from memory instead of the
+ * file. The number of frames is {@code rdbms.bufferPool.bytes} (64MB by
+ * default) divided by the page size; frames are allocated as they are first
+ * needed, so the pool only grows to that size under load.
+ *
+ * A frame can be pinned while a caller reads it in place; pinned frames are
+ * never evicted. Others are evicted with the CLOCK algorithm: a hand sweeps
+ * the frames, clearing each one's referenced bit and taking the first frame
+ * found with the bit already clear, so a page read since the hand last passed
+ * gets a second chance.
+ *
+ * Page writes land in a frame and mark it dirty; the file is only written
+ * when a dirty frame is evicted or its file is flushed, which
+ * {@link PageFile#force()} does before forcing the file. When every frame is
+ * pinned, reads and writes simply bypass the pool.
+ *
+ * One lock guards the frames and the page table. Misses read the file
+ * outside it; the caller's file lock keeps the page from being written
+ * meanwhile.
+ */
+public class BufferPool {
+    private static final long DEFAULT_POOL_BYTES = 64L * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(
+            (int) Math.max(1, Long.getLong("rdbms.bufferPool.bytes", DEFAULT_POOL_BYTES) / Page.PAGE_SIZE));
+
+    private final Frame[] frames;
+    private final Map<PageFile, Map<Integer, Frame>> pageTable = new HashMap<>();
+    private int allocated;
+    private int hand;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BufferPool(int capacity) {
+        this.frames = new Frame[capacity];
+    }
+
+    /** The pool every page file uses. */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    public synchronized int getSize() {
+        return allocated;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getDirtyCount() {
+        int dirty = 0;
+        for (int i = 0; i < allocated; i++) {
+            if (frames[i].dirty) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    /** Copies a page out of the pool, reading it from the file on a miss. */
+    Page read(PageFile file, int pageId) throws IOException {
+        synchronized (this) {
+            Frame frame = lookup(file, pageId);
+            if (frame != null) {
+                hits++;
+                return new Page(pageId, copyOf(frame.data));
+            }
+            misses++;
+        }
+        ByteBuffer buffer = file.readFromDisk(pageId);
+        synchronized (this) {
+            Frame frame = lookup(file, pageId);
+            if (frame == null) {
+                frame = install(file, pageId);
+                if (frame != null) {
+                    frame.data.clear();
+                    frame.data.put(buffer.duplicate().clear());
+                }
+            }
+        }
+        return new Page(pageId, buffer);
+    }
+
+    /**
+     * Pins a page and returns a view of its frame, for a caller that only
+     * reads it and calls {@link #unpin} when done. Returns an unpinned copy
+     * if no frame can be freed for it.
+     */
+    Page pin(PageFile file, int pageId) throws IOException {
+        synchronized (this) {
+            Frame frame = lookup(file, pageId);
+            if (frame != null) {
+                hits++;
+                return pinned(frame);
+            }
+            misses++;
+        }
+        ByteBuffer buffer = file.readFromDisk(pageId);
+        synchronized (this) {
+            Frame frame = lookup(file, pageId);
+            if (frame == null) {
+                frame = install(file, pageId);
+                if (frame == null) {
+                    return new Page(pageId, buffer);
+                }
+                frame.data.clear();
+                frame.data.put(buffer.duplicate().clear());
+            }
+            return pinned(frame);
+        }
+    }
+
+    /**
+     * Reads the pages of a run that are not cached yet, from the first one on
+     * up to the first one that is, with a single read of the file. They come
+     * in unreferenced, so pages a scan passes over once are the first evicted.
+     */
+    void prefetch(PageFile file, int firstPageId, int count) throws IOException {
+        // A run never takes more than a quarter of the pool from pages in use
+        count = Math.min(count, frames.length / 4);
+        int run = 0;
+        synchronized (this) {
+            while (run < count && lookup(file, firstPageId + run, false) == null) {
+                run++;
+            }
+            misses += run;
+        }
+        if (run == 0) {
+            return;
+        }
+        ByteBuffer buffer = file.readFromDisk(firstPageId, run);
+        synchronized (this) {
+            for (int i = 0; i < run; i++) {
+                int pageId = firstPageId + i;
+                if (lookup(file, pageId, false) != null) {
+                    continue;
+                }
+                Frame frame = install(file, pageId);
+                if (frame == null) {
+                    return;
+                }
+                frame.referenced = false;
+                frame.data.clear();
+                frame.data.put(buffer.slice(i * Page.PAGE_SIZE, Page.PAGE_SIZE));
+            }
+        }
+    }
+
+    synchronized void unpin(Page page) {
+        Frame frame = page.getFrame();
+        if (frame != null) {
+            frame.pinCount--;
+            page.setFrame(null);
+        }
+    }
+
+    /**
+     * Copies a page into the pool and marks it dirty. Returns false if no
+     * frame could be freed for it, in which case the caller writes it itself.
+     */
+    synchronized boolean write(PageFile file, Page page) throws IOException {
+        Frame frame = lookup(file, page.getPageId());
+        if (frame == null) {
+            frame = install(file, page.getPageId());
+            if (frame == null) {
+                return false;
+            }
+        }
+        frame.data.clear();
+        frame.data.put(page.getBuffer().duplicate().clear());
+        frame.dirty = true;
+        return true;
+    }
+
+    /** Refreshes the cached copies of pages just written straight to the file. */
+    synchronized void written(PageFile file, List<Page> pages) {
+        Map<Integer, Frame> cached = pageTable.get(file);
+        if (cached == null) {
+            return;
+        }
+        for (Page page : pages) {
+            Frame frame = cached.get(page.getPageId());
+            if (frame != null) {
+                frame.data.clear();
+                frame.data.put(page.getBuffer().duplicate().clear());
+                frame.dirty = false;
+            }
+        }
+    }
+
+    /** Writes a file's dirty frames to it, one positioned write per run of consecutive pages. */
+    synchronized void flush(PageFile file) throws IOException {
+        Map<Integer, Frame> cached = pageTable.get(file);
+        if (cached == null) {
+            return;
+        }
+        TreeMap<Integer, Frame> dirty = new TreeMap<>();
+        for (Frame frame : cached.values()) {
+            if (frame.dirty) {
+                dirty.put(frame.pageId, frame);
+            }
+        }
+
+        List<Page> run = new ArrayList<>();
+        for (Frame frame : dirty.values()) {
+            if (!run.isEmpty() && run.get(run.size() - 1).getPageId() + 1 != frame.pageId) {
+                file.writeRun(run);
+                run.clear();
+            }
+            run.add(new Page(frame.pageId, frame.data.duplicate()));
+        }
+        file.writeRun(run);
+        for (Frame frame : dirty.values()) {
+            frame.dirty = false;
+        }
+    }
+
+    /** Drops a file's cached pages from {@code fromPageId} on, dirty or not. */
+    synchronized void invalidate(PageFile file, int fromPageId) {
+        Map<Integer, Frame> cached = pageTable.get(file);
+        if (cached == null) {
+            return;
+        }
+        cached.values().removeIf(frame -> {
+            if (frame.pageId < fromPageId) {
+                return false;
+            }
+            frame.file = null;
+            frame.dirty = false;
+            frame.referenced = false;
+            return true;
+        });
+        if (cached.isEmpty()) {
+            pageTable.remove(file);
+        }
+    }
+
+    private Frame lookup(PageFile file, int pageId) {
+        return lookup(file, pageId, true);
+    }
+
+    private Frame lookup(PageFile file, int pageId, boolean reference) {
+        Map<Integer, Frame> cached = pageTable.get(file);
+        Frame frame = cached == null ? null : cached.get(pageId);
+        if (frame != null && reference) {
+            frame.referenced = true;
+        }
+        return frame;
+    }
+
+    private Page pinned(Frame frame) {
+        frame.pinCount++;
+        Page page = new Page(frame.pageId, frame.data.duplicate().clear());
+        page.setFrame(frame);
+        return page;
+    }
+
+    /** Assigns a free or evicted frame to a page, or returns null if every frame is pinned. */
+    private Frame install(PageFile file, int pageId) throws IOException {
+        Frame frame = freeFrame();
+        if (frame == null) {
+            return null;
+        }
+        frame.file = file;
+        frame.pageId = pageId;
+        frame.referenced = true;
+        pageTable.computeIfAbsent(file, key -> new HashMap<>()).put(pageId, frame);
+        return frame;
+    }
+
+    private Frame freeFrame() throws IOException {
+        if (allocated < frames.length) {
+            Frame frame = new Frame();
+            frames[allocated++] = frame;
+            return frame;
+        }
+        // Two full sweeps clear every referenced bit, so an unpinned frame turns up by then
+        for (int step = 0; step < 2 * frames.length; step++) {
+            Frame frame = frames[hand];
+            hand = (hand + 1) % frames.length;
+            if (frame.pinCount > 0) {
+                continue;
+            }
+            if (frame.file == null) {
+                return frame;
+            }
+            if (frame.referenced) {
+                frame.referenced = false;
+                continue;
+            }
+            evict(frame);
+            return frame;
+        }
+        return null;
+    }
+
+    private void evict(Frame frame) throws IOException {
+        if (frame.dirty) {
+            frame.file.writeRun(List.of(new Page(frame.pageId, frame.data.duplicate())));
+            frame.dirty = false;
+        }
+        Map<Integer, Frame> cached = pageTable.get(frame.file);
+        cached.remove(frame.pageId);
+        if (cached.isEmpty()) {
+            pageTable.remove(frame.file);
+        }
+        frame.file = null;
+        evictions++;
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer data) {
+        ByteBuffer copy = ByteBuffer.allocate(Page.PAGE_SIZE);
+        copy.put(data.duplicate().clear());
+        copy.clear();
+        return copy;
+    }
+
+    /** A page-sized buffer and the page it currently holds, if any. */
+    static final class Frame {
+        private final ByteBuffer data = ByteBuffer.allocate(Page.PAGE_SIZE);
+        private PageFile file;
+        private int pageId;
+        private int pinCount;
+        private boolean referenced;
+        private boolean dirty;
+    }
+}
@@ -0,0 +1,221 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One column of a {@link RowBatch}, held in a primitive array of its type so
+ * that values are never boxed: INT in an int[], LONG and the date types in a
+ * long[], DOUBLE in a double[] and BOOLEAN in a boolean[]. VARCHAR values are
+ * dictionary-encoded: each row holds a code into the batch's distinct
+ * strings, so a value repeated across the batch is stored, and can be
+ * compared, once. The dictionary is looked up by the value's encoded bytes,
+ * so a String is only built the first time a batch sees a value. Null rows
+ * are flagged separately and hold no value.
+ */
+public class ColumnVector {
+    private final DataType type;
+    private int size;
+    private boolean[] nulls;
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+    private boolean[] booleans;
+    private int[] codes;
+    private List<String> dictionary;
+    /** The UTF-8 bytes of each dictionary entry, by code. */
+    private List<byte[]> dictionaryBytes;
+    /** Open-addressing hash table over dictionaryBytes, holding code + 1 per slot and 0 in empty ones. */
+    private int[] dictionarySlots;
+    private byte[] stringBytes;
+
+    public ColumnVector(DataType type, int capacity) {
+        this.type = type;
+        this.nulls = new boolean[capacity];
+        switch (type) {
+            case INT:
+                ints = new int[capacity];
+                break;
+            case DOUBLE:
+                doubles = new double[capacity];
+                break;
+            case BOOLEAN:
+                booleans = new boolean[capacity];
+                break;
+            case VARCHAR:
+                codes = new int[capacity];
+                dictionary = new ArrayList<>();
+                dictionaryBytes = new ArrayList<>();
+                dictionarySlots = new int[64];
+                stringBytes = new byte[64];
+                break;
+            default:
+                longs = new long[capacity];
+        }
+    }
+
+    public DataType getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return nulls[row];
+    }
+
+    public int getInt(int row) {
+        return ints[row];
+    }
+
+    public long getLong(int row) {
+        return longs[row];
+    }
+
+    public double getDouble(int row) {
+        return doubles[row];
+    }
+
+    public boolean getBoolean(int row) {
+        return booleans[row];
+    }
+
+    /** The dictionary code of a VARCHAR row. */
+    public int getCode(int row) {
+        return codes[row];
+    }
+
+    /** The distinct VARCHAR values of the batch, indexed by code. */
+    public List<String> getDictionary() {
+        return dictionary;
+    }
+
+    public String getString(int row) {
+        return dictionary.get(codes[row]);
+    }
+
+    /** The value of a row as a Row would hold it: boxed, or null. */
+    public Object get(int row) {
+        if (nulls[row]) {
+            return null;
+        }
+        switch (type) {
+            case INT:
+                return ints[row];
+            case DOUBLE:
+                return doubles[row];
+            case BOOLEAN:
+                return booleans[row];
+            case VARCHAR:
+                return dictionary.get(codes[row]);
+            default:
+                return longs[row];
+        }
+    }
+
+    public void appendNull() {
+        ensureCapacity();
+        nulls[size++] = true;
+    }
+
+    public void appendInt(int value) {
+        ensureCapacity();
+        ints[size++] = value;
+    }
+
+    public void appendLong(long value) {
+        ensureCapacity();
+        longs[size++] = value;
+    }
+
+    public void appendDouble(double value) {
+        ensureCapacity();
+        doubles[size++] = value;
+    }
+
+    public void appendBoolean(boolean value) {
+        ensureCapacity();
+        booleans[size++] = value;
+    }
+
+    /** Appends a UTF-8 string read from the buffer, reusing its dictionary code if the batch has seen it. */
+    public void appendString(ByteBuffer buffer, int offset, int length) {
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+        }
+        buffer.get(offset, stringBytes, 0, length);
+
+        // Arrays.hashCode of the value, computed over the scratch buffer
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + stringBytes[i];
+        }
+        int mask = dictionarySlots.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        int code = -1;
+        while (dictionarySlots[slot] != 0) {
+            byte[] candidate = dictionaryBytes.get(dictionarySlots[slot] - 1);
+            if (Arrays.equals(candidate, 0, candidate.length, stringBytes, 0, length)) {
+                code = dictionarySlots[slot] - 1;
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (code < 0) {
+            code = dictionary.size();
+            byte[] bytes = Arrays.copyOf(stringBytes, length);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+            dictionaryBytes.add(bytes);
+            dictionarySlots[slot] = code + 1;
+            if (dictionary.size() * 2 > dictionarySlots.length) {
+                rehash(dictionarySlots.length * 2);
+            }
+        }
+        ensureCapacity();
+        codes[size++] = code;
+    }
+
+    /** Empties the vector for reuse, keeping its arrays. */
+    public void clear() {
+        Arrays.fill(nulls, 0, size, false);
+        size = 0;
+        if (dictionary != null) {
+            dictionary.clear();
+            dictionaryBytes.clear();
+            Arrays.fill(dictionarySlots, 0);
+        }
+    }
+
+    private void rehash(int capacity) {
+        dictionarySlots = new int[capacity];
+        int mask = capacity - 1;
+        for (int code = 0; code < dictionaryBytes.size(); code++) {
+            int hash = Arrays.hashCode(dictionaryBytes.get(code));
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (dictionarySlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            dictionarySlots[slot] = code + 1;
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size < nulls.length) {
+            return;
+        }
+        int capacity = Math.max(16, nulls.length * 2);
+        nulls = Arrays.copyOf(nulls, capacity);
+        if (ints != null) ints = Arrays.copyOf(ints, capacity);
+        if (longs != null) longs = Arrays.copyOf(longs, capacity);
+        if (doubles != null) doubles = Arrays.copyOf(doubles, capacity);
+        if (booleans != null) booleans = Arrays.copyOf(booleans, capacity);
+        if (codes != null) codes = Arrays.copyOf(codes, capacity);
+    }
+}
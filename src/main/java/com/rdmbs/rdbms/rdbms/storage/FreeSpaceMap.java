@@ -0,0 +1,62 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import java.util.*;
+
+/**
+ * Per-table bookkeeping of where space can be found. Deletes and updates mark
+ * pages as fragmented; the compactor later defragments them and records pages
+ * with enough room so that inserts can reuse it.
+ */
+public class FreeSpaceMap {
+    /** Pages with less free space than this are not worth offering to inserts. */
+    static final int MIN_USEFUL_SPACE = Page.PAGE_SIZE / 4;
+
+    private final Set<Integer> fragmentedPages;
+    private final TreeMap<Integer, Integer> freeSpace;
+
+    public FreeSpaceMap() {
+        this.fragmentedPages = new HashSet<>();
+        this.freeSpace = new TreeMap<>();
+    }
+
+    public synchronized void markFragmented(int pageId) {
+        fragmentedPages.add(pageId);
+    }
+
+    /** Returns and clears the pages that have accumulated garbage since the last call. */
+    public synchronized List<Integer> drainFragmented() {
+        List<Integer> pages = new ArrayList<>(fragmentedPages);
+        fragmentedPages.clear();
+        Collections.sort(pages);
+        return pages;
+    }
+
+    public synchronized void recordFreeSpace(int pageId, int bytes) {
+        if (bytes >= MIN_USEFUL_SPACE) {
+            freeSpace.put(pageId, bytes);
+        } else {
+            freeSpace.remove(pageId);
+        }
+    }
+
+    /** Returns a page believed to have at least {@code bytes} free, or -1. */
+    public synchronized int findPage(int bytes, int excludePageId) {
+        for (Map.Entry<Integer, Integer> entry : freeSpace.entrySet()) {
+            if (entry.getValue() >= bytes && entry.getKey() != excludePageId) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    public synchronized void forgetPage(int pageId) {
+        freeSpace.remove(pageId);
+        fragmentedPages.remove(pageId);
+    }
+
+    /** Forgets every page numbered above {@code pageCount}, after the file was shortened. */
+    public synchronized void truncateTo(int pageCount) {
+        freeSpace.tailMap(pageCount, false).clear();
+        fragmentedPages.removeIf(pageId -> pageId > pageCount);
+    }
+}
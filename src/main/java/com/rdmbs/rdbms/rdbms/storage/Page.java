@@ -0,0 +1,240 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-size slotted page.
+ *
+ * <pre>
+ * +-----------+----------------------+--------------+-----------------------+
+ * | header    | slot directory  -->  |  free space  |  <-- record area      |
+ * +-----------+----------------------+--------------+-----------------------+
+ * </pre>
+ *
+ * The header holds the slot count and the start of the record area. Each slot
+ * is an (offset, length) pair; records are packed from the end of the page
+ * towards the slot directory. A slot with offset 0 is empty, so slot numbers
+ * never shift and a (page, slot) pair identifies a row for as long as it lives.
+ */
+public class Page {
+    public static final int PAGE_SIZE = 8192;
+
+    private static final int SLOT_COUNT_OFFSET = 0;
+    private static final int FREE_END_OFFSET = 2;
+    private static final int HEADER_SIZE = 4;
+    private static final int SLOT_SIZE = 4;
+
+    /** Largest record that fits on an otherwise empty page. */
+    public static final int MAX_RECORD_SIZE = PAGE_SIZE - HEADER_SIZE - SLOT_SIZE;
+
+    private final int pageId;
+    private final ByteBuffer buffer;
+    private boolean dirty;
+    /** The buffer pool frame this page is a pinned view of, if it is one. */
+    private BufferPool.Frame frame;
+
+    public Page(int pageId, ByteBuffer buffer) {
+        this.pageId = pageId;
+        this.buffer = buffer;
+    }
+
+    public static Page empty(int pageId) {
+        Page page = new Page(pageId, ByteBuffer.allocate(PAGE_SIZE));
+        page.setSlotCount(0);
+        page.setFreeEnd(PAGE_SIZE);
+        page.dirty = true;
+        return page;
+    }
+
+    public int getPageId() {
+        return pageId;
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markClean() {
+        dirty = false;
+    }
+
+    BufferPool.Frame getFrame() {
+        return frame;
+    }
+
+    void setFrame(BufferPool.Frame frame) {
+        this.frame = frame;
+    }
+
+    public int getSlotCount() {
+        return Short.toUnsignedInt(buffer.getShort(SLOT_COUNT_OFFSET));
+    }
+
+    /** Contiguous bytes between the slot directory and the record area. */
+    public int getFreeSpace() {
+        return getFreeEnd() - HEADER_SIZE - getSlotCount() * SLOT_SIZE;
+    }
+
+    /**
+     * Inserts a record and returns its slot number, or -1 if the page cannot
+     * hold it even after compacting.
+     */
+    public int insertRecord(byte[] record) {
+        int slot = findEmptySlot();
+        int needed = record.length + (slot < 0 ? SLOT_SIZE : 0);
+
+        if (getFreeSpace() < needed) {
+            if (getReclaimableSpace() < needed) {
+                return -1;
+            }
+            compact();
+        }
+
+        if (slot < 0) {
+            slot = getSlotCount();
+            setSlotCount(slot + 1);
+        }
+
+        int offset = getFreeEnd() - record.length;
+        buffer.put(offset, record);
+        setFreeEnd(offset);
+        setSlot(slot, offset, record.length);
+        dirty = true;
+        return slot;
+    }
+
+    /** Returns a read-only view of the record in the given slot, or null if the slot is empty. */
+    public ByteBuffer getRecord(int slot) {
+        if (slot < 0 || slot >= getSlotCount()) {
+            return null;
+        }
+        int offset = getSlotOffset(slot);
+        if (offset == 0) {
+            return null;
+        }
+        return buffer.slice(offset, getSlotLength(slot)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Replaces the record in a slot, keeping the slot number. Returns false if
+     * the new record does not fit on this page.
+     */
+    public boolean updateRecord(int slot, byte[] record) {
+        int oldLength = getSlotLength(slot);
+        int oldOffset = getSlotOffset(slot);
+
+        if (record.length <= oldLength) {
+            buffer.put(oldOffset, record);
+            setSlot(slot, oldOffset, record.length);
+            dirty = true;
+            return true;
+        }
+
+        if (getFreeSpace() < record.length) {
+            if (getReclaimableSpace() + oldLength < record.length) {
+                return false;
+            }
+            setSlot(slot, 0, 0);
+            compact();
+        }
+
+        int offset = getFreeEnd() - record.length;
+        buffer.put(offset, record);
+        setFreeEnd(offset);
+        setSlot(slot, offset, record.length);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Empties a slot, leaving a tombstone. The record bytes stay on the page as
+     * garbage until the page is compacted, and the slot number may later be
+     * reused by another insert.
+     */
+    public void deleteRecord(int slot) {
+        setSlot(slot, 0, 0);
+        dirty = true;
+    }
+
+    /** True if no slot holds a record. */
+    public boolean isEmpty() {
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (getSlotOffset(slot) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Free space this page would have after compaction. */
+    public int getReclaimableSpace() {
+        int live = 0;
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            live += getSlotLength(slot);
+        }
+        return PAGE_SIZE - HEADER_SIZE - slotCount * SLOT_SIZE - live;
+    }
+
+    /** Slides all live records to the end of the page. Slot numbers are preserved. */
+    public void compact() {
+        int slotCount = getSlotCount();
+        byte[] copy = new byte[PAGE_SIZE];
+        buffer.get(0, copy);
+
+        int freeEnd = PAGE_SIZE;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = getSlotOffset(slot);
+            if (offset == 0) {
+                continue;
+            }
+            int length = getSlotLength(slot);
+            freeEnd -= length;
+            buffer.put(freeEnd, copy, offset, length);
+            setSlot(slot, freeEnd, length);
+        }
+        setFreeEnd(freeEnd);
+        dirty = true;
+    }
+
+    private int findEmptySlot() {
+        int slotCount = getSlotCount();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (getSlotOffset(slot) == 0) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int getFreeEnd() {
+        return Short.toUnsignedInt(buffer.getShort(FREE_END_OFFSET));
+    }
+
+    private void setFreeEnd(int freeEnd) {
+        buffer.putShort(FREE_END_OFFSET, (short) freeEnd);
+    }
+
+    private void setSlotCount(int count) {
+        buffer.putShort(SLOT_COUNT_OFFSET, (short) count);
+    }
+
+    private int getSlotOffset(int slot) {
+        return Short.toUnsignedInt(buffer.getShort(HEADER_SIZE + slot * SLOT_SIZE));
+    }
+
+    private int getSlotLength(int slot) {
+        return Short.toUnsignedInt(buffer.getShort(HEADER_SIZE + slot * SLOT_SIZE + 2));
+    }
+
+    private void setSlot(int slot, int offset, int length) {
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        buffer.putShort(position, (short) offset);
+        buffer.putShort(position + 2, (short) length);
+    }
+}
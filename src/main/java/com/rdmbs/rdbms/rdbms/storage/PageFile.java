@@ -0,0 +1,345 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A file made of {@link Page#PAGE_SIZE} pages. Page 0 is a file header holding a
+ * magic number, a format version and a few fields for the file's owner; data
+ * pages start at 1.
+ *
+ * Data pages are read and written through the shared {@link BufferPool}, so
+ * a written page may sit dirty in memory until it is evicted or the file is
+ * forced; {@link #force()} writes every dirty page of the file before forcing
+ * it. After {@link #deferWrites()} page writes are kept here instead, visible
+ * to reads through this object, until the owner logs them and calls
+ * {@link #writePendingPages()}. Nothing reaches the pool or the file before
+ * it is logged.
+ */
+public class PageFile {
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int HEADER_FIELDS_OFFSET = 16;
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final long magic;
+    private final FileChannel channel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BufferPool pool = BufferPool.shared();
+    /** Data pages written so far, some of which may only be in the pool yet. */
+    private int pageCount;
+    /** Pages written since the last commit, when writes are deferred; null when they go straight to disk. */
+    private TreeMap<Integer, Page> pendingPages;
+
+    private PageFile(Path path, long magic, FileChannel channel) {
+        this.path = path;
+        this.magic = magic;
+        this.channel = channel;
+    }
+
+    /** Opens a page file, writing a fresh header if the file is empty. */
+    public static PageFile open(Path path, long magic) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        PageFile file = new PageFile(path, magic, channel);
+        try {
+            if (channel.size() == 0) {
+                file.writeHeader();
+            } else if (!file.hasValidHeader()) {
+                throw new IOException("Not a page file: " + path);
+            }
+            file.pageCount = (int) (channel.size() / Page.PAGE_SIZE) - 1;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return file;
+    }
+
+    /** Returns true if the file at the given path starts with the given magic number. */
+    public static boolean isPageFile(Path path, long magic) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < Page.PAGE_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, MAGIC_OFFSET);
+            return header.getLong(0) == magic;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Lock for callers that only read pages. Positioned channel reads are safe
+     * to run in parallel, so any number of readers can hold it at once.
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /** Lock for callers that write pages, held exclusively of readers and other writers. */
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /** Reads one of the 8-byte fields the owner of the file keeps in the header page. */
+    public long readHeaderField(int field) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        readFully(buffer, HEADER_FIELDS_OFFSET + field * 8L);
+        return buffer.getLong(0);
+    }
+
+    public void writeHeaderField(int field, long value) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(0, value);
+        writeFully(buffer, HEADER_FIELDS_OFFSET + field * 8L);
+    }
+
+    /** Number of data pages, not counting the header page. */
+    public int getPageCount() throws IOException {
+        if (pendingPages != null && !pendingPages.isEmpty()) {
+            return Math.max(pageCount, pendingPages.lastKey());
+        }
+        return pageCount;
+    }
+
+    /** Returns a copy of a page, which the caller is free to modify and write back. */
+    public Page readPage(int pageId) throws IOException {
+        if (pendingPages != null) {
+            Page pending = pendingPages.get(pageId);
+            if (pending != null) {
+                return copy(pending);
+            }
+        }
+        return pool.read(this, pageId);
+    }
+
+    /**
+     * Returns a page without copying it, for a caller that only reads it while
+     * holding {@link #readLock()}. The page stays in the buffer pool until the
+     * caller hands it to {@link #unpinPage}.
+     */
+    public Page pinPage(int pageId) throws IOException {
+        if (pendingPages != null) {
+            Page pending = pendingPages.get(pageId);
+            if (pending != null) {
+                return new Page(pageId, pending.getBuffer().duplicate());
+            }
+        }
+        return pool.pin(this, pageId);
+    }
+
+    public void unpinPage(Page page) {
+        pool.unpin(page);
+    }
+
+    /**
+     * Loads pages into the buffer pool ahead of a sequential read. The run
+     * read from the file stops at the first page that is already in the pool
+     * or waiting to be committed.
+     */
+    public void prefetch(int firstPageId, int count) throws IOException {
+        int run = 0;
+        while (run < count && (pendingPages == null || !pendingPages.containsKey(firstPageId + run))) {
+            run++;
+        }
+        pool.prefetch(this, firstPageId, run);
+    }
+
+    public void writePage(Page page) throws IOException {
+        if (pendingPages != null) {
+            pendingPages.put(page.getPageId(), copy(page));
+            page.markClean();
+            return;
+        }
+        writeBack(page);
+    }
+
+    /**
+     * Writes a run of consecutive pages with a single positioned write, which
+     * is how bulk loads append many pages without a system call per page.
+     */
+    public void writePages(List<Page> pages) throws IOException {
+        if (pendingPages != null) {
+            for (Page page : pages) {
+                writePage(page);
+            }
+            return;
+        }
+        writeRun(pages);
+        pool.written(this, pages);
+        if (!pages.isEmpty()) {
+            pageCount = Math.max(pageCount, pages.get(pages.size() - 1).getPageId());
+        }
+    }
+
+    /** Keeps page writes in memory from now on, until {@link #writePendingPages()} is called. */
+    public void deferWrites() {
+        if (pendingPages == null) {
+            pendingPages = new TreeMap<>();
+        }
+    }
+
+    public boolean hasPendingWrites() {
+        return pendingPages != null && !pendingPages.isEmpty();
+    }
+
+    /** The deferred pages, in page order. */
+    public List<Page> getPendingPages() {
+        return pendingPages == null ? new ArrayList<>() : new ArrayList<>(pendingPages.values());
+    }
+
+    /** Hands the deferred pages to the buffer pool, from which they reach the file by the next {@link #force()}. */
+    public void writePendingPages() throws IOException {
+        if (!hasPendingWrites()) return;
+
+        for (Page page : pendingPages.values()) {
+            writeBack(page);
+        }
+        pendingPages.clear();
+    }
+
+    /** Throws away the deferred pages, leaving the file as it was at the last commit. */
+    public void discardPendingWrites() {
+        if (pendingPages != null) {
+            pendingPages.clear();
+        }
+    }
+
+    /** Flushes everything written to the file so far, dirty pages in the buffer pool included, to the storage device. */
+    public void force() throws IOException {
+        pool.flush(this);
+        channel.force(false);
+    }
+
+    /** Appends a new empty page to the end of the file. */
+    public Page allocatePage() throws IOException {
+        Page page = Page.empty(getPageCount() + 1);
+        writePage(page);
+        return page;
+    }
+
+    /** Drops all data pages, keeping the header. */
+    public void truncate() throws IOException {
+        truncateTo(0);
+    }
+
+    /** Drops every data page after the first {@code pageCount}. */
+    public void truncateTo(int pageCount) throws IOException {
+        if (pendingPages != null) {
+            pendingPages.tailMap(pageCount, false).clear();
+        }
+        pool.invalidate(this, pageCount + 1);
+        channel.truncate((long) (pageCount + 1) * Page.PAGE_SIZE);
+        this.pageCount = Math.min(this.pageCount, pageCount);
+    }
+
+    /** Writes the file's dirty pages and drops all of its pages from the buffer pool before closing it. */
+    public void close() throws IOException {
+        try {
+            pool.flush(this);
+        } finally {
+            pool.invalidate(this, 1);
+            channel.close();
+        }
+    }
+
+    /** Reads a page straight from the file, for the buffer pool on a miss. */
+    ByteBuffer readFromDisk(int pageId) throws IOException {
+        return readFromDisk(pageId, 1);
+    }
+
+    /** Reads consecutive pages straight from the file with one positioned read. */
+    ByteBuffer readFromDisk(int firstPageId, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * Page.PAGE_SIZE);
+        readFully(buffer, pagePosition(firstPageId));
+        buffer.clear();
+        return buffer;
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        if (channel.size() < Page.PAGE_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(12);
+        readFully(header, MAGIC_OFFSET);
+        return header.getLong(MAGIC_OFFSET) == magic && header.getInt(VERSION_OFFSET) == VERSION;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(Page.PAGE_SIZE);
+        header.putLong(MAGIC_OFFSET, magic);
+        header.putInt(VERSION_OFFSET, VERSION);
+        writeFully(header, 0);
+    }
+
+    private void writeBack(Page page) throws IOException {
+        if (!pool.write(this, page)) {
+            writeRun(List.of(page));
+        }
+        pageCount = Math.max(pageCount, page.getPageId());
+        page.markClean();
+    }
+
+    /** Writes consecutive pages straight to the file with one positioned write. */
+    void writeRun(List<Page> pages) throws IOException {
+        if (pages.isEmpty()) return;
+
+        int firstPageId = pages.get(0).getPageId();
+        ByteBuffer buffer = ByteBuffer.allocate(pages.size() * Page.PAGE_SIZE);
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            if (page.getPageId() != firstPageId + i) {
+                throw new IllegalArgumentException("Pages are not consecutive: " + page.getPageId());
+            }
+            ByteBuffer source = page.getBuffer().duplicate();
+            source.clear();
+            buffer.put(source);
+        }
+        buffer.flip();
+        writeFully(buffer, pagePosition(firstPageId));
+        for (Page page : pages) {
+            page.markClean();
+        }
+    }
+
+    private static Page copy(Page page) {
+        ByteBuffer source = page.getBuffer().duplicate();
+        source.clear();
+        ByteBuffer buffer = ByteBuffer.allocate(Page.PAGE_SIZE);
+        buffer.put(source);
+        buffer.clear();
+        return new Page(page.getPageId(), buffer);
+    }
+
+    private long pagePosition(int pageId) {
+        return (long) pageId * Page.PAGE_SIZE;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of file: " + path);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+}
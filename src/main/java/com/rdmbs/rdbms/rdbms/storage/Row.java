@@ -1,6 +1,7 @@
 package com.rdmbs.rdbms.rdbms.storage;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,6 +9,9 @@ import java.util.List;
 public class Row {
     private List<Object> values;
 
+    @EqualsAndHashCode.Exclude
+    private RowId rowId;
+
     public Row() {
         this.values = new ArrayList<>();
     }
@@ -0,0 +1,105 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import com.rdmbs.rdbms.rdbms.schema.Table;
+
+/**
+ * A batch of rows stored column by column in {@link ColumnVector}s, the unit
+ * that vectorized operators pass between each other. Columns a query does
+ * not read are left null and skipped when pages are decoded.
+ *
+ * Filters do not move data: they narrow a selection vector listing the
+ * positions still in the batch. Consumers walk {@link #selectedCount()}
+ * positions through {@link #selected(int)}.
+ */
+public class RowBatch {
+    private final ColumnVector[] columns;
+    private int size;
+    /** The selected positions, or null while every row is selected. */
+    private int[] selection;
+    private int selectedCount;
+    private int[] selectionBuffer;
+
+    /**
+     * @param readColumns which of the table's columns to hold; null for all of them
+     */
+    public RowBatch(Table table, boolean[] readColumns, int capacity) {
+        this.columns = new ColumnVector[table.getColumns().size()];
+        for (int i = 0; i < columns.length; i++) {
+            if (readColumns == null || readColumns[i]) {
+                columns[i] = new ColumnVector(table.getColumns().get(i).getDataType(), capacity);
+            }
+        }
+        this.selectionBuffer = new int[capacity];
+    }
+
+    /** The vector of a column, or null if the batch does not hold it. */
+    public ColumnVector column(int index) {
+        return columns[index];
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /** Number of rows decoded into the batch, selected or not. */
+    public int size() {
+        return size;
+    }
+
+    /** Called once every held column has had the next row appended. */
+    public void endRow() {
+        size++;
+    }
+
+    public int selectedCount() {
+        return selection == null ? size : selectedCount;
+    }
+
+    /** The position of the i-th selected row. */
+    public int selected(int i) {
+        return selection == null ? i : selection[i];
+    }
+
+    /** Keeps only the selected positions whose flag in {@code matches} is set. Narrows in place. */
+    public void retain(boolean[] matches) {
+        int count = selectedCount();
+        if (selectionBuffer.length < size) {
+            selectionBuffer = new int[size];
+            if (selection != null) {
+                System.arraycopy(selection, 0, selectionBuffer, 0, count);
+            }
+        }
+        int[] narrowed = selectionBuffer;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int position = selected(i);
+            if (matches[position]) {
+                narrowed[kept++] = position;
+            }
+        }
+        selection = narrowed;
+        selectedCount = kept;
+    }
+
+    /** Builds a Row from the given columns of the row at a position. */
+    public Row toRow(int position, int[] columnIndexes) {
+        Row row = new Row();
+        for (int index : columnIndexes) {
+            ColumnVector vector = columns[index];
+            row.addValue(vector == null ? null : vector.get(position));
+        }
+        return row;
+    }
+
+    /** Empties the batch for reuse, keeping its vectors. */
+    public void clear() {
+        for (ColumnVector vector : columns) {
+            if (vector != null) {
+                vector.clear();
+            }
+        }
+        size = 0;
+        selection = null;
+        selectedCount = 0;
+    }
+}
@@ -0,0 +1,219 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Binary row format used inside page records.
+ *
+ * A row starts with a null bitmap (one bit per column), followed by the
+ * non-null values in column order: INT as 4 bytes, LONG, DOUBLE and date types
+ * as 8, BOOLEAN as 1 and VARCHAR as an unsigned 2-byte length plus UTF-8 bytes.
+ */
+public class RowCodec {
+
+    private RowCodec() {
+    }
+
+    public static byte[] encode(Table table, Row row) {
+        List<Column> columns = table.getColumns();
+        byte[][] strings = new byte[columns.size()][];
+        int bitmapSize = bitmapSize(columns.size());
+        int size = bitmapSize;
+
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = row.getValue(i);
+            if (value == null) {
+                continue;
+            }
+            switch (columns.get(i).getDataType()) {
+                case INT:
+                    size += 4;
+                    break;
+                case BOOLEAN:
+                    size += 1;
+                    break;
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIMESTAMP:
+                case DOUBLE:
+                    size += 8;
+                    break;
+                case VARCHAR:
+                    strings[i] = value.toString().getBytes(StandardCharsets.UTF_8);
+                    if (strings[i].length > 0xFFFF) {
+                        throw new IllegalArgumentException("Value too long for column " + columns.get(i).getName());
+                    }
+                    size += 2 + strings[i].length;
+                    break;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.position(bitmapSize);
+        for (int i = 0; i < columns.size(); i++) {
+            Object value = row.getValue(i);
+            if (value == null) {
+                buffer.put(i / 8, (byte) (buffer.get(i / 8) | (1 << (i % 8))));
+                continue;
+            }
+            switch (columns.get(i).getDataType()) {
+                case INT:
+                    buffer.putInt((Integer) value);
+                    break;
+                case BOOLEAN:
+                    buffer.put((byte) ((Boolean) value ? 1 : 0));
+                    break;
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIMESTAMP:
+                    buffer.putLong((Long) value);
+                    break;
+                case DOUBLE:
+                    buffer.putDouble((Double) value);
+                    break;
+                case VARCHAR:
+                    buffer.putShort((short) strings[i].length);
+                    buffer.put(strings[i]);
+                    break;
+            }
+        }
+        return buffer.array();
+    }
+
+    /** Decodes a row starting at the buffer's current position. */
+    public static Row decode(Table table, ByteBuffer buffer) {
+        List<Column> columns = table.getColumns();
+        int bitmapStart = buffer.position();
+        buffer.position(bitmapStart + bitmapSize(columns.size()));
+
+        Row row = new Row();
+        for (int i = 0; i < columns.size(); i++) {
+            if ((buffer.get(bitmapStart + i / 8) & (1 << (i % 8))) != 0) {
+                row.addValue(null);
+                continue;
+            }
+            switch (columns.get(i).getDataType()) {
+                case INT:
+                    row.addValue(buffer.getInt());
+                    break;
+                case BOOLEAN:
+                    row.addValue(buffer.get() != 0);
+                    break;
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIMESTAMP:
+                    row.addValue(buffer.getLong());
+                    break;
+                case DOUBLE:
+                    row.addValue(buffer.getDouble());
+                    break;
+                case VARCHAR:
+                    int length = Short.toUnsignedInt(buffer.getShort());
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    row.addValue(new String(bytes, StandardCharsets.UTF_8));
+                    break;
+                default:
+                    row.addValue(null);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Decodes a row starting at the buffer's current position straight into
+     * the batch's column vectors, without boxing. Columns the batch does not
+     * hold are stepped over undecoded.
+     */
+    public static void decodeInto(Table table, ByteBuffer buffer, RowBatch batch) {
+        decodeColumns(table, buffer, batch, null);
+        batch.endRow();
+    }
+
+    /**
+     * Appends the given columns of a row to the batch's vectors, for scans
+     * that decode a row's columns in more than one pass. Does not end the row.
+     *
+     * @param decode which columns to decode; null for every column the batch holds
+     */
+    public static void decodeColumns(Table table, ByteBuffer buffer, RowBatch batch, boolean[] decode) {
+        List<Column> columns = table.getColumns();
+        int bitmapStart = buffer.position();
+        int position = bitmapStart + bitmapSize(columns.size());
+
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnVector vector = decode == null || decode[i] ? batch.column(i) : null;
+            if ((buffer.get(bitmapStart + i / 8) & (1 << (i % 8))) != 0) {
+                if (vector != null) {
+                    vector.appendNull();
+                }
+                continue;
+            }
+            switch (columns.get(i).getDataType()) {
+                case INT:
+                    if (vector != null) {
+                        vector.appendInt(buffer.getInt(position));
+                    }
+                    position += 4;
+                    break;
+                case BOOLEAN:
+                    if (vector != null) {
+                        vector.appendBoolean(buffer.get(position) != 0);
+                    }
+                    position += 1;
+                    break;
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIMESTAMP:
+                    if (vector != null) {
+                        vector.appendLong(buffer.getLong(position));
+                    }
+                    position += 8;
+                    break;
+                case DOUBLE:
+                    if (vector != null) {
+                        vector.appendDouble(buffer.getDouble(position));
+                    }
+                    position += 8;
+                    break;
+                case VARCHAR:
+                    int length = Short.toUnsignedInt(buffer.getShort(position));
+                    if (vector != null) {
+                        vector.appendString(buffer, position + 2, length);
+                    }
+                    position += 2 + length;
+                    break;
+                default:
+                    if (vector != null) {
+                        vector.appendNull();
+                    }
+            }
+        }
+    }
+
+    /**
+     * Upper bound of the encoded size of a row, derived from the declared
+     * column sizes. VARCHAR sizes are counted in characters, so rows with
+     * multi-byte text can still come out larger than this.
+     */
+    public static int maxEncodedSize(Table table) {
+        int varcharCount = (int) table.getColumns().stream()
+                .filter(column -> column.getDataType() == DataType.VARCHAR)
+                .count();
+        return bitmapSize(table.getColumns().size()) + table.getRowSize() + 2 * varcharCount;
+    }
+
+    private static int bitmapSize(int columnCount) {
+        return (columnCount + 7) / 8;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import lombok.Data;
+
+/**
+ * Stable physical address of a row: the page it lives on and its slot in that
+ * page's slot directory. A row keeps its RowId for its whole lifetime, even when
+ * an update has to move its bytes elsewhere.
+ */
+@Data
+public class RowId implements Comparable<RowId> {
+    private final int pageId;
+    private final int slot;
+
+    @Override
+    public int compareTo(RowId other) {
+        int cmp = Integer.compare(pageId, other.pageId);
+        return cmp != 0 ? cmp : Integer.compare(slot, other.slot);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + pageId + "," + slot + ")";
+    }
+}
@@ -0,0 +1,40 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background space reclamation. Periodically asks {@link TableStorage} to
+ * compact the pages that deletes and updates have left fragmented, so that DML
+ * itself never has to rewrite more than the pages it touches. It also
+ * checkpoints the write-ahead log once it has grown large enough.
+ */
+@Slf4j
+public class TableCompactor {
+    private static final long INTERVAL_SECONDS = 5;
+
+    private final ScheduledExecutorService executor;
+
+    public TableCompactor(TableStorage storage) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "table-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                storage.compactAll();
+                storage.checkpointIfDue();
+            } catch (Exception e) {
+                log.warn("Compaction failed", e);
+            }
+        }, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,20 +1,65 @@
 package com.rdmbs.rdbms.rdbms.storage;
 
 import com.rdmbs.rdbms.rdbms.schema.Column;
-import com.rdmbs.rdbms.rdbms.schema.DataType;
 import com.rdmbs.rdbms.rdbms.schema.Table;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Page-based table storage. Each table is a {@link PageFile} of slotted
+ * {@link Page}s, and every row is addressed by a stable {@link RowId}.
+ *
+ * Deletes leave tombstones and updates rewrite the row where it lives. When an
+ * updated row no longer fits on its page it moves elsewhere and its original
+ * slot keeps a forwarding pointer, so the RowId stays valid. Garbage left
+ * behind is reclaimed by the background {@link TableCompactor}.
+ *
+ * Writes are crash-safe through a {@link WriteAheadLog}. A transaction's page
+ * writes stay in memory until {@link #commit} logs their images and writes
+ * them to the table files, or {@link #rollback} throws them away. Table files
+ * are only fsynced at a checkpoint, after which the log starts over. On
+ * startup the log is replayed into the table files before anything else runs.
+ */
 public class TableStorage {
     private static final String DATA_DIR = "data";
     private static final String TABLE_EXT = ".tbl";
+    private static final String LOG_FILE = "wal.log";
+    private static final String RUNNING_MARKER = "running";
+    private static final long DEFAULT_CHECKPOINT_BYTES = 64L * 1024 * 1024;
+    private static final long TABLE_MAGIC = 0x44554B4154424C31L; // "DUKATBL1"
+
+    private static final byte RECORD_ROW = 0;
+    private static final byte RECORD_FORWARD = 1;
+    private static final byte RECORD_MOVED = 2;
+    private static final int ROW_ID_SIZE = 6;
+    /** Every record is at least this large so it can always be replaced by a forwarding pointer in place. */
+    private static final int MIN_RECORD_SIZE = 1 + ROW_ID_SIZE;
+    private static final int WRITE_BATCH_PAGES = 64;
+
     private final String dataDirectory;
+    private final Map<String, PageFile> openFiles;
+    private final Map<String, FreeSpaceMap> freeSpaceMaps;
+    private final WriteAheadLog log;
+    /** Held shared by commits and exclusively by a checkpoint, so a checkpoint sees no commit half done. */
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private final long checkpointBytes = Long.getLong("rdbms.wal.checkpointBytes", DEFAULT_CHECKPOINT_BYTES);
+    private final boolean shutDownCleanly;
+    private TableCompactor compactor;
 
     public TableStorage() {
         this(DATA_DIR);
@@ -22,7 +67,91 @@ public class TableStorage {
 
     public TableStorage(String dataDirectory) {
         this.dataDirectory = dataDirectory;
+        this.openFiles = new HashMap<>();
+        this.freeSpaceMaps = new HashMap<>();
         initializeDataDirectory();
+        try {
+            Path marker = Paths.get(dataDirectory, RUNNING_MARKER);
+            this.shutDownCleanly = !Files.exists(marker);
+            this.log = new WriteAheadLog(Paths.get(dataDirectory, LOG_FILE));
+            recover();
+            Files.write(marker, new byte[0]);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to recover from write-ahead log", e);
+        }
+    }
+
+    /**
+     * Starts the background {@link TableCompactor}. Called once the storage
+     * has been constructed, so the compactor never sees it half initialized.
+     */
+    public synchronized void start() {
+        if (compactor == null) {
+            compactor = new TableCompactor(this);
+        }
+    }
+
+    /**
+     * False if the previous run stopped without {@link #close()}. Table files
+     * have been recovered by then, but files kept outside the log, such as
+     * indexes, may not match them.
+     */
+    public boolean wasShutDownCleanly() {
+        return shutDownCleanly;
+    }
+
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * Redoes every committed batch in the log against the table files, forces
+     * them to disk and empties the log. Replaying a page image twice is
+     * harmless, so a crash during recovery just means replaying again.
+     */
+    private void recover() throws IOException {
+        Map<String, PageFile> files = new HashMap<>();
+        try {
+            log.replay(new WriteAheadLog.Replayer() {
+                @Override
+                public void page(String tableName, Page page) throws IOException {
+                    recoveryFile(files, tableName).writePage(page);
+                }
+
+                @Override
+                public void truncate(String tableName) throws IOException {
+                    recoveryFile(files, tableName).truncate();
+                }
+
+                @Override
+                public void drop(String tableName) throws IOException {
+                    PageFile file = files.remove(tableName);
+                    if (file != null) {
+                        file.close();
+                    }
+                    Files.deleteIfExists(getTablePath(tableName));
+                }
+            });
+            for (PageFile file : files.values()) {
+                file.force();
+            }
+        } finally {
+            for (PageFile file : files.values()) {
+                file.close();
+            }
+        }
+        if (log.size() > 0) {
+            log.reset();
+        }
+    }
+
+    private PageFile recoveryFile(Map<String, PageFile> files, String tableName) throws IOException {
+        PageFile file = files.get(tableName);
+        if (file == null) {
+            file = PageFile.open(getTablePath(tableName), TABLE_MAGIC);
+            files.put(tableName, file);
+        }
+        return file;
     }
 
     private void initializeDataDirectory() {
@@ -37,82 +166,746 @@ public class TableStorage {
     }
 
     public void createTableFile(Table table) throws IOException {
-        Path tablePath = getTablePath(table.getName());
-        if (!Files.exists(tablePath)) {
-            Files.createFile(tablePath);
+        int maxRowSize = RowCodec.maxEncodedSize(table) + 1 + ROW_ID_SIZE;
+        if (maxRowSize > Page.MAX_RECORD_SIZE) {
+            throw new IOException("Row size of " + maxRowSize + " bytes exceeds page capacity of "
+                    + Page.MAX_RECORD_SIZE + " bytes");
+        }
+        openFile(table);
+    }
+
+    public RowId insertRow(Table table, Row row) throws IOException {
+        byte[] record = toRecord(RECORD_ROW, null, RowCodec.encode(table, row));
+        PageFile file = openFile(table);
+
+        file.writeLock().lock();
+        try {
+            RowId rowId = placeRecord(file, freeSpaceMap(table.getName()), record, -1);
+            row.setRowId(rowId);
+            return rowId;
+        } finally {
+            file.writeLock().unlock();
         }
     }
 
-    public void insertRow(Table table, Row row) throws IOException {
-        Path tablePath = getTablePath(table.getName());
-        try (DataOutputStream dos = new DataOutputStream(
-                new BufferedOutputStream(new FileOutputStream(tablePath.toFile(), true)))) {
-            writeRow(dos, table, row);
+    /**
+     * Appends a batch of rows. The last page is filled first, then new pages
+     * are built in memory and written out {@link #WRITE_BATCH_PAGES} at a
+     * time, so a large load costs one write per batch rather than one per row.
+     * Each row's RowId is set as it is placed.
+     */
+    public List<RowId> insertRows(Table table, Iterator<Row> rows) throws IOException {
+        PageFile file = openFile(table);
+        List<RowId> rowIds = new ArrayList<>();
+
+        file.writeLock().lock();
+        try {
+            int lastPageId = file.getPageCount();
+            Page page = lastPageId > 0 ? file.readPage(lastPageId) : null;
+            boolean pageOnDisk = page != null;
+            int nextPageId = lastPageId + 1;
+            List<Page> pending = new ArrayList<>();
+
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                byte[] record = toRecord(RECORD_ROW, null, RowCodec.encode(table, row));
+                int slot = page != null ? page.insertRecord(record) : -1;
+                if (slot < 0) {
+                    if (pageOnDisk) {
+                        file.writePage(page);
+                        pageOnDisk = false;
+                    }
+                    if (pending.size() >= WRITE_BATCH_PAGES) {
+                        file.writePages(pending);
+                        pending.clear();
+                    }
+                    page = Page.empty(nextPageId++);
+                    pending.add(page);
+                    slot = page.insertRecord(record);
+                }
+                RowId rowId = new RowId(page.getPageId(), slot);
+                row.setRowId(rowId);
+                rowIds.add(rowId);
+            }
+
+            if (pageOnDisk && page.isDirty()) {
+                file.writePage(page);
+            }
+            file.writePages(pending);
+        } finally {
+            file.writeLock().unlock();
+        }
+        return rowIds;
+    }
+
+    /** Number of data pages in the table's file, a cheap stand-in for its size. */
+    public int getPageCount(Table table) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            return file.getPageCount();
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /** Fetches a single row, or returns null if the RowId points at an empty slot. */
+    public Row readRow(Table table, RowId rowId) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            ByteBuffer record = readRecord(file, rowId);
+            if (record == null) {
+                return null;
+            }
+            switch (record.get(0)) {
+                case RECORD_ROW:
+                    return fromRecord(table, record, rowId);
+                case RECORD_FORWARD:
+                    ByteBuffer moved = readRecord(file, readRowId(record, 1));
+                    return moved == null ? null : fromRecord(table, moved, rowId);
+                default:
+                    return null;
+            }
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /**
+     * Overwrites a row, keeping its RowId. The row is rewritten on its own page
+     * when it fits; otherwise it moves to another page and the original slot
+     * is turned into a forwarding pointer.
+     */
+    public void updateRow(Table table, RowId rowId, Row row) throws IOException {
+        byte[] encoded = RowCodec.encode(table, row);
+        PageFile file = openFile(table);
+        FreeSpaceMap freeSpace = freeSpaceMap(table.getName());
+
+        file.writeLock().lock();
+        try {
+            Page home = file.readPage(rowId.getPageId());
+            ByteBuffer current = home.getRecord(rowId.getSlot());
+            if (current == null || current.get(0) == RECORD_MOVED) {
+                throw new IOException("Row does not exist: " + rowId);
+            }
+
+            RowId movedTo = current.get(0) == RECORD_FORWARD ? readRowId(current, 1) : null;
+
+            // Back on the home page if it fits, dropping any previous forwarding
+            if (home.updateRecord(rowId.getSlot(), toRecord(RECORD_ROW, null, encoded))) {
+                file.writePage(home);
+                if (movedTo != null) {
+                    deleteRecord(file, freeSpace, movedTo);
+                }
+                row.setRowId(rowId);
+                return;
+            }
+
+            byte[] moved = toRecord(RECORD_MOVED, rowId, encoded);
+            if (movedTo != null) {
+                Page target = file.readPage(movedTo.getPageId());
+                if (target.updateRecord(movedTo.getSlot(), moved)) {
+                    file.writePage(target);
+                    row.setRowId(rowId);
+                    return;
+                }
+            }
+
+            RowId newLocation = placeRecord(file, freeSpace, moved, rowId.getPageId());
+            home.updateRecord(rowId.getSlot(), toRecord(RECORD_FORWARD, newLocation, new byte[0]));
+            file.writePage(home);
+            freeSpace.markFragmented(rowId.getPageId());
+            if (movedTo != null) {
+                deleteRecord(file, freeSpace, movedTo);
+            }
+            row.setRowId(rowId);
+        } finally {
+            file.writeLock().unlock();
+        }
+    }
+
+    /** Deletes a row by leaving a tombstone in its slot. */
+    public void deleteRow(Table table, RowId rowId) throws IOException {
+        PageFile file = openFile(table);
+        FreeSpaceMap freeSpace = freeSpaceMap(table.getName());
+
+        file.writeLock().lock();
+        try {
+            ByteBuffer record = readRecord(file, rowId);
+            if (record == null) {
+                return;
+            }
+            if (record.get(0) == RECORD_FORWARD) {
+                deleteRecord(file, freeSpace, readRowId(record, 1));
+            }
+            deleteRecord(file, freeSpace, rowId);
+        } finally {
+            file.writeLock().unlock();
         }
     }
 
     public List<Row> readAllRows(Table table) throws IOException {
-        Path tablePath = getTablePath(table.getName());
         List<Row> rows = new ArrayList<>();
+        PageFile file = openFile(table);
 
-        if (!Files.exists(tablePath) || Files.size(tablePath) == 0) {
-            return rows;
+        file.readLock().lock();
+        try {
+            int pageCount = file.getPageCount();
+            for (int pageId = 1; pageId <= pageCount; pageId++) {
+                collectRows(table, file, pageId, rows);
+            }
+        } finally {
+            file.readLock().unlock();
         }
+        return rows;
+    }
 
-        try (DataInputStream dis = new DataInputStream(
-                new BufferedInputStream(new FileInputStream(tablePath.toFile())))) {
-            while (dis.available() > 0) {
-                Row row = readRow(dis, table);
-                if (row != null) {
-                    rows.add(row);
-                }
+    /**
+     * Reads the rows stored on one page, for scans that walk a table a page
+     * at a time instead of loading it whole. Returns nothing for a page past
+     * the end of the file.
+     */
+    public List<Row> readPageRows(Table table, int pageId) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            if (pageId >= 1 && pageId <= file.getPageCount()) {
+                collectRows(table, file, pageId, rows);
             }
+        } finally {
+            file.readLock().unlock();
         }
         return rows;
     }
 
+    /**
+     * Decodes the rows stored on one page into a batch, column by column,
+     * for vectorized scans. Rows are appended; nothing is added for a page
+     * past the end of the file. Returns the number of rows appended.
+     *
+     * @param decode which columns to decode; null for every column the batch holds
+     */
+    public int readPageBatch(Table table, int pageId, RowBatch batch, boolean[] decode) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            if (pageId < 1 || pageId > file.getPageCount()) {
+                return 0;
+            }
+            Page page = file.pinPage(pageId);
+            try {
+                int count = 0;
+                for (int slot = 0; slot < page.getSlotCount(); slot++) {
+                    ByteBuffer record = rowBytes(page, slot);
+                    if (record != null) {
+                        RowCodec.decodeColumns(table, record, batch, decode);
+                        batch.endRow();
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                file.unpinPage(page);
+            }
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /**
+     * Decodes more columns of the rows a scan already read from one page with
+     * {@link #readPageBatch}, into vectors that pass left empty. The page's
+     * rows start at batch position {@code from}; only those flagged in
+     * {@code selected} are decoded and the rest get nulls, so every vector
+     * stays aligned with the batch. The query's shared lock on the table keeps
+     * the page's rows in place between the two passes.
+     */
+    public void fillPageBatch(Table table, int pageId, RowBatch batch, boolean[] decode,
+                              boolean[] selected, int from) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            Page page = file.pinPage(pageId);
+            try {
+                int position = from;
+                for (int slot = 0; slot < page.getSlotCount(); slot++) {
+                    ByteBuffer record = rowBytes(page, slot);
+                    if (record == null) {
+                        continue;
+                    }
+                    if (selected[position++]) {
+                        RowCodec.decodeColumns(table, record, batch, decode);
+                    } else {
+                        for (int i = 0; i < decode.length; i++) {
+                            if (decode[i] && batch.column(i) != null) {
+                                batch.column(i).appendNull();
+                            }
+                        }
+                    }
+                }
+            } finally {
+                file.unpinPage(page);
+            }
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads up to {@code count} pages from {@code firstPageId} on into the
+     * buffer pool ahead of a sequential scan, with one read per run of pages
+     * not already there.
+     */
+    public void prefetchPages(Table table, int firstPageId, int count) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            file.prefetch(firstPageId, Math.min(count, file.getPageCount() - firstPageId + 1));
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /** The encoded row in a slot, positioned at its null bitmap, or null for an empty slot or a forwarding pointer. */
+    private static ByteBuffer rowBytes(Page page, int slot) {
+        ByteBuffer record = page.getRecord(slot);
+        if (record == null || record.get(0) == RECORD_FORWARD) {
+            return null;
+        }
+        record.position(record.get(0) == RECORD_MOVED ? 1 + ROW_ID_SIZE : 1);
+        return record;
+    }
+
+    /** Counts the rows stored on one page without decoding them. */
+    public int countPageRows(Table table, int pageId) throws IOException {
+        PageFile file = openFile(table);
+
+        file.readLock().lock();
+        try {
+            if (pageId < 1 || pageId > file.getPageCount()) {
+                return 0;
+            }
+            Page page = file.pinPage(pageId);
+            try {
+                int count = 0;
+                for (int slot = 0; slot < page.getSlotCount(); slot++) {
+                    ByteBuffer record = page.getRecord(slot);
+                    if (record != null && record.get(0) != RECORD_FORWARD) {
+                        count++;
+                    }
+                }
+                return count;
+            } finally {
+                file.unpinPage(page);
+            }
+        } finally {
+            file.readLock().unlock();
+        }
+    }
+
+    /** Decodes the rows on a page, pinned in the buffer pool rather than copied out of it. */
+    private void collectRows(Table table, PageFile file, int pageId, List<Row> rows) throws IOException {
+        Page page = file.pinPage(pageId);
+        try {
+            for (int slot = 0; slot < page.getSlotCount(); slot++) {
+                ByteBuffer record = page.getRecord(slot);
+                if (record == null) {
+                    continue;
+                }
+                // Forwarded rows are returned where their bytes live, under their original RowId
+                if (record.get(0) == RECORD_ROW) {
+                    rows.add(fromRecord(table, record, new RowId(page.getPageId(), slot)));
+                } else if (record.get(0) == RECORD_MOVED) {
+                    rows.add(fromRecord(table, record, readRowId(record, 1)));
+                }
+            }
+        } finally {
+            file.unpinPage(page);
+        }
+    }
+
+    /** Compacts fragmented pages of every open table. Called periodically by the {@link TableCompactor}. */
+    public void compactAll() throws IOException {
+        List<String> tableNames;
+        synchronized (this) {
+            tableNames = new ArrayList<>(openFiles.keySet());
+        }
+        for (String tableName : tableNames) {
+            compact(tableName);
+        }
+    }
+
+    /**
+     * Defragments every page that deletes or updates have touched since the
+     * last pass, records the space it frees, and trims empty pages off the end
+     * of the file. Compacted pages are committed like any other write. A file
+     * with a statement's writes still pending is left for the next pass.
+     */
+    public void compact(String tableName) throws IOException {
+        PageFile file;
+        synchronized (this) {
+            file = openFiles.get(tableName.toLowerCase());
+        }
+        if (file == null) {
+            return;
+        }
+        FreeSpaceMap freeSpace = freeSpaceMap(tableName);
+
+        commitLock.readLock().lock();
+        try {
+            file.writeLock().lock();
+            try {
+                if (!isCurrent(tableName, file) || file.hasPendingWrites()) {
+                    return;
+                }
+                List<Integer> pageIds = freeSpace.drainFragmented();
+                for (int pageId : pageIds) {
+                    if (pageId > file.getPageCount()) {
+                        continue;
+                    }
+                    Page page = file.readPage(pageId);
+                    page.compact();
+                    file.writePage(page);
+                    freeSpace.recordFreeSpace(pageId, page.getFreeSpace());
+                }
+                commitPending(tableName, file);
+
+                // Trailing pages are only empty once their emptying was logged, so the trim needs no record
+                int pageCount = file.getPageCount();
+                int lastUsed = pageCount;
+                while (lastUsed > 0 && file.readPage(lastUsed).isEmpty()) {
+                    lastUsed--;
+                }
+                if (lastUsed < pageCount) {
+                    file.truncateTo(lastUsed);
+                    freeSpace.truncateTo(lastUsed);
+                }
+            } finally {
+                file.writeLock().unlock();
+            }
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    public void commit(String tableName) throws IOException {
+        commit(Collections.singletonList(tableName));
+    }
+
+    /**
+     * Makes the pending page writes of the given tables durable, all or
+     * nothing: their images are appended to the log as one batch, the log is
+     * synced (sharing the fsync with concurrent commits), and only then are
+     * the pages written to the table files.
+     */
+    public void commit(Collection<String> tableNames) throws IOException {
+        if (tableNames.isEmpty()) {
+            return;
+        }
+        List<PageFile> locked = new ArrayList<>();
+        commitLock.readLock().lock();
+        try {
+            Map<String, List<Page>> pages = new LinkedHashMap<>();
+            List<PageFile> dirty = new ArrayList<>();
+            for (String tableName : sortedNames(tableNames)) {
+                PageFile file;
+                synchronized (this) {
+                    file = openFiles.get(tableName);
+                }
+                if (file == null) {
+                    continue;
+                }
+                file.writeLock().lock();
+                locked.add(file);
+                if (isCurrent(tableName, file) && file.hasPendingWrites()) {
+                    pages.put(tableName, file.getPendingPages());
+                    dirty.add(file);
+                }
+            }
+
+            if (!pages.isEmpty()) {
+                log.awaitDurable(log.logPages(pages));
+                for (PageFile file : dirty) {
+                    file.writePendingPages();
+                }
+            }
+        } finally {
+            for (int i = locked.size() - 1; i >= 0; i--) {
+                locked.get(i).writeLock().unlock();
+            }
+            commitLock.readLock().unlock();
+        }
+    }
+
+    /** Throws away the pending page writes of the given tables, leaving them as of their last commit. */
+    public void rollback(Collection<String> tableNames) {
+        for (String tableName : sortedNames(tableNames)) {
+            PageFile file;
+            synchronized (this) {
+                file = openFiles.get(tableName);
+            }
+            if (file == null) {
+                continue;
+            }
+            file.writeLock().lock();
+            try {
+                file.discardPendingWrites();
+            } finally {
+                file.writeLock().unlock();
+            }
+        }
+    }
+
+    private void commitPending(String tableName, PageFile file) throws IOException {
+        if (!file.hasPendingWrites()) {
+            return;
+        }
+        log.awaitDurable(log.logPages(Collections.singletonMap(tableName.toLowerCase(), file.getPendingPages())));
+        file.writePendingPages();
+    }
+
+    /** Lower-cased and in name order, the order files are locked in when several are held at once. */
+    private static TreeSet<String> sortedNames(Collection<String> tableNames) {
+        TreeSet<String> names = new TreeSet<>();
+        for (String tableName : tableNames) {
+            names.add(tableName.toLowerCase());
+        }
+        return names;
+    }
+
+    /** Forces every table file to disk and empties the log. */
+    public void checkpoint() throws IOException {
+        commitLock.writeLock().lock();
+        try {
+            List<PageFile> files;
+            synchronized (this) {
+                files = new ArrayList<>(openFiles.values());
+            }
+            for (PageFile file : files) {
+                file.force();
+            }
+            log.reset();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+
+    /** Checkpoints once the log has grown past {@code rdbms.wal.checkpointBytes}. */
+    public void checkpointIfDue() throws IOException {
+        if (log.size() >= checkpointBytes) {
+            checkpoint();
+        }
+    }
+
+    /** Stops the compactor, checkpoints and closes every file, recording a clean shutdown. */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdown();
+            }
+        }
+        checkpoint();
+        synchronized (this) {
+            for (PageFile file : openFiles.values()) {
+                file.close();
+            }
+            openFiles.clear();
+            freeSpaceMaps.clear();
+        }
+        log.close();
+        Files.deleteIfExists(Paths.get(dataDirectory, RUNNING_MARKER));
+    }
+
     public void deleteTable(String tableName) throws IOException {
-        Path tablePath = getTablePath(tableName);
-        Files.deleteIfExists(tablePath);
+        commitLock.readLock().lock();
+        try {
+            closeFile(tableName);
+            log.awaitDurable(log.logDrop(tableName.toLowerCase()));
+            Files.deleteIfExists(getTablePath(tableName));
+        } finally {
+            commitLock.readLock().unlock();
+        }
     }
 
     public void truncateTable(String tableName) throws IOException {
-        Path tablePath = getTablePath(tableName);
-        if (Files.exists(tablePath)) {
-            Files.delete(tablePath);
-            Files.createFile(tablePath);
+        commitLock.readLock().lock();
+        try {
+            closeFile(tableName);
+            log.awaitDurable(log.logTruncate(tableName.toLowerCase()));
+            Path tablePath = getTablePath(tableName);
+            if (Files.exists(tablePath)) {
+                Files.delete(tablePath);
+                PageFile.open(tablePath, TABLE_MAGIC).close();
+            }
+        } finally {
+            commitLock.readLock().unlock();
         }
     }
 
-    private void writeRow(DataOutputStream dos, Table table, Row row) throws IOException {
-        for (int i = 0; i < table.getColumns().size(); i++) {
-            Column column = table.getColumns().get(i);
-            Object value = row.getValue(i);
+    private synchronized PageFile openFile(Table table) throws IOException {
+        String key = table.getName().toLowerCase();
+        PageFile file = openFiles.get(key);
+        if (file == null) {
+            Path tablePath = getTablePath(table.getName());
+            if (Files.exists(tablePath) && Files.size(tablePath) > 0
+                    && !PageFile.isPageFile(tablePath, TABLE_MAGIC)) {
+                migrateLegacyFile(table, tablePath);
+            }
+            file = PageFile.open(tablePath, TABLE_MAGIC);
+            file.deferWrites();
+            openFiles.put(key, file);
+        }
+        return file;
+    }
 
-            switch (column.getDataType()) {
-                case INT:
-                    dos.writeInt(value == null ? 0 : (Integer) value);
-                    break;
-                case LONG:
-                    dos.writeLong(value == null ? 0L : (Long) value);
-                    break;
-                case BOOLEAN:
-                    dos.writeBoolean(value != null && (Boolean) value);
-                    break;
-                case DATE:
-                case DATETIME:
-                case TIMESTAMP:
-                    dos.writeLong(value == null ? 0L : (Long) value);
-                    break;
-                case VARCHAR:
-                    String strValue = value == null ? "" : value.toString();
-                    dos.writeUTF(strValue);
+    private synchronized FreeSpaceMap freeSpaceMap(String tableName) {
+        return freeSpaceMaps.computeIfAbsent(tableName.toLowerCase(), key -> new FreeSpaceMap());
+    }
+
+    /** True while the file is still the table's open file, i.e. the table has not been dropped or truncated since. */
+    private synchronized boolean isCurrent(String tableName, PageFile file) {
+        return openFiles.get(tableName.toLowerCase()) == file;
+    }
+
+    /**
+     * Closes a table's file once no one is writing to it. Dropped and
+     * truncated tables are logged after this, so no page of the old file can
+     * be logged behind the drop or truncate.
+     */
+    private void closeFile(String tableName) throws IOException {
+        PageFile file;
+        synchronized (this) {
+            freeSpaceMaps.remove(tableName.toLowerCase());
+            file = openFiles.remove(tableName.toLowerCase());
+        }
+        if (file != null) {
+            file.writeLock().lock();
+            try {
+                file.close();
+            } finally {
+                file.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Stores a record on the first page with room for it: a page the compactor
+     * has freed up, then the last page, then a newly allocated one.
+     */
+    private RowId placeRecord(PageFile file, FreeSpaceMap freeSpace, byte[] record, int excludePageId)
+            throws IOException {
+        int candidate;
+        while ((candidate = freeSpace.findPage(record.length, excludePageId)) > 0) {
+            if (candidate <= file.getPageCount()) {
+                Page page = file.readPage(candidate);
+                int slot = page.insertRecord(record);
+                if (slot >= 0) {
+                    file.writePage(page);
+                    freeSpace.recordFreeSpace(candidate, page.getFreeSpace());
+                    return new RowId(candidate, slot);
+                }
+            }
+            freeSpace.forgetPage(candidate);
+        }
+
+        int lastPageId = file.getPageCount();
+        Page page = lastPageId > 0 && lastPageId != excludePageId ? file.readPage(lastPageId) : file.allocatePage();
+        int slot = page.insertRecord(record);
+        if (slot < 0) {
+            page = file.allocatePage();
+            slot = page.insertRecord(record);
+        }
+        file.writePage(page);
+        return new RowId(page.getPageId(), slot);
+    }
+
+    private ByteBuffer readRecord(PageFile file, RowId rowId) throws IOException {
+        if (rowId.getPageId() < 1 || rowId.getPageId() > file.getPageCount()) {
+            return null;
+        }
+        return file.readPage(rowId.getPageId()).getRecord(rowId.getSlot());
+    }
+
+    private void deleteRecord(PageFile file, FreeSpaceMap freeSpace, RowId rowId) throws IOException {
+        Page page = file.readPage(rowId.getPageId());
+        page.deleteRecord(rowId.getSlot());
+        file.writePage(page);
+        freeSpace.markFragmented(rowId.getPageId());
+    }
+
+    /**
+     * Builds a page record: a type byte, the home RowId for moved rows or the
+     * target RowId for forwarding pointers, then the encoded row.
+     */
+    private byte[] toRecord(byte type, RowId rowId, byte[] encoded) throws IOException {
+        int headerSize = rowId == null ? 1 : 1 + ROW_ID_SIZE;
+        int size = Math.max(headerSize + encoded.length, MIN_RECORD_SIZE);
+        if (size > Page.MAX_RECORD_SIZE) {
+            throw new IOException("Row of " + size + " bytes exceeds page capacity of "
+                    + Page.MAX_RECORD_SIZE + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(size);
+        record.put(type);
+        if (rowId != null) {
+            record.putInt(rowId.getPageId());
+            record.putShort((short) rowId.getSlot());
+        }
+        record.put(encoded);
+        return record.array();
+    }
+
+    private Row fromRecord(Table table, ByteBuffer record, RowId rowId) {
+        record.position(record.get(0) == RECORD_MOVED ? 1 + ROW_ID_SIZE : 1);
+        Row row = RowCodec.decode(table, record);
+        row.setRowId(rowId);
+        return row;
+    }
+
+    private RowId readRowId(ByteBuffer record, int offset) {
+        return new RowId(record.getInt(offset), Short.toUnsignedInt(record.getShort(offset + 4)));
+    }
+
+    /**
+     * Rewrites a table file from the original append-only stream format into
+     * pages. Runs once, the first time such a file is opened.
+     */
+    private void migrateLegacyFile(Table table, Path tablePath) throws IOException {
+        Path migratedPath = Paths.get(tablePath + ".migrating");
+        Files.deleteIfExists(migratedPath);
+
+        PageFile migrated = PageFile.open(migratedPath, TABLE_MAGIC);
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(tablePath.toFile())))) {
+            Page page = migrated.allocatePage();
+            while (dis.available() > 0) {
+                Row row = readLegacyRow(dis, table);
+                if (row == null) {
                     break;
+                }
+                byte[] record = toRecord(RECORD_ROW, null, RowCodec.encode(table, row));
+                if (page.insertRecord(record) < 0) {
+                    migrated.writePage(page);
+                    page = migrated.allocatePage();
+                    page.insertRecord(record);
+                }
             }
+            migrated.writePage(page);
+        } finally {
+            migrated.close();
         }
+
+        Files.move(migratedPath, tablePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
-    private Row readRow(DataInputStream dis, Table table) throws IOException {
+    private Row readLegacyRow(DataInputStream dis, Table table) throws IOException {
         Row row = new Row();
         try {
             for (Column column : table.getColumns()) {
@@ -0,0 +1,262 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log for table pages, kept in {@code data/wal.log}.
+ *
+ * A commit appends one batch: the full images of the pages it changed in one
+ * or more tables, or a truncate or drop of a table. Each batch is framed with its length and a
+ * CRC32, so a batch torn by a crash is recognised and ignored on recovery.
+ * A batch counts as committed once it is durable; {@link #awaitDurable}
+ * blocks until then.
+ *
+ * Commits share fsyncs. The first committer to find its batch not yet durable
+ * syncs the log; batches appended while that sync runs wait for the next one,
+ * which the first of them performs on behalf of all. Under load one fsync
+ * covers many commits.
+ */
+public class WriteAheadLog {
+    private static final byte PAGE = 0;
+    private static final byte TRUNCATE = 1;
+    private static final byte DROP = 2;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition synced = lock.newCondition();
+    /** Log position after the last appended batch. */
+    private long appended;
+    /** Log position up to which the log is known to be on disk. */
+    private long durable;
+    private boolean syncing;
+
+    /** Receives the committed contents of the log during recovery, in commit order. */
+    public interface Replayer {
+        void page(String tableName, Page page) throws IOException;
+
+        void truncate(String tableName) throws IOException;
+
+        void drop(String tableName) throws IOException;
+    }
+
+    public WriteAheadLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.appended = channel.size();
+        this.durable = appended;
+    }
+
+    /**
+     * Appends the images of changed pages, keyed by table, as a single batch
+     * that recovery applies entirely or not at all. Returns the log position
+     * to wait for.
+     */
+    public long logPages(Map<String, List<Page>> pagesByTable) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Map.Entry<String, List<Page>> entry : pagesByTable.entrySet()) {
+            for (Page page : entry.getValue()) {
+                out.writeByte(PAGE);
+                out.writeUTF(entry.getKey());
+                out.writeInt(page.getPageId());
+                ByteBuffer buffer = page.getBuffer().duplicate();
+                buffer.clear();
+                byte[] image = new byte[Page.PAGE_SIZE];
+                buffer.get(image);
+                out.write(image);
+            }
+        }
+        return append(bytes.toByteArray());
+    }
+
+    public long logTruncate(String tableName) throws IOException {
+        return append(tableRecord(TRUNCATE, tableName));
+    }
+
+    public long logDrop(String tableName) throws IOException {
+        return append(tableRecord(DROP, tableName));
+    }
+
+    /** Blocks until the log is on disk up to the given position, syncing it if no one else is. */
+    public void awaitDurable(long position) throws IOException {
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+
+                syncing = true;
+                long target = appended;
+                boolean forced = false;
+                lock.unlock();
+                try {
+                    channel.force(false);
+                    forced = true;
+                } finally {
+                    lock.lock();
+                    syncing = false;
+                    if (forced) {
+                        durable = Math.max(durable, target);
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Passes every intact batch to the replayer, in order. The log is cut off
+     * after the last intact batch, so a torn tail is never mistaken for a
+     * commit once new batches are appended behind it.
+     */
+    public void replay(Replayer replayer) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+        while (position + FRAME_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            int length = header.getInt(0);
+            long checksum = Integer.toUnsignedLong(header.getInt(4));
+            if (length <= 0 || position + FRAME_HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + FRAME_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if (crc.getValue() != checksum) {
+                break;
+            }
+
+            replayBatch(new DataInputStream(new ByteArrayInputStream(payload.array())), replayer);
+            position += FRAME_HEADER_SIZE + length;
+        }
+
+        lock.lock();
+        try {
+            if (position < size) {
+                channel.truncate(position);
+                channel.force(false);
+            }
+            appended = position;
+            durable = position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Bytes of log written since the last reset. */
+    public long size() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties the log. Only safe once every page it describes has been forced
+     * to its table file, and while no commit is in progress.
+     */
+    public void reset() throws IOException {
+        lock.lock();
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            appended = 0;
+            durable = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    private long append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+        frame.putInt(payload.length);
+        frame.putInt((int) crc.getValue());
+        frame.put(payload);
+        frame.flip();
+
+        lock.lock();
+        try {
+            long position = appended;
+            while (frame.hasRemaining()) {
+                channel.write(frame, position + frame.position());
+            }
+            appended = position + frame.limit();
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] tableRecord(byte type, String tableName) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeUTF(tableName);
+        return bytes.toByteArray();
+    }
+
+    private void replayBatch(DataInputStream in, Replayer replayer) throws IOException {
+        while (in.available() > 0) {
+            byte type = in.readByte();
+            String tableName = in.readUTF();
+            switch (type) {
+                case PAGE:
+                    int pageId = in.readInt();
+                    byte[] image = new byte[Page.PAGE_SIZE];
+                    in.readFully(image);
+                    replayer.page(tableName, new Page(pageId, ByteBuffer.wrap(image)));
+                    break;
+                case TRUNCATE:
+                    replayer.truncate(tableName);
+                    break;
+                case DROP:
+                    replayer.drop(tableName);
+                    break;
+                default:
+                    throw new IOException("Corrupt log record in " + path);
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.rdmbs.rdbms.service;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a result in a compact binary format, column by column, with each
+ * value encoded by its {@link DataType} instead of as JSON text under a
+ * repeated column name. Integers are written as varints (7 bits a byte, low
+ * bits first, high bit set on all but the last byte) of their zigzag
+ * encoding, so small values of any width take a byte or two. Rows are sent
+ * in blocks of up to {@link #BLOCK_ROWS}, so the server holds one block at a
+ * time. Fixed-width numbers are big-endian:
+ *
+ * <pre>
+ * header  "RDBC", u8 version (1), u16 column count,
+ *         then per column: u16 length + UTF-8 name, u8 length + type name ("INT", "VARCHAR", ...)
+ * block   i32 row count n (greater than 0), then per column:
+ *         null bitmap of ceil(n / 8) bytes (bit i % 8 of byte i / 8 set when row i is null),
+ *         then the values of the rows that are not null:
+ *           INT, LONG, DATE, DATETIME, TIMESTAMP zigzag varint; DOUBLE f64; BOOLEAN u8;
+ *           VARCHAR and columns of unknown type varint length + UTF-8
+ * end     i32 0, u8 success, i32 row count, i64 execution time in ms,
+ *         i32 length + UTF-8 message, length -1 when there is none
+ * </pre>
+ *
+ * A statement that fails before producing rows writes a header without
+ * columns and the end marker.
+ */
+public class ColumnarResultWriter implements ResultWriter {
+    public static final String MEDIA_TYPE = "application/vnd.rdbms.columnar";
+    public static final int BLOCK_ROWS = 1024;
+
+    private static final byte[] MAGIC = {'R', 'D', 'B', 'C'};
+    private static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private final List<Row> block = new ArrayList<>(BLOCK_ROWS);
+    private DataType[] types;
+
+    public ColumnarResultWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    @Override
+    public void begin(List<String> columnNames, List<DataType> columnTypes) throws IOException {
+        types = new DataType[columnNames.size()];
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeShort(columnNames.size());
+        for (int i = 0; i < columnNames.size(); i++) {
+            types[i] = i < columnTypes.size() && columnTypes.get(i) != null ? columnTypes.get(i) : DataType.VARCHAR;
+            byte[] name = columnNames.get(i).getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeByte(types[i].name().length());
+            out.writeBytes(types[i].name());
+        }
+        out.flush();
+    }
+
+    @Override
+    public void row(Row row) throws IOException {
+        block.add(row);
+        if (block.size() == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    public void end(boolean success, String message, int rowCount, long executionTimeMs) throws IOException {
+        if (types == null) {
+            begin(List.of(), List.of());
+        }
+        if (!block.isEmpty()) {
+            writeBlock();
+        }
+        out.writeInt(0);
+        out.writeBoolean(success);
+        out.writeInt(rowCount);
+        out.writeLong(executionTimeMs);
+        writeString(message);
+        out.flush();
+    }
+
+    private void writeBlock() throws IOException {
+        int rows = block.size();
+        out.writeInt(rows);
+        byte[] nulls = new byte[(rows + 7) / 8];
+        for (int c = 0; c < types.length; c++) {
+            Arrays.fill(nulls, (byte) 0);
+            for (int r = 0; r < rows; r++) {
+                if (value(r, c) == null) {
+                    nulls[r >> 3] |= (byte) (1 << (r & 7));
+                }
+            }
+            out.write(nulls);
+            for (int r = 0; r < rows; r++) {
+                Object value = value(r, c);
+                if (value != null) {
+                    writeValue(types[c], value);
+                }
+            }
+        }
+        block.clear();
+        // Each block goes out as soon as it is full, so slow queries still show rows early
+        out.flush();
+    }
+
+    private Object value(int row, int column) {
+        Row values = block.get(row);
+        return column < values.size() ? values.getValue(column) : null;
+    }
+
+    private void writeValue(DataType type, Object value) throws IOException {
+        switch (type) {
+            case INT:
+            case LONG:
+            case DATE:
+            case DATETIME:
+            case TIMESTAMP:
+                long number = ((Number) value).longValue();
+                writeVarLong((number << 1) ^ (number >> 63));
+                break;
+            case DOUBLE:
+                out.writeDouble(((Number) value).doubleValue());
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            default:
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length);
+                out.write(bytes);
+        }
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
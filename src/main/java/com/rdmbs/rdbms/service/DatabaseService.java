@@ -6,11 +6,13 @@ import com.rdmbs.rdbms.rdbms.engine.QueryEngine;
 import com.rdmbs.rdbms.rdbms.engine.QueryResult;
 import com.rdmbs.rdbms.rdbms.index.IndexManager;
 import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
 import com.rdmbs.rdbms.rdbms.schema.Schema;
 import com.rdmbs.rdbms.rdbms.schema.SchemaManager;
 import com.rdmbs.rdbms.rdbms.schema.Table;
 import com.rdmbs.rdbms.rdbms.storage.Row;
 import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -24,7 +26,12 @@ public class DatabaseService {
     private final TableStorage storage;
 
     public DatabaseService() {
-        SchemaManager schemaManager = new SchemaManager();
+        this("data");
+    }
+
+    /** Opens the database kept in the given directory. */
+    public DatabaseService(String dataDirectory) {
+        SchemaManager schemaManager = new SchemaManager(dataDirectory);
         Schema loadedSchema;
         
         // Load schema from disk or create new
@@ -35,48 +42,139 @@ public class DatabaseService {
         }
         
         this.schema = loadedSchema;
-        this.storage = new TableStorage();
-        IndexManager indexManager = new IndexManager();
+        this.storage = new TableStorage(dataDirectory);
+        IndexManager indexManager = new IndexManager(dataDirectory);
+        indexManager.loadIndexes(schema);
         this.queryEngine = new QueryEngine(schema, storage, indexManager);
     }
 
+    @PreDestroy
+    public void shutdown() throws IOException {
+        queryEngine.close();
+    }
+
     public SQLResponse executeSQL(String sql) {
+        return executeSQL(sql, Collections.emptyList());
+    }
+
+    /** Runs SQL whose {@code ?} placeholders take the given values, in order. */
+    public SQLResponse executeSQL(String sql, List<Object> parameters) {
         long startTime = System.currentTimeMillis();
         
         // Remove trailing semicolon
-        sql = sql.replaceAll(";\\s*$", "").trim();
+        sql = stripTrailingSemicolons(sql);
         
-        // Handle meta commands
-        if (sql.toUpperCase().equals("SHOW TABLES")) {
-            return handleShowTables(startTime);
-        }
-        
-        if (sql.toUpperCase().startsWith("DESCRIBE ") || sql.toUpperCase().startsWith("DESC ")) {
-            String tableName = sql.split("\\s+")[1];
-            return handleDescribe(tableName, startTime);
+        SQLResponse meta = executeMetaCommand(sql, startTime);
+        if (meta != null) {
+            return meta;
         }
         
         // Execute regular SQL
-        QueryResult result = queryEngine.execute(sql);
-        
-        long endTime = System.currentTimeMillis();
+        QueryResult result = queryEngine.execute(sql, parameters);
         
         SQLResponse response = new SQLResponse();
         response.setSuccess(result.isSuccess());
         response.setMessage(result.getMessage());
-        response.setExecutionTimeMs(endTime - startTime);
         
-        if (result.isSuccess() && result.getRows() != null && !result.getRows().isEmpty()) {
+        List<Map<String, Object>> rows = Collections.emptyList();
+        if (result.isSuccess()) {
+            // Closing the result releases the pipeline's read locks if reading it fails
+            try (result) {
+                rows = convertRowsToMaps(result.getColumnNames(), result.rowIterator());
+            } catch (RuntimeException e) {
+                response.setSuccess(false);
+                response.setMessage("Execution error: " + e.getMessage());
+            }
+        }
+        
+        if (!rows.isEmpty()) {
             response.setColumnNames(result.getColumnNames());
-            response.setRows(convertRowsToMaps(result.getColumnNames(), result.getRows()));
-            response.setRowCount(result.getRows().size());
+            response.setRows(rows);
+            response.setRowCount(rows.size());
         } else {
             response.setRowCount(result.getRowsAffected());
         }
         
+        response.setExecutionTimeMs(System.currentTimeMillis() - startTime);
         return response;
     }
 
+    /**
+     * Runs SQL and writes its result as the rows are read, so a large result
+     * is never held in memory. The pipeline is closed, releasing its locks,
+     * even if writing fails because the client went away.
+     */
+    public void streamSQL(String sql, List<Object> parameters, ResultWriter writer) throws IOException {
+        long startTime = System.currentTimeMillis();
+        sql = stripTrailingSemicolons(sql);
+        
+        SQLResponse meta = executeMetaCommand(sql, startTime);
+        if (meta != null) {
+            writeResponse(meta, writer);
+            return;
+        }
+        
+        QueryResult result = queryEngine.execute(sql, parameters);
+        if (!result.isSuccess()) {
+            writer.end(false, result.getMessage(), 0, System.currentTimeMillis() - startTime);
+            return;
+        }
+        
+        boolean success = true;
+        String message = result.getMessage();
+        int rowCount = 0;
+        try (result) {
+            writer.begin(result.getColumnNames(), result.getColumnTypes());
+            Iterator<Row> rows = result.rowIterator();
+            while (rows.hasNext()) {
+                writer.row(rows.next());
+                rowCount++;
+            }
+        } catch (RuntimeException e) {
+            success = false;
+            message = "Execution error: " + e.getMessage();
+        }
+        writer.end(success, message, rowCount > 0 ? rowCount : result.getRowsAffected(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    /** Answers SHOW TABLES and DESCRIBE from the schema; null for any other statement. */
+    private SQLResponse executeMetaCommand(String sql, long startTime) {
+        if (sql.equalsIgnoreCase("SHOW TABLES")) {
+            return handleShowTables(startTime);
+        }
+        
+        if (sql.regionMatches(true, 0, "DESCRIBE ", 0, 9) || sql.regionMatches(true, 0, "DESC ", 0, 5)) {
+            String tableName = sql.split("\\s+")[1];
+            return handleDescribe(tableName, startTime);
+        }
+        return null;
+    }
+
+    private void writeResponse(SQLResponse response, ResultWriter writer) throws IOException {
+        if (response.isSuccess()) {
+            // SHOW TABLES and DESCRIBE answer with text only
+            List<String> columnNames = response.getColumnNames();
+            writer.begin(columnNames, Collections.nCopies(columnNames.size(), DataType.VARCHAR));
+            for (Map<String, Object> map : response.getRows()) {
+                Row row = new Row();
+                for (String column : columnNames) {
+                    row.addValue(map.get(column));
+                }
+                writer.row(row);
+            }
+        }
+        writer.end(response.isSuccess(), response.getMessage(), response.getRowCount(), response.getExecutionTimeMs());
+    }
+
+    private String stripTrailingSemicolons(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) {
+            end--;
+        }
+        return sql.substring(0, end).trim();
+    }
+
     private SQLResponse handleShowTables(long startTime) {
         List<String> tables = getAllTableNames();
         
@@ -168,8 +266,13 @@ public class DatabaseService {
         }
         info.setColumns(columns);
         
-        List<Row> rows = storage.readAllRows(table);
-        info.setRowCount(rows.size());
+        // Closing the result releases the table's read lock even if reading the count fails
+        try (QueryResult count = queryEngine.execute("SELECT COUNT(*) FROM " + table.getName())) {
+            if (!count.isSuccess()) {
+                throw new IOException(count.getMessage());
+            }
+            info.setRowCount(((Number) count.getRows().get(0).getValue(0)).intValue());
+        }
         
         return info;
     }
@@ -190,10 +293,11 @@ public class DatabaseService {
         }
     }
 
-    private List<Map<String, Object>> convertRowsToMaps(List<String> columnNames, List<Row> rows) {
+    private List<Map<String, Object>> convertRowsToMaps(List<String> columnNames, Iterator<Row> rows) {
         List<Map<String, Object>> result = new ArrayList<>();
         
-        for (Row row : rows) {
+        while (rows.hasNext()) {
+            Row row = rows.next();
             Map<String, Object> map = new LinkedHashMap<>();
             for (int i = 0; i < columnNames.size() && i < row.size(); i++) {
                 map.put(columnNames.get(i), row.getValue(i));
@@ -0,0 +1,131 @@
+package com.rdmbs.rdbms.service;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a result as newline-delimited JSON: a header line with the column
+ * names and types, one JSON array per row, and a last line with the fields of
+ * {@link com.rdmbs.rdbms.dto.SQLResponse} other than the rows:
+ *
+ * <pre>
+ * {"columnNames":["id","name"],"columnTypes":["INT","VARCHAR"]}
+ * [1,"Laptop"]
+ * [2,"Mouse"]
+ * {"success":true,"message":null,"rowCount":2,"executionTimeMs":3}
+ * </pre>
+ *
+ * A statement that fails before producing rows writes the last line only.
+ * A failure while rows are being read still ends the body with that line,
+ * with {@code success} false, so a client reads until it sees an object
+ * with a {@code success} field.
+ */
+public class NdjsonResultWriter implements ResultWriter {
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final Writer out;
+
+    public NdjsonResultWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void begin(List<String> columnNames, List<DataType> columnTypes) throws IOException {
+        out.write("{\"columnNames\":[");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString(out, columnNames.get(i));
+        }
+        out.write("],\"columnTypes\":[");
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            DataType type = i < columnTypes.size() ? columnTypes.get(i) : null;
+            writeValue(out, type != null ? type.name() : null);
+        }
+        out.write("]}\n");
+        // Let the client see the columns before the first rows are found
+        out.flush();
+    }
+
+    @Override
+    public void row(Row row) throws IOException {
+        out.write('[');
+        for (int i = 0; i < row.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeValue(out, row.getValue(i));
+        }
+        out.write("]\n");
+    }
+
+    @Override
+    public void end(boolean success, String message, int rowCount, long executionTimeMs) throws IOException {
+        out.write("{\"success\":");
+        out.write(Boolean.toString(success));
+        out.write(",\"message\":");
+        writeValue(out, message);
+        out.write(",\"rowCount\":");
+        out.write(Integer.toString(rowCount));
+        out.write(",\"executionTimeMs\":");
+        out.write(Long.toString(executionTimeMs));
+        out.write("}\n");
+        out.flush();
+    }
+
+    static void writeValue(Writer out, Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            out.write(value.toString());
+        } else if (value instanceof Double && Double.isFinite((Double) value)) {
+            out.write(value.toString());
+        } else {
+            // Strings, and the NaN and infinite doubles JSON has no number for
+            writeString(out, value.toString());
+        }
+    }
+
+    static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,25 @@
+package com.rdmbs.rdbms.service;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a statement's result to a response body while its rows are read,
+ * so the server never holds more than one row of it. Every result is
+ * written as {@link #begin}, any number of {@link #row} calls and
+ * {@link #end}; a statement that fails before producing rows goes straight
+ * to {@link #end}.
+ */
+public interface ResultWriter {
+
+    /** @param columnTypes the type of each column; empty, or null for a column, where it is not known */
+    void begin(List<String> columnNames, List<DataType> columnTypes) throws IOException;
+
+    void row(Row row) throws IOException;
+
+    /** Writes how the statement finished and flushes the body. */
+    void end(boolean success, String message, int rowCount, long executionTimeMs) throws IOException;
+}
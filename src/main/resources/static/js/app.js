@@ -1,6 +1,12 @@
 // API Base URL
 const API_URL = '/api';
 
+// Rows fetched when browsing a table
+const TABLE_PREVIEW_ROWS = 100;
+
+// Binary column-by-column result format, see ColumnarResultWriter
+const COLUMNAR_TYPE = 'application/vnd.rdbms.columnar';
+
 // Terminal history
 let commandHistory = [];
 let historyIndex = -1;
@@ -136,13 +142,7 @@ async function executeCommand(command) {
     
     // Execute SQL command
     try {
-        const response = await fetch(`${API_URL}/execute`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ sql: command })
-        });
-        
-        const result = await response.json();
+        const result = await executeSQL(command);
         displayQueryResult(result);
         
         // Refresh tables after CREATE/DROP
@@ -282,6 +282,7 @@ function addColumnField() {
             <option value="DATE">DATE</option>
             <option value="DATETIME">DATETIME</option>
             <option value="TIMESTAMP">TIMESTAMP</option>
+            <option value="DOUBLE">DOUBLE</option>
         </select>
         <input type="number" placeholder="Size" class="col-size" data-col="${columnId}" min="1" max="1000" style="display: none;">
         <label><input type="checkbox" class="col-primary" data-col="${columnId}"> PK</label>
@@ -449,13 +450,7 @@ async function loadTableData() {
         displayTableSchema(schema);
         
         // Get table data
-        const dataResponse = await fetch(`${API_URL}/execute`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ sql: `SELECT * FROM ${tableName}` })
-        });
-        
-        const data = await dataResponse.json();
+        const data = await executeSQL(`SELECT * FROM ${tableName} LIMIT ${TABLE_PREVIEW_ROWS}`);
         displayTableData(data, schema);
         
     } catch (error) {
@@ -653,13 +648,7 @@ async function buildAndExecuteQuery() {
     }
     
     try {
-        const response = await fetch(`${API_URL}/execute`, {
-            method: 'POST',
-            headers: { 'Content-Type': 'application/json' },
-            body: JSON.stringify({ sql })
-        });
-        
-        const result = await response.json();
+        const result = await executeSQL(sql);
         displayQueryBuilderResult(result);
     } catch (error) {
         document.getElementById('query-result').innerHTML = `<p class="terminal-error">Error: ${error.message}</p>`;
@@ -698,6 +687,112 @@ function displayQueryBuilderResult(result) {
 
 // ==================== UTILITY FUNCTIONS ====================
 
+// Runs SQL and returns the result in the shape of the JSON response, but
+// fetched in the columnar format so column names are not repeated per row
+async function executeSQL(sql) {
+    const response = await fetch(`${API_URL}/execute`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json', 'Accept': COLUMNAR_TYPE },
+        body: JSON.stringify({ sql })
+    });
+    return decodeColumnar(await response.arrayBuffer());
+}
+
+function decodeColumnar(buffer) {
+    const view = new DataView(buffer);
+    const text = new TextDecoder();
+    let pos = 0;
+    const bytes = length => {
+        const slice = new Uint8Array(buffer, pos, length);
+        pos += length;
+        return slice;
+    };
+    const readString = () => {
+        const length = view.getInt32(pos);
+        pos += 4;
+        return length < 0 ? null : text.decode(bytes(length));
+    };
+    const readVarint = () => {
+        let value = 0;
+        let scale = 1;
+        let b;
+        do {
+            b = view.getUint8(pos++);
+            value += (b & 0x7f) * scale;
+            scale *= 128;
+        } while (b & 0x80);
+        return value;
+    };
+    const readZigzag = () => {
+        const start = pos;
+        const value = readVarint();
+        if (value <= Number.MAX_SAFE_INTEGER) {
+            return value % 2 === 0 ? value / 2 : -(value + 1) / 2;
+        }
+        // Too wide for a double to hold exactly: decode it exactly, then round once
+        let big = 0n;
+        let shift = 0n;
+        let b;
+        pos = start;
+        do {
+            b = view.getUint8(pos++);
+            big |= BigInt(b & 0x7f) << shift;
+            shift += 7n;
+        } while (b & 0x80);
+        return Number((big >> 1n) ^ -(big & 1n));
+    };
+    
+    if (text.decode(bytes(4)) !== 'RDBC' || view.getUint8(pos++) !== 1) {
+        throw new Error('Unsupported result format');
+    }
+    const columnNames = [];
+    const columnTypes = [];
+    const columnCount = view.getUint16(pos);
+    pos += 2;
+    for (let i = 0; i < columnCount; i++) {
+        const nameLength = view.getUint16(pos);
+        pos += 2;
+        columnNames.push(text.decode(bytes(nameLength)));
+        const typeLength = view.getUint8(pos++);
+        columnTypes.push(text.decode(bytes(typeLength)));
+    }
+    
+    const rows = [];
+    let blockRows;
+    while ((blockRows = view.getInt32(pos)) > 0) {
+        pos += 4;
+        const block = Array.from({ length: blockRows }, () => ({}));
+        columnNames.forEach((name, c) => {
+            const nulls = bytes((blockRows + 7) >> 3);
+            for (let r = 0; r < blockRows; r++) {
+                let value = null;
+                if (!(nulls[r >> 3] & (1 << (r & 7)))) {
+                    switch (columnTypes[c]) {
+                        case 'INT':
+                        case 'LONG':
+                        case 'DATE':
+                        case 'DATETIME':
+                        case 'TIMESTAMP': value = readZigzag(); break;
+                        case 'DOUBLE': value = view.getFloat64(pos); pos += 8; break;
+                        case 'BOOLEAN': value = view.getUint8(pos++) !== 0; break;
+                        default: value = text.decode(bytes(readVarint()));
+                    }
+                }
+                block[r][name] = value;
+            }
+        });
+        rows.push(...block);
+    }
+    pos += 4;
+    
+    const success = view.getUint8(pos++) !== 0;
+    const rowCount = view.getInt32(pos);
+    const executionTimeMs = Number(view.getBigInt64(pos + 4));
+    pos += 12;
+    const message = readString();
+    return { success, message, columnNames, columnTypes, rows, rowCount, executionTimeMs };
+}
+
 function escapeHtml(text) {
     const div = document.createElement('div');
     div.textContent = text;
@@ -0,0 +1,75 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkInsertTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY, v VARCHAR(20))");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void multiRowInsertAddsEveryRow() {
+        try (QueryResult result = engine.execute("INSERT INTO t (v, id) VALUES ('a', 1), ('b', 2), ('c', 3)")) {
+            assertTrue(result.isSuccess(), result.getMessage());
+            assertEquals(3, result.getRowsAffected());
+        }
+        assertEquals(List.of(List.of(2, "b")), TestDatabase.query(engine, "SELECT * FROM t WHERE id = 2"));
+    }
+
+    @Test
+    void bulkInsertLoadsSeveralChunksAndIndexesThem() {
+        try (QueryResult result = engine.bulkInsert("t", rows(0, 25_000))) {
+            assertTrue(result.isSuccess(), result.getMessage());
+            assertEquals(25_000, result.getRowsAffected());
+        }
+
+        assertEquals(25_000, TestDatabase.query(engine, "SELECT id FROM t").size());
+        assertEquals(List.of(List.of(24_999, "v24999")), TestDatabase.query(engine, "SELECT * FROM t WHERE id = 24999"));
+    }
+
+    @Test
+    void bulkInsertStopsAtTheChunkWithAViolationAndKeepsEarlierChunks() {
+        List<Row> rows = new ArrayList<>();
+        rows(0, 15_000).forEachRemaining(rows::add);
+        rows.add(new Row(new ArrayList<>(List.of(3, "duplicate"))));
+
+        try (QueryResult result = engine.bulkInsert("t", rows.iterator())) {
+            assertFalse(result.isSuccess());
+            assertEquals(10_000, result.getRowsAffected());
+        }
+        assertEquals(10_000, TestDatabase.query(engine, "SELECT id FROM t").size());
+    }
+
+    private static Iterator<Row> rows(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new Row(new ArrayList<>(List.of(i, "v" + i))))
+                .iterator();
+    }
+}
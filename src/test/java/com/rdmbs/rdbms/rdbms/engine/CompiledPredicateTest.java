@@ -0,0 +1,134 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.engine.operator.BatchFilter;
+import com.rdmbs.rdbms.rdbms.parser.SQLLexer;
+import com.rdmbs.rdbms.rdbms.parser.SQLParser;
+import com.rdmbs.rdbms.rdbms.parser.ast.Comparison;
+import com.rdmbs.rdbms.rdbms.parser.ast.NotCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.SelectStatement;
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.ColumnVector;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompiledPredicateTest {
+    private static final Table TABLE = table();
+    private static final List<Row> ROWS = List.of(
+            row(1, 10, "bob", 1.5),
+            row(2, null, "bill", 2.0),
+            row(3, 30, null, null),
+            row(4, 4, "ann", 4.0),
+            row(5, 50, "bo", 0.5));
+
+    @Test
+    void conditionsMatchTheExpectedRows() {
+        assertMatches("a > 5", 1, 3, 5);
+        assertMatches("a >= 10 AND a <= 30", 1, 3);
+        assertMatches("a <= id", 4);
+        assertMatches("a = 4 OR name = 'bo'", 4, 5);
+        assertMatches("a IN (4, 30)", 3, 4);
+        assertMatches("a NOT IN (4, 30)", 1, 5);
+        assertMatches("score BETWEEN 1 AND 2", 1, 2);
+        assertMatches("name LIKE 'b%'", 1, 2, 5);
+        assertMatches("name NOT LIKE 'b_'", 1, 2, 4);
+        assertMatches("name IS NULL OR a IS NULL", 2, 3);
+        assertMatches("score > 1", 1, 2, 4);
+        assertMatches("NOT (a > 5 OR name = 'ann')");
+        assertMatches("(id = 1 OR id = 2) AND (name LIKE '%b' OR score < 1.8)", 1);
+    }
+
+    @Test
+    void handBuiltNotDoesNotMatchUnknown() {
+        Comparison comparison = new Comparison();
+        comparison.setLeftColumn("a");
+        comparison.setOperator(WhereClause.Operator.GREATER_THAN);
+        comparison.setRightValue(20);
+        NotCondition not = new NotCondition();
+        not.setOperand(comparison);
+
+        assertEquals(List.of(1, 4), rowMatches(not));
+        assertEquals(List.of(1, 4), batchMatches(not));
+    }
+
+    private static void assertMatches(String condition, Integer... ids) {
+        WhereClause where = where(condition);
+        assertEquals(List.of(ids), rowMatches(where), condition);
+        assertEquals(List.of(ids), batchMatches(where), condition);
+    }
+
+    private static List<Integer> rowMatches(WhereClause where) {
+        Predicate<Row> predicate = RowPredicates.compile(TABLE, where);
+        List<Integer> ids = new ArrayList<>();
+        for (Row row : ROWS) {
+            if (predicate.test(row)) {
+                ids.add((Integer) row.getValue(0));
+            }
+        }
+        return ids;
+    }
+
+    private static List<Integer> batchMatches(WhereClause where) {
+        RowBatch batch = new RowBatch(TABLE, null, ROWS.size());
+        for (Row row : ROWS) {
+            for (int c = 0; c < TABLE.getColumns().size(); c++) {
+                append(batch.column(c), row.getValue(c));
+            }
+            batch.endRow();
+        }
+        boolean[] matches = new boolean[batch.size()];
+        BatchFilter.BatchPredicate predicate = BatchPredicates.compile(TABLE, where);
+        predicate.evaluate(batch, matches);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int p = 0; p < batch.size(); p++) {
+            if (matches[p]) {
+                ids.add(batch.column(0).getInt(p));
+            }
+        }
+        return ids;
+    }
+
+    private static void append(ColumnVector vector, Object value) {
+        if (value == null) {
+            vector.appendNull();
+        } else if (value instanceof Integer) {
+            vector.appendInt((Integer) value);
+        } else if (value instanceof Double) {
+            vector.appendDouble((Double) value);
+        } else {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            vector.appendString(ByteBuffer.wrap(bytes), 0, bytes.length);
+        }
+    }
+
+    private static WhereClause where(String condition) {
+        String sql = "SELECT * FROM t WHERE " + condition;
+        return ((SelectStatement) new SQLParser(new SQLLexer(sql).tokenize()).parse()).getWhereClause();
+    }
+
+    private static Row row(Object... values) {
+        return new Row(new ArrayList<>(Arrays.asList(values)));
+    }
+
+    private static Table table() {
+        Table table = new Table("t");
+        table.addColumn(new Column("id", DataType.INT));
+        table.addColumn(new Column("a", DataType.INT));
+        table.addColumn(new Column("name", DataType.VARCHAR, 20));
+        table.addColumn(new Column("score", DataType.DOUBLE));
+        return table;
+    }
+}
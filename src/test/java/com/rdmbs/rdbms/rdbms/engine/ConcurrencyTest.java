@@ -0,0 +1,99 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.schema.Schema;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void readersShareATableAndWritersWaitForThem() throws Exception {
+        Schema schema = new Schema();
+        Table accounts = new Table("accounts");
+        Table orders = new Table("orders");
+        schema.addTable(accounts);
+        schema.addTable(orders);
+        LockManager locks = new LockManager(schema);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            LockManager.Held reading = locks.lockForRead(List.of(accounts));
+
+            // Another reader of the same table and a writer of another table go straight through
+            executor.submit(() -> {
+                locks.lockForRead(List.of(accounts)).close();
+                return null;
+            }).get(5, TimeUnit.SECONDS);
+            executor.submit(() -> locks.lockForWrite("orders").close()).get(5, TimeUnit.SECONDS);
+
+            Future<?> writer = executor.submit(() -> locks.lockForWrite("accounts").close());
+            assertThrows(TimeoutException.class, () -> writer.get(200, TimeUnit.MILLISECONDS));
+
+            reading.close();
+            writer.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void readLockOnADroppedTableFails() {
+        Schema schema = new Schema();
+        Table dropped = new Table("gone");
+        LockManager locks = new LockManager(schema);
+
+        assertThrows(IOException.class, () -> locks.lockForRead(List.of(dropped)));
+    }
+
+    @Test
+    void concurrentInsertsAndQueriesAllSucceed() throws Exception {
+        QueryEngine engine = TestDatabase.open(directory);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY, v INT)");
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread * 100;
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    boolean ok = true;
+                    for (int id = first; id < first + 100; id++) {
+                        try (QueryResult insert = engine.execute("INSERT INTO t VALUES (" + id + ", 1)");
+                             QueryResult read = engine.execute("SELECT v FROM t WHERE id = " + id)) {
+                            ok &= insert.isSuccess() && read.getRows().size() == 1;
+                        }
+                    }
+                    return ok;
+                }, executor));
+            }
+
+            for (CompletableFuture<Boolean> result : results) {
+                assertTrue(result.get(60, TimeUnit.SECONDS));
+            }
+            assertEquals(800, TestDatabase.query(engine, "SELECT id FROM t").size());
+            try (QueryResult duplicate = engine.execute("INSERT INTO t VALUES (5, 1)")) {
+                assertFalse(duplicate.isSuccess());
+            }
+        } finally {
+            executor.shutdownNow();
+            engine.close();
+        }
+    }
+}
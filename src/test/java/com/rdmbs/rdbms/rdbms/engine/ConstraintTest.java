@@ -0,0 +1,154 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.schema.Schema;
+import com.rdmbs.rdbms.rdbms.schema.SchemaManager;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConstraintTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE users (id INT PRIMARY KEY, email VARCHAR(50) UNIQUE, name VARCHAR(50))",
+                "INSERT INTO users VALUES (1, 'a@example.com', 'A')");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void duplicatePrimaryKeyIsRejected() {
+        assertFails("INSERT INTO users VALUES (1, 'b@example.com', 'B')");
+        assertFails("INSERT INTO users VALUES (NULL, 'b@example.com', 'B')");
+        assertEquals(1, count());
+    }
+
+    @Test
+    void duplicateUniqueValueIsRejectedButNullsAreNot() {
+        assertFails("INSERT INTO users VALUES (2, 'a@example.com', 'B')");
+        TestDatabase.execute(engine,
+                "INSERT INTO users VALUES (2, NULL, 'B')",
+                "INSERT INTO users VALUES (3, NULL, 'C')");
+        assertEquals(3, count());
+    }
+
+    @Test
+    void multiRowInsertWithADuplicateInsideItInsertsNothing() {
+        assertFails("INSERT INTO users VALUES (2, 'b@example.com', 'B'), (3, 'b@example.com', 'C')");
+        assertEquals(1, count());
+    }
+
+    @Test
+    void keyFreedByADeleteCanBeReused() {
+        TestDatabase.execute(engine,
+                "DELETE FROM users WHERE id = 1",
+                "INSERT INTO users VALUES (1, 'a@example.com', 'A again')");
+        assertEquals(List.of(List.of("A again")), TestDatabase.query(engine, "SELECT name FROM users WHERE id = 1"));
+    }
+
+    @Test
+    void duplicateOfARowInsertedEarlierInTheSameTransactionIsRejected() {
+        try (Session session = engine.openSession()) {
+            assertSucceeds(session.execute("BEGIN"));
+            assertSucceeds(session.execute("INSERT INTO users VALUES (2, 'b@example.com', 'B')"));
+
+            try (QueryResult result = session.execute("INSERT INTO users VALUES (2, 'c@example.com', 'C')")) {
+                assertFalse(result.isSuccess());
+            }
+        }
+    }
+
+    @Test
+    void updateCannotDuplicateAKeyOrNullThePrimaryKey() {
+        TestDatabase.execute(engine, "INSERT INTO users VALUES (2, 'b@example.com', 'B'), (3, NULL, 'C')");
+
+        assertFails("UPDATE users SET id = 1 WHERE id = 2");
+        assertFails("UPDATE users SET id = NULL WHERE id = 2");
+        assertFails("UPDATE users SET email = 'a@example.com' WHERE id = 3");
+        assertFails("UPDATE users SET email = 'z@example.com' WHERE id > 1");
+        assertEquals(List.of(List.of(1), List.of(2), List.of(3)),
+                TestDatabase.query(engine, "SELECT id FROM users ORDER BY id"));
+        assertEquals(List.of(List.of(2)), TestDatabase.query(engine, "SELECT id FROM users WHERE email = 'b@example.com'"));
+    }
+
+    @Test
+    void updateMayKeepOrReassignARowsOwnKey() {
+        TestDatabase.execute(engine,
+                "UPDATE users SET id = 1, email = 'a@example.com', name = 'A2' WHERE id = 1",
+                "UPDATE users SET id = 7 WHERE id = 1");
+        assertEquals(List.of(List.of(7, "A2")), TestDatabase.query(engine, "SELECT id, name FROM users WHERE id = 7"));
+    }
+
+    @Test
+    void tableWhoseRowsViolateAConstraintOpensWithoutItsIndexAndIsCheckedByScanning() throws IOException {
+        openWithDuplicatePrimaryKey();
+
+        assertFails("INSERT INTO users VALUES (1, 'c@example.com', 'C')");
+        TestDatabase.execute(engine, "INSERT INTO users VALUES (5, 'c@example.com', 'C')");
+        assertFails("INSERT INTO users VALUES (6, 'c@example.com', 'D')");
+        assertFails("UPDATE users SET id = 1 WHERE id = 5");
+        assertFails("UPDATE users SET id = NULL WHERE id = 5");
+        TestDatabase.execute(engine, "UPDATE users SET id = 6 WHERE id = 5");
+        assertEquals(List.of(List.of(1), List.of(1), List.of(6)),
+                TestDatabase.query(engine, "SELECT id FROM users ORDER BY id"));
+    }
+
+    private void assertFails(String sql) {
+        try (QueryResult result = engine.execute(sql)) {
+            assertFalse(result.isSuccess(), sql);
+        }
+    }
+
+    private static void assertSucceeds(QueryResult result) {
+        try (result) {
+            assertTrue(result.isSuccess(), result.getMessage());
+        }
+    }
+
+    /**
+     * Reopens the database as one from before constraint indexes existed
+     * would look: no primary key index, and two rows with id 1.
+     */
+    private void openWithDuplicatePrimaryKey() throws IOException {
+        engine.close();
+        SchemaManager schemaManager = new SchemaManager(directory.toString());
+        Schema schema = schemaManager.loadSchema();
+        schema.dropIndex("pk_users_id");
+        schemaManager.saveSchema(schema);
+        TableStorage storage = new TableStorage(directory.toString());
+        try {
+            storage.insertRow(schema.getTable("users").get(),
+                    new Row(new ArrayList<>(Arrays.asList(1, "b@example.com", "B"))));
+            storage.commit("users");
+        } finally {
+            storage.close();
+        }
+        engine = TestDatabase.open(directory);
+    }
+
+    private int count() {
+        return TestDatabase.query(engine, "SELECT id FROM users").size();
+    }
+}
@@ -0,0 +1,72 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndexMaintenanceTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY, a INT, name VARCHAR(40))");
+        for (int i = 1; i <= 500; i++) {
+            TestDatabase.execute(engine, "INSERT INTO t VALUES (" + i + ", " + (i % 50) + ", 'row " + i + "')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void newIndexIsBackfilledFromExistingRows() {
+        TestDatabase.execute(engine, "CREATE INDEX ia ON t (a)");
+
+        assertEquals(10, TestDatabase.query(engine, "SELECT id FROM t WHERE a = 7").size());
+        assertEquals(30, TestDatabase.query(engine, "SELECT id FROM t WHERE a BETWEEN 10 AND 12").size());
+    }
+
+    @Test
+    void updatesAndDeletesKeepTheIndexInStep() {
+        TestDatabase.execute(engine, "CREATE INDEX ia ON t (a)",
+                "UPDATE t SET a = 99 WHERE id = 7",
+                "DELETE FROM t WHERE a = 8");
+
+        assertEquals(List.of(List.of(7)), TestDatabase.query(engine, "SELECT id FROM t WHERE a = 99"));
+        assertEquals(9, TestDatabase.query(engine, "SELECT id FROM t WHERE a = 7").size());
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE a = 8"));
+    }
+
+    @Test
+    void rowsMovedByAGrowingUpdateAreStillFoundThroughTheIndex() {
+        TestDatabase.execute(engine, "CREATE INDEX ia ON t (a)",
+                "UPDATE t SET name = 'a much longer name than before' WHERE a = 3");
+
+        assertEquals(10, TestDatabase.query(engine,
+                "SELECT id FROM t WHERE a = 3 AND name = 'a much longer name than before'").size());
+    }
+
+    @Test
+    void indexIsUsableAfterRestart() throws IOException {
+        TestDatabase.execute(engine, "CREATE INDEX ia ON t (a)");
+        engine.close();
+
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine, "INSERT INTO t VALUES (501, 7, 'new')");
+
+        assertEquals(11, TestDatabase.query(engine, "SELECT id FROM t WHERE a = 7").size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.index.IndexManager;
+import com.rdmbs.rdbms.rdbms.parser.SQLLexer;
+import com.rdmbs.rdbms.rdbms.parser.SQLParser;
+import com.rdmbs.rdbms.rdbms.parser.ast.JoinClause;
+import com.rdmbs.rdbms.rdbms.parser.ast.SelectStatement;
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JoinPushdownTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR(20))",
+                "CREATE TABLE orders (order_id INT PRIMARY KEY, customer_id INT, total INT)",
+                "INSERT INTO customers VALUES (1, 'ann'), (2, 'bob'), (3, 'cy')",
+                "INSERT INTO orders VALUES (10, 1, 5), (11, 1, 7), (12, 2, 9), (13, NULL, 4)");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void innerJoinPushesEachConditionToTheTableItReads() throws IOException {
+        JoinConditions split = split(JoinClause.JoinType.INNER, "name = 'ann' AND total > 6 AND id < total");
+
+        assertEquals(List.of("name"), columns(split.getLeft()));
+        assertEquals(List.of("total"), columns(split.getRight()));
+        assertEquals(List.of("id", "total"), columns(split.getResidual()));
+    }
+
+    @Test
+    void outerJoinKeepsConditionsOnThePaddedSideAboveTheJoin() throws IOException {
+        JoinConditions left = split(JoinClause.JoinType.LEFT, "name = 'ann' AND total > 6");
+        JoinConditions right = split(JoinClause.JoinType.RIGHT, "name = 'ann' AND total > 6");
+
+        assertEquals(List.of("name"), columns(left.getLeft()));
+        assertNull(left.getRight());
+        assertEquals(List.of("total"), columns(left.getResidual()));
+        assertNull(right.getLeft());
+        assertEquals(List.of("total"), columns(right.getRight()));
+        assertEquals(List.of("name"), columns(right.getResidual()));
+    }
+
+    @Test
+    void filterOnTheRightTableOfAnInnerJoin() {
+        List<List<Object>> rows = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers JOIN orders ON id = customer_id WHERE total > 6"));
+
+        assertEquals(List.of(row(1, "ann", 11, 1, 7), row(2, "bob", 12, 2, 9)), rows);
+    }
+
+    @Test
+    void filterOnTheRightTableOfALeftJoinDropsPaddedRows() {
+        List<List<Object>> matched = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers LEFT JOIN orders ON id = customer_id WHERE total > 6"));
+        List<List<Object>> unmatched = TestDatabase.query(engine,
+                "SELECT * FROM customers LEFT JOIN orders ON id = customer_id WHERE total IS NULL");
+
+        assertEquals(List.of(row(1, "ann", 11, 1, 7), row(2, "bob", 12, 2, 9)), matched);
+        assertEquals(List.of(row(3, "cy", null, null, null)), unmatched);
+    }
+
+    @Test
+    void filterOnTheLeftTableOfARightJoinKeepsUnmatchedRightRowsOut() {
+        List<List<Object>> rows = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers RIGHT JOIN orders ON id = customer_id WHERE name = 'ann'"));
+
+        assertEquals(List.of(row(1, "ann", 10, 1, 5), row(1, "ann", 11, 1, 7)), rows);
+    }
+
+    private JoinConditions split(JoinClause.JoinType joinType, String condition) throws IOException {
+        Table customers = new Table("customers");
+        customers.addColumn(new Column("id", DataType.INT));
+        customers.addColumn(new Column("name", DataType.VARCHAR));
+        Table orders = new Table("orders");
+        orders.addColumn(new Column("order_id", DataType.INT));
+        orders.addColumn(new Column("customer_id", DataType.INT));
+        orders.addColumn(new Column("total", DataType.INT));
+
+        String sql = "SELECT * FROM customers WHERE " + condition;
+        WhereClause where = ((SelectStatement) new SQLParser(new SQLLexer(sql).tokenize()).parse()).getWhereClause();
+        IndexManager indexManager = new IndexManager(directory.resolve("planner").toString());
+        try {
+            return new QueryPlanner(indexManager).splitJoinConditions(customers, orders, joinType, where);
+        } finally {
+            indexManager.close();
+        }
+    }
+
+    private static List<String> columns(WhereClause condition) {
+        List<String> columns = new ArrayList<>();
+        condition.collectColumns(columns);
+        return columns;
+    }
+
+    private static List<Object> row(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    private static List<List<Object>> sorted(List<List<Object>> rows) {
+        List<List<Object>> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Object::toString));
+        return sorted;
+    }
+}
@@ -0,0 +1,81 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JoinTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE customers (id INT PRIMARY KEY, name VARCHAR(20))",
+                "CREATE TABLE orders (order_id INT PRIMARY KEY, customer_id INT, total INT)",
+                "INSERT INTO customers VALUES (1, 'ann'), (2, 'bob'), (3, 'cy')",
+                "INSERT INTO orders VALUES (10, 1, 5), (11, 1, 7), (12, 2, 9), (13, NULL, 4), (14, 9, 1)");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void innerJoinMatchesEqualKeysOnly() {
+        List<List<Object>> rows = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers JOIN orders ON id = customer_id"));
+
+        assertEquals(List.of(
+                row(1, "ann", 10, 1, 5),
+                row(1, "ann", 11, 1, 7),
+                row(2, "bob", 12, 2, 9)), rows);
+    }
+
+    @Test
+    void indexNestedLoopJoinFindsTheSameRows() {
+        TestDatabase.execute(engine, "CREATE INDEX io ON orders (customer_id)");
+
+        List<List<Object>> rows = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers JOIN orders ON id = customer_id WHERE id = 1"));
+
+        assertEquals(List.of(row(1, "ann", 10, 1, 5), row(1, "ann", 11, 1, 7)), rows);
+    }
+
+    @Test
+    void outerJoinsPadTheMissingSideWithNulls() {
+        List<List<Object>> left = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers LEFT JOIN orders ON id = customer_id"));
+        List<List<Object>> right = sorted(TestDatabase.query(engine,
+                "SELECT * FROM customers RIGHT JOIN orders ON id = customer_id"));
+
+        assertEquals(4, left.size());
+        assertEquals(row(3, "cy", null, null, null), left.get(3));
+        assertEquals(5, right.size());
+        assertEquals(2, right.stream().filter(r -> r.get(0) == null).count());
+    }
+
+    private static List<Object> row(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    private static List<List<Object>> sorted(List<List<Object>> rows) {
+        List<List<Object>> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(Object::toString));
+        return sorted;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NullComparisonTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE t (id INT PRIMARY KEY, a INT)",
+                "INSERT INTO t VALUES (1, 10)",
+                "INSERT INTO t VALUES (2, NULL)");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void indexAndFullScanAgreeOnNullKeys() {
+        List<List<Object>> withoutIndex = TestDatabase.query(engine, "SELECT * FROM t WHERE a > 5");
+        TestDatabase.execute(engine, "CREATE INDEX ia ON t (a)");
+        List<List<Object>> withIndex = TestDatabase.query(engine, "SELECT * FROM t WHERE a > 5");
+
+        assertEquals(List.of(List.of(1, 10)), withoutIndex);
+        assertEquals(withoutIndex, withIndex);
+    }
+
+    @Test
+    void negatedComparisonDoesNotMatchNull() {
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE NOT (a > 5)"));
+        assertEquals(List.of(List.of(1)), TestDatabase.query(engine, "SELECT id FROM t WHERE NOT (a < 5)"));
+        assertEquals(List.of(List.of(1)), TestDatabase.query(engine, "SELECT id FROM t WHERE a != 3"));
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE a = NULL"));
+        assertEquals(List.of(List.of(2)), TestDatabase.query(engine, "SELECT id FROM t WHERE a IS NULL"));
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE NOT (a IN (10, 20)) AND id = 2"));
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE a NOT BETWEEN 1 AND 5"
+                + " AND id = 2"));
+    }
+
+    @Test
+    void parameterBoundToNullMatchesNothing() {
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE a > ?", (Object) null));
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM t WHERE a != ?", (Object) null));
+    }
+}
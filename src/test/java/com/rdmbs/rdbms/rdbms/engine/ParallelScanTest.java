@@ -0,0 +1,104 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelScanTest {
+    private static final int ROWS = 20000;
+    private static final String PADDING = "-".repeat(150);
+
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY, grp VARCHAR(10), pad VARCHAR(200))");
+        for (int from = 0; from < ROWS; from += 1000) {
+            TestDatabase.execute(engine, "INSERT INTO t VALUES " + IntStream.range(from, from + 1000)
+                    .mapToObj(i -> "(" + i + ", 'g" + i % 7 + "', '" + PADDING + "')")
+                    .collect(Collectors.joining(", ")));
+        }
+        // Reopening writes every page out, so the file shows how many there are
+        engine.close();
+        engine = TestDatabase.open(directory);
+        long pages = Files.size(directory.resolve("t.tbl")) / 8192;
+        assertTrue(pages >= 4 * 32, "only " + pages + " pages");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void parallelFilterReturnsTheRowsOfASequentialScanInTheSameOrder() {
+        String sql = "SELECT id, grp FROM t WHERE grp = 'g3' AND id >= 50";
+
+        engine.setParallelism(1);
+        List<List<Object>> sequential = TestDatabase.query(engine, sql);
+        engine.setParallelism(4);
+        List<List<Object>> parallel = TestDatabase.query(engine, sql);
+
+        assertEquals(IntStream.range(50, ROWS).filter(i -> i % 7 == 3).count(), sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void parallelAggregateMatchesTheSequentialOne() {
+        String sql = "SELECT grp, COUNT(*), SUM(id), MIN(id), MAX(id) FROM t WHERE id < 15000 GROUP BY grp ORDER BY grp";
+
+        engine.setParallelism(1);
+        List<List<Object>> sequential = TestDatabase.query(engine, sql);
+        engine.setParallelism(4);
+        List<List<Object>> parallel = TestDatabase.query(engine, sql);
+
+        assertEquals(7, sequential.size());
+        assertEquals(List.of("g0", 2143L), sequential.get(0).subList(0, 2));
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    void sessionParallelismOverridesTheEngineDefault() throws IOException {
+        engine.setParallelism(4);
+        List<List<Object>> parallel = TestDatabase.query(engine, "SELECT id FROM t WHERE grp = 'g6'");
+
+        try (Session session = engine.openSession()) {
+            session.setParallelism(1);
+            try (QueryResult result = session.execute("SELECT id FROM t WHERE grp = 'g6'")) {
+                assertTrue(result.isSuccess(), result.getMessage());
+                assertEquals(parallel.size(), result.getRows().size());
+                for (int i = 0; i < parallel.size(); i++) {
+                    assertEquals(parallel.get(i).get(0), result.getRows().get(i).getValue(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void limitStopsTheWorkersAndReleasesTheTable() {
+        engine.setParallelism(4);
+
+        List<List<Object>> first = TestDatabase.query(engine, "SELECT id FROM t WHERE grp = 'g1' LIMIT 3");
+
+        assertEquals(List.of(List.of(1), List.of(8), List.of(15)), first);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> TestDatabase.execute(engine,
+                "INSERT INTO t VALUES (" + ROWS + ", 'g1', 'x')"));
+    }
+}
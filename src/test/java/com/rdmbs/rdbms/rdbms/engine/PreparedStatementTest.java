@@ -0,0 +1,121 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PreparedStatementTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE t (id INT PRIMARY KEY, name VARCHAR(20))",
+                "INSERT INTO t VALUES (1, 'one'), (2, 'two'), (3, 'three')");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void normalizationOnlyCollapsesWhitespaceOutsideStrings() {
+        assertEquals("SELECT * FROM t WHERE name = 'a  b'",
+                StatementCache.normalize("  SELECT *\n  FROM   t WHERE name = 'a  b' ;; "));
+        assertEquals("SELECT 'it\\'s  here'", StatementCache.normalize("SELECT   'it\\'s  here'"));
+    }
+
+    @Test
+    void cacheEvictsTheLeastRecentlyUsedEntry() {
+        StatementCache cache = new StatementCache(2);
+        PreparedQuery a = new PreparedQuery("a", null, 0);
+        cache.put("a", a);
+        cache.put("b", new PreparedQuery("b", null, 0));
+        cache.get("a");
+        cache.put("c", new PreparedQuery("c", null, 0));
+
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void sqlDifferingOnlyInWhitespaceIsParsedOnce() {
+        PreparedQuery first = engine.prepare("SELECT name FROM t WHERE id = ?");
+        PreparedQuery second = engine.prepare("SELECT name\n  FROM t WHERE id = ?;");
+
+        assertSame(first, second);
+        assertNotSame(first, engine.prepare("SELECT name FROM t WHERE id > ?"));
+    }
+
+    @Test
+    void preparedQueryRunsWithEachSetOfParameters() {
+        PreparedQuery query = engine.prepare("SELECT name FROM t WHERE id = ?");
+
+        assertEquals(List.of(List.of("two")), rows(engine.execute(query, List.of(2))));
+        assertEquals(List.of(List.of("three")), rows(engine.execute(query, List.of(3))));
+        try (QueryResult result = engine.execute(query, List.of())) {
+            assertFalse(result.isSuccess());
+        }
+    }
+
+    @Test
+    void prepareExecuteAndDeallocateInSql() {
+        try (Session session = engine.openSession()) {
+            session.execute("PREPARE find AS SELECT id FROM t WHERE name = ?").close();
+
+            assertEquals(List.of(List.of(1)), rows(session.execute("EXECUTE find ('one')")));
+
+            session.execute("DEALLOCATE PREPARE find").close();
+            try (QueryResult result = session.execute("EXECUTE find ('one')")) {
+                assertFalse(result.isSuccess());
+            }
+        }
+    }
+
+    @Test
+    void namedStatementsBelongToTheSessionThatPreparedThem() {
+        try (Session first = engine.openSession(); Session second = engine.openSession()) {
+            first.execute("PREPARE find AS SELECT id FROM t WHERE name = ?").close();
+            try (QueryResult result = second.execute("EXECUTE find ('one')")) {
+                assertFalse(result.isSuccess());
+            }
+
+            second.execute("PREPARE find AS SELECT name FROM t WHERE id = ?").close();
+            assertEquals(List.of(List.of(1)), rows(first.execute("EXECUTE find ('one')")));
+            assertEquals(List.of(List.of("one")), rows(second.execute("EXECUTE find (1)")));
+
+            second.execute("DEALLOCATE PREPARE find").close();
+            assertEquals(List.of(List.of(1)), rows(first.execute("EXECUTE find ('one')")));
+        }
+    }
+
+    @Test
+    void prepareNeedsASession() {
+        try (QueryResult result = engine.execute("PREPARE find AS SELECT id FROM t WHERE name = ?")) {
+            assertFalse(result.isSuccess());
+        }
+    }
+
+    private static List<List<Object>> rows(QueryResult result) {
+        try (result) {
+            return result.getRows().stream().map(row -> List.of(row.getValue(0))).toList();
+        }
+    }
+}
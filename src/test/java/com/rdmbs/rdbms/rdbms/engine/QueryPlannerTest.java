@@ -0,0 +1,94 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.index.IndexManager;
+import com.rdmbs.rdbms.rdbms.parser.SQLLexer;
+import com.rdmbs.rdbms.rdbms.parser.SQLParser;
+import com.rdmbs.rdbms.rdbms.parser.ast.SelectStatement;
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryPlannerTest {
+    @TempDir
+    Path directory;
+
+    private Table table;
+    private IndexManager indexManager;
+    private QueryPlanner planner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table = new Table("t");
+        table.addColumn(new Column("a", DataType.INT));
+        table.addColumn(new Column("b", DataType.INT));
+        indexManager = new IndexManager(directory.toString());
+        indexManager.createIndex("ia", table, "a", false, List.of());
+        planner = new QueryPlanner(indexManager);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        indexManager.close();
+    }
+
+    @Test
+    void equalityOnAnIndexedColumnSeeks() {
+        AccessPath path = planner.planAccess(table, where("a = 7"));
+
+        assertEquals(AccessPath.Type.INDEX_SEEK, path.getType());
+        assertEquals(7, path.getKey());
+        assertTrue(path.isExact());
+    }
+
+    @Test
+    void boundsOnAnIndexedColumnBecomeOneRange() {
+        AccessPath path = planner.planAccess(table, where("a > 5 AND a <= 10"));
+
+        assertEquals(AccessPath.Type.INDEX_RANGE, path.getType());
+        assertEquals(5, path.getLowerBound());
+        assertFalse(path.isLowerInclusive());
+        assertEquals(10, path.getUpperBound());
+        assertTrue(path.isUpperInclusive());
+        assertTrue(path.isExact());
+    }
+
+    @Test
+    void otherConditionsAreStillFilteredAfterTheIndex() {
+        AccessPath path = planner.planAccess(table, where("a BETWEEN 1 AND 3 AND b = 2"));
+
+        assertEquals(AccessPath.Type.INDEX_RANGE, path.getType());
+        assertFalse(path.isExact());
+    }
+
+    @Test
+    void fallsBackToAFullScanWhenNoIndexApplies() {
+        assertEquals(AccessPath.Type.FULL_SCAN, planner.planAccess(table, where("b = 2")).getType());
+        assertEquals(AccessPath.Type.FULL_SCAN, planner.planAccess(table, where("a = 1 OR b = 2")).getType());
+        assertEquals(AccessPath.Type.FULL_SCAN, planner.planAccess(table, where("a = NULL")).getType());
+        assertEquals(AccessPath.Type.FULL_SCAN, planner.planAccess(table, where("a != 4")).getType());
+    }
+
+    @Test
+    void orderingOnANullableColumnDoesNotWalkTheIndex() {
+        assertNull(planner.planOrderedAccess(table, null, "a", false));
+    }
+
+    private static WhereClause where(String condition) {
+        String sql = "SELECT * FROM t WHERE " + condition;
+        return ((SelectStatement) new SQLParser(new SQLLexer(sql).tokenize()).parse()).getWhereClause();
+    }
+}
@@ -0,0 +1,69 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingResultTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY, v INT)");
+        engine.bulkInsert("t", IntStream.range(0, 5000)
+                .mapToObj(i -> new Row(new ArrayList<>(List.of(i, i % 10))))
+                .iterator()).close();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void rowsArriveThroughTheIteratorInScanOrder() {
+        try (QueryResult result = engine.execute("SELECT id FROM t WHERE v = 3")) {
+            Iterator<Row> rows = result.rowIterator();
+            int count = 0;
+            int previous = -1;
+            while (rows.hasNext()) {
+                int id = (Integer) rows.next().getValue(0);
+                assertEquals(3, id % 10);
+                assertTrue(id > previous);
+                previous = id;
+                count++;
+            }
+            assertEquals(500, count);
+        }
+    }
+
+    @Test
+    void closingAPartlyReadResultReleasesItsLocks() {
+        try (QueryResult result = engine.execute("SELECT * FROM t")) {
+            Iterator<Row> rows = result.rowIterator();
+            rows.next();
+            rows.next();
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> TestDatabase.execute(engine, "UPDATE t SET v = 0 WHERE id = 1"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import com.rdmbs.rdbms.rdbms.index.IndexManager;
+import com.rdmbs.rdbms.rdbms.schema.Schema;
+import com.rdmbs.rdbms.rdbms.schema.SchemaManager;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Opens a database in a test's own directory and runs statements against it. */
+public final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    /** Opens the database kept in the given directory, the way the service does at startup. */
+    public static QueryEngine open(Path directory) {
+        String dataDirectory = directory.toString();
+        Schema schema;
+        try {
+            schema = new SchemaManager(dataDirectory).loadSchema();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        TableStorage storage = new TableStorage(dataDirectory);
+        IndexManager indexManager = new IndexManager(dataDirectory);
+        indexManager.loadIndexes(schema);
+        return new QueryEngine(schema, storage, indexManager);
+    }
+
+    /** Runs each statement and fails the test if one of them does not succeed. */
+    public static void execute(QueryEngine engine, String... statements) {
+        for (String sql : statements) {
+            try (QueryResult result = engine.execute(sql)) {
+                assertTrue(result.isSuccess(), sql + ": " + result.getMessage());
+            }
+        }
+    }
+
+    /** Runs a query and returns its rows as lists of values. */
+    public static List<List<Object>> query(QueryEngine engine, String sql, Object... parameters) {
+        try (QueryResult result = engine.execute(sql, Arrays.asList(parameters))) {
+            assertTrue(result.isSuccess(), sql + ": " + result.getMessage());
+            List<List<Object>> rows = new ArrayList<>();
+            for (Row row : result.getRows()) {
+                List<Object> values = new ArrayList<>();
+                for (int i = 0; i < row.size(); i++) {
+                    values.add(row.getValue(i));
+                }
+                rows.add(values);
+            }
+            return rows;
+        }
+    }
+}
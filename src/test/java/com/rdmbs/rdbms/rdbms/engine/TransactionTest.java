@@ -0,0 +1,97 @@
+package com.rdmbs.rdbms.rdbms.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionTest {
+    @TempDir
+    Path directory;
+
+    private QueryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = TestDatabase.open(directory);
+        TestDatabase.execute(engine,
+                "CREATE TABLE accounts (id INT PRIMARY KEY, balance INT)",
+                "CREATE INDEX ib ON accounts (balance)",
+                "INSERT INTO accounts VALUES (1, 100), (2, 50)");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        engine.close();
+    }
+
+    @Test
+    void rollbackUndoesEveryStatementAndItsIndexEntries() {
+        try (Session session = engine.openSession()) {
+            run(session, "BEGIN");
+            run(session, "UPDATE accounts SET balance = 70 WHERE id = 1");
+            run(session, "INSERT INTO accounts VALUES (3, 70)");
+            run(session, "DELETE FROM accounts WHERE id = 2");
+            assertTrue(session.inTransaction());
+            run(session, "ROLLBACK");
+            assertFalse(session.inTransaction());
+        }
+
+        assertEquals(List.of(List.of(1, 100), List.of(2, 50)),
+                TestDatabase.query(engine, "SELECT * FROM accounts ORDER BY id"));
+        assertEquals(List.of(), TestDatabase.query(engine, "SELECT id FROM accounts WHERE balance = 70"));
+        assertEquals(List.of(List.of(2)), TestDatabase.query(engine, "SELECT id FROM accounts WHERE balance = 50"));
+    }
+
+    @Test
+    void committedChangesAreVisibleAndDurable() throws IOException {
+        try (Session session = engine.openSession()) {
+            run(session, "BEGIN");
+            run(session, "UPDATE accounts SET balance = 75 WHERE id = 1");
+            run(session, "UPDATE accounts SET balance = 75 WHERE id = 2");
+            run(session, "COMMIT");
+        }
+        engine.close();
+        engine = TestDatabase.open(directory);
+
+        assertEquals(2, TestDatabase.query(engine, "SELECT id FROM accounts WHERE balance = 75").size());
+    }
+
+    @Test
+    void closingASessionRollsBackItsOpenTransaction() {
+        try (Session session = engine.openSession()) {
+            run(session, "BEGIN");
+            run(session, "INSERT INTO accounts VALUES (3, 10)");
+        }
+
+        assertEquals(2, TestDatabase.query(engine, "SELECT id FROM accounts").size());
+    }
+
+    @Test
+    void failedStatementRollsBackTheWholeTransaction() {
+        try (Session session = engine.openSession()) {
+            run(session, "BEGIN");
+            run(session, "INSERT INTO accounts VALUES (3, 10)");
+            try (QueryResult duplicate = session.execute("INSERT INTO accounts VALUES (1, 10)")) {
+                assertFalse(duplicate.isSuccess());
+            }
+            assertFalse(session.inTransaction());
+        }
+
+        assertEquals(2, TestDatabase.query(engine, "SELECT id FROM accounts").size());
+    }
+
+    private static void run(Session session, String sql) {
+        try (QueryResult result = session.execute(sql)) {
+            assertTrue(result.isSuccess(), sql + ": " + result.getMessage());
+        }
+    }
+}
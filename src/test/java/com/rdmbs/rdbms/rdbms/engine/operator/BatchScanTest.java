@@ -0,0 +1,126 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.ColumnVector;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import com.rdmbs.rdbms.rdbms.storage.RowBatch;
+import com.rdmbs.rdbms.rdbms.storage.TableStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchScanTest {
+    private static final int ROWS = 3000;
+
+    @TempDir
+    Path directory;
+
+    private Table table;
+    private TableStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table = new Table("items");
+        table.addColumn(new Column("id", DataType.INT));
+        table.addColumn(new Column("name", DataType.VARCHAR, 255));
+        table.addColumn(new Column("note", DataType.VARCHAR, 255));
+        storage = new TableStorage(directory.toString());
+        storage.createTableFile(table);
+        for (int i = 0; i < ROWS; i++) {
+            storage.insertRow(table, new Row(new ArrayList<>(Arrays.asList(
+                    i, "item " + i, i % 5 == 0 ? null : "note " + i % 3 + "-".repeat(80)))));
+        }
+        storage.commit(table.getName());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    @Test
+    void scanReadsEveryRowInPageOrderAndOnlyTheColumnsAskedFor() throws IOException {
+        // Enough pages that the scan reads ahead more than once
+        assertTrue(storage.getPageCount(table) > 2 * BatchScan.READ_AHEAD_PAGES);
+        BatchScan scan = new BatchScan(storage, table, new boolean[] {true, true, false});
+
+        List<List<Object>> rows = drain(scan, new int[] {0, 1, 2}, batch -> assertNull(batch.column(2)));
+
+        assertEquals(ROWS, rows.size());
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(Arrays.asList(i, "item " + i, null), rows.get(i));
+        }
+    }
+
+    @Test
+    void filterRunsBeforeTheOtherColumnsAreDecoded() throws IOException {
+        int[] lateSizes = new int[1];
+        BatchFilter.BatchPredicate everySeventh = (batch, matches) -> {
+            lateSizes[0] += batch.column(1).size() + batch.column(2).size();
+            ColumnVector ids = batch.column(0);
+            for (int p = 0; p < batch.size(); p++) {
+                matches[p] = ids.getInt(p) % 7 == 0;
+            }
+        };
+        BatchScan scan = new BatchScan(storage, table, null, everySeventh, new boolean[] {true, false, false});
+
+        List<List<Object>> rows = drain(scan, new int[] {0, 1, 2}, batch -> { });
+
+        assertEquals(0, lateSizes[0]);
+        assertEquals((ROWS + 6) / 7, rows.size());
+        for (List<Object> row : rows) {
+            int id = (Integer) row.get(0);
+            assertEquals(0, id % 7);
+            assertEquals("item " + id, row.get(1));
+            assertEquals(id % 5 == 0 ? null : "note " + id % 3 + "-".repeat(80), row.get(2));
+        }
+    }
+
+    @Test
+    void pagesWithNoSelectedRowsKeepTheLateColumnsAligned() throws IOException {
+        BatchFilter.BatchPredicate tail = (batch, matches) -> {
+            for (int p = 0; p < batch.size(); p++) {
+                matches[p] = batch.column(0).getInt(p) >= ROWS - 10 || batch.column(0).getInt(p) == 3;
+            }
+        };
+        BatchScan scan = new BatchScan(storage, table, new boolean[] {true, true, false},
+                tail, new boolean[] {true, false, false});
+
+        List<List<Object>> rows = drain(scan, new int[] {0, 1}, batch -> { });
+
+        assertEquals(11, rows.size());
+        assertEquals(List.of(3, "item 3"), rows.get(0));
+        assertEquals(List.of(ROWS - 1, "item " + (ROWS - 1)), rows.get(10));
+    }
+
+    private static List<List<Object>> drain(BatchScan scan, int[] columns, Consumer<RowBatch> check) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        scan.open();
+        try {
+            RowBatch batch;
+            while ((batch = scan.nextBatch()) != null) {
+                check.accept(batch);
+                for (int i = 0; i < batch.selectedCount(); i++) {
+                    rows.add(batch.toRow(batch.selected(i), columns).getValues());
+                }
+            }
+        } finally {
+            scan.close();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,93 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.engine.QueryEngine;
+import com.rdmbs.rdbms.rdbms.engine.TestDatabase;
+import com.rdmbs.rdbms.rdbms.parser.ast.AggregateCall;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.rdmbs.rdbms.rdbms.engine.operator.ListOperator.drain;
+import static com.rdmbs.rdbms.rdbms.engine.operator.ListOperator.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HashAggregateTest {
+    private static final int GROUPS = 5_000;
+    private static final int ROWS_PER_GROUP = 6;
+
+    private final List<HashAggregate.Aggregate> aggregates = List.of(
+            new HashAggregate.Aggregate(AggregateCall.Function.COUNT, -1, null),
+            new HashAggregate.Aggregate(AggregateCall.Function.SUM, 1, DataType.INT),
+            new HashAggregate.Aggregate(AggregateCall.Function.MIN, 1, DataType.INT),
+            new HashAggregate.Aggregate(AggregateCall.Function.MAX, 1, DataType.INT),
+            new HashAggregate.Aggregate(AggregateCall.Function.AVG, 1, DataType.INT));
+
+    @Test
+    void spilledGroupsGiveTheSameResultsAsInMemoryOnes() throws IOException {
+        List<List<Object>> spilled = sorted(drain(aggregate(4 * 1024)));
+        List<List<Object>> inMemory = sorted(drain(aggregate(Long.MAX_VALUE)));
+
+        assertEquals(GROUPS, spilled.size());
+        assertEquals(inMemory, spilled);
+        // Group 7 holds the values 7, 5007, ..., 25007
+        assertEquals(List.of(7, 6L, 75_042L, 7, 25_007, 12_507.0), spilled.get(7));
+    }
+
+    @Test
+    void emptyInputWithoutGroupsStillYieldsOneRow() throws IOException {
+        HashAggregate aggregate = new HashAggregate(new ListOperator(List.of()), List.of(),
+                List.of(new HashAggregate.Aggregate(AggregateCall.Function.COUNT, -1, null),
+                        new HashAggregate.Aggregate(AggregateCall.Function.SUM, 1, DataType.INT)),
+                table(), Long.MAX_VALUE);
+
+        assertEquals(List.of(Arrays.asList(0L, null)), drain(aggregate));
+    }
+
+    @Test
+    void sqlGroupByWithHaving(@TempDir Path directory) throws IOException {
+        QueryEngine engine = TestDatabase.open(directory);
+        try {
+            TestDatabase.execute(engine,
+                    "CREATE TABLE sales (region VARCHAR(10), amount INT)",
+                    "INSERT INTO sales VALUES ('north', 5), ('north', 7), ('south', 1), ('east', 4), ('east', NULL)");
+
+            assertEquals(List.of(List.of("east", 4L), List.of("north", 12L)), TestDatabase.query(engine,
+                    "SELECT region, SUM(amount) FROM sales GROUP BY region HAVING SUM(amount) > 3 ORDER BY region"));
+            assertEquals(List.of(List.of(5L, 4L)), TestDatabase.query(engine,
+                    "SELECT COUNT(*), COUNT(amount) FROM sales"));
+        } finally {
+            engine.close();
+        }
+    }
+
+    private HashAggregate aggregate(long memoryBudgetBytes) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < GROUPS * ROWS_PER_GROUP; i++) {
+            rows.add(row(i % GROUPS, i));
+        }
+        return new HashAggregate(new ListOperator(rows), List.of(0), aggregates, table(), memoryBudgetBytes);
+    }
+
+    private static Table table() {
+        Table table = new Table("input");
+        table.addColumn(new Column("k", DataType.INT));
+        table.addColumn(new Column("v", DataType.INT));
+        return table;
+    }
+
+    private static List<List<Object>> sorted(List<List<Object>> rows) {
+        List<List<Object>> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing((List<Object> row) -> (Integer) row.get(0)));
+        return sorted;
+    }
+}
@@ -0,0 +1,124 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.engine.QueryEngine;
+import com.rdmbs.rdbms.rdbms.engine.TestDatabase;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimitTest {
+
+    @Test
+    void stopsPullingOnceTheLimitIsReached() throws IOException {
+        Counting source = new Counting(1_000);
+        Limit limit = new Limit(source, 5, 10);
+
+        List<Object> ids = drain(limit);
+
+        assertEquals(List.of(10, 11, 12, 13, 14), ids);
+        assertEquals(15, source.produced);
+        assertTrue(source.closed);
+    }
+
+    @Test
+    void offsetPastTheEndReturnsNothing() throws IOException {
+        assertEquals(List.of(), drain(new Limit(new Counting(3), 5, 10)));
+    }
+
+    @Test
+    void limitZeroDoesNotReadTheChild() throws IOException {
+        Counting source = new Counting(3);
+
+        assertEquals(List.of(), drain(new Limit(source, 0, 2)));
+        assertEquals(0, source.produced);
+    }
+
+    @Test
+    void sqlLimitAndOffsetPageThroughAResult(@TempDir Path directory) throws IOException {
+        QueryEngine engine = TestDatabase.open(directory);
+        try {
+            TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY)");
+            for (int i = 1; i <= 20; i++) {
+                TestDatabase.execute(engine, "INSERT INTO t VALUES (" + i + ")");
+            }
+
+            assertEquals(List.of(List.of(7), List.of(8), List.of(9)),
+                    TestDatabase.query(engine, "SELECT id FROM t ORDER BY id LIMIT 3 OFFSET 6"));
+            assertEquals(List.of(List.of(20)), TestDatabase.query(engine, "SELECT id FROM t ORDER BY id DESC LIMIT 1"));
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void offsetIsSkippedInTheIndexInEitherDirection(@TempDir Path directory) throws IOException {
+        QueryEngine engine = TestDatabase.open(directory);
+        try {
+            TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY)");
+            StringBuilder insert = new StringBuilder("INSERT INTO t VALUES (0)");
+            for (int i = 1; i < 5000; i++) {
+                insert.append(", (").append(i).append(')');
+            }
+            TestDatabase.execute(engine, insert.toString());
+
+            assertEquals(List.of(List.of(4100), List.of(4101)),
+                    TestDatabase.query(engine, "SELECT id FROM t WHERE id > 99 ORDER BY id LIMIT 2 OFFSET 4000"));
+            assertEquals(List.of(List.of(889), List.of(888), List.of(887)),
+                    TestDatabase.query(engine, "SELECT id FROM t WHERE id < 900 ORDER BY id DESC LIMIT 3 OFFSET 10"));
+            assertEquals(List.of(List.of(2), List.of(1), List.of(0)),
+                    TestDatabase.query(engine, "SELECT id FROM t WHERE id <= 2 ORDER BY id DESC LIMIT 5"));
+        } finally {
+            engine.close();
+        }
+    }
+
+    private static List<Object> drain(Operator operator) throws IOException {
+        List<Object> values = new ArrayList<>();
+        operator.open();
+        try {
+            Row row;
+            while ((row = operator.next()) != null) {
+                values.add(row.getValue(0));
+            }
+        } finally {
+            operator.close();
+        }
+        return values;
+    }
+
+    /** Produces rows 0, 1, 2, ... and counts how many were asked for. */
+    private static final class Counting implements Operator {
+        private final int size;
+        private int produced;
+        private boolean closed;
+
+        Counting(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public Row next() {
+            if (produced >= size) {
+                return null;
+            }
+            return new Row(new ArrayList<>(List.of(produced++)));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.storage.Row;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Produces a fixed list of rows, for feeding operators under test. */
+final class ListOperator implements Operator {
+    private final List<Row> rows;
+    private int position;
+    boolean closed;
+
+    ListOperator(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    static Row row(Object... values) {
+        return new Row(new ArrayList<>(Arrays.asList(values)));
+    }
+
+    static List<Object> values(Row row) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            values.add(row.getValue(i));
+        }
+        return values;
+    }
+
+    /** Opens the operator, reads every row and closes it again. */
+    static List<List<Object>> drain(Operator operator) throws IOException {
+        List<List<Object>> result = new ArrayList<>();
+        operator.open();
+        try {
+            Row row;
+            while ((row = operator.next()) != null) {
+                result.add(values(row));
+            }
+        } finally {
+            operator.close();
+        }
+        return result;
+    }
+
+    @Override
+    public void open() {
+        position = 0;
+    }
+
+    @Override
+    public Row next() {
+        return position < rows.size() ? rows.get(position++) : null;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
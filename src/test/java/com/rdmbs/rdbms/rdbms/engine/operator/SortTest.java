@@ -0,0 +1,123 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import com.rdmbs.rdbms.rdbms.engine.QueryEngine;
+import com.rdmbs.rdbms.rdbms.engine.TestDatabase;
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import com.rdmbs.rdbms.rdbms.storage.BufferPool;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.rdmbs.rdbms.rdbms.engine.operator.ListOperator.drain;
+import static com.rdmbs.rdbms.rdbms.engine.operator.ListOperator.row;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortTest {
+    private static final int ROWS = 20_000;
+
+    private final Comparator<Row> byKey = new RowComparator(List.of(0), List.of(false));
+
+    @Test
+    void spilledSortMergesRunsAndStaysStable() throws IOException {
+        List<Row> input = input();
+        ListOperator source = new ListOperator(input);
+
+        List<List<Object>> sorted = drain(new Sort(source, byKey, table(), 16 * 1024));
+
+        assertEquals(expected(input), sorted);
+        assertTrue(source.closed);
+    }
+
+    @Test
+    void inMemorySortGivesTheSameOrder() throws IOException {
+        List<Row> input = input();
+
+        assertEquals(expected(input), drain(new Sort(new ListOperator(input), byKey, table(), Long.MAX_VALUE)));
+    }
+
+    @Test
+    void topNKeepsTheFirstRowsInSortOrder() throws IOException {
+        List<Row> input = input();
+
+        List<List<Object>> top = drain(new TopN(new ListOperator(input), byKey, 25));
+
+        assertEquals(expected(input).subList(0, 25), top);
+    }
+
+    @Test
+    void orderByAnIndexedColumnWithALimitReadsOnlyTheLeavesItNeeds(@TempDir Path directory) throws IOException {
+        QueryEngine engine = TestDatabase.open(directory);
+        try {
+            TestDatabase.execute(engine, "CREATE TABLE t (id INT PRIMARY KEY)");
+            StringBuilder insert = new StringBuilder("INSERT INTO t VALUES (0)");
+            for (int i = 1; i < 50_000; i++) {
+                insert.append(", (").append(i).append(')');
+            }
+            TestDatabase.execute(engine, insert.toString());
+
+            // The primary key index alone spans dozens of leaves
+            BufferPool pool = BufferPool.shared();
+            long reads = pool.getHits() + pool.getMisses();
+            List<List<Object>> last = TestDatabase.query(engine, "SELECT * FROM t ORDER BY id DESC LIMIT 3");
+            long lastReads = pool.getHits() + pool.getMisses() - reads;
+            reads = pool.getHits() + pool.getMisses();
+            List<List<Object>> first = TestDatabase.query(engine, "SELECT * FROM t ORDER BY id LIMIT 3");
+            long firstReads = pool.getHits() + pool.getMisses() - reads;
+
+            assertEquals(List.of(List.of(49_999), List.of(49_998), List.of(49_997)), last);
+            assertEquals(List.of(List.of(0), List.of(1), List.of(2)), first);
+            assertTrue(lastReads < 20, lastReads + " page reads");
+            assertTrue(firstReads < 20, firstReads + " page reads");
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void nullsSortFirstAscendingAndLastDescending() throws IOException {
+        List<Row> input = List.of(row(2, 0), row(null, 1), row(1, 2));
+        Comparator<Row> descending = new RowComparator(List.of(0), List.of(true));
+
+        assertEquals(List.of(List.of(2, 0), List.of(1, 2), Arrays.asList(null, 1)),
+                drain(new Sort(new ListOperator(input), descending, table(), Long.MAX_VALUE)));
+        assertEquals(Arrays.asList(null, 1),
+                drain(new TopN(new ListOperator(input), byKey, 1)).get(0));
+    }
+
+    /** Keys with many duplicates; the second column records the input position. */
+    private static List<Row> input() {
+        Random random = new Random(7);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(row(random.nextInt(500), i));
+        }
+        return rows;
+    }
+
+    private static List<List<Object>> expected(List<Row> input) {
+        List<List<Object>> expected = new ArrayList<>();
+        for (Row row : input) {
+            expected.add(ListOperator.values(row));
+        }
+        expected.sort(Comparator.comparing((List<Object> row) -> (Integer) row.get(0)));
+        return expected;
+    }
+
+    private static Table table() {
+        Table table = new Table("sorted");
+        table.addColumn(new Column("k", DataType.INT));
+        table.addColumn(new Column("seq", DataType.INT));
+        return table;
+    }
+}
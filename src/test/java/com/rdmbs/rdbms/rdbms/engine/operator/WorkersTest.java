@@ -0,0 +1,54 @@
+package com.rdmbs.rdbms.rdbms.engine.operator;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkersTest {
+
+    @Test
+    void waitsForEveryWorkerBeforeRethrowingARuntimeFailure() {
+        CountDownLatch failed = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        IllegalStateException failure = new IllegalStateException("boom");
+        Callable<Void> failing = () -> {
+            failed.countDown();
+            throw failure;
+        };
+        Callable<Void> slow = () -> {
+            failed.await();
+            Thread.sleep(100);
+            finished.set(true);
+            return null;
+        };
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> Workers.runAll(List.of(failing, slow)));
+
+        assertSame(failure, thrown);
+        assertTrue(finished.get());
+    }
+
+    @Test
+    void rethrowsTheFirstFailureInTaskOrder() {
+        Callable<Void> io = () -> {
+            throw new IOException("disk");
+        };
+        Callable<Void> runtime = () -> {
+            throw new IllegalArgumentException("bad");
+        };
+
+        IOException thrown = assertThrows(IOException.class, () -> Workers.runAll(List.of(io, runtime)));
+
+        assertEquals("disk", thrown.getMessage());
+    }
+}
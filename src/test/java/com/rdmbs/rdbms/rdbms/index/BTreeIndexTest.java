@@ -0,0 +1,227 @@
+package com.rdmbs.rdbms.rdbms.index;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.RowId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BTreeIndexTest {
+    private static final int KEYS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    private BTreeIndex index;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void randomInsertsSplitNodesAndKeepKeysOrdered() {
+        index = open(false);
+        List<Integer> keys = shuffledKeys();
+        for (int key : keys) {
+            index.insert(key, rowIdFor(key));
+        }
+
+        assertEquals(KEYS, index.size());
+        assertEquals(List.of(rowIdFor(12_345)), index.search(12_345));
+        assertEquals(expectedRange(100, 199), index.range(100, true, 200, false));
+        assertEquals(KEYS, index.range(null, false, null, false).size());
+    }
+
+    @Test
+    void bulkLoadBuildsTheSameTreeAsInserts() {
+        index = open(false);
+        List<IndexEntry> entries = new ArrayList<>();
+        for (int key : shuffledKeys()) {
+            entries.add(new IndexEntry(key, rowIdFor(key)));
+        }
+
+        index.bulkLoad(entries);
+        index.insert(KEYS, rowIdFor(KEYS));
+
+        assertEquals(KEYS + 1, index.size());
+        assertEquals(expectedRange(KEYS - 50, KEYS), index.range(KEYS - 50, true, null, false));
+        assertEquals(List.of(rowIdFor(0)), index.search(0));
+    }
+
+    @Test
+    void duplicatesAreDeletedOneAtATime() {
+        index = open(false);
+        RowId first = new RowId(1, 0);
+        RowId second = new RowId(1, 1);
+        index.insert(7, second);
+        index.insert(7, first);
+
+        assertEquals(List.of(first, second), index.search(7));
+
+        index.delete(7, first);
+        assertEquals(List.of(second), index.search(7));
+    }
+
+    @Test
+    void uniqueIndexRejectsASecondEntryForAKey() {
+        index = open(true);
+        index.insert(1, new RowId(1, 0));
+
+        assertThrows(RuntimeException.class, () -> index.insert(1, new RowId(1, 1)));
+    }
+
+    @Test
+    void entriesSurviveReopening() throws IOException {
+        index = open(false);
+        for (int key : shuffledKeys()) {
+            index.insert(key, rowIdFor(key));
+        }
+        index.close();
+
+        index = open(false);
+
+        assertEquals(KEYS, index.size());
+        assertEquals(List.of(rowIdFor(777)), index.search(777));
+        assertEquals(expectedRange(5_000, 5_009), index.range(5_000, true, 5_009, true));
+    }
+
+    @Test
+    void cursorWalksAnyRangeForwardAndBackward() {
+        index = open(false);
+        // Three entries per key, and a stretch of leaves emptied by deletes
+        List<IndexEntry> entries = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            entries.add(new IndexEntry(i / 3, rowIdFor(i)));
+        }
+        index.bulkLoad(entries);
+        List<IndexEntry> expected = new ArrayList<>();
+        for (IndexEntry entry : entries) {
+            int key = (Integer) entry.getKey();
+            if (key >= 2000 && key < 4000) {
+                index.delete(key, entry.getRowId());
+            } else {
+                expected.add(entry);
+            }
+        }
+
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            Integer from = random.nextInt(10) == 0 ? null : random.nextInt(KEYS / 3 + 10) - 5;
+            Integer to = random.nextInt(10) == 0 ? null : random.nextInt(KEYS / 3 + 10) - 5;
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            List<RowId> ascending = new ArrayList<>();
+            for (IndexEntry entry : expected) {
+                int key = (Integer) entry.getKey();
+                if ((from == null || key > from || (fromInclusive && key == from))
+                        && (to == null || key < to || (toInclusive && key == to))) {
+                    ascending.add(entry.getRowId());
+                }
+            }
+            List<RowId> descending = new ArrayList<>(ascending);
+            Collections.reverse(descending);
+            String range = from + (fromInclusive ? "]" : ")") + " to " + to + (toInclusive ? "]" : ")");
+
+            assertEquals(ascending, drain(index.cursor(from, fromInclusive, to, toInclusive, false)), range);
+            assertEquals(descending, drain(index.cursor(from, fromInclusive, to, toInclusive, true)), range);
+        }
+    }
+
+    @Test
+    void cursorSkipsWithoutReturningTheEntriesItPasses() {
+        index = open(false);
+        for (int key : shuffledKeys()) {
+            index.insert(key, rowIdFor(key));
+        }
+
+        IndexCursor forward = index.cursor(100, true, null, false, false);
+        assertEquals(5000, forward.skip(5000));
+        assertEquals(rowIdFor(5100), forward.next());
+
+        IndexCursor backward = index.cursor(null, false, 9000, false, true);
+        assertEquals(8000, backward.skip(8000));
+        assertEquals(rowIdFor(999), backward.next());
+        assertEquals(999, backward.skip(5000));
+        assertNull(backward.next());
+    }
+
+    @Test
+    void cursorResumesAfterTheTreeChangesUnderIt() {
+        index = open(false);
+        for (int key : shuffledKeys()) {
+            index.insert(key, rowIdFor(key));
+        }
+
+        IndexCursor forward = index.cursor(null, false, null, false, false);
+        IndexCursor backward = index.cursor(null, false, null, false, true);
+        assertEquals(rowIdFor(0), forward.next());
+        assertEquals(rowIdFor(KEYS - 1), backward.next());
+        // Changes ahead of each cursor, past the leaf it has read, and behind it
+        for (int key = 3000; key < 6000; key++) {
+            index.delete(key, rowIdFor(key));
+        }
+        for (int key = KEYS - 6000; key < KEYS - 3000; key++) {
+            index.delete(key, rowIdFor(key));
+        }
+        for (int i = 0; i < 2000; i++) {
+            index.insert(KEYS / 2, new RowId(90_000 + i, 0));
+        }
+        index.insert(-1, rowIdFor(0));
+        index.insert(KEYS + 5, rowIdFor(0));
+
+        List<RowId> ahead = drain(forward);
+        assertEquals(KEYS - 4000, ahead.size());
+        assertEquals(rowIdFor(2999), ahead.get(2998));
+        assertEquals(rowIdFor(6000), ahead.get(2999));
+        List<RowId> behind = drain(backward);
+        assertEquals(KEYS - 4000, behind.size());
+        assertEquals(rowIdFor(KEYS - 3000), behind.get(2998));
+        assertEquals(rowIdFor(KEYS - 6001), behind.get(2999));
+        assertEquals(rowIdFor(0), behind.get(behind.size() - 1));
+    }
+
+    private static List<RowId> drain(IndexCursor cursor) {
+        List<RowId> rowIds = new ArrayList<>();
+        for (RowId rowId = cursor.next(); rowId != null; rowId = cursor.next()) {
+            rowIds.add(rowId);
+        }
+        return rowIds;
+    }
+
+    private BTreeIndex open(boolean unique) {
+        return new BTreeIndex("idx", "t", "k", 0, DataType.INT, unique, directory.resolve("idx.idx"));
+    }
+
+    private static List<Integer> shuffledKeys() {
+        List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < KEYS; key++) {
+            keys.add(key);
+        }
+        Collections.shuffle(keys, new Random(42));
+        return keys;
+    }
+
+    private static RowId rowIdFor(int key) {
+        return new RowId(key / 100 + 1, key % 100);
+    }
+
+    private static List<RowId> expectedRange(int from, int to) {
+        List<RowId> rowIds = new ArrayList<>();
+        for (int key = from; key <= to; key++) {
+            rowIds.add(rowIdFor(key));
+        }
+        return rowIds;
+    }
+}
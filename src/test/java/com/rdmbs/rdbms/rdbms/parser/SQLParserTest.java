@@ -0,0 +1,110 @@
+package com.rdmbs.rdbms.rdbms.parser;
+
+import com.rdmbs.rdbms.rdbms.parser.ast.BetweenCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.Comparison;
+import com.rdmbs.rdbms.rdbms.parser.ast.InCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.IsNullCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.LikeCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.LogicalCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.NotCondition;
+import com.rdmbs.rdbms.rdbms.parser.ast.SelectStatement;
+import com.rdmbs.rdbms.rdbms.parser.ast.WhereClause;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SQLParserTest {
+
+    @Test
+    void andBindsTighterThanOr() {
+        assertEquals("(a = 1 OR b = 2) AND (a = 1 OR c = 3)", parse("a = 1 OR b = 2 AND c = 3"));
+        assertEquals("a = 1 AND b = 2 AND c = 3", parse("a = 1 AND (b = 2 AND c = 3)"));
+    }
+
+    @Test
+    void parenthesesOverridePrecedence() {
+        assertEquals("(a = 1 OR b = 2) AND c = 3", parse("(a = 1 OR b = 2) AND c = 3"));
+        assertEquals("a = 1 OR b = 2 OR c = 3", parse("((a = 1) OR (b = 2 OR c = 3))"));
+    }
+
+    @Test
+    void notIsFoldedIntoTheLeaves() {
+        assertEquals("a != 1", parse("NOT a = 1"));
+        assertEquals("a >= 5 AND b <= 2", parse("NOT (a < 5 OR b > 2)"));
+        assertEquals("a NOT IN (1, 2)", parse("NOT a IN (1, 2)"));
+        assertEquals("a IN (1, 2)", parse("NOT a NOT IN (1, 2)"));
+        assertEquals("a NOT BETWEEN 1 AND 9", parse("a NOT BETWEEN 1 AND 9"));
+        assertEquals("name LIKE 'x%'", parse("NOT name NOT LIKE 'x%'"));
+        assertEquals("name IS NOT NULL", parse("NOT name IS NULL"));
+        assertEquals("a = 1 OR b != 2", parse("NOT NOT (a = 1 OR NOT b = 2)"));
+    }
+
+    @Test
+    void leavesKeepTheirOperands() {
+        assertEquals("a BETWEEN 1 AND 9 AND name LIKE 'a_c' AND b IS NULL AND c < d",
+                parse("a BETWEEN 1 AND 9 AND name LIKE 'a_c' AND b IS NULL AND c < d"));
+        assertEquals("a IN ('x', 'y')", parse("a IN ('x', 'y')"));
+    }
+
+    @Test
+    void malformedConditionsAreRejected() {
+        assertThrows(RuntimeException.class, () -> parse("(a = 1 OR b = 2"));
+        assertThrows(RuntimeException.class, () -> parse("a = 1 AND"));
+        assertThrows(RuntimeException.class, () -> parse("a BETWEEN 1"));
+    }
+
+    private static String parse(String condition) {
+        String sql = "SELECT * FROM t WHERE " + condition;
+        SelectStatement select = (SelectStatement) new SQLParser(new SQLLexer(sql).tokenize()).parse();
+        return describe(select.getWhereClause(), null);
+    }
+
+    /** Renders a condition, parenthesizing an operand whose operator differs from its parent's. */
+    private static String describe(WhereClause condition, WhereClause.LogicalOperator parent) {
+        if (condition instanceof LogicalCondition) {
+            LogicalCondition logical = (LogicalCondition) condition;
+            String joined = logical.getOperands().stream()
+                    .map(operand -> describe(operand, logical.getOperator()))
+                    .collect(Collectors.joining(" " + logical.getOperator() + " "));
+            return parent == null || parent == logical.getOperator() ? joined : "(" + joined + ")";
+        }
+        if (condition instanceof NotCondition) {
+            return "NOT (" + describe(((NotCondition) condition).getOperand(), null) + ")";
+        }
+        if (condition instanceof Comparison) {
+            Comparison comparison = (Comparison) condition;
+            String right = comparison.isColumnComparison()
+                    ? comparison.getRightColumn() : literal(comparison.getRightValue());
+            return comparison.getLeftColumn() + " " + symbol(comparison.getOperator()) + " " + right;
+        }
+        if (condition instanceof InCondition) {
+            InCondition in = (InCondition) condition;
+            return in.getColumn() + (in.isNegated() ? " NOT IN (" : " IN (")
+                    + in.getValues().stream().map(SQLParserTest::literal).collect(Collectors.joining(", ")) + ")";
+        }
+        if (condition instanceof BetweenCondition) {
+            BetweenCondition between = (BetweenCondition) condition;
+            return between.getColumn() + (between.isNegated() ? " NOT BETWEEN " : " BETWEEN ")
+                    + literal(between.getLower()) + " AND " + literal(between.getUpper());
+        }
+        if (condition instanceof LikeCondition) {
+            LikeCondition like = (LikeCondition) condition;
+            return like.getColumn() + (like.isNegated() ? " NOT LIKE " : " LIKE ") + literal(like.getPattern());
+        }
+        IsNullCondition isNull = (IsNullCondition) condition;
+        return isNull.getColumn() + (isNull.isNegated() ? " IS NOT NULL" : " IS NULL");
+    }
+
+    private static String literal(Object value) {
+        return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+    }
+
+    private static String symbol(WhereClause.Operator operator) {
+        List<String> symbols = List.of("=", "!=", "<", ">", "<=", ">=");
+        return symbols.get(operator.ordinal());
+    }
+}
@@ -0,0 +1,137 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BufferPoolTest {
+    private static final long MAGIC = 0x42554650_4f4f4c31L;
+
+    @TempDir
+    Path directory;
+
+    private PageFile file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = PageFile.open(directory.resolve("pages.dat"), MAGIC);
+        List<Page> pages = new ArrayList<>();
+        for (int pageId = 1; pageId <= 6; pageId++) {
+            pages.add(page(pageId, "page " + pageId));
+        }
+        file.writePages(pages);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        file.close();
+    }
+
+    @Test
+    void repeatedReadsAreServedFromThePool() throws IOException {
+        BufferPool pool = new BufferPool(4);
+
+        assertEquals("page 1", text(pool.read(file, 1)));
+        assertEquals("page 1", text(pool.read(file, 1)));
+
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    void clockGivesRecentlyReadPagesASecondChance() throws IOException {
+        BufferPool pool = new BufferPool(3);
+        pool.read(file, 1);
+        pool.read(file, 2);
+        pool.read(file, 3);
+
+        // The hand clears every bit, then takes page 1's frame
+        pool.read(file, 4);
+        // Page 2 is read again, so the next eviction passes it over for page 3
+        pool.read(file, 2);
+        pool.read(file, 5);
+
+        assertEquals(2, pool.getEvictions());
+        long misses = pool.getMisses();
+        pool.read(file, 2);
+        assertEquals(misses, pool.getMisses());
+        pool.read(file, 3);
+        assertEquals(misses + 1, pool.getMisses());
+    }
+
+    @Test
+    void pinnedPagesAreNeverEvicted() throws IOException {
+        BufferPool pool = new BufferPool(2);
+        Page pinned = pool.pin(file, 1);
+
+        for (int pageId = 2; pageId <= 6; pageId++) {
+            pool.read(file, pageId);
+        }
+        long misses = pool.getMisses();
+        assertEquals("page 1", text(pool.read(file, 1)));
+        assertEquals(misses, pool.getMisses());
+
+        Page other = pool.pin(file, 6);
+        // Every frame is pinned, so the read goes to the file and nothing is cached
+        assertEquals("page 3", text(pool.read(file, 3)));
+        assertEquals("page 3", text(pool.read(file, 3)));
+        assertEquals(misses + 2, pool.getMisses());
+        assertEquals(4, pool.getEvictions());
+
+        pool.unpin(pinned);
+        pool.unpin(other);
+        pool.read(file, 3);
+        assertEquals(5, pool.getEvictions());
+    }
+
+    @Test
+    void dirtyPagesReachTheFileWhenEvictedOrFlushed() throws IOException {
+        BufferPool pool = new BufferPool(2);
+
+        pool.write(file, page(1, "changed 1"));
+        pool.write(file, page(2, "changed 2"));
+        assertEquals(2, pool.getDirtyCount());
+        assertEquals("page 1", onDisk(1));
+        assertEquals("changed 1", text(pool.read(file, 1)));
+
+        // Both bits are set, so the hand clears them and comes back round to page 1
+        pool.read(file, 3);
+        assertEquals("changed 1", onDisk(1));
+        assertEquals("page 2", onDisk(2));
+        assertEquals(1, pool.getDirtyCount());
+
+        pool.write(file, page(3, "changed 3"));
+        pool.flush(file);
+        assertEquals(0, pool.getDirtyCount());
+        assertEquals("changed 2", onDisk(2));
+        assertEquals("changed 3", onDisk(3));
+    }
+
+    private String onDisk(int pageId) throws IOException {
+        return text(new Page(pageId, file.readFromDisk(pageId)));
+    }
+
+    private static Page page(int pageId, String text) {
+        Page page = Page.empty(pageId);
+        page.insertRecord(text.getBytes(StandardCharsets.UTF_8));
+        return page;
+    }
+
+    private static String text(Page page) {
+        ByteBuffer record = page.getRecord(0);
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
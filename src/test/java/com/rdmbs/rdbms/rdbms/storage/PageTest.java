@@ -0,0 +1,68 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageTest {
+
+    @Test
+    void recordsKeepTheirSlotsAcrossDeleteAndCompaction() {
+        Page page = Page.empty(1);
+        int first = page.insertRecord(bytes("first"));
+        int second = page.insertRecord(bytes("second"));
+        int third = page.insertRecord(bytes("third"));
+
+        page.deleteRecord(second);
+        page.compact();
+
+        assertEquals("first", text(page.getRecord(first)));
+        assertNull(page.getRecord(second));
+        assertEquals("third", text(page.getRecord(third)));
+        assertEquals(second, page.insertRecord(bytes("reused")));
+    }
+
+    @Test
+    void insertCompactsBeforeGivingUp() {
+        Page page = Page.empty(1);
+        byte[] half = new byte[Page.MAX_RECORD_SIZE / 2 - 8];
+        int a = page.insertRecord(half);
+        int b = page.insertRecord(half);
+        assertEquals(-1, page.insertRecord(half));
+
+        page.deleteRecord(a);
+        int c = page.insertRecord(half);
+
+        assertEquals(a, c);
+        assertEquals(half.length, page.getRecord(b).remaining());
+    }
+
+    @Test
+    void updateStaysInItsSlotOrReportsThatItDoesNotFit() {
+        Page page = Page.empty(1);
+        int slot = page.insertRecord(bytes("short"));
+
+        assertTrue(page.updateRecord(slot, bytes("a longer value")));
+        assertEquals("a longer value", text(page.getRecord(slot)));
+
+        page.insertRecord(new byte[Page.PAGE_SIZE / 2]);
+        assertFalse(page.updateRecord(slot, new byte[Page.PAGE_SIZE / 2]));
+        assertEquals("a longer value", text(page.getRecord(slot)));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
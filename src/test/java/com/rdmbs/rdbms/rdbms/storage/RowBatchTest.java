@@ -0,0 +1,110 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowBatchTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void pageDecodedIntoABatchHoldsTheSameValuesAsItsRows() throws IOException {
+        Table table = new Table("mixed");
+        table.addColumn(new Column("i", DataType.INT));
+        table.addColumn(new Column("l", DataType.LONG));
+        table.addColumn(new Column("d", DataType.DOUBLE));
+        table.addColumn(new Column("b", DataType.BOOLEAN));
+        table.addColumn(new Column("s", DataType.VARCHAR, 20));
+        TableStorage storage = new TableStorage(directory.toString());
+        try {
+            storage.createTableFile(table);
+            for (int i = 0; i < 50; i++) {
+                storage.insertRow(table, new Row(new ArrayList<>(Arrays.asList(
+                        i, (long) i << 40, i / 4.0, i % 2 == 0, i % 7 == 0 ? null : "tag" + i % 3))));
+            }
+            storage.commit(table.getName());
+
+            RowBatch batch = new RowBatch(table, null, 8);
+            int count = storage.readPageBatch(table, 1, batch, null);
+
+            List<Row> rows = storage.readPageRows(table, 1);
+            assertEquals(rows.size(), count);
+            int[] all = {0, 1, 2, 3, 4};
+            for (int p = 0; p < count; p++) {
+                assertEquals(rows.get(p).getValues(), batch.toRow(p, all).getValues());
+            }
+            // Three distinct strings however many rows hold them
+            assertEquals(3, batch.column(4).getDictionary().size());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void retainNarrowsTheSelectionWithoutMovingValues() {
+        Table table = new Table("t");
+        table.addColumn(new Column("v", DataType.INT));
+        table.addColumn(new Column("unread", DataType.INT));
+        RowBatch batch = new RowBatch(table, new boolean[] {true, false}, 4);
+        for (int i = 0; i < 10; i++) {
+            batch.column(0).appendInt(i);
+            batch.endRow();
+        }
+
+        boolean[] even = new boolean[10];
+        boolean[] small = new boolean[10];
+        for (int i = 0; i < 10; i++) {
+            even[i] = i % 2 == 0;
+            small[i] = i < 5;
+        }
+        batch.retain(even);
+        batch.retain(small);
+
+        assertEquals(3, batch.selectedCount());
+        assertEquals(List.of(0, 2, 4), List.of(batch.selected(0), batch.selected(1), batch.selected(2)));
+        assertEquals(Arrays.asList(4, null), batch.toRow(4, new int[] {0, 1}).getValues());
+        assertNull(batch.column(1));
+    }
+
+    @Test
+    void vectorKeepsNullsAndDictionaryCodesAcrossGrowthAndClear() {
+        ColumnVector vector = new ColumnVector(DataType.VARCHAR, 2);
+        ByteBuffer buffer = ByteBuffer.wrap("alphabetagamma".getBytes(StandardCharsets.UTF_8));
+        int[] offsets = {0, 5, 9};
+        int[] lengths = {5, 4, 5};
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                vector.appendNull();
+            } else {
+                vector.appendString(buffer, offsets[i % 3], lengths[i % 3]);
+            }
+        }
+
+        assertEquals(1000, vector.size());
+        assertTrue(vector.isNull(990));
+        assertEquals("beta", vector.getString(1));
+        assertEquals("gamma", vector.get(302));
+        assertEquals(vector.getCode(1), vector.getCode(301));
+        assertEquals(3, vector.getDictionary().size());
+
+        vector.clear();
+        vector.appendString(buffer, 5, 4);
+        assertEquals(1, vector.size());
+        assertEquals(List.of("beta"), vector.getDictionary());
+    }
+}
@@ -0,0 +1,152 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import com.rdmbs.rdbms.rdbms.schema.Column;
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.schema.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableStorageTest {
+    @TempDir
+    Path directory;
+
+    private Table table;
+    private TableStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table = new Table("items");
+        table.addColumn(new Column("id", DataType.INT));
+        table.addColumn(new Column("name", DataType.VARCHAR, 255));
+        storage = new TableStorage(directory.toString());
+        storage.createTableFile(table);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    @Test
+    void committedRowsSurviveReopening() throws IOException {
+        for (int i = 0; i < 2000; i++) {
+            storage.insertRow(table, row(i, "item " + i));
+        }
+        storage.commit(table.getName());
+        assertTrue(storage.getPageCount(table) > 1);
+
+        storage.close();
+        storage = new TableStorage(directory.toString());
+
+        List<Row> rows = storage.readAllRows(table);
+        assertEquals(2000, rows.size());
+        assertEquals(List.of(1999, "item 1999"), values(rows.get(1999)));
+    }
+
+    @Test
+    void rowThatOutgrowsItsPageMovesButKeepsItsRowId() throws IOException {
+        List<RowId> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(storage.insertRow(table, row(i, "item " + i)));
+        }
+        RowId first = ids.get(0);
+        String longName = "x".repeat(250);
+
+        storage.updateRow(table, first, row(0, longName));
+        storage.commit(table.getName());
+
+        assertEquals(List.of(0, longName), values(storage.readRow(table, first)));
+        List<Row> rows = storage.readAllRows(table);
+        assertEquals(1000, rows.size());
+        assertEquals(1, rows.stream().filter(r -> longName.equals(r.getValue(1))).count());
+        assertEquals(first, rows.stream().filter(r -> longName.equals(r.getValue(1))).findFirst().get().getRowId());
+    }
+
+    @Test
+    void deleteLeavesOtherRowIdsValid() throws IOException {
+        RowId a = storage.insertRow(table, row(1, "a"));
+        RowId b = storage.insertRow(table, row(2, "b"));
+        RowId c = storage.insertRow(table, row(3, "c"));
+
+        storage.deleteRow(table, b);
+        storage.updateRow(table, c, row(3, "c, updated in place"));
+        storage.commit(table.getName());
+        storage.compact(table.getName());
+
+        assertNull(storage.readRow(table, b));
+        assertEquals(List.of(1, "a"), values(storage.readRow(table, a)));
+        assertEquals(List.of(3, "c, updated in place"), values(storage.readRow(table, c)));
+        assertEquals(2, storage.readAllRows(table).size());
+    }
+
+    @Test
+    void deletingAForwardedRowRemovesBothCopies() throws IOException {
+        List<RowId> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(storage.insertRow(table, row(i, "item " + i)));
+        }
+        storage.updateRow(table, ids.get(5), row(5, "y".repeat(250)));
+
+        storage.deleteRow(table, ids.get(5));
+        storage.commit(table.getName());
+
+        assertNull(storage.readRow(table, ids.get(5)));
+        assertEquals(999, storage.readAllRows(table).size());
+    }
+
+    @Test
+    void crashAfterCommitIsRecoveredFromTheLog() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            storage.insertRow(table, row(i, "committed " + i));
+        }
+        storage.commit(table.getName());
+        storage.insertRow(table, row(100, "never committed"));
+
+        // Crash: the storage is never closed and the table file is lost, but the log survives
+        Files.delete(directory.resolve("items.tbl"));
+        storage = new TableStorage(directory.toString());
+
+        assertFalse(storage.wasShutDownCleanly());
+        List<Row> rows = storage.readAllRows(table);
+        assertEquals(100, rows.size());
+        assertEquals(List.of(99, "committed 99"), values(rows.get(99)));
+    }
+
+    @Test
+    void rollbackDiscardsPendingWrites() throws IOException {
+        storage.insertRow(table, row(1, "kept"));
+        storage.commit(table.getName());
+        storage.insertRow(table, row(2, "discarded"));
+
+        storage.rollback(List.of(table.getName()));
+
+        List<Row> rows = storage.readAllRows(table);
+        assertEquals(1, rows.size());
+        assertEquals(List.of(1, "kept"), values(rows.get(0)));
+    }
+
+    static Row row(Object... values) {
+        return new Row(new ArrayList<>(List.of(values)));
+    }
+
+    static List<Object> values(Row row) {
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < row.size(); i++) {
+            values.add(row.getValue(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,109 @@
+package com.rdmbs.rdbms.rdbms.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path directory;
+
+    private Path path;
+    private WriteAheadLog log;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = directory.resolve("wal.log");
+        log = new WriteAheadLog(path);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        log.close();
+    }
+
+    @Test
+    void replaysCommittedBatchesInOrder() throws IOException {
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(1, "first")))));
+        log.awaitDurable(log.logTruncate("b"));
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(1, "second"), page(2, "third")))));
+
+        assertEquals(List.of("page a 1 first", "truncate b", "page a 1 second", "page a 2 third"), reopenAndReplay());
+    }
+
+    @Test
+    void tornTailIsIgnoredAndCutOff() throws IOException {
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(1, "kept")))));
+        long intact = log.size();
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(2, "torn")))));
+        log.close();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(intact + 100);
+        }
+
+        assertEquals(List.of("page a 1 kept"), reopenAndReplay());
+        assertEquals(intact, Files.size(path));
+
+        // A batch appended after the cut is not mistaken for part of the torn one
+        log.awaitDurable(log.logDrop("a"));
+        assertEquals(List.of("page a 1 kept", "drop a"), reopenAndReplay());
+    }
+
+    @Test
+    void batchWithABadChecksumEndsTheReplay() throws IOException {
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(1, "kept")))));
+        long intact = log.size();
+        log.awaitDurable(log.logPages(Map.of("a", List.of(page(2, "corrupt")))));
+        log.awaitDurable(log.logDrop("a"));
+        log.close();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(intact + 20);
+            file.write(0x5A);
+        }
+
+        assertEquals(List.of("page a 1 kept"), reopenAndReplay());
+    }
+
+    private List<String> reopenAndReplay() throws IOException {
+        log.close();
+        log = new WriteAheadLog(path);
+        List<String> events = new ArrayList<>();
+        log.replay(new WriteAheadLog.Replayer() {
+            @Override
+            public void page(String tableName, Page page) {
+                byte[] text = new byte[page.getRecord(0).remaining()];
+                page.getRecord(0).get(text);
+                events.add("page " + tableName + " " + page.getPageId() + " " + new String(text, StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public void truncate(String tableName) {
+                events.add("truncate " + tableName);
+            }
+
+            @Override
+            public void drop(String tableName) {
+                events.add("drop " + tableName);
+            }
+        });
+        return events;
+    }
+
+    private static Page page(int pageId, String text) {
+        Page page = Page.empty(pageId);
+        page.insertRecord(text.getBytes(StandardCharsets.UTF_8));
+        return page;
+    }
+}
@@ -0,0 +1,190 @@
+package com.rdmbs.rdbms.service;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarResultWriterTest {
+
+    @Test
+    void smallIntegersTakeOneOrTwoBytes() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ColumnarResultWriter writer = new ColumnarResultWriter(body);
+
+        writer.begin(List.of("id"), List.of(DataType.INT));
+        for (Integer value : Arrays.asList(0, -1, 1, 300, null)) {
+            writer.row(row(value));
+        }
+        writer.end(true, null, 5, 0);
+
+        assertArrayEquals(new byte[] {
+                'R', 'D', 'B', 'C', 1, 0, 1, 0, 2, 'i', 'd', 3, 'I', 'N', 'T',
+                0, 0, 0, 5, 0x10, 0, 1, 2, (byte) 0xD8, 4,
+                0, 0, 0, 0, 1, 0, 0, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0, -1, -1, -1, -1}, body.toByteArray());
+    }
+
+    @Test
+    void everyTypeDecodesToTheValuesWritten() throws IOException {
+        List<DataType> types = List.of(DataType.INT, DataType.LONG, DataType.DOUBLE, DataType.BOOLEAN,
+                DataType.VARCHAR, DataType.DATE);
+        List<Row> rows = List.of(
+                row(Integer.MIN_VALUE, Long.MAX_VALUE, -0.5, true, "héllo", 19000L),
+                row(null, null, null, null, null, null),
+                row(42, -123456789012L, 1e300, false, "", -1L));
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ColumnarResultWriter writer = new ColumnarResultWriter(body);
+
+        writer.begin(List.of("i", "l", "d", "b", "s", "day"), types);
+        for (Row row : rows) {
+            writer.row(row);
+        }
+        writer.end(true, "3 rows", 3, 12);
+
+        Decoded decoded = decode(body);
+        assertEquals(List.of("i", "l", "d", "b", "s", "day"), decoded.names);
+        assertEquals(List.of("INT", "LONG", "DOUBLE", "BOOLEAN", "VARCHAR", "DATE"), decoded.types);
+        assertEquals(List.of(3), decoded.blockSizes);
+        assertEquals(List.of(
+                Arrays.asList((long) Integer.MIN_VALUE, Long.MAX_VALUE, -0.5, true, "héllo", 19000L),
+                Arrays.asList(null, null, null, null, null, null),
+                Arrays.asList(42L, -123456789012L, 1e300, false, "", -1L)), decoded.rows);
+        assertTrue(decoded.success);
+        assertEquals(3, decoded.rowCount);
+        assertEquals(12, decoded.executionTimeMs);
+        assertEquals("3 rows", decoded.message);
+    }
+
+    @Test
+    void rowsAreSentInBlocksOfAtMostBlockRows() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ColumnarResultWriter writer = new ColumnarResultWriter(body);
+        int count = 2 * ColumnarResultWriter.BLOCK_ROWS + 5;
+
+        writer.begin(List.of("n", "s"), List.of(DataType.INT, DataType.VARCHAR));
+        for (int i = 0; i < count; i++) {
+            writer.row(row(i, i % 3 == 0 ? null : "v" + i));
+        }
+        // A full block is on the wire before the result ends
+        assertTrue(body.size() > 2 * ColumnarResultWriter.BLOCK_ROWS);
+        writer.end(true, null, count, 1);
+
+        Decoded decoded = decode(body);
+        assertEquals(List.of(ColumnarResultWriter.BLOCK_ROWS, ColumnarResultWriter.BLOCK_ROWS, 5), decoded.blockSizes);
+        assertEquals(count, decoded.rows.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(Arrays.asList((long) i, i % 3 == 0 ? null : "v" + i), decoded.rows.get(i));
+        }
+    }
+
+    @Test
+    void failureBeforeAnyRowsWritesAnEmptyHeaderAndTheEnd() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        new ColumnarResultWriter(body).end(false, "Table does not exist: missing", 0, 2);
+
+        Decoded decoded = decode(body);
+        assertEquals(List.of(), decoded.names);
+        assertEquals(List.of(), decoded.blockSizes);
+        assertFalse(decoded.success);
+        assertEquals("Table does not exist: missing", decoded.message);
+    }
+
+    /** Reads a whole body the way a client would, checking that nothing follows the end marker. */
+    private static Decoded decode(ByteArrayOutputStream body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.toByteArray()));
+        Decoded decoded = new Decoded();
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        assertEquals("RDBC", new String(magic, StandardCharsets.US_ASCII));
+        assertEquals(1, in.readUnsignedByte());
+        int columns = in.readUnsignedShort();
+        for (int c = 0; c < columns; c++) {
+            decoded.names.add(new String(readBytes(in, in.readUnsignedShort()), StandardCharsets.UTF_8));
+            decoded.types.add(new String(readBytes(in, in.readUnsignedByte()), StandardCharsets.US_ASCII));
+        }
+
+        int rows;
+        while ((rows = in.readInt()) != 0) {
+            decoded.blockSizes.add(rows);
+            List<List<Object>> block = new ArrayList<>();
+            for (int r = 0; r < rows; r++) {
+                block.add(new ArrayList<>());
+            }
+            for (int c = 0; c < columns; c++) {
+                byte[] nulls = readBytes(in, (rows + 7) / 8);
+                for (int r = 0; r < rows; r++) {
+                    boolean isNull = (nulls[r >> 3] & (1 << (r & 7))) != 0;
+                    block.get(r).add(isNull ? null : readValue(in, decoded.types.get(c)));
+                }
+            }
+            decoded.rows.addAll(block);
+        }
+        decoded.success = in.readBoolean();
+        decoded.rowCount = in.readInt();
+        decoded.executionTimeMs = in.readLong();
+        int length = in.readInt();
+        decoded.message = length < 0 ? null : new String(readBytes(in, length), StandardCharsets.UTF_8);
+        assertEquals(-1, in.read());
+        return decoded;
+    }
+
+    private static Object readValue(DataInputStream in, String type) throws IOException {
+        switch (type) {
+            case "DOUBLE":
+                return in.readDouble();
+            case "BOOLEAN":
+                return in.readBoolean();
+            case "VARCHAR":
+                return new String(readBytes(in, (int) readVarLong(in)), StandardCharsets.UTF_8);
+            default:
+                long zigzag = readVarLong(in);
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static Row row(Object... values) {
+        return new Row(new ArrayList<>(Arrays.asList(values)));
+    }
+
+    private static final class Decoded {
+        final List<String> names = new ArrayList<>();
+        final List<String> types = new ArrayList<>();
+        final List<Integer> blockSizes = new ArrayList<>();
+        final List<List<Object>> rows = new ArrayList<>();
+        boolean success;
+        int rowCount;
+        long executionTimeMs;
+        String message;
+    }
+}
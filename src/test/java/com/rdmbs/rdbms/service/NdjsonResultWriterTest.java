@@ -0,0 +1,122 @@
+package com.rdmbs.rdbms.service;
+
+import com.rdmbs.rdbms.rdbms.schema.DataType;
+import com.rdmbs.rdbms.rdbms.storage.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdjsonResultWriterTest {
+    @TempDir
+    Path directory;
+
+    private DatabaseService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DatabaseService(directory.toString());
+        service.executeSQL("CREATE TABLE products (id INT PRIMARY KEY, name VARCHAR(20), price DOUBLE)");
+        service.executeSQL("INSERT INTO products VALUES (1, 'Laptop', 750.5), (2, 'Mouse', NULL), (3, 'Desk \"Pro\"', 120.0)");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.shutdown();
+    }
+
+    @Test
+    void writesAHeaderOneArrayPerRowAndASummary() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        NdjsonResultWriter writer = new NdjsonResultWriter(body);
+
+        writer.begin(List.of("id", "note", "score"), Arrays.asList(DataType.INT, DataType.VARCHAR, null));
+        writer.row(row(1, "tab\there \"quoted\"\n", 2.5));
+        writer.row(row(2L, null, Double.NaN));
+        writer.row(row(true, "\u0001", null));
+        writer.end(true, null, 3, 7);
+
+        assertEquals(List.of(
+                "{\"columnNames\":[\"id\",\"note\",\"score\"],\"columnTypes\":[\"INT\",\"VARCHAR\",null]}",
+                "[1,\"tab\\there \\\"quoted\\\"\\n\",2.5]",
+                "[2,null,\"NaN\"]",
+                "[true,\"\\u0001\",null]",
+                "{\"success\":true,\"message\":null,\"rowCount\":3,\"executionTimeMs\":7}"), lines(body));
+    }
+
+    @Test
+    void streamedQueryWritesItsRowsInOrder() throws IOException {
+        List<String> lines = stream("SELECT id, name, price FROM products ORDER BY id;");
+
+        assertEquals(5, lines.size());
+        assertEquals("{\"columnNames\":[\"id\",\"name\",\"price\"],\"columnTypes\":[\"INT\",\"VARCHAR\",\"DOUBLE\"]}",
+                lines.get(0));
+        assertEquals("[1,\"Laptop\",750.5]", lines.get(1));
+        assertEquals("[2,\"Mouse\",null]", lines.get(2));
+        assertEquals("[3,\"Desk \\\"Pro\\\"\",120.0]", lines.get(3));
+        assertTrue(lines.get(4).startsWith("{\"success\":true,"), lines.get(4));
+        assertTrue(lines.get(4).contains("\"rowCount\":3"), lines.get(4));
+    }
+
+    @Test
+    void failedStatementWritesTheSummaryOnly() throws IOException {
+        List<String> lines = stream("SELECT * FROM missing");
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"success\":false,\"message\":\""), lines.get(0));
+    }
+
+    @Test
+    void metaCommandsAreStreamedAsText() throws IOException {
+        List<String> lines = stream("SHOW TABLES");
+
+        assertEquals(List.of(
+                "{\"columnNames\":[\"Tables\"],\"columnTypes\":[\"VARCHAR\"]}",
+                "[\"products\"]"), lines.subList(0, 2));
+        assertTrue(lines.get(2).contains("\"rowCount\":1"), lines.get(2));
+    }
+
+    @Test
+    void clientThatGoesAwayReleasesTheQuery() {
+        ResultWriter disconnected = new NdjsonResultWriter(new ByteArrayOutputStream()) {
+            @Override
+            public void row(Row row) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> service.streamSQL("SELECT * FROM products", List.of(), disconnected));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertTrue(service.executeSQL("INSERT INTO products VALUES (4, 'Lamp', 30.0)").isSuccess()));
+    }
+
+    private List<String> stream(String sql) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        service.streamSQL(sql, List.of(), new NdjsonResultWriter(body));
+        return lines(body);
+    }
+
+    private static List<String> lines(ByteArrayOutputStream body) {
+        String text = body.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        return List.of(text.substring(0, text.length() - 1).split("\n", -1));
+    }
+
+    private static Row row(Object... values) {
+        return new Row(new ArrayList<>(Arrays.asList(values)));
+    }
+}